@@ -33,6 +33,9 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * Multimedia content
@@ -56,6 +59,16 @@ public abstract class MmContent {
      */
     private BufferedOutputStream mOut;
 
+    /**
+     * Channel to write received byte ranges directly to file at their offset.
+     */
+    private FileChannel mChannel;
+
+    /**
+     * True once the file is closed or deleted: a late byte range is not written to it.
+     */
+    private boolean mChannelReleased;
+
     /**
      * Constructor
      * 
@@ -217,6 +230,34 @@ public abstract class MmContent {
         }
     }
 
+    /**
+     * Write a byte range to file at its offset
+     * 
+     * @param offset Offset of the range in the file
+     * @param data Data from position to limit
+     * @throws FileAccessException
+     */
+    public void writeData2File(long offset, ByteBuffer data) throws FileAccessException {
+        try {
+            if (mChannel == null) {
+                if (mChannelReleased) {
+                    throw new FileAccessException("File already closed: " + mUri);
+                }
+                mChannel = new RandomAccessFile(mUri.getPath(), "rw").getChannel();
+                if (offset == 0) {
+                    /* Drop the end of a previous and longer content */
+                    mChannel.truncate(0);
+                }
+            }
+            long position = offset;
+            while (data.hasRemaining()) {
+                position += mChannel.write(data, position);
+            }
+        } catch (IOException e) {
+            throw new FileAccessException("Failed to write data chunk to file!", e);
+        }
+    }
+
     /**
      * Close written file and update media storage.
      */
@@ -225,6 +266,8 @@ public abstract class MmContent {
             FileFactory.getFactory().updateMediaStorage(getUri().getEncodedPath());
         } finally {
             CloseableUtils.tryToClose(mOut);
+            CloseableUtils.tryToClose(mChannel);
+            releaseFile();
         }
     }
 
@@ -235,6 +278,8 @@ public abstract class MmContent {
      */
     public void deleteFile() throws IOException {
         CloseableUtils.tryToClose(mOut);
+        CloseableUtils.tryToClose(mChannel);
+        releaseFile();
         Uri fileToDelete = getUri();
         if (ContentResolver.SCHEME_FILE.equals(fileToDelete.getScheme())) {
             File file = new File(fileToDelete.getPath());
@@ -245,4 +290,9 @@ public abstract class MmContent {
             throw new IOException("Not possible to delete file: " + fileToDelete);
         }
     }
+
+    private void releaseFile() {
+        mChannel = null;
+        mChannelReleased = true;
+    }
 }
@@ -32,6 +32,8 @@ import com.gsma.rcs.core.ims.network.gsm.CallManager;
 import com.gsma.rcs.core.ims.network.sip.SipManager;
 import com.gsma.rcs.core.ims.protocol.PayloadException;
 import com.gsma.rcs.core.ims.protocol.msrp.MsrpConnection;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpConnectionPool;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpNioTransport;
 import com.gsma.rcs.core.ims.protocol.sip.SipEventListener;
 import com.gsma.rcs.core.ims.protocol.sip.SipRequest;
 import com.gsma.rcs.core.ims.service.ImsService;
@@ -54,10 +56,13 @@ import com.gsma.rcs.provider.history.HistoryLog;
 import com.gsma.rcs.provider.messaging.MessagingLog;
 import com.gsma.rcs.provider.settings.RcsSettings;
 import com.gsma.rcs.provider.sharing.RichCallHistory;
+import com.gsma.rcs.utils.capture.WireCapture;
 import com.gsma.rcs.utils.logger.Logger;
 
 import android.content.Context;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -146,7 +151,20 @@ public class ImsModule implements SipEventListener {
     public void initialize() {
         SipManager.setTimeout(mRcsSettings.getSipTransactionTimeout());
         MsrpConnection.setMsrpTraceEnabled(mRcsSettings.isMediaTraceActivated());
+        MsrpConnection.setNioTransportEnabled(mRcsSettings.isMsrpNioTransportEnabled());
+        MsrpNioTransport.setIoThreadCount(mRcsSettings.getMsrpNioIoThreads());
+        MsrpConnectionPool.setEnabled(mRcsSettings.isMsrpConnectionReuseEnabled());
+        MsrpConnectionPool.setIdleTimeout(mRcsSettings.getMsrpConnectionIdleTimeout());
         HttpTransferManager.setHttpTraceEnabled(mRcsSettings.isMediaTraceActivated());
+        if (mRcsSettings.isSipTraceActivated() || mRcsSettings.isMediaTraceActivated()) {
+            try {
+                WireCapture.start(new File(mRcsSettings.getWireCaptureDirectory()),
+                        mRcsSettings.getWireCaptureFileSize(),
+                        mRcsSettings.getWireCaptureFileCount());
+            } catch (IOException e) {
+                sLogger.error("Failed to start the capture of the SIP and media messages!", e);
+            }
+        }
 
         mCnxManager.initialize();
         getInstantMessagingService().initialize();
@@ -235,6 +253,7 @@ public class ImsModule implements SipEventListener {
         mCnxManager.terminate();
         mServiceDispatcher.terminate();
         mExtensionManager.stop();
+        WireCapture.stop();
         if (sLogger.isActivated()) {
             sLogger.info("IMS module has been stopped");
         }
@@ -25,6 +25,7 @@ package com.gsma.rcs.core.ims.network;
 import com.gsma.rcs.core.Core;
 import com.gsma.rcs.core.ims.ImsModule;
 import com.gsma.rcs.core.ims.network.ImsNetworkInterface.DnsResolvedFields;
+import com.gsma.rcs.core.ims.network.dns.ImsProxyResolver;
 import com.gsma.rcs.core.ims.protocol.PayloadException;
 import com.gsma.rcs.core.ims.protocol.rtp.core.RtpSource;
 import com.gsma.rcs.core.ims.service.ImsServiceSession.TerminationReason;
@@ -45,6 +46,7 @@ import android.net.NetworkInfo;
 import android.os.BatteryManager;
 import android.telephony.TelephonyManager;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.UnknownHostException;
 import java.security.cert.CertificateException;
@@ -60,6 +62,11 @@ public class ImsConnectionManager implements Runnable {
 
     private static final long DEFAULT_RETRY_PERIOD = 5000;
 
+    /**
+     * File in which the DNS answers used to resolve the IMS proxy are persisted
+     */
+    private static final String DNS_CACHE_FILENAME = "dns_cache";
+
     private final Core mCore;
 
     private final ImsModule mImsModule;
@@ -80,6 +87,8 @@ public class ImsConnectionManager implements Runnable {
 
     private DnsResolvedFields mDnsResolvedFields;
 
+    private ImsProxyResolver mProxyResolver;
+
     /**
      * Battery level state
      */
@@ -120,8 +129,11 @@ public class ImsConnectionManager implements Runnable {
         mNetwork = mRcsSettings.getNetworkAccess();
         mOperator = mRcsSettings.getNetworkOperator();
         /* Instantiates the IMS network interfaces */
-        mNetworkInterfaces[0] = new MobileNetworkInterface(mImsModule, mRcsSettings);
-        mNetworkInterfaces[1] = new WifiNetworkInterface(mImsModule, mRcsSettings);
+        mProxyResolver = new ImsProxyResolver(new File(mCtx.getFilesDir(), DNS_CACHE_FILENAME));
+        mNetworkInterfaces[0] = new MobileNetworkInterface(mImsModule, mRcsSettings,
+                mProxyResolver);
+        mNetworkInterfaces[1] = new WifiNetworkInterface(mImsModule, mRcsSettings,
+                mProxyResolver);
         /* Set the mobile network interface by default */
         mCurrentNetworkInterface = getMobileNetworkInterface();
         loadUserProfile();
@@ -231,6 +243,7 @@ public class ImsConnectionManager implements Runnable {
         }
         stopImsConnection(TerminationReason.TERMINATION_BY_SYSTEM);
         mCurrentNetworkInterface.unregister();
+        mProxyResolver.close();
         if (sLogger.isActivated()) {
             sLogger.info("IMS connection manager has been terminated");
         }
@@ -311,6 +324,8 @@ public class ImsConnectionManager implements Runnable {
                     }
                 }
             }
+            /* The DNS answers cached on another network are not used */
+            mProxyResolver.setNetwork(getNetworkId(networkInfo));
             String localIpAddr;
             if (networkInfo.getType() != mCurrentNetworkInterface.getType()) {
                 if (sLogger.isActivated()) {
@@ -433,6 +448,21 @@ public class ImsConnectionManager implements Runnable {
         }
     }
 
+    /**
+     * Returns the identifier of a network: its type along with its APN or SSID if known
+     *
+     * @param networkInfo Network
+     * @return Network identifier
+     */
+    private static String getNetworkId(NetworkInfo networkInfo) {
+        String extraInfo = networkInfo.getExtraInfo();
+        if (extraInfo == null) {
+            return networkInfo.getTypeName();
+        }
+        return new StringBuilder(networkInfo.getTypeName()).append('/').append(extraInfo)
+                .toString();
+    }
+
     /**
      * Connect to IMS network interface
      * 
@@ -567,6 +597,7 @@ public class ImsConnectionManager implements Runnable {
                             nbFailures++;
                             /* Force to perform a new DNS lookup */
                             mDnsResolvedFields = null;
+                            mProxyResolver.invalidate();
                         }
                     } else {
                         if (mImsModule.isInitializationFinished()) {
@@ -592,6 +623,7 @@ public class ImsConnectionManager implements Runnable {
                     nbFailures++;
                     /* Force to perform a new DNS lookup */
                     mDnsResolvedFields = null;
+                    mProxyResolver.invalidate();
 
                 } catch (NetworkException e) {
                     if (sLogger.isActivated()) {
@@ -602,6 +634,7 @@ public class ImsConnectionManager implements Runnable {
                     nbFailures++;
                     /* Force to perform a new DNS lookup */
                     mDnsResolvedFields = null;
+                    mProxyResolver.invalidate();
                 }
                 // InterruptedException thrown by stopImsConnection() may be caught by one
                 // of the methods used in currentNetworkInterface.register() above
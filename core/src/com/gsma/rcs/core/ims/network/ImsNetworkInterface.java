@@ -24,6 +24,7 @@ package com.gsma.rcs.core.ims.network;
 
 import com.gsma.rcs.core.access.NetworkAccess;
 import com.gsma.rcs.core.ims.ImsModule;
+import com.gsma.rcs.core.ims.network.dns.ImsProxyResolver;
 import com.gsma.rcs.core.ims.network.registration.GibaRegistrationProcedure;
 import com.gsma.rcs.core.ims.network.registration.HttpDigestRegistrationProcedure;
 import com.gsma.rcs.core.ims.network.registration.RegistrationManager;
@@ -39,17 +40,9 @@ import com.gsma.rcs.provider.settings.RcsSettingsData.AuthenticationProcedure;
 import com.gsma.rcs.utils.logger.Logger;
 import com.gsma.services.rcs.RcsServiceRegistration;
 
-import org.xbill.DNS.Cache;
-import org.xbill.DNS.ExtendedResolver;
-import org.xbill.DNS.Lookup;
-import org.xbill.DNS.NAPTRRecord;
-import org.xbill.DNS.Record;
-import org.xbill.DNS.ResolverConfig;
-import org.xbill.DNS.SRVRecord;
 import org.xbill.DNS.TextParseException;
-import org.xbill.DNS.Type;
 
-import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 
 import javax2.sip.ListeningPoint;
@@ -61,11 +54,6 @@ import javax2.sip.ListeningPoint;
  */
 public abstract class ImsNetworkInterface {
 
-    /**
-     * The maximum time in seconds that a negative response will be stored in this DNS Cache.
-     */
-    private static final int DNS_NEGATIVE_CACHING_TIME = 5;
-
     /**
      * IPv4 address format
      */
@@ -179,6 +167,8 @@ public abstract class ImsNetworkInterface {
 
     private final RcsSettings mRcsSettings;
 
+    private final ImsProxyResolver mProxyResolver;
+
     /**
      * Holds retry duration value obtained from Retry-After header
      * <p>
@@ -200,10 +190,12 @@ public abstract class ImsNetworkInterface {
      * @param proxyProtocol IMS proxy protocol
      * @param authentMode IMS authentication mode
      * @param rcsSettings the RCS settings accessor
+     * @param proxyResolver IMS proxy resolver
      */
     public ImsNetworkInterface(ImsModule imsModule, int type, NetworkAccess access,
             String proxyAddr, int proxyPort, String proxyProtocol,
-            AuthenticationProcedure authentMode, RcsSettings rcsSettings) {
+            AuthenticationProcedure authentMode, RcsSettings rcsSettings,
+            ImsProxyResolver proxyResolver) {
         mImsModule = imsModule;
         mType = type;
         mAccess = access;
@@ -212,6 +204,7 @@ public abstract class ImsNetworkInterface {
         mImsProxyProtocol = proxyProtocol;
         mImsAuthentMode = authentMode;
         mRcsSettings = rcsSettings;
+        mProxyResolver = proxyResolver;
         if (ListeningPoint.UDP.equals(mImsProxyProtocol)) {
             mTcpFallback = mRcsSettings.isTcpFallback();
         }
@@ -417,86 +410,6 @@ public abstract class ImsNetworkInterface {
         return mRegistration.getReasonCode();
     }
 
-    /**
-     * Get DNS records
-     * 
-     * @param domain Domain
-     * @param resolver Resolver
-     * @param type (Type.SRV or Type.NAPTR)
-     * @return SRV records or null if no record
-     * @throws TextParseException
-     */
-    private Record[] getDnsRequest(String domain, ExtendedResolver resolver, int type)
-            throws TextParseException {
-        if (sLogger.isActivated()) {
-            if (type == Type.SRV) {
-                sLogger.debug("DNS SRV lookup for " + domain);
-            } else if (type == Type.NAPTR) {
-                sLogger.debug("DNS NAPTR lookup for " + domain);
-            }
-        }
-        Lookup lookup = new Lookup(domain, type);
-        lookup.setResolver(resolver);
-        // Default negative cache TTL value is "cache forever". We do not want that.
-        Cache cache = Lookup.getDefaultCache(type);
-        cache.setMaxNCache(DNS_NEGATIVE_CACHING_TIME);
-        lookup.setCache(cache);
-        Record[] result = lookup.run();
-        int code = lookup.getResult();
-        if (code != Lookup.SUCCESSFUL) {
-            if (sLogger.isActivated()) {
-                sLogger.warn("Lookup error: " + code + "/" + lookup.getErrorString());
-            }
-        }
-        return result;
-    }
-
-    /**
-     * Get DNS A record
-     * 
-     * @param domain Domain
-     * @return IP address or null if no record
-     * @throws UnknownHostException
-     */
-    private String getDnsA(String domain) throws UnknownHostException {
-        if (sLogger.isActivated()) {
-            sLogger.debug("DNS A lookup for " + domain);
-        }
-        return InetAddress.getByName(domain).getHostAddress();
-    }
-
-    /**
-     * Get best DNS SRV record
-     * 
-     * @param records SRV records
-     * @return IP address
-     */
-    private SRVRecord getBestDnsSRV(Record[] records) {
-        SRVRecord result = null;
-        for (Record record : records) {
-            SRVRecord srv = (SRVRecord) record;
-            if (sLogger.isActivated()) {
-                sLogger.debug("SRV record: " + srv.toString());
-            }
-            if (result == null) {
-                // First record
-                result = srv;
-            } else {
-                // Next record
-                if (srv.getPriority() < result.getPriority()) {
-                    // Lowest priority
-                    result = srv;
-                } else if (srv.getPriority() == result.getPriority()) {
-                    // Highest weight
-                    if (srv.getWeight() > result.getWeight()) {
-                        result = srv;
-                    }
-                }
-            }
-        }
-        return result;
-    }
-
     /**
      * Get the SRV Query
      * 
@@ -536,16 +449,6 @@ public abstract class ImsNetworkInterface {
                 dnsResolvedFields = new DnsResolvedFields(null, mImsProxyPort);
             }
             if (useDns) {
-                ResolverConfig.refresh();
-                ExtendedResolver resolver = new ExtendedResolver();
-                /*
-                 * Resolve the IMS proxy configuration: first try to resolve via a NAPTR query, then
-                 * a SRV query and finally via A query
-                 */
-                if (sLogger.isActivated()) {
-                    sLogger.debug("Resolve IMS proxy address ".concat(mImsProxyAddr));
-                }
-                /* DNS NAPTR lookup */
                 String service;
                 if (ListeningPoint.UDP.equals(mImsProxyProtocol)) {
                     service = DNS_SIP_UDP_SERVICE;
@@ -559,71 +462,17 @@ public abstract class ImsNetworkInterface {
                 } else {
                     throw new PayloadException("Unkown SIP protocol : " + mImsProxyProtocol);
                 }
-                boolean resolved = false;
-                Record[] naptrRecords = getDnsRequest(mImsProxyAddr, resolver, Type.NAPTR);
-                if ((naptrRecords != null) && (naptrRecords.length > 0)) {
-                    /* First try with NAPTR */
-                    if (sLogger.isActivated()) {
-                        sLogger.debug("NAPTR records found: " + naptrRecords.length);
-                    }
-                    for (Record naptrRecord : naptrRecords) {
-                        NAPTRRecord naptr = (NAPTRRecord) naptrRecord;
-                        if (sLogger.isActivated()) {
-                            sLogger.debug("NAPTR record: ".concat(naptr.toString()));
-                        }
-                        if ((naptr != null) && naptr.getService().equalsIgnoreCase(service)) {
-                            /* DNS SRV lookup */
-                            Record[] srvRecords = getDnsRequest(naptr.getReplacement().toString(),
-                                    resolver, Type.SRV);
-                            if ((srvRecords != null) && (srvRecords.length > 0)) {
-                                SRVRecord srvRecord = getBestDnsSRV(srvRecords);
-                                dnsResolvedFields.mIpAddress = getDnsA(srvRecord.getTarget()
-                                        .toString());
-                                dnsResolvedFields.mPort = srvRecord.getPort();
-                            } else {
-                                /* Direct DNS A lookup */
-                                dnsResolvedFields.mIpAddress = getDnsA(mImsProxyAddr);
-                            }
-                            resolved = true;
-                        }
-                    }
-                }
-                if (!resolved) {
-                    /* If no NAPTR: direct DNS SRV lookup */
-                    if (sLogger.isActivated()) {
-                        sLogger.debug("No NAPTR record found: use DNS SRV instead");
-                    }
-                    String srvQuery;
-                    if (mImsProxyAddr.startsWith(DNS_SIP_PREFIX)
-                            || mImsProxyAddr.startsWith(DNS_SIPS_PREFIX)) {
-                        srvQuery = mImsProxyAddr;
-                    } else {
-                        srvQuery = getSrvQuery(service);
-                    }
-                    Record[] srvRecords = getDnsRequest(srvQuery, resolver, Type.SRV);
-                    if ((srvRecords != null) && (srvRecords.length > 0)) {
-                        SRVRecord srvRecord = getBestDnsSRV(srvRecords);
-                        dnsResolvedFields.mIpAddress = getDnsA(srvRecord.getTarget().toString());
-                        dnsResolvedFields.mPort = srvRecord.getPort();
-                        resolved = true;
-                    }
-                    if (!resolved) {
-                        /* If not resolved: direct DNS A lookup */
-                        if (sLogger.isActivated()) {
-                            sLogger.debug("No SRV record found: use DNS A instead");
-                        }
-                        dnsResolvedFields.mIpAddress = getDnsA(mImsProxyAddr);
-                    }
-                }
-            }
-            if (dnsResolvedFields.mIpAddress == null) {
-                /* Try to use IMS proxy address as a fallback */
-                String imsProxyAddrResolved = getDnsA(mImsProxyAddr);
-                if (imsProxyAddrResolved == null) {
-                    throw new PayloadException("Proxy IP address : " + mImsProxyAddr
-                            + " not found!");
+                String srvQuery;
+                if (mImsProxyAddr.startsWith(DNS_SIP_PREFIX)
+                        || mImsProxyAddr.startsWith(DNS_SIPS_PREFIX)) {
+                    srvQuery = mImsProxyAddr;
+                } else {
+                    srvQuery = getSrvQuery(service);
                 }
-                dnsResolvedFields = new DnsResolvedFields(imsProxyAddrResolved, mImsProxyPort);
+                InetSocketAddress proxy = mProxyResolver.resolve(mImsProxyAddr, service, srvQuery,
+                        mImsProxyPort, !ListeningPoint.UDP.equals(mImsProxyProtocol));
+                dnsResolvedFields.mIpAddress = proxy.getAddress().getHostAddress();
+                dnsResolvedFields.mPort = proxy.getPort();
             }
             if (sLogger.isActivated()) {
                 sLogger.debug("SIP outbound proxy configuration: " + dnsResolvedFields.mIpAddress
@@ -24,6 +24,7 @@ package com.gsma.rcs.core.ims.network;
 
 import com.gsma.rcs.core.access.MobileNetworkAccess;
 import com.gsma.rcs.core.ims.ImsModule;
+import com.gsma.rcs.core.ims.network.dns.ImsProxyResolver;
 import com.gsma.rcs.provider.settings.RcsSettings;
 import com.gsma.rcs.utils.logger.Logger;
 
@@ -45,12 +46,15 @@ public class MobileNetworkInterface extends ImsNetworkInterface {
      * 
      * @param imsModule IMS module
      * @param rcsSettings the RCS settings accessor
+     * @param proxyResolver IMS proxy resolver
      */
-    public MobileNetworkInterface(ImsModule imsModule, RcsSettings rcsSettings) {
+    public MobileNetworkInterface(ImsModule imsModule, RcsSettings rcsSettings,
+            ImsProxyResolver proxyResolver) {
         super(imsModule, ConnectivityManager.TYPE_MOBILE, new MobileNetworkAccess(rcsSettings),
                 rcsSettings.getImsProxyAddrForMobile(), rcsSettings.getImsProxyPortForMobile(),
                 rcsSettings.getSipDefaultProtocolForMobile(), rcsSettings
-                        .getImsAuthenticationProcedureForMobile(), rcsSettings);
+                        .getImsAuthenticationProcedureForMobile(), rcsSettings,
+                proxyResolver);
 
         if (logger.isActivated()) {
             logger.info("Mobile network interface has been loaded");
@@ -24,6 +24,7 @@ package com.gsma.rcs.core.ims.network;
 
 import com.gsma.rcs.core.access.WifiNetworkAccess;
 import com.gsma.rcs.core.ims.ImsModule;
+import com.gsma.rcs.core.ims.network.dns.ImsProxyResolver;
 import com.gsma.rcs.provider.settings.RcsSettings;
 import com.gsma.rcs.utils.logger.Logger;
 
@@ -45,12 +46,15 @@ public class WifiNetworkInterface extends ImsNetworkInterface {
      * 
      * @param imsModule IMS module
      * @param rcsSettings the RCS settings accessor
+     * @param proxyResolver IMS proxy resolver
      */
-    public WifiNetworkInterface(ImsModule imsModule, RcsSettings rcsSettings) {
+    public WifiNetworkInterface(ImsModule imsModule, RcsSettings rcsSettings,
+            ImsProxyResolver proxyResolver) {
         super(imsModule, ConnectivityManager.TYPE_WIFI, new WifiNetworkAccess(rcsSettings),
                 rcsSettings.getImsProxyAddrForWifi(), rcsSettings.getImsProxyPortForWifi(),
                 rcsSettings.getSipDefaultProtocolForWifi(), rcsSettings
-                        .getImsAuthenticationProcedureForWifi(), rcsSettings);
+                        .getImsAuthenticationProcedureForWifi(), rcsSettings,
+                proxyResolver);
 
         if (logger.isActivated()) {
             logger.info("Wi-Fi network interface has been loaded");
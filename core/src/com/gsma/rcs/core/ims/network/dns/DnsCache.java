@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.network.dns;
+
+import com.gsma.rcs.utils.PersistedFile;
+
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Section;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Persisted cache of the positive DNS answers<br>
+ * The answers are cached per network, as each network may have its own DNS view. An answer
+ * expires after the lowest TTL of its records, it may then still be used while it is refreshed,
+ * up to a maximum stale age after which it is dropped.
+ */
+public class DnsCache {
+
+    private static final int VERSION = 2;
+
+    /**
+     * Cached answer
+     */
+    public static class Entry {
+
+        private final String mNetwork;
+
+        private final Record[] mRecords;
+
+        private final long mExpiration;
+
+        private Entry(String network, Record[] records, long expiration) {
+            mNetwork = network;
+            mRecords = records;
+            mExpiration = expiration;
+        }
+
+        /**
+         * Returns the records of the answer
+         *
+         * @return Records
+         */
+        public Record[] getRecords() {
+            return mRecords.clone();
+        }
+
+        /**
+         * Is the TTL of the answer over
+         *
+         * @return True if expired
+         */
+        public boolean isExpired() {
+            return System.currentTimeMillis() >= mExpiration;
+        }
+    }
+
+    private final PersistedFile mFile;
+
+    private final long mMaxStaleAge;
+
+    private Map<String, Entry> mEntries;
+
+    /**
+     * Constructor
+     *
+     * @param file File in which the cache is persisted
+     * @param maxStaleAge Time during which an expired answer may still be used in milliseconds
+     */
+    public DnsCache(File file, long maxStaleAge) {
+        mFile = new PersistedFile(file, VERSION);
+        mMaxStaleAge = maxStaleAge;
+    }
+
+    /**
+     * Returns a cached answer, expired or not
+     *
+     * @param network Network on which the answer was received
+     * @param name Domain name
+     * @param type Record type
+     * @return Entry or null if not cached
+     */
+    public synchronized Entry get(String network, String name, int type) {
+        String key = getKey(network, name, type);
+        Entry entry = getEntries().get(key);
+        if (entry != null && System.currentTimeMillis() >= entry.mExpiration + mMaxStaleAge) {
+            mEntries.remove(key);
+            save();
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Cache a positive answer
+     *
+     * @param network Network on which the answer was received
+     * @param name Domain name
+     * @param type Record type
+     * @param records Records of the answer
+     */
+    public synchronized void put(String network, String name, int type, Record[] records) {
+        if (records.length == 0) {
+            return;
+        }
+        long ttl = Long.MAX_VALUE;
+        for (Record record : records) {
+            ttl = Math.min(ttl, record.getTTL());
+        }
+        getEntries().put(getKey(network, name, type),
+                new Entry(network, records.clone(), System.currentTimeMillis() + ttl * 1000));
+        save();
+    }
+
+    /**
+     * Drop the expired answers so that they are no longer used while being refreshed
+     */
+    public synchronized void removeExpired() {
+        boolean removed = false;
+        Iterator<Entry> iterator = getEntries().values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isExpired()) {
+                iterator.remove();
+                removed = true;
+            }
+        }
+        if (removed) {
+            save();
+        }
+    }
+
+    /**
+     * Drop the answers received on a network
+     *
+     * @param network Network
+     */
+    public synchronized void remove(String network) {
+        boolean removed = false;
+        Iterator<Entry> iterator = getEntries().values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().mNetwork.equals(network)) {
+                iterator.remove();
+                removed = true;
+            }
+        }
+        if (removed) {
+            save();
+        }
+    }
+
+    /**
+     * Drop all the cached answers
+     */
+    public synchronized void clear() {
+        getEntries().clear();
+        mFile.delete();
+    }
+
+    private static String getKey(String network, String name, int type) {
+        return new StringBuilder(network).append('|').append(name.toLowerCase(Locale.US))
+                .append('/').append(type).toString();
+    }
+
+    private Map<String, Entry> getEntries() {
+        if (mEntries == null) {
+            mEntries = new HashMap<>();
+            load();
+        }
+        return mEntries;
+    }
+
+    private void load() {
+        boolean read = mFile.read(new PersistedFile.Reader() {
+            @Override
+            public void read(DataInputStream input) throws IOException {
+                int count = input.readInt();
+                for (int i = 0; i < count; i++) {
+                    String key = input.readUTF();
+                    String network = input.readUTF();
+                    long expiration = input.readLong();
+                    Record[] records = new Record[input.readInt()];
+                    for (int j = 0; j < records.length; j++) {
+                        byte[] data = new byte[input.readInt()];
+                        input.readFully(data);
+                        records[j] = Record.fromWire(data, Section.ANSWER);
+                    }
+                    mEntries.put(key, new Entry(network, records, expiration));
+                }
+            }
+        });
+        if (!read) {
+            mEntries.clear();
+        }
+    }
+
+    private void save() {
+        mFile.write(new PersistedFile.Writer() {
+            @Override
+            public void write(DataOutputStream output) throws IOException {
+                output.writeInt(mEntries.size());
+                for (Map.Entry<String, Entry> cached : mEntries.entrySet()) {
+                    Entry entry = cached.getValue();
+                    output.writeUTF(cached.getKey());
+                    output.writeUTF(entry.mNetwork);
+                    output.writeLong(entry.mExpiration);
+                    output.writeInt(entry.mRecords.length);
+                    for (Record record : entry.mRecords) {
+                        byte[] data = record.toWire(Section.ANSWER);
+                        output.writeInt(data.length);
+                        output.write(data);
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,625 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.network.dns;
+
+import com.gsma.rcs.utils.CloseableUtils;
+import com.gsma.rcs.utils.logger.Logger;
+
+import org.xbill.DNS.AAAARecord;
+import org.xbill.DNS.ARecord;
+import org.xbill.DNS.ExtendedResolver;
+import org.xbill.DNS.Lookup;
+import org.xbill.DNS.NAPTRRecord;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.Resolver;
+import org.xbill.DNS.ResolverConfig;
+import org.xbill.DNS.SRVRecord;
+import org.xbill.DNS.TextParseException;
+import org.xbill.DNS.Type;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Resolver of the IMS proxy address through NAPTR, SRV and A/AAAA queries<br>
+ * The SRV and address queries used as fallbacks are sent along with the NAPTR query, and the
+ * addresses of the SRV targets are resolved concurrently. The positive answers are kept in a
+ * persisted cache honouring their TTL: an expired answer is still used while it is refreshed in
+ * background, until the network changes or the registration with the resolved proxy fails. When
+ * several proxies are found for a connection oriented transport, connections are attempted in the
+ * SRV order, each attempt starting after a delay or as soon as the previous one failed, and the
+ * first proxy reached is selected. The proxies are raced once per network, the selected proxy being
+ * reused until the registration with it fails. A proxy with which the registration failed is
+ * avoided as long as other proxies are available.
+ */
+public class ImsProxyResolver {
+
+    /**
+     * Time during which an expired answer may still be used in milliseconds
+     */
+    private static final long MAX_STALE_AGE = 86400000;
+
+    /**
+     * Time during which the AAAA answer is still awaited once the A answer is received in
+     * milliseconds
+     */
+    private static final long RESOLUTION_DELAY = 50;
+
+    /**
+     * Delay before a connection to the next proxy is attempted in milliseconds
+     */
+    private static final long CONNECTION_ATTEMPT_DELAY = 250;
+
+    /**
+     * Timeout of a connection attempt to a proxy in milliseconds
+     */
+    private static final int CONNECTION_TIMEOUT = 5000;
+
+    private final DnsCache mCache;
+
+    private final Resolver mResolver;
+
+    private final long mConnectionAttemptDelay;
+
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+
+    private final Set<String> mRefreshedQueries = new HashSet<>();
+
+    /**
+     * Network on which the queries are sent, the answers being cached per network
+     */
+    private String mNetwork = "";
+
+    /**
+     * Proxies with which the registration failed on the current network
+     */
+    private final Set<InetSocketAddress> mFailedProxies = new HashSet<>();
+
+    private InetSocketAddress mLastProxy;
+
+    /**
+     * Proxy selected by connection attempts on the current network, reused without new attempts
+     * until the registration with it fails
+     */
+    private InetSocketAddress mReachableProxy;
+
+    private static final Logger sLogger = Logger.getLogger(ImsProxyResolver.class.getName());
+
+    /**
+     * Constructor
+     *
+     * @param cacheFile File in which the DNS answers are persisted
+     */
+    public ImsProxyResolver(File cacheFile) {
+        this(new DnsCache(cacheFile, MAX_STALE_AGE), null, CONNECTION_ATTEMPT_DELAY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param cache DNS cache
+     * @param resolver DNS resolver or null to use the DNS servers of the current network
+     * @param connectionAttemptDelay Delay before a connection to the next proxy is attempted in
+     *            milliseconds
+     */
+    public ImsProxyResolver(DnsCache cache, Resolver resolver, long connectionAttemptDelay) {
+        mCache = cache;
+        mResolver = resolver;
+        mConnectionAttemptDelay = connectionAttemptDelay;
+    }
+
+    /**
+     * Set the network on which the next queries are sent: the expired answers are no longer used
+     * when the network changes, as they may not be valid any more
+     *
+     * @param network Network identifier
+     */
+    public synchronized void setNetwork(String network) {
+        if (network.equals(mNetwork)) {
+            return;
+        }
+        if (sLogger.isActivated()) {
+            sLogger.debug("DNS network changed to ".concat(network));
+        }
+        mNetwork = network;
+        mFailedProxies.clear();
+        mLastProxy = null;
+        mReachableProxy = null;
+        mCache.removeExpired();
+    }
+
+    /**
+     * Notify that the registration with the last resolved proxy failed: the answers cached for the
+     * current network are dropped so that the next resolution queries the DNS again, and the
+     * failed proxy is avoided if another one is found
+     */
+    public synchronized void invalidate() {
+        if (mLastProxy != null) {
+            mFailedProxies.add(mLastProxy);
+        }
+        mReachableProxy = null;
+        mCache.remove(mNetwork);
+    }
+
+    private synchronized void setLastProxy(InetSocketAddress proxy) {
+        mLastProxy = proxy;
+    }
+
+    /**
+     * Returns the proxy selected by connection attempts on a network if it is one of the proxies
+     * found
+     */
+    private synchronized InetSocketAddress getReachableProxy(String network,
+            List<InetSocketAddress> proxies) {
+        if (!network.equals(mNetwork) || !proxies.contains(mReachableProxy)) {
+            return null;
+        }
+        return mReachableProxy;
+    }
+
+    private synchronized void setReachableProxy(String network, InetSocketAddress proxy) {
+        if (network.equals(mNetwork)) {
+            mReachableProxy = proxy;
+        }
+    }
+
+    /**
+     * Returns the proxies with which the registration did not fail yet, or all the proxies if it
+     * failed with each of them
+     */
+    private synchronized List<InetSocketAddress> excludeFailedProxies(
+            List<InetSocketAddress> proxies) {
+        List<InetSocketAddress> result = new ArrayList<>(proxies);
+        result.removeAll(mFailedProxies);
+        if (result.isEmpty()) {
+            /* Start again with the preferred proxy */
+            mFailedProxies.clear();
+            return proxies;
+        }
+        return result;
+    }
+
+    private synchronized String getNetwork() {
+        return mNetwork;
+    }
+
+    /**
+     * Stop the pending queries and connection attempts
+     */
+    public void close() {
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Resolve the IMS proxy: first via a NAPTR query, then a SRV query and finally via A/AAAA
+     * queries
+     *
+     * @param domain IMS proxy domain
+     * @param naptrService NAPTR service of the transport
+     * @param srvQuery SRV query of the transport used if no NAPTR record is found
+     * @param defaultPort Port used if no SRV record is found
+     * @param connectionOriented True if the transport is connection oriented, the proxies found
+     *            then being raced
+     * @return Address of the proxy
+     * @throws UnknownHostException
+     * @throws TextParseException
+     */
+    public InetSocketAddress resolve(String domain, String naptrService, String srvQuery,
+            int defaultPort, boolean connectionOriented) throws UnknownHostException,
+            TextParseException {
+        long start = System.currentTimeMillis();
+        /* Check the names before sending any query */
+        new Lookup(domain);
+        new Lookup(srvQuery);
+        Resolver resolver = getResolver();
+        String network = getNetwork();
+        if (sLogger.isActivated()) {
+            sLogger.debug("Resolve IMS proxy address ".concat(domain));
+        }
+        Future<Record[]> naptrLookup = lookupAsync(network, domain, Type.NAPTR, resolver);
+        Future<Record[]> srvLookup = lookupAsync(network, srvQuery, Type.SRV, resolver);
+        Future<List<InetAddress>> addressesLookup = resolveAddressesAsync(network, domain,
+                resolver);
+
+        Record[] srvRecords;
+        NAPTRRecord naptr = getBestNaptr(getResult(naptrLookup), naptrService);
+        if (naptr != null) {
+            if (sLogger.isActivated()) {
+                sLogger.debug("NAPTR record: ".concat(naptr.toString()));
+            }
+            String replacement = naptr.getReplacement().toString();
+            if (isSameName(replacement, srvQuery)) {
+                srvRecords = getResult(srvLookup);
+            } else {
+                srvRecords = lookup(network, replacement, Type.SRV, resolver);
+            }
+        } else {
+            if (sLogger.isActivated()) {
+                sLogger.debug("No NAPTR record found: use DNS SRV instead");
+            }
+            srvRecords = getResult(srvLookup);
+        }
+        InetSocketAddress proxy = null;
+        if (srvRecords != null && srvRecords.length > 0) {
+            List<InetSocketAddress> proxies = resolveSrvTargets(network, srvRecords, resolver);
+            if (!proxies.isEmpty()) {
+                proxies = excludeFailedProxies(proxies);
+                proxy = connectionOriented ? selectReachableProxy(network, proxies)
+                        : proxies.get(0);
+            }
+        }
+        if (proxy == null) {
+            if (sLogger.isActivated()) {
+                sLogger.debug("No SRV record found: use DNS A instead");
+            }
+            List<InetAddress> addresses = getResult(addressesLookup);
+            if (addresses == null || addresses.isEmpty()) {
+                throw new UnknownHostException("Proxy IP address : " + domain + " not found!");
+            }
+            proxy = new InetSocketAddress(addresses.get(0), defaultPort);
+        }
+        if (sLogger.isActivated()) {
+            sLogger.debug("IMS proxy " + domain + " resolved to " + proxy + " in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+        setLastProxy(proxy);
+        return proxy;
+    }
+
+    private Resolver getResolver() throws UnknownHostException {
+        if (mResolver != null) {
+            return mResolver;
+        }
+        ResolverConfig.refresh();
+        return new ExtendedResolver();
+    }
+
+    private static boolean isSameName(String name1, String name2) {
+        if (name1.endsWith(".")) {
+            name1 = name1.substring(0, name1.length() - 1);
+        }
+        if (name2.endsWith(".")) {
+            name2 = name2.substring(0, name2.length() - 1);
+        }
+        return name1.equalsIgnoreCase(name2);
+    }
+
+    /**
+     * Returns the NAPTR record of a service with the lowest order and then the lowest preference
+     */
+    private static NAPTRRecord getBestNaptr(Record[] records, String service) {
+        if (records == null) {
+            return null;
+        }
+        NAPTRRecord result = null;
+        for (Record record : records) {
+            NAPTRRecord naptr = (NAPTRRecord) record;
+            if (!naptr.getService().equalsIgnoreCase(service)) {
+                continue;
+            }
+            if (result == null
+                    || naptr.getOrder() < result.getOrder()
+                    || (naptr.getOrder() == result.getOrder() && naptr.getPreference() < result
+                            .getPreference())) {
+                result = naptr;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the result of a query, null if it failed
+     */
+    private static <T> T getResult(Future<T> future) {
+        return getResult(future, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns the result of a query, null if it failed or is not received within a timeout
+     */
+    private static <T> T getResult(Future<T> future, long timeout) {
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+
+        } catch (TimeoutException e) {
+            return null;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+
+        } catch (ExecutionException e) {
+            if (sLogger.isActivated()) {
+                sLogger.warn("DNS lookup failed: " + e.getCause());
+            }
+            return null;
+        }
+    }
+
+    private Future<Record[]> lookupAsync(final String network, final String name,
+            final int type, final Resolver resolver) {
+        return mExecutor.submit(new Callable<Record[]>() {
+            @Override
+            public Record[] call() throws TextParseException {
+                return lookup(network, name, type, resolver);
+            }
+        });
+    }
+
+    /**
+     * Get DNS records from the cache, an expired answer being refreshed in background
+     *
+     * @param network Network on which the query is sent
+     * @param name Domain name
+     * @param type Record type
+     * @param resolver Resolver
+     * @return Records or null if no record
+     * @throws TextParseException
+     */
+    private Record[] lookup(String network, String name, int type, Resolver resolver)
+            throws TextParseException {
+        DnsCache.Entry entry = mCache.get(network, name, type);
+        if (entry == null) {
+            return query(network, name, type, resolver);
+        }
+        if (entry.isExpired()) {
+            refreshAsync(network, name, type, resolver);
+        }
+        return entry.getRecords();
+    }
+
+    private void refreshAsync(final String network, final String name, final int type,
+            final Resolver resolver) {
+        final String key = network + "|" + name + "/" + type;
+        synchronized (mRefreshedQueries) {
+            if (!mRefreshedQueries.add(key)) {
+                return;
+            }
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    query(network, name, type, resolver);
+
+                } catch (TextParseException e) {
+                    /* Not cached if not valid */
+                } finally {
+                    synchronized (mRefreshedQueries) {
+                        mRefreshedQueries.remove(key);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Send a DNS query, a positive answer being cached
+     */
+    private Record[] query(String network, String name, int type, Resolver resolver)
+            throws TextParseException {
+        if (sLogger.isActivated()) {
+            sLogger.debug("DNS " + Type.string(type) + " lookup for " + name);
+        }
+        Lookup lookup = new Lookup(name, type);
+        lookup.setResolver(resolver);
+        /* Answers are cached by the DnsCache only */
+        lookup.setCache(null);
+        Record[] result = lookup.run();
+        int code = lookup.getResult();
+        if (code != Lookup.SUCCESSFUL) {
+            if (sLogger.isActivated()) {
+                sLogger.warn("Lookup error: " + code + "/" + lookup.getErrorString());
+            }
+            return null;
+        }
+        mCache.put(network, name, type, result);
+        return result;
+    }
+
+    private Future<List<InetAddress>> resolveAddressesAsync(final String network,
+            final String host, final Resolver resolver) {
+        return mExecutor.submit(new Callable<List<InetAddress>>() {
+            @Override
+            public List<InetAddress> call() throws TextParseException {
+                return resolveAddresses(network, host, resolver);
+            }
+        });
+    }
+
+    /**
+     * Resolve the addresses of a host, IPv4 addresses first, with concurrent A and AAAA queries
+     */
+    private List<InetAddress> resolveAddresses(String network, String host, Resolver resolver)
+            throws TextParseException {
+        Future<Record[]> aLookup = lookupAsync(network, host, Type.A, resolver);
+        Future<Record[]> aaaaLookup = lookupAsync(network, host, Type.AAAA, resolver);
+        List<InetAddress> addresses = new ArrayList<>();
+        Record[] records = getResult(aLookup);
+        if (records != null) {
+            for (Record record : records) {
+                addresses.add(((ARecord) record).getAddress());
+            }
+        }
+        /* The IPv6 addresses are not waited for long when IPv4 ones are known */
+        records = getResult(aaaaLookup, addresses.isEmpty() ? Long.MAX_VALUE
+                : RESOLUTION_DELAY);
+        if (records != null) {
+            for (Record record : records) {
+                addresses.add(((AAAARecord) record).getAddress());
+            }
+        }
+        if (addresses.isEmpty()) {
+            /* The host may still be known from the platform, e.g. by the hosts file */
+            try {
+                addresses.addAll(Arrays.asList(InetAddress.getAllByName(host)));
+
+            } catch (UnknownHostException e) {
+                if (sLogger.isActivated()) {
+                    sLogger.warn("No address found for ".concat(host));
+                }
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * Resolve concurrently the targets of SRV records
+     *
+     * @param network Network on which the queries are sent
+     * @param records SRV records
+     * @param resolver Resolver
+     * @return Proxy addresses by lowest priority and then highest weight
+     */
+    private List<InetSocketAddress> resolveSrvTargets(String network, Record[] records,
+            Resolver resolver) {
+        List<SRVRecord> srvRecords = new ArrayList<>();
+        for (Record record : records) {
+            if (sLogger.isActivated()) {
+                sLogger.debug("SRV record: " + record.toString());
+            }
+            srvRecords.add((SRVRecord) record);
+        }
+        Collections.sort(srvRecords, new Comparator<SRVRecord>() {
+            @Override
+            public int compare(SRVRecord srv1, SRVRecord srv2) {
+                if (srv1.getPriority() != srv2.getPriority()) {
+                    return srv1.getPriority() < srv2.getPriority() ? -1 : 1;
+                }
+                if (srv1.getWeight() != srv2.getWeight()) {
+                    return srv1.getWeight() > srv2.getWeight() ? -1 : 1;
+                }
+                return 0;
+            }
+        });
+        List<Future<List<InetAddress>>> targetLookups = new ArrayList<>();
+        for (SRVRecord srv : srvRecords) {
+            targetLookups.add(resolveAddressesAsync(network, srv.getTarget().toString(),
+                    resolver));
+        }
+        List<InetSocketAddress> proxies = new ArrayList<>();
+        for (int i = 0; i < srvRecords.size(); i++) {
+            List<InetAddress> addresses = getResult(targetLookups.get(i));
+            if (addresses != null) {
+                for (InetAddress address : addresses) {
+                    proxies.add(new InetSocketAddress(address, srvRecords.get(i).getPort()));
+                }
+            }
+        }
+        return proxies;
+    }
+
+    /**
+     * Returns the proxy already selected on the network, or else attempt to connect to the proxies
+     * in turn, an attempt being started after a delay or as soon as the previous one failed, and
+     * returns the first proxy reached
+     *
+     * @param network Network on which the proxies are reached
+     * @param proxies Proxy addresses by preference
+     * @return First proxy reached or the preferred one if none is reachable
+     */
+    private InetSocketAddress selectReachableProxy(String network,
+            List<InetSocketAddress> proxies) {
+        if (proxies.size() == 1) {
+            return proxies.get(0);
+        }
+        InetSocketAddress proxy = getReachableProxy(network, proxies);
+        if (proxy == null) {
+            proxy = raceProxies(proxies);
+            setReachableProxy(network, proxy);
+        }
+        return proxy;
+    }
+
+    private InetSocketAddress raceProxies(List<InetSocketAddress> proxies) {
+        CompletionService<InetSocketAddress> attempts = new ExecutorCompletionService<>(
+                mExecutor);
+        List<Future<InetSocketAddress>> pendingAttempts = new ArrayList<>();
+        int next = 0;
+        int pending = 0;
+        try {
+            while (next < proxies.size() || pending > 0) {
+                if (next < proxies.size()) {
+                    pendingAttempts.add(attempts.submit(createConnectionAttempt(proxies
+                            .get(next++))));
+                    pending++;
+                }
+                Future<InetSocketAddress> attempt = next < proxies.size() ? attempts.poll(
+                        mConnectionAttemptDelay, TimeUnit.MILLISECONDS) : attempts.take();
+                if (attempt == null) {
+                    continue;
+                }
+                pending--;
+                try {
+                    return attempt.get();
+
+                } catch (ExecutionException e) {
+                    if (sLogger.isActivated()) {
+                        sLogger.warn("IMS proxy not reachable: " + e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+        } finally {
+            for (Future<InetSocketAddress> attempt : pendingAttempts) {
+                attempt.cancel(true);
+            }
+        }
+        return proxies.get(0);
+    }
+
+    private static Callable<InetSocketAddress> createConnectionAttempt(
+            final InetSocketAddress proxy) {
+        return new Callable<InetSocketAddress>() {
+            @Override
+            public InetSocketAddress call() throws IOException {
+                Socket socket = new Socket();
+                try {
+                    socket.connect(proxy, CONNECTION_TIMEOUT);
+                    return proxy;
+
+                } finally {
+                    CloseableUtils.tryToClose(socket);
+                }
+            }
+        };
+    }
+}
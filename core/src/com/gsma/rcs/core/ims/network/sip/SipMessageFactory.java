@@ -785,6 +785,29 @@ public class SipMessageFactory {
         }
     }
 
+    /**
+     * Create a SIP 503 Service Unavailable response
+     * 
+     * @param request SIP request
+     * @param retryAfter Delay in seconds after which the request may be retried
+     * @return SIP response
+     * @throws PayloadException
+     */
+    public static SipResponse createServiceUnavailableResponse(SipRequest request, int retryAfter)
+            throws PayloadException {
+        try {
+            Response response = SipUtils.MSG_FACTORY.createResponse(
+                    Response.SERVICE_UNAVAILABLE, request.getStackMessage());
+            response.addHeader(SipUtils.HEADER_FACTORY.createRetryAfterHeader(retryAfter));
+            SipResponse resp = new SipResponse(response);
+            resp.setStackTransaction(request.getStackTransaction());
+            return resp;
+
+        } catch (ParseException | InvalidArgumentException e) {
+            throw new PayloadException("Can't create SIP response", e);
+        }
+    }
+
     /**
      * Works just like SipResponse createResponse(SipRequest request, String localTag, int code,
      * String warning) except the warning is always null
@@ -163,6 +163,22 @@ public class HttpAuthenticationAgent {
         }
     }
 
+    /**
+     * Read the Authentication-Info header: the next requests use the next nonce if the server
+     * provides one, else they keep on using the current nonce with an incremented nonce count
+     *
+     * @param header Authentication-Info header
+     */
+    public void readAuthenticationInfoHeader(String header) {
+        if (header == null || !mIsDigestAuthentication) {
+            return;
+        }
+        String value = getValue(header, "nextnonce");
+        if (value != null) {
+            mDigest.setNextnonce(value);
+        }
+    }
+
     /**
      * Get the value of key in header
      * 
@@ -0,0 +1,449 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.protocol.http;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+import com.gsma.rcs.core.ims.network.NetworkException;
+import com.gsma.rcs.core.ims.protocol.PayloadException;
+import com.gsma.rcs.platform.network.SocketConnection;
+import com.gsma.rcs.utils.CloseableUtils;
+import com.gsma.rcs.utils.logger.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * HTTP/1.1 client keeping its connections to a server open between requests<br>
+ * Connections are kept in a pool once a response has been read, so that successive requests do
+ * not pay a new TCP handshake. Several requests may be pipelined on a same connection, their
+ * responses being read in order. A request sent on a pooled connection that the server closed
+ * while idle is sent again on a new connection, the requests being idempotent.
+ */
+public class PersistentHttpClient {
+
+    /**
+     * Factory of the connections to the server
+     */
+    public interface IConnectionFactory {
+        /**
+         * Create a connection, not yet opened
+         *
+         * @return Connection
+         */
+        SocketConnection createConnection();
+    }
+
+    /**
+     * Request to send
+     */
+    public static class Request {
+
+        private final String mMethod;
+
+        private final String mUri;
+
+        private final String mHeaders;
+
+        private final byte[] mContent;
+
+        /**
+         * Constructor
+         *
+         * @param method Method
+         * @param uri Request URI
+         * @param headers Header lines each ending with CRLF, without the Host and Content-Length
+         *            headers which are added by the client, or null
+         * @param content Content or null
+         */
+        public Request(String method, String uri, String headers, byte[] content) {
+            mMethod = method;
+            mUri = uri;
+            mHeaders = headers;
+            mContent = content;
+        }
+    }
+
+    private static final String CRLF = "\r\n";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Read timeout of the connections in milliseconds
+     */
+    private static final long READ_TIMEOUT = 30000;
+
+    private final String mHost;
+
+    private final int mPort;
+
+    private final IConnectionFactory mFactory;
+
+    private final int mMaxIdleConnections;
+
+    private final long mKeepAliveTimeout;
+
+    private final ArrayDeque<Connection> mIdleConnections = new ArrayDeque<>();
+
+    private int mOpenedConnectionCount;
+
+    private long mSentCount;
+
+    private boolean mClosed;
+
+    private static final Logger sLogger = Logger.getLogger(PersistentHttpClient.class
+            .getSimpleName());
+
+    /**
+     * Constructor
+     *
+     * @param host Server host
+     * @param port Server port
+     * @param factory Factory of the connections
+     * @param maxIdleConnections Maximum number of connections kept open while idle
+     * @param keepAliveTimeout Time after which an idle connection is closed in milliseconds
+     */
+    public PersistentHttpClient(String host, int port, IConnectionFactory factory,
+            int maxIdleConnections, long keepAliveTimeout) {
+        mHost = host;
+        mPort = port;
+        mFactory = factory;
+        mMaxIdleConnections = maxIdleConnections;
+        mKeepAliveTimeout = keepAliveTimeout;
+    }
+
+    /**
+     * Send a request and read its response
+     *
+     * @param request Request
+     * @return Response
+     * @throws PayloadException
+     * @throws NetworkException
+     */
+    public HttpResponse execute(Request request) throws PayloadException, NetworkException {
+        return execute(Collections.singletonList(request)).get(0);
+    }
+
+    /**
+     * Send requests pipelined on a same connection and read their responses
+     *
+     * @param requests Requests
+     * @return Responses in the order of the requests
+     * @throws PayloadException
+     * @throws NetworkException
+     */
+    public List<HttpResponse> execute(List<Request> requests) throws PayloadException,
+            NetworkException {
+        List<HttpResponse> responses = new ArrayList<>(requests.size());
+        while (responses.size() < requests.size()) {
+            int received = responses.size();
+            Connection connection = takeIdleConnection();
+            boolean reused = connection != null;
+            if (!reused) {
+                connection = openConnection();
+            }
+            try {
+                List<Request> pendingRequests = requests.subList(received, requests.size());
+                for (Request request : pendingRequests) {
+                    writeRequest(connection, request);
+                }
+                connection.mOutput.flush();
+                for (Request request : pendingRequests) {
+                    responses.add(readResponse(connection, request));
+                    if (!connection.mReusable) {
+                        /* The next requests are sent again on a new connection */
+                        break;
+                    }
+                }
+                releaseConnection(connection);
+
+            } catch (IOException e) {
+                closeConnection(connection);
+                /*
+                 * A pooled connection may have been closed by the server while idle, and a server
+                 * may close a connection after a number of requests: the requests without
+                 * response are sent again on a new connection unless no progress is made.
+                 */
+                if (!reused && responses.size() == received) {
+                    throw new NetworkException("Failed to send HTTP request to " + mHost + ":"
+                            + mPort + "!", e);
+                }
+                if (sLogger.isActivated()) {
+                    sLogger.debug("Connection closed by the server, send " + (requests.size()
+                            - responses.size()) + " requests again");
+                }
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Close the idle connections and the connections released afterwards
+     */
+    public void close() {
+        synchronized (mIdleConnections) {
+            mClosed = true;
+            for (Connection connection : mIdleConnections) {
+                CloseableUtils.tryToClose(connection.mSocket);
+            }
+            mIdleConnections.clear();
+        }
+    }
+
+    /**
+     * Returns the number of connections opened since the creation of the client
+     *
+     * @return Number of connections
+     */
+    public int getOpenedConnectionCount() {
+        synchronized (mIdleConnections) {
+            return mOpenedConnectionCount;
+        }
+    }
+
+    /**
+     * Returns the number of requests sent since the creation of the client, including the
+     * requests sent again on a new connection
+     *
+     * @return Number of requests
+     */
+    public long getSentCount() {
+        synchronized (mIdleConnections) {
+            return mSentCount;
+        }
+    }
+
+    private Connection takeIdleConnection() {
+        synchronized (mIdleConnections) {
+            long now = System.currentTimeMillis();
+            Connection connection;
+            while ((connection = mIdleConnections.pollLast()) != null) {
+                if (now - connection.mIdleSince < mKeepAliveTimeout) {
+                    return connection;
+                }
+                CloseableUtils.tryToClose(connection.mSocket);
+            }
+            return null;
+        }
+    }
+
+    private Connection openConnection() throws PayloadException, NetworkException {
+        SocketConnection socket = mFactory.createConnection();
+        socket.open(mHost, mPort);
+        socket.setSoTimeout(READ_TIMEOUT);
+        synchronized (mIdleConnections) {
+            mOpenedConnectionCount++;
+        }
+        return new Connection(socket);
+    }
+
+    private void releaseConnection(Connection connection) {
+        synchronized (mIdleConnections) {
+            if (connection.mReusable && !mClosed
+                    && mIdleConnections.size() < mMaxIdleConnections) {
+                connection.mIdleSince = System.currentTimeMillis();
+                mIdleConnections.addLast(connection);
+                return;
+            }
+        }
+        closeConnection(connection);
+    }
+
+    private void closeConnection(Connection connection) {
+        CloseableUtils.tryToClose(connection.mSocket);
+    }
+
+    private void writeRequest(Connection connection, Request request) throws IOException {
+        StringBuilder head = new StringBuilder(request.mMethod).append(' ').append(request.mUri)
+                .append(" HTTP/1.1").append(CRLF).append("Host: ").append(mHost).append(':')
+                .append(mPort).append(CRLF);
+        if (request.mHeaders != null) {
+            head.append(request.mHeaders);
+        }
+        int contentLength = request.mContent != null ? request.mContent.length : 0;
+        head.append("Content-Length: ").append(contentLength).append(CRLF).append(CRLF);
+        if (sLogger.isActivated()) {
+            sLogger.debug("Send HTTP request:\n" + head);
+        }
+        connection.mOutput.write(head.toString().getBytes(UTF8));
+        if (contentLength > 0) {
+            connection.mOutput.write(request.mContent);
+        }
+        synchronized (mIdleConnections) {
+            mSentCount++;
+        }
+    }
+
+    private HttpResponse readResponse(Connection connection, Request request) throws IOException {
+        InputStream input = connection.mInput;
+        HttpResponse response;
+        int code;
+        do {
+            /* Interim responses are skipped */
+            response = new HttpResponse();
+            response.setStatusLine(readLine(input, true));
+            String line;
+            while (!(line = readLine(input, false)).isEmpty()) {
+                int index = line.indexOf(':');
+                if (index > 0) {
+                    response.addHeader(line.substring(0, index).trim().toLowerCase(), line
+                            .substring(index + 1).trim());
+                }
+            }
+            code = response.getResponseCode();
+        } while (code >= 100 && code < 200);
+
+        String status = response.getStatusLine();
+        String connectionHeader = response.getHeader("connection");
+        if ("close".equalsIgnoreCase(connectionHeader)
+                || (status.startsWith("HTTP/1.0") && !"keep-alive"
+                        .equalsIgnoreCase(connectionHeader))) {
+            connection.mReusable = false;
+        }
+        if ("HEAD".equals(request.mMethod) || code == 204 || code == 304) {
+            return response;
+        }
+        String transferEncoding = response.getHeader("transfer-encoding");
+        String contentLength = response.getHeader("content-length");
+        if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+            response.setContent(readChunkedContent(input));
+
+        } else if (contentLength != null) {
+            int length;
+            try {
+                length = Integer.parseInt(contentLength);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid content length " + contentLength, e);
+            }
+            if (length > 0) {
+                byte[] content = new byte[length];
+                readFully(input, content, 0, length);
+                response.setContent(content);
+            }
+        } else {
+            /* Content delimited by the end of the connection */
+            connection.mReusable = false;
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            response.setContent(content.toByteArray());
+        }
+        return response;
+    }
+
+    private byte[] readChunkedContent(InputStream input) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (true) {
+            String line = readLine(input, false);
+            int end = line.indexOf(';');
+            int chunkSize;
+            try {
+                chunkSize = Integer.parseInt((end == -1 ? line : line.substring(0, end)).trim(),
+                        16);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid chunk size " + line, e);
+            }
+            if (chunkSize == 0) {
+                /* Skip the trailer */
+                while (!readLine(input, false).isEmpty()) {
+                }
+                return content.toByteArray();
+            }
+            while (chunkSize > 0) {
+                int length = Math.min(chunkSize, buffer.length);
+                readFully(input, buffer, 0, length);
+                content.write(buffer, 0, length);
+                chunkSize -= length;
+            }
+            readLine(input, false);
+        }
+    }
+
+    private static void readFully(InputStream input, byte[] data, int offset, int length)
+            throws IOException {
+        while (length > 0) {
+            int read = input.read(data, offset, length);
+            if (read == -1) {
+                throw new EOFException("Connection closed while reading HTTP content!");
+            }
+            offset += read;
+            length -= read;
+        }
+    }
+
+    /**
+     * Read a line ending with CRLF
+     *
+     * @param input Input stream
+     * @param first True for the first line of a response
+     * @return Line without CRLF
+     * @throws IOException
+     */
+    private static String readLine(InputStream input, boolean first) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int ch;
+        while ((ch = input.read()) != -1) {
+            if (ch == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) ch);
+        }
+        throw new EOFException(first && line.length() == 0 ? "Connection closed by the server!"
+                : "Connection closed while reading HTTP response!");
+    }
+
+    /**
+     * Connection to the server
+     */
+    private static class Connection {
+
+        private final SocketConnection mSocket;
+
+        private final InputStream mInput;
+
+        private final OutputStream mOutput;
+
+        private boolean mReusable = true;
+
+        private long mIdleSince;
+
+        private Connection(SocketConnection socket) throws NetworkException {
+            mSocket = socket;
+            mInput = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+            mOutput = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+        }
+    }
+}
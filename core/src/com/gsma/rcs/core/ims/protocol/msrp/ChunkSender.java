@@ -22,14 +22,13 @@
 
 package com.gsma.rcs.core.ims.protocol.msrp;
 
-import static com.gsma.rcs.utils.StringUtils.UTF8;
-
 import com.gsma.rcs.core.ims.network.NetworkException;
-import com.gsma.rcs.core.ims.protocol.msrp.MsrpSession.TypeMsrpChunk;
+import com.gsma.rcs.utils.capture.WireCapture;
 import com.gsma.rcs.utils.logger.Logger;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Chunks sender
@@ -57,6 +56,11 @@ public class ChunkSender extends Thread {
      */
     private boolean mTerminated;
 
+    /**
+     * Size of the chunks queued and not yet written
+     */
+    private final AtomicInteger mPendingSize = new AtomicInteger();
+
     /**
      * The logger
      */
@@ -97,12 +101,9 @@ public class ChunkSender extends Thread {
     public void run() {
         try {
             // Read chunk to be sent
-            byte chunk[] = null;
-            while ((chunk = (byte[]) mBuffer.getMessage()) != null) {
+            MsrpSendBuffer chunk;
+            while ((chunk = (MsrpSendBuffer) mBuffer.getMessage()) != null) {
                 // Write chunk to the output stream
-                if (MsrpConnection.isMsrpTraceEnabled()) {
-                    System.out.println(">>> Send MSRP message:\n" + new String(chunk, UTF8));
-                }
                 writeData(chunk);
             }
         } catch (NetworkException e) {
@@ -110,10 +111,9 @@ public class ChunkSender extends Thread {
                 if (sLogger.isActivated()) {
                     sLogger.debug(e.getMessage());
                 }
-                /* Notify the msrp session listener that an error has occured */
+                /* Notify the listeners of all the sessions sharing the connection */
                 /* Changed by Deutsche Telekom */
-                mConnection.getSession().getMsrpEventListener()
-                        .msrpTransferError(null, e.getMessage(), TypeMsrpChunk.Unknown);
+                mConnection.notifyTransferError(e.getMessage());
             }
         } catch (RuntimeException e) {
             /*
@@ -122,10 +122,9 @@ public class ChunkSender extends Thread {
              */
             sLogger.error("Unable to send chunks!", e);
             if (!mTerminated) {
-                /* Notify the msrp session listener that an error has occured */
+                /* Notify the listeners of all the sessions sharing the connection */
                 /* Changed by Deutsche Telekom */
-                mConnection.getSession().getMsrpEventListener()
-                        .msrpTransferError(null, e.getMessage(), TypeMsrpChunk.Unknown);
+                mConnection.notifyTransferError(e.getMessage());
             }
         }
     }
@@ -136,11 +135,17 @@ public class ChunkSender extends Thread {
      * @param chunk New chunk
      * @throws NetworkException
      */
-    public void sendChunk(byte chunk[]) throws NetworkException {
-        if (mConnection.getSession().isFailureReportRequested()) {
+    public void sendChunk(MsrpSendBuffer chunk) throws NetworkException {
+        mPendingSize.addAndGet(chunk.getLength());
+        /* Frames of the sessions sharing the connection are sent as requested by their session */
+        MsrpSession session = chunk.getSession();
+        if (session == null) {
+            session = mConnection.getSession();
+        }
+        if (session.isFailureReportRequested()) {
             mBuffer.putMessage(chunk);
         } else {
-            sendChunkImmediately(chunk);
+            writeData(chunk);
         }
     }
 
@@ -150,25 +155,41 @@ public class ChunkSender extends Thread {
      * @param chunk New chunk
      * @throws NetworkException
      */
-    public void sendChunkImmediately(byte chunk[]) throws NetworkException {
-        if (MsrpConnection.isMsrpTraceEnabled()) {
-            System.out.println(">>> Send MSRP message:\n" + new String(chunk, UTF8));
-        }
+    public void sendChunkImmediately(MsrpSendBuffer chunk) throws NetworkException {
+        mPendingSize.addAndGet(chunk.getLength());
         writeData(chunk);
     }
 
     /**
-     * Write data to the stream
+     * Returns the size of the data queued and not yet written to the stream
+     * 
+     * @return Size in bytes
+     */
+    public int getPendingSize() {
+        return mPendingSize.get();
+    }
+
+    /**
+     * Write data to the stream and give the buffer back to its pool
      * 
      * @param chunk Data chunk
      * @throws NetworkException
      */
-    private synchronized void writeData(byte chunk[]) throws NetworkException {
+    private synchronized void writeData(MsrpSendBuffer chunk) throws NetworkException {
+        if (MsrpConnection.isMsrpTraceEnabled()) {
+            WireCapture.capture(WireCapture.PROTOCOL_MSRP, WireCapture.DIRECTION_OUT,
+                    mConnection.getCaptureId(), chunk.getData(), chunk.getOffset(),
+                    chunk.getLength());
+        }
         try {
-            mStream.write(chunk);
+            mStream.write(chunk.getData(), chunk.getOffset(), chunk.getLength());
             mStream.flush();
         } catch (IOException e) {
             throw new NetworkException("Failed to write data!", e);
+
+        } finally {
+            mPendingSize.addAndGet(-chunk.getLength());
+            chunk.release();
         }
     }
 }
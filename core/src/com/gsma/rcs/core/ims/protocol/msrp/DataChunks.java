@@ -19,6 +19,7 @@
 package com.gsma.rcs.core.ims.protocol.msrp;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Data chunks
@@ -52,6 +53,17 @@ public class DataChunks {
         currentSize += data.length;
     }
 
+    /**
+     * Add a new chunk from a slice of a buffer, without consuming it
+     * 
+     * @param data Data chunk from position to limit
+     */
+    public void addChunk(ByteBuffer data) {
+        int length = data.remaining();
+        cache.write(data.array(), data.arrayOffset() + data.position(), length);
+        currentSize += length;
+    }
+
     /**
      * Get received data
      * 
@@ -68,6 +80,15 @@ public class DataChunks {
         cache.reset();
     }
 
+    /**
+     * Returns the size of the data in the cache
+     * 
+     * @return Size in bytes
+     */
+    public int getCachedSize() {
+        return cache.size();
+    }
+
     /**
      * Returns the current size of the received chunks
      * 
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.protocol.msrp;
+
+/**
+ * Controller of the size of the chunks of a content<br>
+ * The chunk size is increased while the responses come back as fast as on an idle link and the
+ * connection has no backlog, and is decreased as soon as the round trip time or the data queued
+ * on the connection grow, so that a large file goes out in large chunks on a fast network without
+ * delaying the other sessions sharing the connection on a slow one.
+ */
+public class MsrpChunkSizeController {
+
+    /**
+     * Minimum chunk size
+     */
+    public static final int MIN_CHUNK_SIZE = 2048;
+
+    private final int mMaxChunkSize;
+
+    private int mChunkSize;
+
+    /**
+     * Lowest round trip time observed, taken as the round trip time of the idle link
+     */
+    private long mMinRoundTripTime = -1;
+
+    /**
+     * Smoothed round trip time
+     */
+    private long mRoundTripTime = -1;
+
+    /**
+     * Constructor
+     * 
+     * @param initialChunkSize Initial chunk size
+     * @param maxChunkSize Maximum chunk size
+     */
+    public MsrpChunkSizeController(int initialChunkSize, int maxChunkSize) {
+        mMaxChunkSize = Math.max(MIN_CHUNK_SIZE, maxChunkSize);
+        mChunkSize = Math.min(Math.max(MIN_CHUNK_SIZE, initialChunkSize), mMaxChunkSize);
+    }
+
+    /**
+     * Returns the size of the next chunk
+     * 
+     * @return Size in bytes
+     */
+    public synchronized int getChunkSize() {
+        return mChunkSize;
+    }
+
+    /**
+     * Handle the round trip time of an acknowledged chunk
+     * 
+     * @param roundTripTime Round trip time in milliseconds
+     * @param backlog Size of the data queued on the connection and not yet written
+     */
+    public synchronized void onChunkAcknowledged(long roundTripTime, int backlog) {
+        if (roundTripTime < 0) {
+            return;
+        }
+        if (mMinRoundTripTime < 0 || roundTripTime < mMinRoundTripTime) {
+            mMinRoundTripTime = roundTripTime;
+        }
+        if (mRoundTripTime < 0) {
+            mRoundTripTime = roundTripTime;
+        } else {
+            mRoundTripTime = (7 * mRoundTripTime + roundTripTime) / 8;
+        }
+        /* A few milliseconds of margin so that the scheduling jitter of a LAN is ignored */
+        long congestionThreshold = 2 * mMinRoundTripTime + 10;
+        if (backlog > 2 * mChunkSize || mRoundTripTime > congestionThreshold) {
+            mChunkSize = Math.max(MIN_CHUNK_SIZE, mChunkSize / 2);
+
+        } else if (backlog < mChunkSize && mRoundTripTime <= (congestionThreshold + 1) / 2) {
+            mChunkSize = Math.min(mMaxChunkSize, mChunkSize + mChunkSize / 4);
+        }
+    }
+}
@@ -28,6 +28,10 @@ import com.gsma.rcs.platform.network.NetworkFactory;
 import com.gsma.rcs.platform.network.SocketConnection;
 import com.gsma.rcs.utils.logger.Logger;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+
 /**
  * MSRP client connection
  * 
@@ -55,6 +59,11 @@ public class MsrpClientConnection extends MsrpConnection {
      */
     private String announcedFingerprint = null;
 
+    /**
+     * Key of the connection in the connection pool or null if not shared
+     */
+    private String mPoolKey;
+
     /**
      * The logger
      */
@@ -116,6 +125,40 @@ public class MsrpClientConnection extends MsrpConnection {
         return secured;
     }
 
+    /**
+     * Returns the key of the connection in the connection pool
+     * 
+     * @return Key or null if the connection is not shared
+     */
+    /* package private */String getPoolKey() {
+        return mPoolKey;
+    }
+
+    /**
+     * Set the key of the connection in the connection pool
+     * 
+     * @param key Key
+     */
+    /* package private */void setPoolKey(String key) {
+        mPoolKey = key;
+    }
+
+    @Override
+    public void release(MsrpSession session) {
+        if (mPoolKey == null) {
+            close();
+            return;
+        }
+        MsrpConnectionPool.getInstance().release(this, session);
+    }
+
+    @Override
+    /* package private */void notifyConnectionLost() {
+        if (mPoolKey != null) {
+            MsrpConnectionPool.getInstance().evict(this);
+        }
+    }
+
     /**
      * Returns the socket connection
      * 
@@ -147,4 +190,29 @@ public class MsrpClientConnection extends MsrpConnection {
         }
         return socket;
     }
+
+    /**
+     * Returns a connected socket channel for the event-driven transport mode
+     * 
+     * @return Socket channel or null for a secured connection which is only supported in blocking
+     *         mode
+     * @throws NetworkException
+     */
+    @Override
+    protected SocketChannel getSocketChannel() throws NetworkException {
+        if (secured) {
+            return null;
+        }
+        if (logger.isActivated()) {
+            logger.debug("Open client socket channel to " + remoteAddress + ":" + remotePort);
+        }
+        try {
+            return SocketChannel.open(new InetSocketAddress(remoteAddress, remotePort));
+
+        } catch (IOException e) {
+            throw new NetworkException(new StringBuilder(
+                    "Failed to open socket channel for address : ").append(remoteAddress)
+                    .append(" and port : ").append(remotePort).toString(), e);
+        }
+    }
 }
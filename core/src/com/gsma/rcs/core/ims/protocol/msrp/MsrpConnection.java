@@ -22,14 +22,22 @@
 
 package com.gsma.rcs.core.ims.protocol.msrp;
 
+import com.gsma.rcs.core.FileAccessException;
 import com.gsma.rcs.core.ims.network.NetworkException;
 import com.gsma.rcs.core.ims.protocol.PayloadException;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpSession.TypeMsrpChunk;
 import com.gsma.rcs.platform.network.SocketConnection;
+import com.gsma.rcs.provider.contact.ContactManagerException;
 import com.gsma.rcs.utils.CloseableUtils;
+import com.gsma.rcs.utils.capture.WireCapture;
 import com.gsma.rcs.utils.logger.Logger;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Abstract MSRP connection between two end points
@@ -40,6 +48,13 @@ public abstract class MsrpConnection {
 
     private static boolean sMsrpTraceEnabled = false;
 
+    private static boolean sNioTransportEnabled = false;
+
+    /**
+     * Identifier of the messages of the connection in the capture
+     */
+    private final int mCaptureId = WireCapture.newConnectionId();
+
     private MsrpSession mSession;
 
     private SocketConnection mSocket;
@@ -58,6 +73,23 @@ public abstract class MsrpConnection {
      */
     private ChunkSender mSender;
 
+    /**
+     * Non-blocking channel used in event-driven transport mode
+     */
+    private MsrpNioChannel mNioChannel;
+
+    /**
+     * Sessions multiplexed over a shared connection, keyed by local MSRP session id
+     */
+    private final Map<String, MsrpSession> mSessions = new ConcurrentHashMap<>();
+
+    /**
+     * Buffers used to send chunks
+     */
+    private final MsrpSendBuffer.Pool mSendBufferPool = new MsrpSendBuffer.Pool();
+
+    private boolean mOpened = false;
+
     private static final Logger sLogger = Logger.getLogger(MsrpConnection.class.getName());
 
     /**
@@ -78,13 +110,65 @@ public abstract class MsrpConnection {
         return mSession;
     }
 
+    /**
+     * Attach a session multiplexed over the connection
+     * 
+     * @param session MSRP session
+     */
+    /* package private */void attachSession(MsrpSession session) {
+        mSessions.put(MsrpUtils.getSessionId(session.getFrom()), session);
+    }
+
+    /**
+     * Detach a session multiplexed over the connection
+     * 
+     * @param session MSRP session
+     */
+    /* package private */void detachSession(MsrpSession session) {
+        mSessions.remove(MsrpUtils.getSessionId(session.getFrom()));
+    }
+
+    /**
+     * Returns the number of sessions multiplexed over the connection
+     * 
+     * @return Number of sessions
+     */
+    /* package private */int getSessionCount() {
+        return mSessions.size();
+    }
+
+    /**
+     * Returns the session a received frame is addressed to
+     * 
+     * @param headers Frame headers
+     * @return MSRP session or null if the frame is addressed to an unknown session
+     */
+    private MsrpSession getSession(MsrpHeaders headers) {
+        if (mSessions.isEmpty()) {
+            return mSession;
+        }
+        String sessionId = MsrpUtils.getSessionId(headers.get(MsrpConstants.HEADER_TO_PATH));
+        if (sessionId == null) {
+            return null;
+        }
+        return mSessions.get(sessionId);
+    }
+
     /**
      * Open the connection
      * 
      * @throws NetworkException
      * @throws PayloadException
      */
-    public void open() throws NetworkException, PayloadException {
+    public synchronized void open() throws NetworkException, PayloadException {
+        if (mOpened) {
+            /* Shared connection already opened by another session */
+            return;
+        }
+        if (sNioTransportEnabled && openNioChannel(0)) {
+            mOpened = true;
+            return;
+        }
         // Open socket connection
         mSocket = getSocketConnection();
         // Open I/O stream
@@ -96,6 +180,7 @@ public abstract class MsrpConnection {
         // Create the chunk sender
         mSender = new ChunkSender(this, mOutputStream);
         mSender.start();
+        mOpened = true;
         if (sLogger.isActivated()) {
             sLogger.debug("Connection has been opened");
         }
@@ -108,7 +193,15 @@ public abstract class MsrpConnection {
      * @throws NetworkException
      * @throws PayloadException
      */
-    public void open(long timeout) throws NetworkException, PayloadException {
+    public synchronized void open(long timeout) throws NetworkException, PayloadException {
+        if (mOpened) {
+            /* Shared connection already opened by another session */
+            return;
+        }
+        if (sNioTransportEnabled && openNioChannel(timeout)) {
+            mOpened = true;
+            return;
+        }
         // Open socket connection
         mSocket = getSocketConnection();
         // Set SoTimeout
@@ -122,15 +215,47 @@ public abstract class MsrpConnection {
         // Create the chunk sender
         mSender = new ChunkSender(this, mOutputStream);
         mSender.start();
+        mOpened = true;
         if (sLogger.isActivated()) {
             sLogger.debug("Connection has been opened");
         }
     }
 
+    /**
+     * Open the connection in event-driven transport mode
+     * 
+     * @param timeout Read timeout in milliseconds or 0 for no timeout
+     * @return False if the connection does not support the event-driven transport mode
+     * @throws NetworkException
+     * @throws PayloadException
+     */
+    private boolean openNioChannel(long timeout) throws NetworkException, PayloadException {
+        ServerSocketChannel serverChannel = getServerSocketChannel();
+        if (serverChannel != null) {
+            mNioChannel = MsrpNioTransport.getInstance().accept(this, serverChannel, timeout);
+            if (sLogger.isActivated()) {
+                sLogger.debug("Connection is waiting for the remote in event-driven mode");
+            }
+            return true;
+        }
+        SocketChannel channel = getSocketChannel();
+        if (channel == null) {
+            return false;
+        }
+        mNioChannel = MsrpNioTransport.getInstance().register(this, channel, timeout);
+        if (sLogger.isActivated()) {
+            sLogger.debug("Connection has been opened in event-driven mode");
+        }
+        return true;
+    }
+
     /**
      * Close the connection
      */
     public void close() {
+        if (mNioChannel != null) {
+            mNioChannel.close();
+        }
         if (mSender != null) {
             mSender.terminate();
         }
@@ -148,6 +273,39 @@ public abstract class MsrpConnection {
         }
     }
 
+    /**
+     * Release the connection used by a session
+     * 
+     * @param session MSRP session
+     */
+    public void release(MsrpSession session) {
+        close();
+    }
+
+    /**
+     * Returns the pool of the buffers used to send chunks on the connection
+     * 
+     * @return Pool
+     */
+    public MsrpSendBuffer.Pool getSendBufferPool() {
+        return mSendBufferPool;
+    }
+
+    /**
+     * Returns the size of the data queued on the connection and not yet written to the socket
+     * 
+     * @return Size in bytes
+     */
+    public int getPendingSendSize() {
+        if (mNioChannel != null) {
+            return mNioChannel.getPendingSize();
+        }
+        if (mSender != null) {
+            return mSender.getPendingSize();
+        }
+        return 0;
+    }
+
     /**
      * Send a new data chunk
      * 
@@ -155,6 +313,20 @@ public abstract class MsrpConnection {
      * @throws NetworkException
      */
     public void sendChunk(byte chunk[]) throws NetworkException {
+        sendChunk(MsrpSendBuffer.wrap(chunk));
+    }
+
+    /**
+     * Send a new data chunk, the buffer being given back to its pool once written
+     * 
+     * @param chunk Data chunk
+     * @throws NetworkException
+     */
+    public void sendChunk(MsrpSendBuffer chunk) throws NetworkException {
+        if (mNioChannel != null) {
+            mNioChannel.sendChunk(chunk);
+            return;
+        }
         if (mSender == null) {
             throw new NetworkException("ChunkSender is already closed!");
         }
@@ -168,9 +340,105 @@ public abstract class MsrpConnection {
      * @throws NetworkException
      */
     public void sendChunkImmediately(byte chunk[]) throws NetworkException {
+        sendChunkImmediately(MsrpSendBuffer.wrap(chunk));
+    }
+
+    /**
+     * Send a new data chunk immediately, the buffer being given back to its pool once written
+     * 
+     * @param chunk Data chunk
+     * @throws NetworkException
+     */
+    public void sendChunkImmediately(MsrpSendBuffer chunk) throws NetworkException {
+        if (mNioChannel != null) {
+            mNioChannel.sendChunk(chunk);
+            return;
+        }
         mSender.sendChunkImmediately(chunk);
     }
 
+    /**
+     * Process a frame received on the connection
+     * 
+     * @param decoder Frame decoder holding the decoded frame
+     * @throws FileAccessException
+     * @throws ContactManagerException
+     * @throws PayloadException
+     * @throws NetworkException
+     */
+    /* package private */void processFrame(MsrpFrameDecoder decoder) throws FileAccessException,
+            ContactManagerException, PayloadException, NetworkException {
+        if (isMsrpTraceEnabled()) {
+            decoder.captureFrame(mCaptureId);
+        }
+        String txId = decoder.getTransactionId();
+        int responseCode = decoder.getResponseCode();
+        String method = decoder.getMethod();
+        MsrpHeaders headers = decoder.getHeaders();
+
+        final MsrpSession session = getSession(headers);
+        if (session == null) {
+            if (sLogger.isActivated()) {
+                sLogger.warn("Drop MSRP message " + txId + " for an unknown session");
+            }
+            return;
+        }
+        // Process the received MSRP message
+        if (responseCode != -1) {
+            // Process MSRP response
+            session.receiveMsrpResponse(responseCode, txId, headers);
+        } else {
+            // Process MSRP request
+            if (MsrpConstants.METHOD_SEND.equals(method)) {
+                // Process a SEND request
+                session.receiveMsrpSend(txId, headers, decoder.getContinuationFlag(),
+                        decoder.getFirstByte(), decoder.getData(), decoder.getTotalSize());
+            } else if (MsrpConstants.METHOD_REPORT.equals(method)) {
+                // Process a REPORT request
+                session.receiveMsrpReport(txId, headers);
+            } else {
+                // Unknown request
+                // Remove transaction info from list
+                // Changed by Deutsche Telekom
+                session.removeMsrpTransactionInfo(txId);
+            }
+        }
+
+        // Check transaction info data
+        // Changed by Deutsche Telekom
+        session.checkMsrpTransactionInfo();
+    }
+
+    /**
+     * Notify the session listener that an error has occurred on the connection
+     * 
+     * @param error Error message
+     */
+    /* package private */void notifyTransferError(String error) {
+        notifyConnectionLost();
+        if (mSessions.isEmpty()) {
+            notifyTransferError(mSession, error);
+            return;
+        }
+        for (MsrpSession session : mSessions.values()) {
+            notifyTransferError(session, error);
+        }
+    }
+
+    private void notifyTransferError(MsrpSession session, String error) {
+        session.getMsrpEventListener().msrpTransferError(null, error, TypeMsrpChunk.Unknown);
+
+        /* Check transaction info data */
+        session.checkMsrpTransactionInfo();
+    }
+
+    /**
+     * Notify that the connection can no more be used, either on error or when closed by the
+     * remote end point
+     */
+    /* package private */void notifyConnectionLost() {
+    }
+
     /**
      * Returns the socket connection
      * 
@@ -181,6 +449,37 @@ public abstract class MsrpConnection {
     public abstract SocketConnection getSocketConnection() throws PayloadException,
             NetworkException;
 
+    /**
+     * Returns a connected socket channel for the event-driven transport mode
+     * 
+     * @return Socket channel or null if the connection does not support this mode
+     * @throws PayloadException
+     * @throws NetworkException
+     */
+    protected SocketChannel getSocketChannel() throws PayloadException, NetworkException {
+        return null;
+    }
+
+    /**
+     * Returns a bound server socket channel for the event-driven transport mode, the remote end
+     * point being accepted without blocking
+     * 
+     * @return Server socket channel or null if the connection connects to the remote end point
+     * @throws NetworkException
+     */
+    protected ServerSocketChannel getServerSocketChannel() throws NetworkException {
+        return null;
+    }
+
+    /**
+     * Returns the identifier of the messages of the connection in the capture
+     * 
+     * @return Connection identifier
+     */
+    /* package private */int getCaptureId() {
+        return mCaptureId;
+    }
+
     /**
      * Checks if MSRP trace is enabled
      * 
@@ -198,4 +497,23 @@ public abstract class MsrpConnection {
     public static void setMsrpTraceEnabled(boolean enable) {
         sMsrpTraceEnabled = enable;
     }
+
+    /**
+     * Checks if the event-driven transport mode is enabled
+     * 
+     * @return True if the connections are opened in event-driven mode when supported
+     */
+    public static boolean isNioTransportEnabled() {
+        return sNioTransportEnabled;
+    }
+
+    /**
+     * Sets the event-driven transport mode, where the connections share a few I/O threads instead
+     * of using a receiver and a sender thread each
+     * 
+     * @param enable True to open the connections in event-driven mode when supported
+     */
+    public static void setNioTransportEnabled(boolean enable) {
+        sNioTransportEnabled = enable;
+    }
 }
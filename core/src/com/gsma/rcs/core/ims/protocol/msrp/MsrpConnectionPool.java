@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.protocol.msrp;
+
+import com.gsma.rcs.utils.logger.Logger;
+
+import gov2.nist.core.TimingWheel;
+import gov2.nist.core.TimingWheelTask;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pool of MSRP client connections shared by the MSRP sessions established with the same remote
+ * end point (RFC 4975 section 6)<br>
+ * Connections are keyed by remote host, port and security mode. A connection is reference counted
+ * by the sessions attached to it and is closed once it has stayed unused for the idle timeout.
+ */
+public class MsrpConnectionPool {
+
+    private static final MsrpConnectionPool sInstance = new MsrpConnectionPool();
+
+    private static boolean sEnabled = false;
+
+    private static long sIdleTimeout = 30000;
+
+    private final Map<String, MsrpClientConnection> mConnections = new HashMap<>();
+
+    private final Map<MsrpClientConnection, TimingWheelTask> mIdleTasks = new HashMap<>();
+
+    private long mAcquisitions;
+
+    private long mReuseHits;
+
+    private long mSavedTlsHandshakes;
+
+    private static final Logger sLogger = Logger.getLogger(MsrpConnectionPool.class.getName());
+
+    private MsrpConnectionPool() {
+    }
+
+    /**
+     * Returns the pool instance
+     *
+     * @return Pool
+     */
+    public static MsrpConnectionPool getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Checks if MSRP client connections are shared between sessions
+     *
+     * @return True if connections are shared
+     */
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Sets if MSRP client connections are shared between sessions
+     *
+     * @param enable True to share connections
+     */
+    public static void setEnabled(boolean enable) {
+        sEnabled = enable;
+    }
+
+    /**
+     * Sets the delay after which a connection not used by any session is closed
+     *
+     * @param timeout Timeout in milliseconds
+     */
+    public static void setIdleTimeout(long timeout) {
+        sIdleTimeout = timeout;
+    }
+
+    private static String getKey(String remoteAddress, int remotePort, boolean secured,
+            String fingerprint) {
+        StringBuilder key = new StringBuilder(secured ? MsrpConstants.MSRP_SECURED_PROTOCOL
+                : MsrpConstants.MSRP_PROTOCOL).append("://").append(remoteAddress).append(':')
+                .append(remotePort);
+        if (fingerprint != null) {
+            key.append(';').append(fingerprint);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Acquire a connection to a remote end point for a session, reusing an open connection when
+     * possible
+     *
+     * @param session MSRP session
+     * @param remoteAddress Remote IP address
+     * @param remotePort Remote port number
+     * @param secured Secured media flag
+     * @param fingerprint fingerprint announced in SDP
+     * @return Connection with the session attached
+     */
+    public synchronized MsrpClientConnection acquire(MsrpSession session, String remoteAddress,
+            int remotePort, boolean secured, String fingerprint) {
+        String key = getKey(remoteAddress, remotePort, secured, fingerprint);
+        mAcquisitions++;
+        MsrpClientConnection connection = mConnections.get(key);
+        if (connection != null) {
+            cancelIdleTask(connection);
+            mReuseHits++;
+            if (secured) {
+                mSavedTlsHandshakes++;
+            }
+            if (sLogger.isActivated()) {
+                sLogger.debug("Reuse MSRP connection to " + key + " (hit rate "
+                        + getReuseHitRate() + "%, " + mReuseHits + " connections and "
+                        + mSavedTlsHandshakes + " TLS handshakes saved)");
+            }
+        } else {
+            connection = new MsrpClientConnection(session, remoteAddress, remotePort, secured,
+                    fingerprint);
+            connection.setPoolKey(key);
+            mConnections.put(key, connection);
+            if (sLogger.isActivated()) {
+                sLogger.debug("New pooled MSRP connection to " + key);
+            }
+        }
+        connection.attachSession(session);
+        return connection;
+    }
+
+    /**
+     * Release a connection used by a session: the connection is closed after the idle timeout if
+     * it is no more used by any session
+     *
+     * @param connection Connection
+     * @param session MSRP session
+     */
+    public synchronized void release(final MsrpClientConnection connection, MsrpSession session) {
+        connection.detachSession(session);
+        if (connection.getSessionCount() > 0) {
+            return;
+        }
+        if (mConnections.get(connection.getPoolKey()) != connection) {
+            /* Connection already evicted */
+            connection.close();
+            return;
+        }
+        TimingWheelTask task = new TimingWheelTask() {
+            @Override
+            public void run() {
+                closeIfIdle(connection);
+            }
+        };
+        mIdleTasks.put(connection, task);
+        TimingWheel.getSharedWheel().schedule(task, sIdleTimeout);
+    }
+
+    private synchronized void closeIfIdle(MsrpClientConnection connection) {
+        if (mIdleTasks.remove(connection) == null || connection.getSessionCount() > 0) {
+            return;
+        }
+        mConnections.remove(connection.getPoolKey());
+        if (sLogger.isActivated()) {
+            sLogger.debug("Close idle MSRP connection to " + connection.getPoolKey());
+        }
+        connection.close();
+    }
+
+    /**
+     * Remove a connection which can no more be used from the pool, so that new sessions open a
+     * new connection
+     *
+     * @param connection Connection
+     */
+    public synchronized void evict(MsrpClientConnection connection) {
+        if (mConnections.get(connection.getPoolKey()) != connection) {
+            return;
+        }
+        mConnections.remove(connection.getPoolKey());
+        if (cancelIdleTask(connection)) {
+            connection.close();
+        }
+        if (sLogger.isActivated()) {
+            sLogger.debug("Evict MSRP connection to " + connection.getPoolKey());
+        }
+    }
+
+    private boolean cancelIdleTask(MsrpClientConnection connection) {
+        TimingWheelTask task = mIdleTasks.remove(connection);
+        if (task == null) {
+            return false;
+        }
+        task.cancel();
+        return true;
+    }
+
+    /**
+     * Returns the number of connection acquisitions
+     *
+     * @return Number of acquisitions
+     */
+    public synchronized long getAcquisitionCount() {
+        return mAcquisitions;
+    }
+
+    /**
+     * Returns the number of acquisitions served by an already open connection, i.e. the number
+     * of connection establishments saved
+     *
+     * @return Number of reuse hits
+     */
+    public synchronized long getReuseHitCount() {
+        return mReuseHits;
+    }
+
+    /**
+     * Returns the percentage of acquisitions served by an already open connection
+     *
+     * @return Hit rate in percent
+     */
+    public synchronized int getReuseHitRate() {
+        if (mAcquisitions == 0) {
+            return 0;
+        }
+        return (int) (mReuseHits * 100 / mAcquisitions);
+    }
+
+    /**
+     * Returns the number of TLS handshakes saved by reusing secured connections
+     *
+     * @return Number of TLS handshakes saved
+     */
+    public synchronized long getSavedTlsHandshakeCount() {
+        return mSavedTlsHandshakes;
+    }
+}
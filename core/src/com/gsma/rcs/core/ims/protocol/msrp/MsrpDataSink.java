@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.protocol.msrp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Sink of the content received in a MSRP session<br>
+ * When a session has a data sink, the received chunks are written to it as they arrive instead of
+ * being accumulated in memory until the last chunk.
+ */
+public interface MsrpDataSink {
+    /**
+     * Write a byte range of the received content. Ranges may be received out of order or start
+     * after the beginning of the content when a transfer is resumed.
+     * 
+     * @param offset Offset of the range in the content
+     * @param data Data from position to limit, only valid during the call
+     * @return False if the content can no longer be written: the next chunks of the message are
+     *         refused
+     */
+    boolean writeData(long offset, ByteBuffer data);
+}
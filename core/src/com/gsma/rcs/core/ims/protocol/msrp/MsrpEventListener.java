@@ -45,7 +45,8 @@ public interface MsrpEventListener {
      * Data has been received
      * 
      * @param msgId Message ID
-     * @param data Received data
+     * @param data Received data or null if the data has been written to the data sink of the
+     *            session
      * @param mimeType Data mime-type
      * @throws PayloadException
      * @throws NetworkException
@@ -62,17 +63,6 @@ public interface MsrpEventListener {
      */
     void msrpTransferProgress(long currentSize, long totalSize);
 
-    /**
-     * Data transfer in progress
-     * 
-     * @param currentSize Current transfered size in bytes
-     * @param totalSize Total size in bytes
-     * @param data received data chunk
-     * @return true if data are processed and can be delete in cache. If false, so data were stored
-     *         in MsrpSession cache until msrpDataReceived is called.
-     */
-    boolean msrpTransferProgress(long currentSize, long totalSize, byte[] data);
-
     /**
      * Data transfer has been aborted
      */
@@ -0,0 +1,799 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.protocol.msrp;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+import com.gsma.rcs.core.ims.network.NetworkException;
+import com.gsma.rcs.utils.capture.WireCapture;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * MSRP frame decoder<br>
+ * Reads the MSRP stream by blocks into a reusable buffer and decodes one frame at a time directly
+ * from the bytes: lines are located by scanning for CRLF, the end-line of a chunk without a known
+ * size is located with a Boyer-Moore-Horspool search and headers are exposed through a flyweight
+ * {@link MsrpHeaders} view. The payload is exposed as a slice of the receive buffer, so the
+ * decoded frame is only valid until the next call to {@link #readFrame()}.<br>
+ * The decoder either pulls data from a blocking input stream, or is fed from a non-blocking
+ * channel with {@link #readFrom(ReadableByteChannel)}, in which case {@link #readFrame()} returns
+ * {@link DecodeResult#INCOMPLETE} until a whole frame has been received. The decoding state is
+ * then kept between the calls, so that the decoding resumes where it stopped.
+ */
+public class MsrpFrameDecoder {
+
+    /**
+     * Result of the decoding of a frame
+     */
+    public enum DecodeResult {
+        /**
+         * A complete frame has been decoded
+         */
+        FRAME,
+        /**
+         * The stream has been closed by the remote
+         */
+        END_OF_STREAM,
+        /**
+         * The received data is not a MSRP frame
+         */
+        NOT_MSRP,
+        /**
+         * More data must be read from the channel to decode the frame
+         */
+        INCOMPLETE
+    }
+
+    /**
+     * Part of the frame being decoded
+     */
+    private enum DecodeState {
+        /**
+         * No frame is being decoded
+         */
+        NEW,
+        /**
+         * The first line is being decoded
+         */
+        FIRST_LINE,
+        /**
+         * The headers are being decoded
+         */
+        HEADERS,
+        /**
+         * The body and the end-line are being decoded
+         */
+        BODY
+    }
+
+    private static final byte CR = '\r';
+
+    private static final byte LF = '\n';
+
+    private static final byte[] MSRP_PREFIX = (MsrpConstants.MSRP_HEADER + " ").getBytes(UTF8);
+
+    private static final byte[] METHOD_SEND = MsrpConstants.METHOD_SEND.getBytes(UTF8);
+
+    private static final byte[] METHOD_REPORT = MsrpConstants.METHOD_REPORT.getBytes(UTF8);
+
+    private static final int END_MSRP_MSG_LENGTH = MsrpConstants.END_MSRP_MSG.length();
+
+    private static final int NO_VALUE = -1;
+
+    /**
+     * Initial size of the receive buffer: a full chunk plus room for its headers
+     */
+    private static final int INITIAL_BUFFER_SIZE = MsrpConstants.CHUNK_MAX_SIZE + 2048;
+
+    /**
+     * Maximum size of a frame: a full chunk plus room for long headers. A larger frame, e.g. a
+     * chunk whose end-line never comes, fails the connection instead of growing the buffer.
+     */
+    private static final int MAX_FRAME_SIZE = MsrpConstants.CHUNK_MAX_SIZE + 8192;
+
+    private final InputStream mStream;
+
+    private ByteBuffer mBuffer;
+
+    private byte[] mData;
+
+    /**
+     * Start offset of the current frame in the buffer: always 0 once a frame is being decoded
+     */
+    private int mFrameStart;
+
+    /**
+     * End offset (exclusive) of the current frame
+     */
+    private int mFrameEnd;
+
+    /**
+     * End offset (exclusive) of the valid data in the buffer
+     */
+    private int mLimit;
+
+    private final MsrpHeaders mHeaders = new MsrpHeaders();
+
+    /**
+     * End-line pattern of the current frame: CRLF + "-------" + transaction ID
+     */
+    private byte[] mEndPattern = new byte[64];
+
+    private int mEndPatternLength;
+
+    /**
+     * Boyer-Moore-Horspool bad character shift table for the end-line pattern
+     */
+    private final int[] mShiftTable = new int[256];
+
+    private String mTransactionId;
+
+    private String mMethod;
+
+    private int mResponseCode;
+
+    private int mContinuationFlag;
+
+    private long mTotalSize;
+
+    private long mFirstByte;
+
+    private int mDataStart;
+
+    private int mDataEnd;
+
+    /**
+     * Offset from which the search of the end-line must be resumed when more data is received
+     */
+    private int mEndSearchOffset = NO_VALUE;
+
+    private DecodeState mState = DecodeState.NEW;
+
+    /**
+     * Start offset of the line being decoded
+     */
+    private int mLineStart;
+
+    /**
+     * Offset from which the search of the end of the line must be resumed
+     */
+    private int mLineSearchOffset;
+
+    private int mBodyStart;
+
+    /**
+     * Size of the chunk from the Byte-Range header or -1 if not known
+     */
+    private int mChunkSize;
+
+    private boolean mHasByteRange;
+
+    /**
+     * Constructor of a decoder reading from a blocking stream
+     *
+     * @param stream MSRP input stream
+     */
+    public MsrpFrameDecoder(InputStream stream) {
+        mStream = stream;
+        mData = new byte[INITIAL_BUFFER_SIZE];
+        mBuffer = ByteBuffer.wrap(mData);
+    }
+
+    /**
+     * Constructor of a decoder fed from a non-blocking channel
+     */
+    public MsrpFrameDecoder() {
+        this(null);
+    }
+
+    /**
+     * Read the data available on a non-blocking channel
+     *
+     * @param channel Channel
+     * @return Number of bytes read or -1 if the end of stream is reached
+     * @throws NetworkException
+     */
+    public int readFrom(ReadableByteChannel channel) throws NetworkException {
+        compact();
+        if (mLimit == mData.length) {
+            grow(mData.length * 2);
+        }
+        mBuffer.limit(mData.length).position(mLimit);
+        try {
+            int read = channel.read(mBuffer);
+            if (read > 0) {
+                mLimit += read;
+            }
+            return read;
+
+        } catch (IOException e) {
+            throw new NetworkException("Failed to read MSRP frame!", e);
+        }
+    }
+
+    /**
+     * Read and decode the next frame from the stream. When fed from a non-blocking channel, the
+     * decoding of an incomplete frame resumes where it stopped.
+     *
+     * @return Decode result
+     * @throws NetworkException
+     */
+    public DecodeResult readFrame() throws NetworkException {
+        if (DecodeState.NEW == mState) {
+            startFrame();
+        }
+        DecodeResult result = null;
+        if (DecodeState.FIRST_LINE == mState) {
+            result = readFirstLine();
+        }
+        if (result == null && DecodeState.HEADERS == mState) {
+            result = readHeaders();
+        }
+        if (result == null) {
+            result = readBody();
+        }
+        if (DecodeResult.INCOMPLETE != result) {
+            /* The next call decodes a new frame */
+            mState = DecodeState.NEW;
+        }
+        return result;
+    }
+
+    /**
+     * Start the decoding of a new frame
+     */
+    private void startFrame() {
+        compact();
+        mHeaders.reset(mData);
+        mTransactionId = null;
+        mMethod = null;
+        mResponseCode = NO_VALUE;
+        mContinuationFlag = '\0';
+        mTotalSize = 0;
+        mFirstByte = 1;
+        mDataStart = NO_VALUE;
+        mDataEnd = NO_VALUE;
+        mLineStart = 0;
+        mLineSearchOffset = 0;
+        mState = DecodeState.FIRST_LINE;
+    }
+
+    /**
+     * Read the first line: "MSRP", the transaction ID and the method or the status code
+     *
+     * @return Decode result or null if the headers follow
+     * @throws NetworkException
+     */
+    private DecodeResult readFirstLine() throws NetworkException {
+        int lineEnd = indexOfLineEnd();
+        if (lineEnd == NO_VALUE) {
+            return getMissingDataResult();
+        }
+        if (!startsWith(0, lineEnd, MSRP_PREFIX)) {
+            return DecodeResult.NOT_MSRP;
+        }
+        int txIdStart = MSRP_PREFIX.length;
+        int txIdEnd = indexOf(MsrpConstants.CHAR_SP, txIdStart, lineEnd);
+        if (txIdEnd == NO_VALUE || txIdEnd == txIdStart) {
+            return DecodeResult.NOT_MSRP;
+        }
+        int tokenStart = txIdEnd + 1;
+        int tokenEnd = indexOf(MsrpConstants.CHAR_SP, tokenStart, lineEnd);
+        if (tokenEnd == NO_VALUE) {
+            tokenEnd = lineEnd;
+        }
+        if (tokenEnd == tokenStart) {
+            return DecodeResult.NOT_MSRP;
+        }
+        mTransactionId = new String(mData, txIdStart, txIdEnd - txIdStart, UTF8);
+        mResponseCode = parseInt(tokenStart, tokenEnd);
+        if (mResponseCode == NO_VALUE) {
+            mMethod = parseMethod(tokenStart, tokenEnd);
+        }
+        prepareEndPattern(txIdStart, txIdEnd);
+        nextLine(lineEnd);
+        mState = DecodeState.HEADERS;
+        return null;
+    }
+
+    /**
+     * Read the headers until the end-line or the empty line preceding the body
+     *
+     * @return Decode result or null if the body follows
+     * @throws NetworkException
+     */
+    private DecodeResult readHeaders() throws NetworkException {
+        while (true) {
+            int lineStart = mLineStart;
+            int lineEnd = indexOfLineEnd();
+            if (lineEnd == NO_VALUE) {
+                return getMissingDataResult();
+            }
+            if (lineEnd == lineStart) {
+                /* Empty line: the body follows */
+                startBody(lineStart + 2);
+                return null;
+            }
+            if (isEndLine(lineStart, lineEnd)) {
+                mContinuationFlag = mData[lineEnd - 1];
+                mFrameEnd = lineEnd + 2;
+                return DecodeResult.FRAME;
+            }
+            int separator = indexOf(MsrpConstants.CHAR_DOUBLE_POINT, lineStart, lineEnd);
+            if (separator != NO_VALUE) {
+                mHeaders.add(trimStart(lineStart, separator), trimEnd(lineStart, separator),
+                        trimStart(separator + 1, lineEnd), trimEnd(separator + 1, lineEnd));
+            }
+            nextLine(lineEnd);
+        }
+    }
+
+    /**
+     * Start the decoding of the body: the Byte-Range header is parsed once
+     *
+     * @param bodyStart Offset of the body
+     */
+    private void startBody(int bodyStart) {
+        mBodyStart = bodyStart;
+        mChunkSize = NO_VALUE;
+        int rangeStart = mHeaders.getValueStart(MsrpConstants.HEADER_BYTE_RANGE);
+        mHasByteRange = rangeStart != NO_VALUE;
+        if (mHasByteRange) {
+            int rangeEnd = mHeaders.getValueEnd(MsrpConstants.HEADER_BYTE_RANGE);
+            int dash = indexOf(MsrpConstants.CHAR_MIN, rangeStart, rangeEnd);
+            int slash = indexOf((byte) '/', rangeStart, rangeEnd);
+            if (dash != NO_VALUE && slash > dash) {
+                long firstByte = parseLong(rangeStart, dash);
+                long lastByte = parseLong(dash + 1, slash);
+                mTotalSize = parseLong(slash + 1, rangeEnd);
+                if (firstByte != NO_VALUE) {
+                    mFirstByte = firstByte;
+                    if (lastByte != NO_VALUE) {
+                        mChunkSize = (int) (lastByte - firstByte + 1);
+                    }
+                }
+            }
+        }
+        /*
+         * The end-line pattern starts with the CRLF terminating the body: search from the empty
+         * line so that an empty body is also detected
+         */
+        mEndSearchOffset = bodyStart - 2;
+        mState = DecodeState.BODY;
+    }
+
+    /**
+     * Read the body of the frame and its end-line
+     *
+     * @return Decode result
+     * @throws NetworkException
+     */
+    private DecodeResult readBody() throws NetworkException {
+        if (mChunkSize > 0) {
+            /* Use the Byte-Range value to jump directly to the expected end-line */
+            int endLineStart = mBodyStart + mChunkSize;
+            int frameEnd = endLineStart + mEndPatternLength + 3;
+            if (ensureAvailable(frameEnd) && isEndPatternAt(endLineStart)
+                    && mData[frameEnd - 2] == CR && mData[frameEnd - 1] == LF) {
+                mDataStart = mBodyStart;
+                mDataEnd = endLineStart;
+                mContinuationFlag = mData[frameEnd - 3];
+                mFrameEnd = frameEnd;
+                return DecodeResult.FRAME;
+            }
+            /*
+             * The chunk is shorter than announced (e.g. interrupted chunk) or not fully received
+             * yet: fall back to the end-line search, which resumes where it stopped, so that an
+             * end-line already received is not missed while waiting for the announced size
+             */
+        }
+        int endLineStart = indexOfEndPattern(mEndSearchOffset);
+        if (endLineStart == NO_VALUE) {
+            return getMissingDataResult();
+        }
+        int frameEnd = endLineStart + mEndPatternLength + 3;
+        if (!ensureAvailable(frameEnd)) {
+            mEndSearchOffset = endLineStart;
+            return getMissingDataResult();
+        }
+        mDataStart = mBodyStart;
+        mDataEnd = Math.max(mBodyStart, endLineStart);
+        mContinuationFlag = mData[frameEnd - 3];
+        mFrameEnd = frameEnd;
+        if (!mHasByteRange) {
+            mTotalSize = mDataEnd - mDataStart;
+        }
+        return DecodeResult.FRAME;
+    }
+
+    /**
+     * Search the end of the current line, resuming where the previous search stopped
+     *
+     * @return Offset of the CRLF or -1 if not received yet
+     * @throws NetworkException
+     */
+    private int indexOfLineEnd() throws NetworkException {
+        int lineEnd = indexOfCrlf(mLineSearchOffset);
+        if (lineEnd == NO_VALUE) {
+            /* The last byte received may be the CR of the CRLF */
+            mLineSearchOffset = Math.max(mLineStart, mLimit - 1);
+        }
+        return lineEnd;
+    }
+
+    private void nextLine(int lineEnd) {
+        mLineStart = lineEnd + 2;
+        mLineSearchOffset = mLineStart;
+    }
+
+    /**
+     * Returns the transaction ID of the decoded frame
+     *
+     * @return Transaction ID
+     */
+    public String getTransactionId() {
+        return mTransactionId;
+    }
+
+    /**
+     * Returns the method of the decoded request
+     *
+     * @return Method or null if the frame is a response
+     */
+    public String getMethod() {
+        return mMethod;
+    }
+
+    /**
+     * Returns the status code of the decoded response
+     *
+     * @return Status code or -1 if the frame is a request
+     */
+    public int getResponseCode() {
+        return mResponseCode;
+    }
+
+    /**
+     * Returns the headers of the decoded frame
+     *
+     * @return Headers view
+     */
+    public MsrpHeaders getHeaders() {
+        return mHeaders;
+    }
+
+    /**
+     * Returns the continuation flag of the decoded frame
+     *
+     * @return Continuation flag
+     */
+    public int getContinuationFlag() {
+        return mContinuationFlag;
+    }
+
+    /**
+     * Returns the total size of the content from the Byte-Range header, or the size of the
+     * payload if there is no Byte-Range header
+     *
+     * @return Size in bytes
+     */
+    public long getTotalSize() {
+        return mTotalSize;
+    }
+
+    /**
+     * Returns the position of the first byte of the payload in the content from the Byte-Range
+     * header, or 1 if there is no Byte-Range header
+     *
+     * @return Position starting at 1
+     */
+    public long getFirstByte() {
+        return mFirstByte;
+    }
+
+    /**
+     * Returns the payload of the decoded frame as a slice of the receive buffer (position to
+     * limit). The content is only valid until the next call to {@link #readFrame()}.
+     *
+     * @return Payload or null if the frame has no body
+     */
+    public ByteBuffer getData() {
+        if (mDataStart == NO_VALUE) {
+            return null;
+        }
+        mBuffer.limit(mDataEnd).position(mDataStart);
+        return mBuffer;
+    }
+
+    /**
+     * Returns the decoded frame as a String for traces
+     *
+     * @return Frame
+     */
+    public String getFrameAsString() {
+        return new String(mData, mFrameStart, mFrameEnd - mFrameStart, UTF8);
+    }
+
+    /**
+     * Capture the decoded frame as received
+     *
+     * @param connectionId Identifier of the connection in the capture
+     */
+    public void captureFrame(int connectionId) {
+        WireCapture.capture(WireCapture.PROTOCOL_MSRP, WireCapture.DIRECTION_IN, connectionId,
+                mData, mFrameStart, mFrameEnd - mFrameStart);
+    }
+
+    /**
+     * Returns the result of a decoding interrupted by missing data
+     *
+     * @return Decode result
+     */
+    private DecodeResult getMissingDataResult() {
+        return mStream == null ? DecodeResult.INCOMPLETE : DecodeResult.END_OF_STREAM;
+    }
+
+    /**
+     * Move the data not consumed by the previous frame to the start of the buffer
+     */
+    private void compact() {
+        if (mFrameEnd == 0) {
+            /* No frame decoded since the last call */
+            return;
+        }
+        int remaining = mLimit - mFrameEnd;
+        if (remaining > 0) {
+            System.arraycopy(mData, mFrameEnd, mData, 0, remaining);
+        }
+        mLimit = remaining;
+        mFrameStart = 0;
+        mFrameEnd = 0;
+        mEndSearchOffset = NO_VALUE;
+    }
+
+    /**
+     * Read more data from the stream, growing the buffer if it is full
+     *
+     * @return False if the end of stream is reached or if no more data is available from a
+     *         non-blocking channel
+     * @throws NetworkException
+     */
+    private boolean fill() throws NetworkException {
+        if (mStream == null) {
+            return false;
+        }
+        if (mLimit == mData.length) {
+            grow(mData.length * 2);
+        }
+        try {
+            int read = mStream.read(mData, mLimit, mData.length - mLimit);
+            if (read == -1) {
+                return false;
+            }
+            mLimit += read;
+            return true;
+
+        } catch (IOException e) {
+            throw new NetworkException("Failed to read MSRP frame!", e);
+        }
+    }
+
+    /**
+     * Grow the buffer: offsets of the frame being decoded remain valid
+     *
+     * @param capacity New capacity
+     * @throws NetworkException if the frame exceeds the maximum frame size
+     */
+    private void grow(int capacity) throws NetworkException {
+        if (capacity > MAX_FRAME_SIZE) {
+            if (mData.length >= MAX_FRAME_SIZE) {
+                throw new NetworkException(new StringBuilder("MSRP frame exceeds ")
+                        .append(MAX_FRAME_SIZE).append(" bytes!").toString());
+            }
+            capacity = MAX_FRAME_SIZE;
+        }
+        mData = Arrays.copyOf(mData, capacity);
+        mBuffer = ByteBuffer.wrap(mData);
+        mHeaders.setBuffer(mData);
+    }
+
+    /**
+     * Make sure that the buffer contains the data up to a given offset
+     *
+     * @param end End offset (exclusive)
+     * @return False if the end of stream is reached before
+     * @throws NetworkException
+     */
+    private boolean ensureAvailable(int end) throws NetworkException {
+        if (end > MAX_FRAME_SIZE) {
+            throw new NetworkException(new StringBuilder("MSRP frame of ").append(end)
+                    .append(" bytes exceeds ").append(MAX_FRAME_SIZE).append(" bytes!")
+                    .toString());
+        }
+        if (end > mData.length) {
+            /* Grow once to the size of the announced chunk */
+            grow(end);
+        }
+        while (mLimit < end) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOfCrlf(int from) throws NetworkException {
+        int index = from;
+        while (true) {
+            for (; index < mLimit - 1; index++) {
+                if (mData[index] == CR && mData[index + 1] == LF) {
+                    return index;
+                }
+            }
+            if (!fill()) {
+                return NO_VALUE;
+            }
+        }
+    }
+
+    private int indexOf(byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (mData[i] == b) {
+                return i;
+            }
+        }
+        return NO_VALUE;
+    }
+
+    private boolean startsWith(int from, int to, byte[] prefix) {
+        if (to - from < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (mData[from + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int trimStart(int from, int to) {
+        while (from < to && mData[from] == MsrpConstants.CHAR_SP) {
+            from++;
+        }
+        return from;
+    }
+
+    private int trimEnd(int from, int to) {
+        while (to > from && mData[to - 1] == MsrpConstants.CHAR_SP) {
+            to--;
+        }
+        return to;
+    }
+
+    private int parseInt(int from, int to) {
+        long value = parseLong(from, to);
+        return value > Integer.MAX_VALUE ? NO_VALUE : (int) value;
+    }
+
+    private long parseLong(int from, int to) {
+        from = trimStart(from, to);
+        to = trimEnd(from, to);
+        if (from == to || to - from > 18) {
+            return NO_VALUE;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = mData[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return NO_VALUE;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private String parseMethod(int from, int to) {
+        if (startsWith(from, to, METHOD_SEND) && to - from == METHOD_SEND.length) {
+            return MsrpConstants.METHOD_SEND;
+        }
+        if (startsWith(from, to, METHOD_REPORT) && to - from == METHOD_REPORT.length) {
+            return MsrpConstants.METHOD_REPORT;
+        }
+        return new String(mData, from, to - from, UTF8);
+    }
+
+    /**
+     * Build the end-line pattern and its shift table for the current transaction ID
+     */
+    private void prepareEndPattern(int txIdStart, int txIdEnd) {
+        int txIdLength = txIdEnd - txIdStart;
+        mEndPatternLength = 2 + END_MSRP_MSG_LENGTH + txIdLength;
+        if (mEndPattern.length < mEndPatternLength) {
+            mEndPattern = new byte[mEndPatternLength * 2];
+        }
+        mEndPattern[0] = CR;
+        mEndPattern[1] = LF;
+        Arrays.fill(mEndPattern, 2, 2 + END_MSRP_MSG_LENGTH, MsrpConstants.CHAR_MIN);
+        System.arraycopy(mData, txIdStart, mEndPattern, 2 + END_MSRP_MSG_LENGTH, txIdLength);
+
+        Arrays.fill(mShiftTable, mEndPatternLength);
+        for (int i = 0; i < mEndPatternLength - 1; i++) {
+            mShiftTable[mEndPattern[i] & 0xFF] = mEndPatternLength - 1 - i;
+        }
+    }
+
+    /**
+     * Checks if a line is the end-line of the current frame: "-------" + transaction ID + flag
+     */
+    private boolean isEndLine(int lineStart, int lineEnd) {
+        int patternLength = mEndPatternLength - 2;
+        if (lineEnd - lineStart != patternLength + 1) {
+            return false;
+        }
+        for (int i = 0; i < patternLength; i++) {
+            if (mData[lineStart + i] != mEndPattern[i + 2]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isEndPatternAt(int offset) {
+        for (int i = 0; i < mEndPatternLength; i++) {
+            if (mData[offset + i] != mEndPattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Search the end-line pattern, reading more data as needed
+     *
+     * @param from Offset from which to search
+     * @return Offset of the pattern or -1 if the end of stream is reached
+     * @throws NetworkException
+     */
+    private int indexOfEndPattern(int from) throws NetworkException {
+        int last = mEndPatternLength - 1;
+        int index = from;
+        while (true) {
+            while (index + last < mLimit) {
+                int j = last;
+                while (mData[index + j] == mEndPattern[j]) {
+                    if (j == 0) {
+                        return index;
+                    }
+                    j--;
+                }
+                index += mShiftTable[mData[index + last] & 0xFF];
+            }
+            if (!fill()) {
+                mEndSearchOffset = index;
+                return NO_VALUE;
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.protocol.msrp;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+import java.util.Arrays;
+
+/**
+ * Flyweight view over the headers of a received MSRP frame.<br>
+ * Header names and values are kept as offsets into the receive buffer of the
+ * {@link MsrpFrameDecoder}: a value is only converted to a String the first time it is read. The
+ * view is only valid until the next frame is decoded.
+ */
+public class MsrpHeaders {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final int NOT_FOUND = -1;
+
+    private byte[] mBuffer;
+
+    private int mCount;
+
+    /**
+     * Header offsets: name start, name end, value start, value end for each header
+     */
+    private int[] mOffsets = new int[INITIAL_CAPACITY * 4];
+
+    /**
+     * Values already converted to String
+     */
+    private String[] mValues = new String[INITIAL_CAPACITY];
+
+    /**
+     * Constructor
+     */
+    MsrpHeaders() {
+    }
+
+    /**
+     * Reset the view before decoding a new frame
+     *
+     * @param buffer Receive buffer
+     */
+    void reset(byte[] buffer) {
+        mBuffer = buffer;
+        Arrays.fill(mValues, 0, mCount, null);
+        mCount = 0;
+    }
+
+    /**
+     * Set the receive buffer after it has been reallocated
+     *
+     * @param buffer Receive buffer
+     */
+    void setBuffer(byte[] buffer) {
+        mBuffer = buffer;
+    }
+
+    /**
+     * Add a header
+     *
+     * @param nameStart Offset of the header name
+     * @param nameEnd End offset (exclusive) of the header name
+     * @param valueStart Offset of the header value
+     * @param valueEnd End offset (exclusive) of the header value
+     */
+    void add(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if (mCount == mValues.length) {
+            mOffsets = Arrays.copyOf(mOffsets, mOffsets.length * 2);
+            mValues = Arrays.copyOf(mValues, mValues.length * 2);
+        }
+        int index = mCount * 4;
+        mOffsets[index] = nameStart;
+        mOffsets[index + 1] = nameEnd;
+        mOffsets[index + 2] = valueStart;
+        mOffsets[index + 3] = valueEnd;
+        mCount++;
+    }
+
+    /**
+     * Returns the number of headers
+     *
+     * @return Number of headers
+     */
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * Returns the value of a header
+     *
+     * @param name Header name
+     * @return Value or null if the header is not present
+     */
+    public String get(String name) {
+        int index = indexOf(name);
+        if (index == NOT_FOUND) {
+            return null;
+        }
+        String value = mValues[index];
+        if (value == null) {
+            int start = mOffsets[index * 4 + 2];
+            value = new String(mBuffer, start, mOffsets[index * 4 + 3] - start, UTF8);
+            mValues[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Checks if a header value is equal to a given value, ignoring case, without converting the
+     * header value to a String
+     *
+     * @param name Header name
+     * @param value Expected value
+     * @return True if the header is present and its value matches
+     */
+    public boolean isValueEqualsIgnoreCase(String name, String value) {
+        int index = indexOf(name);
+        if (index == NOT_FOUND) {
+            return false;
+        }
+        return equalsIgnoreCase(mOffsets[index * 4 + 2], mOffsets[index * 4 + 3], value);
+    }
+
+    /**
+     * Returns the offset of the value of a header in the receive buffer
+     *
+     * @param name Header name
+     * @return Offset or -1 if the header is not present
+     */
+    int getValueStart(String name) {
+        int index = indexOf(name);
+        return index == NOT_FOUND ? NOT_FOUND : mOffsets[index * 4 + 2];
+    }
+
+    /**
+     * Returns the end offset (exclusive) of the value of a header in the receive buffer
+     *
+     * @param name Header name
+     * @return Offset or -1 if the header is not present
+     */
+    int getValueEnd(String name) {
+        int index = indexOf(name);
+        return index == NOT_FOUND ? NOT_FOUND : mOffsets[index * 4 + 3];
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < mCount; i++) {
+            if (equalsIgnoreCase(mOffsets[i * 4], mOffsets[i * 4 + 1], name)) {
+                return i;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    private boolean equalsIgnoreCase(int start, int end, String value) {
+        int length = value.length();
+        if (end - start != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            int b = mBuffer[start + i] & 0xFF;
+            int c = value.charAt(i);
+            if (b != c && toLowerCase(b) != toLowerCase(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int toLowerCase(int c) {
+        return (c >= 'A' && c <= 'Z') ? c + ('a' - 'A') : c;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < mCount; i++) {
+            int nameStart = mOffsets[i * 4];
+            int valueStart = mOffsets[i * 4 + 2];
+            result.append(new String(mBuffer, nameStart, mOffsets[i * 4 + 1] - nameStart, UTF8))
+                    .append(": ")
+                    .append(new String(mBuffer, valueStart, mOffsets[i * 4 + 3] - valueStart,
+                            UTF8)).append(MsrpConstants.NEW_LINE);
+        }
+        return result.toString();
+    }
+}
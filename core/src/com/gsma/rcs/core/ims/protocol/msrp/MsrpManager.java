@@ -37,6 +37,7 @@ import com.gsma.rcs.utils.logger.Logger;
 
 import java.io.InputStream;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * MSRP manager
@@ -53,8 +54,12 @@ public class MsrpManager {
 
     private long mSessionId;
 
+    private static final AtomicLong sLastSessionId = new AtomicLong();
+
     private boolean mSecured = false;
 
+    private int mMaxReceivedDataSize;
+
     private Logger logger = Logger.getLogger(this.getClass().getName());
 
     private final RcsSettings mRcsSettings;
@@ -69,7 +74,7 @@ public class MsrpManager {
     public MsrpManager(String localMsrpAddress, int localMsrpPort, RcsSettings rcsSettings) {
         mLocalMsrpAddress = localMsrpAddress;
         mLocalMsrpPort = localMsrpPort;
-        mSessionId = System.currentTimeMillis();
+        mSessionId = generateSessionId();
         mRcsSettings = rcsSettings;
     }
 
@@ -93,6 +98,23 @@ public class MsrpManager {
         }
     }
 
+    /**
+     * Generate a local MSRP session id, unique even for sessions created within the same
+     * millisecond as frames received on a shared connection are dispatched by session id
+     * 
+     * @return Session id
+     */
+    private static long generateSessionId() {
+        long now = System.currentTimeMillis();
+        while (true) {
+            long last = sLastSessionId.get();
+            long sessionId = Math.max(now, last + 1);
+            if (sLastSessionId.compareAndSet(last, sessionId)) {
+                return sessionId;
+            }
+        }
+    }
+
     /**
      * Returns the local MSRP port
      * 
@@ -167,6 +189,16 @@ public class MsrpManager {
         mSecured = flag;
     }
 
+    /**
+     * Set the maximum size of a content accumulated in memory by the created sessions when they
+     * have no data sink
+     * 
+     * @param maxSize Maximum size in bytes or 0 if unlimited
+     */
+    public void setMaxReceivedDataSize(int maxSize) {
+        mMaxReceivedDataSize = maxSize;
+    }
+
     /**
      * Open the MSRP session
      * 
@@ -254,10 +286,17 @@ public class MsrpManager {
         mMsrpSession = new MsrpSession(mRcsSettings);
         mMsrpSession.setFrom(getLocalMsrpPath());
         mMsrpSession.setTo(remoteMsrpPath);
+        mMsrpSession.setMaxReceivedDataSize(mMaxReceivedDataSize);
 
-        /* Create a MSRP client connection */
-        MsrpConnection connection = new MsrpClientConnection(mMsrpSession, remoteHost, remotePort,
-                mSecured, fingerprint);
+        /* Create a MSRP client connection or share one with the sessions to the same end point */
+        MsrpConnection connection;
+        if (MsrpConnectionPool.isEnabled()) {
+            connection = MsrpConnectionPool.getInstance().acquire(mMsrpSession, remoteHost,
+                    remotePort, mSecured, fingerprint);
+        } else {
+            connection = new MsrpClientConnection(mMsrpSession, remoteHost, remotePort, mSecured,
+                    fingerprint);
+        }
         mMsrpSession.setConnection(connection);
         mMsrpSession.addMsrpEventListener(listener);
 
@@ -280,6 +319,7 @@ public class MsrpManager {
         mMsrpSession = new MsrpSession(mRcsSettings);
         mMsrpSession.setFrom(getLocalMsrpPath());
         mMsrpSession.setTo(remoteMsrpPath);
+        mMsrpSession.setMaxReceivedDataSize(mMaxReceivedDataSize);
 
         // Create a MSRP server connection
         MsrpConnection connection = new MsrpServerConnection(mMsrpSession, mLocalMsrpPort);
@@ -0,0 +1,479 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.protocol.msrp;
+
+import com.gsma.rcs.core.FileAccessException;
+import com.gsma.rcs.core.ims.network.NetworkException;
+import com.gsma.rcs.core.ims.protocol.PayloadException;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpNioTransport.IoThread;
+import com.gsma.rcs.provider.contact.ContactManagerException;
+import com.gsma.rcs.utils.CloseableUtils;
+import com.gsma.rcs.utils.capture.WireCapture;
+import com.gsma.rcs.utils.logger.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking I/O of a MSRP connection in event-driven transport mode<br>
+ * Reads are decoded on the I/O thread the channel is registered on. The decoded frames and the
+ * connection events are processed in order on a processing executor, so that a session blocked
+ * by its listener or waiting for a response does not stall the other connections of the I/O
+ * thread. Reading is paused while a frame is processed as its data remains in the decoder buffer.
+ * Writes are queued and drained by the I/O thread when the socket is writable; a sender other
+ * than the I/O thread is blocked while too much data is pending so that file transfers do not
+ * buffer whole files in memory. A channel of a server connection is connected once the I/O thread
+ * has accepted the remote end point, the data sent before being queued.
+ */
+public class MsrpNioChannel {
+
+    /**
+     * Maximum size of the data queued for writing before blocking the sender
+     */
+    private static final int MAX_PENDING_WRITE_SIZE = 4 * MsrpConstants.CHUNK_MAX_SIZE;
+
+    private final MsrpConnection mConnection;
+
+    private final ServerSocketChannel mServerChannel;
+
+    private final IoThread mIoThread;
+
+    private final Executor mProcessingExecutor;
+
+    /**
+     * Events of the connection not yet processed
+     */
+    private final Queue<Runnable> mEvents = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean mEventsScheduled = new AtomicBoolean();
+
+    private final MsrpFrameDecoder mDecoder = new MsrpFrameDecoder();
+
+    private final Queue<MsrpSendBuffer> mWriteQueue = new ConcurrentLinkedQueue<>();
+
+    private final Object mWriteLock = new Object();
+
+    private final long mReadTimeout;
+
+    private volatile SocketChannel mChannel;
+
+    private volatile SelectionKey mKey;
+
+    private volatile SelectionKey mServerKey;
+
+    private long mLastReadTimestamp = System.currentTimeMillis();
+
+    private int mPendingWriteSize;
+
+    private volatile boolean mTerminated;
+
+    private final Runnable mEnableWrite = new Runnable() {
+        @Override
+        public void run() {
+            if (mKey != null && mKey.isValid()) {
+                mKey.interestOps(mKey.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+    };
+
+    private final Runnable mProcessEvents = new Runnable() {
+        @Override
+        public void run() {
+            Runnable event;
+            while ((event = mEvents.poll()) != null) {
+                try {
+                    event.run();
+                } catch (RuntimeException e) {
+                    /*
+                     * Intentionally catch runtime exceptions as else the next events of the
+                     * connection would never be processed.
+                     */
+                    sLogger.error("MSRP event processing failure!", e);
+                }
+            }
+            mEventsScheduled.set(false);
+            /* An event may have been posted after the queue was found empty */
+            if (!mEvents.isEmpty() && mEventsScheduled.compareAndSet(false, true)) {
+                mProcessingExecutor.execute(this);
+            }
+        }
+    };
+
+    private final Runnable mProcessFrame = new Runnable() {
+        @Override
+        public void run() {
+            if (mTerminated) {
+                return;
+            }
+            try {
+                mConnection.processFrame(mDecoder);
+                mIoThread.execute(mResumeReading);
+
+            } catch (FileAccessException e) {
+                sLogger.error("Unable to receive chunks!", e);
+                onError(e);
+
+            } catch (ContactManagerException e) {
+                sLogger.error("Unable to receive chunks!", e);
+                onError(e);
+
+            } catch (PayloadException e) {
+                sLogger.error("Unable to receive chunks!", e);
+                onError(e);
+
+            } catch (NetworkException e) {
+                if (sLogger.isActivated()) {
+                    sLogger.debug(e.getMessage());
+                }
+                onError(e);
+
+            } catch (RuntimeException e) {
+                sLogger.error("Unable to receive chunks!", e);
+                onError(e);
+            }
+        }
+    };
+
+    private final Runnable mResumeReading = new Runnable() {
+        @Override
+        public void run() {
+            if (mTerminated || !mKey.isValid()) {
+                return;
+            }
+            mLastReadTimestamp = System.currentTimeMillis();
+            mKey.interestOps(mKey.interestOps() | SelectionKey.OP_READ);
+            try {
+                /* The next frames may already be received */
+                decodeFrame();
+
+            } catch (NetworkException e) {
+                if (sLogger.isActivated()) {
+                    sLogger.debug(e.getMessage());
+                }
+                onError(e);
+            }
+        }
+    };
+
+    private final Runnable mNotifyConnectionLost = new Runnable() {
+        @Override
+        public void run() {
+            mConnection.notifyConnectionLost();
+        }
+    };
+
+    private static final Logger sLogger = Logger.getLogger(MsrpNioChannel.class.getName());
+
+    /**
+     * Constructor
+     *
+     * @param connection MSRP connection
+     * @param channel Connected non-blocking socket channel or null if accepted from the server
+     *            channel
+     * @param serverChannel Non-blocking server socket channel or null if already connected
+     * @param ioThread I/O thread the channel is registered on
+     * @param processingExecutor Executor processing the received frames
+     * @param readTimeout Read timeout in milliseconds or 0 for no timeout
+     */
+    /* package private */MsrpNioChannel(MsrpConnection connection, SocketChannel channel,
+            ServerSocketChannel serverChannel, IoThread ioThread, Executor processingExecutor,
+            long readTimeout) {
+        mConnection = connection;
+        mChannel = channel;
+        mServerChannel = serverChannel;
+        mIoThread = ioThread;
+        mProcessingExecutor = processingExecutor;
+        mReadTimeout = readTimeout;
+    }
+
+    /**
+     * Register the channel on the selector of the I/O thread (called from the I/O thread)
+     */
+    /* package private */void register() {
+        if (mTerminated) {
+            return;
+        }
+        try {
+            if (mChannel == null) {
+                mServerKey = mServerChannel.register(mIoThread.getSelector(),
+                        SelectionKey.OP_ACCEPT, this);
+                return;
+            }
+            int ops = SelectionKey.OP_READ;
+            if (!mWriteQueue.isEmpty()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            mKey = mChannel.register(mIoThread.getSelector(), ops, this);
+
+        } catch (ClosedChannelException e) {
+            onError(new NetworkException("Failed to register MSRP channel!", e));
+        }
+    }
+
+    /**
+     * Returns the MSRP connection
+     *
+     * @return MSRP connection
+     */
+    public MsrpConnection getConnection() {
+        return mConnection;
+    }
+
+    /**
+     * Send a chunk: the buffer is given back to its pool once written
+     *
+     * @param chunk Chunk
+     * @throws NetworkException
+     */
+    public void sendChunk(MsrpSendBuffer chunk) throws NetworkException {
+        if (mTerminated) {
+            throw new NetworkException("MSRP channel is already closed!");
+        }
+        if (MsrpConnection.isMsrpTraceEnabled()) {
+            WireCapture.capture(WireCapture.PROTOCOL_MSRP, WireCapture.DIRECTION_OUT,
+                    mConnection.getCaptureId(), chunk.getData(), chunk.getOffset(),
+                    chunk.getLength());
+        }
+        boolean enableWrite;
+        synchronized (mWriteLock) {
+            if (Thread.currentThread() != mIoThread) {
+                /* Flow control: wait until the I/O thread has drained the pending data */
+                while (mPendingWriteSize > MAX_PENDING_WRITE_SIZE && !mTerminated) {
+                    try {
+                        mWriteLock.wait();
+                    } catch (InterruptedException e) {
+                        throw new NetworkException("Interrupted while sending MSRP chunk!", e);
+                    }
+                }
+                if (mTerminated) {
+                    throw new NetworkException("MSRP channel is already closed!");
+                }
+            }
+            enableWrite = mWriteQueue.isEmpty();
+            mWriteQueue.add(chunk);
+            mPendingWriteSize += chunk.getLength();
+        }
+        if (enableWrite) {
+            if (Thread.currentThread() == mIoThread) {
+                mEnableWrite.run();
+            } else {
+                mIoThread.execute(mEnableWrite);
+            }
+        }
+    }
+
+    /**
+     * Returns the size of the data queued and not yet written to the socket
+     *
+     * @return Size in bytes
+     */
+    public int getPendingSize() {
+        synchronized (mWriteLock) {
+            return mPendingWriteSize;
+        }
+    }
+
+    /**
+     * Handle the acceptable event of the server channel (called from the I/O thread)
+     */
+    /* package private */void onAcceptable() {
+        try {
+            SocketChannel channel = mServerChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            /* A single remote end point is accepted */
+            mServerKey.cancel();
+            CloseableUtils.tryToClose(mServerChannel);
+            channel.configureBlocking(false);
+            if (sLogger.isActivated()) {
+                sLogger.debug("Socket channel connected to "
+                        + channel.socket().getInetAddress().getHostAddress() + ":"
+                        + channel.socket().getPort());
+            }
+            mChannel = channel;
+            mLastReadTimestamp = System.currentTimeMillis();
+            register();
+
+        } catch (IOException e) {
+            onError(new NetworkException("Failed to accept MSRP connection!", e));
+        }
+    }
+
+    /**
+     * Handle the readable event (called from the I/O thread)
+     */
+    /* package private */void onReadable() {
+        try {
+            int read = mDecoder.readFrom(mChannel);
+            if (read == -1) {
+                if (sLogger.isActivated()) {
+                    sLogger.debug("End of MSRP stream");
+                }
+                stopReading();
+                post(mNotifyConnectionLost);
+                return;
+            }
+            mLastReadTimestamp = System.currentTimeMillis();
+            decodeFrame();
+
+        } catch (NetworkException e) {
+            if (sLogger.isActivated()) {
+                sLogger.debug(e.getMessage());
+            }
+            onError(e);
+
+        } catch (RuntimeException e) {
+            /*
+             * Intentionally catch runtime exceptions as else it will abruptly end the I/O thread
+             * shared with the other MSRP connections.
+             */
+            sLogger.error("Unable to receive chunks!", e);
+            onError(e);
+        }
+    }
+
+    /**
+     * Decode the next frame from the received data and post its processing: reading is paused
+     * until the frame is processed (called from the I/O thread)
+     *
+     * @throws NetworkException
+     */
+    private void decodeFrame() throws NetworkException {
+        if (mTerminated) {
+            return;
+        }
+        MsrpFrameDecoder.DecodeResult result = mDecoder.readFrame();
+        if (MsrpFrameDecoder.DecodeResult.INCOMPLETE == result) {
+            return;
+        }
+        stopReading();
+        if (MsrpFrameDecoder.DecodeResult.FRAME != result) {
+            if (sLogger.isActivated()) {
+                sLogger.debug("Not a MSRP message");
+            }
+            post(mNotifyConnectionLost);
+            return;
+        }
+        post(mProcessFrame);
+    }
+
+    /**
+     * Post an event of the connection, the events being processed one at a time in order
+     *
+     * @param event Event
+     */
+    private void post(Runnable event) {
+        mEvents.add(event);
+        if (mEventsScheduled.compareAndSet(false, true)) {
+            mProcessingExecutor.execute(mProcessEvents);
+        }
+    }
+
+    /**
+     * Handle the writable event (called from the I/O thread)
+     */
+    /* package private */void onWritable() {
+        try {
+            MsrpSendBuffer chunk;
+            int written = 0;
+            while ((chunk = mWriteQueue.peek()) != null) {
+                ByteBuffer buffer = chunk.getByteBuffer();
+                written += mChannel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    /* Socket send buffer is full: wait for the next writable event */
+                    break;
+                }
+                mWriteQueue.poll();
+                chunk.release();
+            }
+            synchronized (mWriteLock) {
+                mPendingWriteSize -= written;
+                if (mWriteQueue.isEmpty()) {
+                    mKey.interestOps(mKey.interestOps() & ~SelectionKey.OP_WRITE);
+                }
+                mWriteLock.notifyAll();
+            }
+        } catch (IOException e) {
+            if (sLogger.isActivated()) {
+                sLogger.debug("Failed to write data: " + e.getMessage());
+            }
+            onError(new NetworkException("Failed to write data!", e));
+        }
+    }
+
+    /**
+     * Check if no data has been received for longer than the read timeout (called from the I/O
+     * thread)
+     *
+     * @param now Current time in milliseconds
+     */
+    /* package private */void checkReadTimeout(long now) {
+        if (mReadTimeout > 0 && !mTerminated && mKey != null
+                && (mKey.interestOps() & SelectionKey.OP_READ) != 0
+                && now - mLastReadTimestamp > mReadTimeout) {
+            onError(new NetworkException("Read timed out!"));
+        }
+    }
+
+    private void stopReading() {
+        if (mKey != null && mKey.isValid()) {
+            mKey.interestOps(mKey.interestOps() & ~SelectionKey.OP_READ);
+        }
+    }
+
+    private void onError(final Exception e) {
+        if (mTerminated) {
+            return;
+        }
+        close();
+        post(new Runnable() {
+            @Override
+            public void run() {
+                mConnection.notifyTransferError(e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Close the channel
+     */
+    public void close() {
+        mTerminated = true;
+        synchronized (mWriteLock) {
+            mWriteLock.notifyAll();
+        }
+        if (mKey != null) {
+            mKey.cancel();
+        }
+        if (mServerKey != null) {
+            mServerKey.cancel();
+        }
+        CloseableUtils.tryToClose(mChannel);
+        CloseableUtils.tryToClose(mServerChannel);
+    }
+}
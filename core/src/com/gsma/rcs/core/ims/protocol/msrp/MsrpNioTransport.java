@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.protocol.msrp;
+
+import com.gsma.rcs.core.ims.network.NetworkException;
+import com.gsma.rcs.utils.logger.Logger;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Event-driven MSRP transport<br>
+ * A few I/O threads, each one owning a selector, are shared by all the MSRP connections opened in
+ * event-driven mode instead of a receiver and a sender thread per connection. Connections are
+ * assigned to the I/O threads in a round-robin way. The I/O threads only accept, read, decode and
+ * write: the received frames are processed on a shared executor.
+ */
+public class MsrpNioTransport {
+
+    /**
+     * Period of the check of the read timeouts in milliseconds
+     */
+    private static final long SELECT_TIMEOUT = 1000;
+
+    private static final String IO_THREAD_NAME = "MsrpIoThread-";
+
+    private static volatile MsrpNioTransport sInstance;
+
+    private static int sIoThreadCount = 1;
+
+    private final IoThread[] mIoThreads;
+
+    private final AtomicInteger mNextIoThread = new AtomicInteger();
+
+    /**
+     * Executor processing the received frames out of the I/O threads, each connection processing
+     * its frames one at a time
+     */
+    private final ExecutorService mProcessingExecutor = Executors.newCachedThreadPool();
+
+    private static final Logger sLogger = Logger.getLogger(MsrpNioTransport.class.getName());
+
+    /**
+     * Set the number of I/O threads, taken into account when the transport is first used
+     *
+     * @param count Number of I/O threads
+     */
+    public static void setIoThreadCount(int count) {
+        sIoThreadCount = Math.max(1, count);
+    }
+
+    /**
+     * Returns the transport instance, starting the I/O threads on first use
+     *
+     * @return Transport
+     * @throws NetworkException
+     */
+    public static MsrpNioTransport getInstance() throws NetworkException {
+        if (sInstance == null) {
+            synchronized (MsrpNioTransport.class) {
+                if (sInstance == null) {
+                    sInstance = new MsrpNioTransport(sIoThreadCount);
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private MsrpNioTransport(int ioThreadCount) throws NetworkException {
+        mIoThreads = new IoThread[ioThreadCount];
+        try {
+            for (int i = 0; i < ioThreadCount; i++) {
+                mIoThreads[i] = new IoThread(IO_THREAD_NAME + i, Selector.open());
+                mIoThreads[i].start();
+            }
+        } catch (IOException e) {
+            throw new NetworkException("Failed to open MSRP selector!", e);
+        }
+        if (sLogger.isActivated()) {
+            sLogger.info("MSRP event-driven transport started with " + ioThreadCount
+                    + " I/O threads");
+        }
+    }
+
+    /**
+     * Register a connected socket channel of a MSRP connection
+     *
+     * @param connection MSRP connection
+     * @param socketChannel Connected socket channel
+     * @param readTimeout Read timeout in milliseconds or 0 for no timeout
+     * @return Channel handling the I/O of the connection
+     * @throws NetworkException
+     */
+    public MsrpNioChannel register(MsrpConnection connection, SocketChannel socketChannel,
+            long readTimeout) throws NetworkException {
+        try {
+            socketChannel.configureBlocking(false);
+        } catch (IOException e) {
+            throw new NetworkException("Failed to configure MSRP socket channel!", e);
+        }
+        return register(connection, socketChannel, null, readTimeout);
+    }
+
+    /**
+     * Register a bound server socket channel of a MSRP connection: the remote end point is
+     * accepted by the I/O thread, the data sent before being queued
+     *
+     * @param connection MSRP connection
+     * @param serverChannel Bound server socket channel
+     * @param readTimeout Read timeout in milliseconds or 0 for no timeout
+     * @return Channel handling the I/O of the connection
+     * @throws NetworkException
+     */
+    public MsrpNioChannel accept(MsrpConnection connection, ServerSocketChannel serverChannel,
+            long readTimeout) throws NetworkException {
+        try {
+            serverChannel.configureBlocking(false);
+        } catch (IOException e) {
+            throw new NetworkException("Failed to configure MSRP server socket channel!", e);
+        }
+        return register(connection, null, serverChannel, readTimeout);
+    }
+
+    private MsrpNioChannel register(MsrpConnection connection, SocketChannel socketChannel,
+            ServerSocketChannel serverChannel, long readTimeout) {
+        IoThread ioThread = mIoThreads[(mNextIoThread.getAndIncrement() & Integer.MAX_VALUE)
+                % mIoThreads.length];
+        final MsrpNioChannel channel = new MsrpNioChannel(connection, socketChannel,
+                serverChannel, ioThread, mProcessingExecutor, readTimeout);
+        ioThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                channel.register();
+            }
+        });
+        return channel;
+    }
+
+    /**
+     * I/O thread owning a selector
+     */
+    /* package private */static class IoThread extends Thread {
+
+        private final Selector mSelector;
+
+        private final Queue<Runnable> mTasks = new ConcurrentLinkedQueue<>();
+
+        private IoThread(String name, Selector selector) {
+            super(name);
+            mSelector = selector;
+            setDaemon(true);
+        }
+
+        /**
+         * Returns the selector
+         *
+         * @return Selector
+         */
+        /* package private */Selector getSelector() {
+            return mSelector;
+        }
+
+        /**
+         * Execute a task on the I/O thread
+         *
+         * @param task Task
+         */
+        /* package private */void execute(Runnable task) {
+            mTasks.add(task);
+            mSelector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            long lastTimeoutCheck = System.currentTimeMillis();
+            while (true) {
+                try {
+                    mSelector.select(SELECT_TIMEOUT);
+                    Runnable task;
+                    while ((task = mTasks.poll()) != null) {
+                        task.run();
+                    }
+                    Iterator<SelectionKey> keys = mSelector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        MsrpNioChannel channel = (MsrpNioChannel) key.attachment();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            channel.onAcceptable();
+                            continue;
+                        }
+                        if (key.isReadable()) {
+                            channel.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            channel.onWritable();
+                        }
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now - lastTimeoutCheck >= SELECT_TIMEOUT) {
+                        lastTimeoutCheck = now;
+                        for (SelectionKey key : mSelector.keys()) {
+                            if (key.isValid()) {
+                                ((MsrpNioChannel) key.attachment()).checkReadTimeout(now);
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    sLogger.error("MSRP selector failure!", e);
+
+                } catch (RuntimeException e) {
+                    /*
+                     * Intentionally catch runtime exceptions as else it will abruptly end the
+                     * thread and stop the I/O of all the MSRP connections.
+                     */
+                    sLogger.error("MSRP I/O processing failure!", e);
+                }
+            }
+        }
+    }
+}
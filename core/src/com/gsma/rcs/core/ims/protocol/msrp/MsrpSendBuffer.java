@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.protocol.msrp;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Buffer holding a MSRP frame to be sent<br>
+ * Buffers of SEND requests are taken from the pool of the connection and given back to it once
+ * the frame has been written to the socket, so that sending a file does not allocate a new
+ * buffer per chunk.
+ */
+public class MsrpSendBuffer {
+
+    private final byte[] mData;
+
+    private final ByteBuffer mByteBuffer;
+
+    private final Pool mPool;
+
+    private int mOffset;
+
+    private int mLength;
+
+    /**
+     * Session the frame is sent for, as a connection may be shared by several sessions
+     */
+    private MsrpSession mSession;
+
+    private MsrpSendBuffer(byte[] data, Pool pool) {
+        mData = data;
+        mByteBuffer = ByteBuffer.wrap(data);
+        mPool = pool;
+    }
+
+    /**
+     * Create a buffer, not pooled, holding a whole frame
+     * 
+     * @param frame Frame
+     * @return Buffer
+     */
+    public static MsrpSendBuffer wrap(byte[] frame) {
+        MsrpSendBuffer buffer = new MsrpSendBuffer(frame, null);
+        buffer.setFrame(0, frame.length);
+        return buffer;
+    }
+
+    /**
+     * Create a buffer, not pooled, holding a whole frame sent for a session
+     * 
+     * @param frame Frame
+     * @param session MSRP session
+     * @return Buffer
+     */
+    public static MsrpSendBuffer wrap(byte[] frame, MsrpSession session) {
+        MsrpSendBuffer buffer = wrap(frame);
+        buffer.mSession = session;
+        return buffer;
+    }
+
+    /**
+     * Returns the backing array
+     * 
+     * @return Array
+     */
+    public byte[] getData() {
+        return mData;
+    }
+
+    /**
+     * Returns the offset of the frame in the backing array
+     * 
+     * @return Offset
+     */
+    public int getOffset() {
+        return mOffset;
+    }
+
+    /**
+     * Returns the length of the frame
+     * 
+     * @return Length in bytes
+     */
+    public int getLength() {
+        return mLength;
+    }
+
+    /**
+     * Set the location of the frame in the backing array
+     * 
+     * @param offset Offset
+     * @param length Length in bytes
+     */
+    public void setFrame(int offset, int length) {
+        mOffset = offset;
+        mLength = length;
+        mByteBuffer.limit(offset + length).position(offset);
+    }
+
+    /**
+     * Returns the session the frame is sent for
+     * 
+     * @return MSRP session or null if not set
+     */
+    public MsrpSession getSession() {
+        return mSession;
+    }
+
+    /**
+     * Set the session the frame is sent for
+     * 
+     * @param session MSRP session
+     */
+    public void setSession(MsrpSession session) {
+        mSession = session;
+    }
+
+    /**
+     * Returns the frame as a byte buffer whose position is advanced as the frame is written
+     * 
+     * @return Byte buffer
+     */
+    public ByteBuffer getByteBuffer() {
+        return mByteBuffer;
+    }
+
+    /**
+     * Give the buffer back to its pool once the frame has been written
+     */
+    public void release() {
+        mSession = null;
+        if (mPool != null) {
+            mPool.release(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(mData, mOffset, mLength, UTF8);
+    }
+
+    /**
+     * Pool of send buffers of a connection
+     */
+    public static class Pool {
+
+        /**
+         * Maximum number of buffers kept for reuse
+         */
+        private static final int MAX_POOLED_BUFFERS = 4;
+
+        private final Deque<MsrpSendBuffer> mBuffers = new ArrayDeque<>();
+
+        /**
+         * Acquire a buffer: a buffer of the pool is reused if large enough, else a new buffer is
+         * allocated
+         * 
+         * @param capacity Minimum capacity in bytes
+         * @return Buffer
+         */
+        public synchronized MsrpSendBuffer acquire(int capacity) {
+            MsrpSendBuffer buffer;
+            while ((buffer = mBuffers.poll()) != null) {
+                if (buffer.mData.length >= capacity) {
+                    return buffer;
+                }
+                /* Too small after a chunk size increase: let it be garbage collected */
+            }
+            return new MsrpSendBuffer(new byte[capacity], this);
+        }
+
+        private synchronized void release(MsrpSendBuffer buffer) {
+            if (mBuffers.size() < MAX_POOLED_BUFFERS) {
+                mBuffers.push(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.protocol.msrp;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+/**
+ * Encoder of the SEND requests of a content<br>
+ * The headers which do not change from one chunk to the other are encoded once for the whole
+ * content and the variable parts are encoded directly in the send buffer, without intermediate
+ * String. The payload is read in place in the send buffer after a reserved area, in front of
+ * which the header is then written, so that a chunk is sent without copying its data.
+ */
+public class MsrpSendRequestEncoder {
+
+    private static final byte[] FIRST_LINE_START = (MsrpConstants.MSRP_HEADER + " ")
+            .getBytes(UTF8);
+
+    private static final byte[] FIRST_LINE_END = (" " + MsrpConstants.METHOD_SEND
+            + MsrpConstants.NEW_LINE).getBytes(UTF8);
+
+    private static final byte[] BYTE_RANGE = (MsrpConstants.HEADER_BYTE_RANGE + ": ")
+            .getBytes(UTF8);
+
+    private static final byte[] NEW_LINE = MsrpConstants.NEW_LINE.getBytes(UTF8);
+
+    private static final byte[] END_LINE_START = (MsrpConstants.NEW_LINE
+            + MsrpConstants.END_MSRP_MSG).getBytes(UTF8);
+
+    /**
+     * Maximum length of a transaction ID
+     */
+    private static final int MAX_TRANSACTION_ID_LENGTH = 32;
+
+    /**
+     * Maximum length of the decimal representation of a long
+     */
+    private static final int MAX_LONG_LENGTH = 19;
+
+    /**
+     * Headers following the Byte-Range header, up to the empty line preceding the payload
+     */
+    private final byte[] mPathHeaders;
+
+    private final byte[] mTrailingHeaders;
+
+    private final int mMaxHeaderLength;
+
+    /**
+     * Constructor
+     * 
+     * @param to To path
+     * @param from From path
+     * @param msrpMsgId MSRP message ID
+     * @param contentType Content type or null
+     * @param failureReport Failure report requested
+     * @param successReport Success report requested
+     */
+    public MsrpSendRequestEncoder(String to, String from, String msrpMsgId, String contentType,
+            boolean failureReport, boolean successReport) {
+        StringBuilder headers = new StringBuilder(MsrpConstants.HEADER_TO_PATH).append(": ")
+                .append(to).append(MsrpConstants.NEW_LINE).append(MsrpConstants.HEADER_FROM_PATH)
+                .append(": ").append(from).append(MsrpConstants.NEW_LINE)
+                .append(MsrpConstants.HEADER_MESSAGE_ID).append(": ").append(msrpMsgId)
+                .append(MsrpConstants.NEW_LINE);
+        mPathHeaders = headers.toString().getBytes(UTF8);
+
+        /* According with GSMA guidelines */
+        headers.setLength(0);
+        if (failureReport) {
+            headers.append(MsrpConstants.HEADER_FAILURE_REPORT).append(": yes")
+                    .append(MsrpConstants.NEW_LINE);
+        }
+        if (successReport) {
+            headers.append(MsrpConstants.HEADER_SUCCESS_REPORT).append(": yes")
+                    .append(MsrpConstants.NEW_LINE);
+        }
+        if (contentType != null) {
+            headers.append(MsrpConstants.HEADER_CONTENT_TYPE).append(": ").append(contentType)
+                    .append(MsrpConstants.NEW_LINE);
+        }
+        /* Empty line preceding the payload */
+        headers.append(MsrpConstants.NEW_LINE);
+        mTrailingHeaders = headers.toString().getBytes(UTF8);
+
+        mMaxHeaderLength = FIRST_LINE_START.length + MAX_TRANSACTION_ID_LENGTH
+                + FIRST_LINE_END.length + mPathHeaders.length + BYTE_RANGE.length + 3
+                * MAX_LONG_LENGTH + 2 + NEW_LINE.length + mTrailingHeaders.length;
+    }
+
+    /**
+     * Returns the size of the area reserved for the header in front of the payload
+     * 
+     * @return Size in bytes
+     */
+    public int getHeaderReserve() {
+        return mMaxHeaderLength;
+    }
+
+    /**
+     * Returns the capacity of a send buffer for a given chunk size
+     * 
+     * @param chunkSize Chunk size
+     * @return Capacity in bytes
+     */
+    public int getBufferCapacity(int chunkSize) {
+        return mMaxHeaderLength + chunkSize + END_LINE_START.length + MAX_TRANSACTION_ID_LENGTH + 1
+                + NEW_LINE.length;
+    }
+
+    /**
+     * Encode a SEND request around a payload already read in the send buffer at the header
+     * reserve offset
+     * 
+     * @param buffer Send buffer
+     * @param txId Transaction ID
+     * @param dataSize Size of the payload
+     * @param firstByte First byte range
+     * @param lastByte Last byte range
+     * @param totalSize Total size
+     */
+    public void encode(MsrpSendBuffer buffer, String txId, int dataSize, long firstByte,
+            long lastByte, long totalSize) {
+        if (txId.length() > MAX_TRANSACTION_ID_LENGTH) {
+            throw new IllegalArgumentException("Transaction ID too long: " + txId);
+        }
+        byte[] data = buffer.getData();
+        /* Header is encoded at the start of the buffer then moved in front of the payload */
+        int pos = put(data, 0, FIRST_LINE_START);
+        pos = putAscii(data, pos, txId);
+        pos = put(data, pos, FIRST_LINE_END);
+        pos = put(data, pos, mPathHeaders);
+        pos = put(data, pos, BYTE_RANGE);
+        pos = putLong(data, pos, firstByte);
+        data[pos++] = MsrpConstants.CHAR_MIN;
+        pos = putLong(data, pos, lastByte);
+        data[pos++] = '/';
+        pos = putLong(data, pos, totalSize);
+        pos = put(data, pos, NEW_LINE);
+        pos = put(data, pos, mTrailingHeaders);
+        int frameStart = mMaxHeaderLength - pos;
+        System.arraycopy(data, 0, data, frameStart, pos);
+
+        /* End-line */
+        pos = put(data, mMaxHeaderLength + dataSize, END_LINE_START);
+        pos = putAscii(data, pos, txId);
+        data[pos++] = (byte) (lastByte == totalSize ? MsrpConstants.FLAG_LAST_CHUNK
+                : MsrpConstants.FLAG_MORE_CHUNK);
+        pos = put(data, pos, NEW_LINE);
+        buffer.setFrame(frameStart, pos - frameStart);
+    }
+
+    private static int put(byte[] data, int pos, byte[] value) {
+        System.arraycopy(value, 0, data, pos, value.length);
+        return pos + value.length;
+    }
+
+    private static int putAscii(byte[] data, int pos, String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            data[pos++] = (byte) value.charAt(i);
+        }
+        return pos;
+    }
+
+    private static int putLong(byte[] data, int pos, long value) {
+        if (value == 0) {
+            data[pos] = '0';
+            return pos + 1;
+        }
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) {
+            digits++;
+        }
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            data[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+}
@@ -23,6 +23,8 @@
 package com.gsma.rcs.core.ims.protocol.msrp;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
 
 import com.gsma.rcs.core.ims.network.NetworkException;
 import com.gsma.rcs.platform.network.NetworkFactory;
@@ -47,6 +49,11 @@ public class MsrpServerConnection extends MsrpConnection {
      */
     private SocketServerConnection mSocketServer;
 
+    /**
+     * Server socket channel used in event-driven transport mode
+     */
+    private ServerSocketChannel mServerChannel;
+
     /**
      * The logger
      */
@@ -93,11 +100,35 @@ public class MsrpServerConnection extends MsrpConnection {
         }
     }
 
+    /**
+     * Returns the bound server socket channel for the event-driven transport mode: the client
+     * connection is accepted by the I/O thread
+     * 
+     * @return Server socket channel
+     * @throws NetworkException
+     */
+    @Override
+    protected ServerSocketChannel getServerSocketChannel() throws NetworkException {
+        try {
+            if (sLogger.isActivated()) {
+                sLogger.debug("Open server socket channel at " + mLocalPort);
+            }
+            mServerChannel = ServerSocketChannel.open();
+            mServerChannel.socket().bind(new InetSocketAddress(mLocalPort));
+            return mServerChannel;
+
+        } catch (IOException e) {
+            CloseableUtils.tryToClose(mServerChannel);
+            throw new NetworkException("Failed to open server socket channel!", e);
+        }
+    }
+
     /**
      * Close the connection
      */
     public void close() {
         super.close();
         CloseableUtils.tryToClose(mSocketServer);
+        CloseableUtils.tryToClose(mServerChannel);
     }
 }
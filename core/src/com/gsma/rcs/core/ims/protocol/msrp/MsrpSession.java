@@ -36,8 +36,8 @@ import com.gsma.rcs.utils.logger.Logger;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Hashtable;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
@@ -54,6 +54,8 @@ public class MsrpSession {
      */
     private static final long TRANSACTION_INFO_EXPIRY_PERIOD = 30000;
 
+    private static final String STATUS_413_UNWANTED = "413 Unwanted message";
+
     private static final byte[] NEW_LINE = MsrpConstants.NEW_LINE.getBytes(UTF8);
 
     /**
@@ -122,6 +124,25 @@ public class MsrpSession {
 
     private DataChunks mReceivedChunks = new DataChunks();
 
+    private MsrpDataSink mDataSink;
+
+    /**
+     * Maximum size of a content accumulated in memory when the session has no data sink, 0 if
+     * unlimited
+     */
+    private int mMaxReceivedDataSize;
+
+    /**
+     * Size of the content received in the data sink, or end of the highest byte range received
+     * when the transfer has been resumed
+     */
+    private long mReceivedSize;
+
+    /**
+     * Message ID of the content discarded because it is too large for the memory cache
+     */
+    private String mDiscardedMsgId;
+
     private MsrpEventListener mMsrpEventListener;
 
     /**
@@ -133,10 +154,7 @@ public class MsrpSession {
 
     private MsrpTransaction mMsrpTransaction;
 
-    /**
-     * File transfer progress
-     */
-    private List<Long> mProgress = new ArrayList<>();
+    private MsrpChunkSizeController mChunkSizeController;
 
     private long mTotalSize;
 
@@ -243,6 +261,25 @@ public class MsrpSession {
         mConnection = connection;
     }
 
+    /**
+     * Set the sink the received content is written to instead of being accumulated in memory
+     * 
+     * @param sink Data sink
+     */
+    public void setDataSink(MsrpDataSink sink) {
+        mDataSink = sink;
+    }
+
+    /**
+     * Set the maximum size of a content accumulated in memory when the session has no data sink,
+     * a larger content being rejected
+     * 
+     * @param maxSize Maximum size in bytes or 0 if unlimited
+     */
+    public void setMaxReceivedDataSize(int maxSize) {
+        mMaxReceivedDataSize = maxSize;
+    }
+
     /**
      * Returns the MSRP connection
      * 
@@ -317,9 +354,9 @@ public class MsrpSession {
         // Cancel transfer
         mCancelTransfer = true;
 
-        // Close the connection
+        // Release the connection, which may be shared with other sessions
         if (mConnection != null) {
-            mConnection.close();
+            mConnection.release(this);
         }
 
         // Unblock request transaction
@@ -356,7 +393,6 @@ public class MsrpSession {
         }
         mTotalSize = totalSize;
         try {
-            byte data[] = new byte[MsrpConstants.CHUNK_MAX_SIZE];
             long firstByte = 1;
             long lastByte = 0;
             mCancelTransfer = false;
@@ -366,36 +402,18 @@ public class MsrpSession {
                 mReportTransaction = null;
             }
             if (mFailureReportOption) {
-                mMsrpTransaction = new MsrpTransaction();
+                mMsrpTransaction = new MsrpTransaction(mRcsSettings.getMsrpSendWindowSize());
             } else {
                 mMsrpTransaction = null;
             }
-
-            // Calculate number of needed chunks
-            final int totalChunks = (int) Math.ceil(totalSize
-                    / (double) MsrpConstants.CHUNK_MAX_SIZE);
-
-            new Thread(new Runnable() {
-
-                @Override
-                public void run() {
-                    if (mMsrpTransaction != null) {
-                        while ((totalChunks - mMsrpTransaction.getNumberReceivedOk()) > 0
-                                && !mCancelTransfer) {
-                            mMsrpEventListener.msrpTransferProgress(
-                                    mMsrpTransaction.getNumberReceivedOk()
-                                            * MsrpConstants.CHUNK_MAX_SIZE, totalSize);
-                            try {
-                                Thread.sleep(500);
-                            } catch (InterruptedException e) {
-                                /* Nothing to be done here */
-                            }
-                        }
-                    }
-
-                }
-
-            }).start();
+            // The chunk size is adapted from the round trip time of the acknowledged chunks
+            if (mMsrpTransaction != null && mRcsSettings.isMsrpAdaptiveChunkSizeEnabled()) {
+                mChunkSizeController = new MsrpChunkSizeController(MsrpConstants.CHUNK_MAX_SIZE,
+                        mRcsSettings.getMsrpMaxChunkSize());
+            } else {
+                mChunkSizeController = null;
+            }
+            final MsrpChunkSizeController chunkSizeController = mChunkSizeController;
 
             String newTransactionId;
 
@@ -406,31 +424,45 @@ public class MsrpSession {
             // Message-ID value follows the definition in RFC4975, section 9
             String msrpMsgId = IdGenerator.generateMessageID();
 
-            // Send data chunk by chunk
-            for (int i = inputStream.read(data); (!mCancelTransfer) & (i > -1); i = inputStream
-                    .read(data)) {
+            MsrpSendRequestEncoder encoder = new MsrpSendRequestEncoder(mTo, mFrom, msrpMsgId,
+                    contentType, mFailureReportOption, mSuccessReportOption);
+            MsrpSendBuffer.Pool bufferPool = mConnection.getSendBufferPool();
+
+            // Send data chunk by chunk, each chunk being read in place in its send buffer
+            while (!mCancelTransfer) {
+                int chunkSize = chunkSizeController != null ? chunkSizeController.getChunkSize()
+                        : MsrpConstants.CHUNK_MAX_SIZE;
+                MsrpSendBuffer buffer = bufferPool.acquire(encoder.getBufferCapacity(chunkSize));
+                int i = inputStream.read(buffer.getData(), encoder.getHeaderReserve(), chunkSize);
+                if (i < 0) {
+                    buffer.release();
+                    break;
+                }
                 // Update upper byte range
                 lastByte += i;
 
                 newTransactionId = generateTransactionId();
                 addMsrpTransactionInfo(newTransactionId, msrpMsgId, msgId, typeMsrpChunk);
 
+                // Wait for room in the send window, the response being matched by transaction id
+                if (mMsrpTransaction != null
+                        && !mMsrpTransaction.handleRequest(newTransactionId, i)) {
+                    removeMsrpTransactionInfo(newTransactionId);
+                    buffer.release();
+                    break;
+                }
+
                 // Send a chunk
-                sendMsrpSendRequest(newTransactionId, mTo, mFrom, msrpMsgId, contentType, i, data,
-                        firstByte, lastByte, totalSize);
+                encoder.encode(buffer, newTransactionId, i, firstByte, lastByte, totalSize);
+                sendMsrpSendRequest(buffer);
 
                 // Update lower byte range
                 firstByte += i;
 
-                // Progress management
-                if (mFailureReportOption) {
-                    // Add value in progress vector
-                    mProgress.add(lastByte);
-                } else {
-                    // Direct notification
-                    if (!mCancelTransfer) {
-                        mMsrpEventListener.msrpTransferProgress(lastByte, totalSize);
-                    }
+                // Progress management: with failure reports, progress is notified from the
+                // acknowledged chunks on response reception
+                if (!mFailureReportOption && !mCancelTransfer) {
+                    mMsrpEventListener.msrpTransferProgress(lastByte, totalSize);
                 }
             }
 
@@ -448,10 +480,12 @@ public class MsrpSession {
                 if (mMsrpTransaction.isAllResponsesReceived()) {
                     mMsrpEventListener.msrpDataTransferred(msgId);
                 } else {
-                    if (!mMsrpTransaction.isTerminated()) {
+                    if (mMsrpTransaction.isTimedOut()) {
                         mMsrpEventListener.msrpTransferError(msgId, "response timeout 408",
                                 typeMsrpChunk);
                     }
+                    // Error responses have already been notified on reception
+                    return;
                 }
             }
 
@@ -506,114 +540,21 @@ public class MsrpSession {
     /**
      * Send MSRP SEND request
      * 
-     * @param txId Transaction ID
-     * @param to To header
-     * @param from From header
-     * @param msrpMsgId MSRP message ID
-     * @param contentType Content type
-     * @param dataSize Data chunk size
-     * @param data Data chunk
-     * @param firstByte First byte range
-     * @param lastByte Last byte range
-     * @param totalSize Total size
+     * @param buffer Send buffer holding the encoded request
      * @throws NetworkException
      */
-    private void sendMsrpSendRequest(String txId, String to, String from, String msrpMsgId,
-            String contentType, int dataSize, byte data[], long firstByte, long lastByte,
-            long totalSize) throws NetworkException {
-        ByteArrayOutputStream buffer = null;
-        try {
-            boolean isLastChunk = (lastByte == totalSize);
-            // Create request
-            buffer = new ByteArrayOutputStream(4000);
-            buffer.reset();
-            buffer.write(MsrpConstants.MSRP_HEADER.getBytes(UTF8));
-            buffer.write(MsrpConstants.CHAR_SP);
-            buffer.write(txId.getBytes(UTF8));
-            buffer.write((" " + MsrpConstants.METHOD_SEND).getBytes(UTF8));
-            buffer.write(NEW_LINE);
-
-            String toHeader = MsrpConstants.HEADER_TO_PATH + ": " + to + MsrpConstants.NEW_LINE;
-            buffer.write(toHeader.getBytes(UTF8));
-            String fromHeader = MsrpConstants.HEADER_FROM_PATH + ": " + from
-                    + MsrpConstants.NEW_LINE;
-            buffer.write(fromHeader.getBytes(UTF8));
-            String msgIdHeader = MsrpConstants.HEADER_MESSAGE_ID + ": " + msrpMsgId
-                    + MsrpConstants.NEW_LINE;
-            buffer.write(msgIdHeader.getBytes(UTF8));
-
-            // Write byte range
-            String byteRange = MsrpConstants.HEADER_BYTE_RANGE + ": " + firstByte + "-" + lastByte
-                    + "/" + totalSize + MsrpConstants.NEW_LINE;
-            buffer.write(byteRange.getBytes(UTF8));
-
-            // Write optional headers
-            // According with GSMA guidelines
-            if (mFailureReportOption) {
-                String header = MsrpConstants.HEADER_FAILURE_REPORT + ": yes"
-                        + MsrpConstants.NEW_LINE;
-                buffer.write(header.getBytes(UTF8));
-            }
-            if (mSuccessReportOption) {
-                String header = MsrpConstants.HEADER_SUCCESS_REPORT + ": yes"
-                        + MsrpConstants.NEW_LINE;
-                buffer.write(header.getBytes(UTF8));
-            }
-
-            // Write content type
-            if (contentType != null) {
-                String content = MsrpConstants.HEADER_CONTENT_TYPE + ": " + contentType
-                        + MsrpConstants.NEW_LINE;
-                buffer.write(content.getBytes(UTF8));
-            }
-
-            // Write data
-            if (data != null) {
-                buffer.write(NEW_LINE);
-                buffer.write(data, 0, dataSize);
-                buffer.write(NEW_LINE);
-            }
-
-            // Write end of request
-            buffer.write(MsrpConstants.END_MSRP_MSG.getBytes(UTF8));
-            buffer.write(txId.getBytes(UTF8));
-            if (isLastChunk) {
-                // '$' -> last chunk
-                buffer.write(MsrpConstants.FLAG_LAST_CHUNK);
-            } else {
-                // '+' -> more chunk
-                buffer.write(MsrpConstants.FLAG_MORE_CHUNK);
-            }
-            buffer.write(NEW_LINE);
-
-            // Send chunk
-            if (mFailureReportOption) {
-                if (mMsrpTransaction != null) {
-                    mMsrpTransaction.handleRequest();
-                    mRequestTransaction = null;
-                } else {
-                    mRequestTransaction = new RequestTransaction(mRcsSettings);
-                }
-                mConnection.sendChunk(buffer.toByteArray());
-                buffer.close();
-                if (mRequestTransaction != null) {
-                    mRequestTransaction.waitResponse();
-                    if (!mRequestTransaction.isResponseReceived()) {
-                        throw new NetworkException("Failed to receive transaction response!");
-                    }
-                }
-            } else {
-                mConnection.sendChunk(buffer.toByteArray());
-                buffer.close();
-                if (mMsrpTransaction != null) {
-                    mMsrpTransaction.handleRequest();
-                }
+    private void sendMsrpSendRequest(MsrpSendBuffer buffer) throws NetworkException {
+        buffer.setSession(this);
+        if (mFailureReportOption && mMsrpTransaction == null) {
+            mRequestTransaction = new RequestTransaction(mRcsSettings);
+            mConnection.sendChunk(buffer);
+            mRequestTransaction.waitResponse();
+            if (!mRequestTransaction.isResponseReceived()) {
+                throw new NetworkException("Failed to receive transaction response!");
             }
-        } catch (IOException e) {
-            throw new NetworkException("Failed to read chunk data!", e);
-
-        } finally {
-            CloseableUtils.tryToClose(buffer);
+        } else {
+            // Request already added to the send window of the MSRP transaction if any
+            mConnection.sendChunk(buffer);
         }
     }
 
@@ -655,7 +596,7 @@ public class MsrpSession {
             buffer.write(NEW_LINE);
 
             mRequestTransaction = new RequestTransaction(mRcsSettings);
-            mConnection.sendChunkImmediately(buffer.toByteArray());
+            mConnection.sendChunkImmediately(MsrpSendBuffer.wrap(buffer.toByteArray(), this));
 
             mRequestTransaction.waitResponse();
             if (!mRequestTransaction.isResponseReceived()) {
@@ -677,7 +618,7 @@ public class MsrpSession {
      * @param headers MSRP headers
      * @throws NetworkException
      */
-    private void sendMsrpResponse(String code, String txId, Hashtable<String, String> headers)
+    private void sendMsrpResponse(String code, String txId, MsrpHeaders headers)
             throws NetworkException {
         ByteArrayOutputStream buffer = null;
         try {
@@ -706,7 +647,7 @@ public class MsrpSession {
             buffer.write(MsrpConstants.FLAG_LAST_CHUNK);
             buffer.write(NEW_LINE);
 
-            mConnection.sendChunk(buffer.toByteArray());
+            mConnection.sendChunk(MsrpSendBuffer.wrap(buffer.toByteArray(), this));
         } catch (IOException e) {
             throw new NetworkException("Failed to send Msrp response!", e);
 
@@ -722,7 +663,7 @@ public class MsrpSession {
      * @param headers MSRP headers
      * @throws NetworkException
      */
-    private void sendMsrpReportRequest(String txId, Hashtable<String, String> headers,
+    private void sendMsrpReportRequest(String txId, MsrpHeaders headers,
             long lastByte, long totalSize) throws NetworkException {
         ByteArrayOutputStream buffer = null;
         try {
@@ -774,7 +715,7 @@ public class MsrpSession {
 
             // Send request
             mRequestTransaction = new RequestTransaction(mRcsSettings);
-            mConnection.sendChunk(buffer.toByteArray());
+            mConnection.sendChunk(MsrpSendBuffer.wrap(buffer.toByteArray(), this));
         } catch (IOException e) {
             throw new NetworkException("Failed to send Msrp report request!", e);
 
@@ -789,26 +730,30 @@ public class MsrpSession {
      * @param txId Transaction ID
      * @param headers Request headers
      * @param flag Continuation flag
-     * @param data Received data
+     * @param firstByte Position of the first byte of the data in the content, starting at 1
+     * @param data Received data, only valid during the call
      * @param totalSize Total size of the content
      * @throws NetworkException
      * @throws PayloadException
      * @throws ContactManagerException
      */
-    public void receiveMsrpSend(String txId, Hashtable<String, String> headers, int flag,
-            byte[] data, long totalSize) throws PayloadException, NetworkException,
+    public void receiveMsrpSend(String txId, MsrpHeaders headers, int flag, long firstByte,
+            ByteBuffer data, long totalSize) throws PayloadException, NetworkException,
             ContactManagerException {
         mIsEstablished = true;
-        if (sLogger.isActivated()) {
-            sLogger.debug("SEND request received (flag=" + flag + ", transaction=" + txId
-                    + ", totalSize=" + totalSize + ")");
+        if (sLogger.isActivated(Logger.DEBUG_LEVEL)) {
+            sLogger.debug("SEND request received (flag={}, transaction={}, totalSize={})", flag,
+                    txId, totalSize);
         }
 
         String msgId = headers.get(MsrpConstants.HEADER_MESSAGE_ID);
-        boolean failureReportNeeded = true;
-        String failureHeader = headers.get(MsrpConstants.HEADER_FAILURE_REPORT);
-        if ((failureHeader != null) && failureHeader.equalsIgnoreCase("no")) {
-            failureReportNeeded = false;
+        boolean failureReportNeeded = !headers.isValueEqualsIgnoreCase(
+                MsrpConstants.HEADER_FAILURE_REPORT, "no");
+        if (isDiscarded(msgId, flag, data)) {
+            if (failureReportNeeded) {
+                sendMsrpResponse(STATUS_413_UNWANTED, txId, headers);
+            }
+            return;
         }
         if (failureReportNeeded) {
             sendMsrpResponse(MsrpConstants.STATUS_200_OK, txId, headers);
@@ -819,49 +764,95 @@ public class MsrpSession {
             }
             return;
         }
-        mReceivedChunks.addChunk(data);
+        int length = data.remaining();
+        long lastByte = firstByte + length - 1;
+        if (mDataSink != null) {
+            if (!mDataSink.writeData(firstByte - 1, data)) {
+                /* The content can not be saved: the next chunks of the message are refused */
+                mReceivedSize = 0;
+                if (flag == MsrpConstants.FLAG_MORE_CHUNK) {
+                    mDiscardedMsgId = msgId;
+                }
+                return;
+            }
+            mReceivedSize = Math.max(mReceivedSize + length, lastByte);
+        } else {
+            mReceivedChunks.addChunk(data);
+        }
 
         if (flag == MsrpConstants.FLAG_LAST_CHUNK) {
             if (sLogger.isActivated()) {
                 sLogger.info("Transfer terminated");
             }
-            byte[] dataContent = mReceivedChunks.getReceivedData();
-            mReceivedChunks.resetCache();
+            byte[] dataContent = null;
+            if (mDataSink != null) {
+                mReceivedSize = 0;
+            } else {
+                dataContent = mReceivedChunks.getReceivedData();
+                mReceivedChunks.resetCache();
+            }
 
             String contentTypeHeader = headers.get(MsrpConstants.HEADER_CONTENT_TYPE);
             mMsrpEventListener.receiveMsrpData(msgId, dataContent, contentTypeHeader);
 
-            boolean successReportNeeded = false;
-            String reportHeader = headers.get(MsrpConstants.HEADER_SUCCESS_REPORT);
-            if ((reportHeader != null) && reportHeader.equalsIgnoreCase("yes")) {
-                successReportNeeded = true;
-            }
+            boolean successReportNeeded = headers.isValueEqualsIgnoreCase(
+                    MsrpConstants.HEADER_SUCCESS_REPORT, "yes");
             if (successReportNeeded) {
-                sendMsrpReportRequest(txId, headers, dataContent.length, totalSize);
+                sendMsrpReportRequest(txId, headers, lastByte, totalSize);
             }
         } else if (flag == MsrpConstants.FLAG_ABORT_CHUNK) {
             if (sLogger.isActivated()) {
                 sLogger.info("Transfer aborted");
             }
+            mReceivedSize = 0;
+            mReceivedChunks.resetCache();
             mMsrpEventListener.msrpTransferAborted();
         } else if (flag == MsrpConstants.FLAG_MORE_CHUNK) {
             if (sLogger.isActivated()) {
                 sLogger.debug("Transfer in progress...");
             }
-            byte[] dataContent = mReceivedChunks.getReceivedData();
-            boolean resetCache = mMsrpEventListener.msrpTransferProgress(
-                    mReceivedChunks.getCurrentSize(), totalSize, dataContent);
-
             /*
-             * Data are only consumed chunk by chunk in file transfer & image share. In a chat
-             * session only the whole message is consumed after receiving the last chunk.
+             * Progress is only notified when the data is consumed chunk by chunk in the data
+             * sink: in a chat session the whole message is consumed after receiving the last
+             * chunk.
              */
-            if (resetCache) {
-                mReceivedChunks.resetCache();
+            if (mDataSink != null) {
+                mMsrpEventListener.msrpTransferProgress(mReceivedSize, totalSize);
             }
         }
     }
 
+    /**
+     * Checks if a chunk belongs to a content too large to be accumulated in memory or refused by
+     * the data sink
+     * 
+     * @param msgId Message ID
+     * @param flag Continuation flag
+     * @param data Received data
+     * @return True if the chunk has to be discarded
+     */
+    private boolean isDiscarded(String msgId, int flag, ByteBuffer data) {
+        if (mDiscardedMsgId != null && mDiscardedMsgId.equals(msgId)) {
+            if (flag != MsrpConstants.FLAG_MORE_CHUNK) {
+                mDiscardedMsgId = null;
+            }
+            return true;
+        }
+        if (mDataSink != null || mMaxReceivedDataSize <= 0 || data == null
+                || mReceivedChunks.getCachedSize() + data.remaining() <= mMaxReceivedDataSize) {
+            return false;
+        }
+        if (sLogger.isActivated()) {
+            sLogger.warn("Discard received content exceeding " + mMaxReceivedDataSize
+                    + " bytes (msgId=" + msgId + ")");
+        }
+        mReceivedChunks.resetCache();
+        if (flag == MsrpConstants.FLAG_MORE_CHUNK) {
+            mDiscardedMsgId = msgId;
+        }
+        return true;
+    }
+
     /**
      * Receive MSRP response
      * 
@@ -869,20 +860,12 @@ public class MsrpSession {
      * @param txId Transaction ID
      * @param headers MSRP headers
      */
-    public void receiveMsrpResponse(int code, String txId, Hashtable<String, String> headers) {
+    public void receiveMsrpResponse(int code, String txId, MsrpHeaders headers) {
         // Consider media is established when we received something
         mIsEstablished = true;
 
-        if (sLogger.isActivated()) {
-            sLogger.info("Response received (code=" + code + ", transaction=" + txId + ")");
-        }
-
-        if (mFailureReportOption) {
-            // Notify progress
-            if (!mCancelTransfer && mProgress.size() > 0) {
-                mMsrpEventListener.msrpTransferProgress(mProgress.get(0), mTotalSize);
-                mProgress.remove(0);
-            }
+        if (sLogger.isActivated(Logger.INFO_LEVEL)) {
+            sLogger.info("Response received (code={}, transaction={})", code, txId);
         }
 
         // Notify request transaction
@@ -890,9 +873,18 @@ public class MsrpSession {
             mRequestTransaction.notifyResponse(code, headers);
         }
 
-        // Notify MSRP transaction
-        if (mMsrpTransaction != null) {
-            mMsrpTransaction.handleResponse();
+        // Notify MSRP transaction and the progress of the acknowledged chunks
+        final MsrpTransaction msrpTransaction = mMsrpTransaction;
+        if (msrpTransaction != null && msrpTransaction.handleResponse(txId, code) && code == 200) {
+            final MsrpChunkSizeController chunkSizeController = mChunkSizeController;
+            if (chunkSizeController != null) {
+                chunkSizeController.onChunkAcknowledged(msrpTransaction.getLastRoundTripTime(),
+                        mConnection.getPendingSendSize());
+            }
+            if (!mCancelTransfer) {
+                mMsrpEventListener.msrpTransferProgress(msrpTransaction.getAcknowledgedSize(),
+                        mTotalSize);
+            }
         }
 
         // Notify event listener
@@ -923,7 +915,7 @@ public class MsrpSession {
      * @throws NetworkException
      * @throws FileAccessException
      */
-    public void receiveMsrpReport(String txId, Hashtable<String, String> headers)
+    public void receiveMsrpReport(String txId, MsrpHeaders headers)
             throws FileAccessException, NetworkException {
         // Example of an MSRP REPORT request:
         // MSRP b276bb5b0adb22f6 SEND
@@ -959,9 +951,7 @@ public class MsrpSession {
         // Byte-Range: 1-305/305
         // -------n02s00i2t0+1937$
 
-        if (sLogger.isActivated()) {
-            sLogger.info("REPORT request received (transaction=" + txId + ")");
-        }
+        sLogger.info("REPORT request received (transaction={})", txId);
 
         String msrpMsgId = headers.get(MsrpConstants.HEADER_MESSAGE_ID);
         String cpimMsgId = null;
@@ -973,19 +963,13 @@ public class MsrpSession {
             typeMsrpChunk = msrpTransactionInfo.mTypeMsrpChunk;
             originalTransactionId = msrpTransactionInfo.mTransactionId;
             cpimMsgId = msrpTransactionInfo.mCpimMsgId;
-            if (sLogger.isActivated()) {
-                sLogger.debug("REPORT request details; originalTransactionId="
-                        + originalTransactionId + "; cpimMsgId=" + cpimMsgId + "; typeMsrpChunk="
-                        + typeMsrpChunk);
-            }
+            sLogger.debug("REPORT request details; originalTransactionId={}; cpimMsgId={};"
+                    + " typeMsrpChunk={}", originalTransactionId, cpimMsgId, typeMsrpChunk);
         }
 
         // Test if a failure report is needed
-        boolean failureReportNeeded = true;
-        String failureHeader = headers.get(MsrpConstants.HEADER_FAILURE_REPORT);
-        if ((failureHeader != null) && failureHeader.equalsIgnoreCase("no")) {
-            failureReportNeeded = false;
-        }
+        boolean failureReportNeeded = !headers.isValueEqualsIgnoreCase(
+                MsrpConstants.HEADER_FAILURE_REPORT, "no");
 
         // Send MSRP response if requested
         if (failureReportNeeded) {
@@ -20,103 +20,150 @@
  * Modifications are licensed under the License.
  ******************************************************************************/
 
+
 package com.gsma.rcs.core.ims.protocol.msrp;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import gov2.nist.core.TimingWheel;
+import gov2.nist.core.TimingWheelTask;
+
+import java.util.HashMap;
+import java.util.Map;
 
 /**
- * MSRP transaction
+ * MSRP transaction<br>
+ * Sliding send window of the chunks of a content sent with failure reports: up to a given number
+ * of SEND requests are in flight, their responses being matched by transaction id. The transfer
+ * fails if no response is received during the timeout period.
  * 
  * @author B. JOGUET
  */
-public class MsrpTransaction extends Object {
+public class MsrpTransaction {
     /**
      * MRSP report transaction timeout (in milliseconds)
      */
     private final static long TIMEOUT = 30000;
 
     /**
-     * Count number of sent requests without response
+     * Timer shared by all the transactions: restarting the timeout on each response only links
+     * and unlinks a task in the timing wheel
      */
-    private int waitingCount = 0;
+    private static final TimingWheel sTimer = TimingWheel.getSharedWheel();
 
     /**
-     * Count the total number of received 200OK
+     * Maximum number of requests sent without response
      */
-    private int totalReceivedResponses = 0;
+    private final int mWindowSize;
 
     /**
-     * Count number of sent requests without response
+     * Size of the chunks sent without response, by transaction id
      */
-    private boolean isWaiting = false;
+    private final Map<String, Integer> mPendingChunks = new HashMap<>();
 
     /**
-     * Is MSRP session terminated
+     * Time at which the chunks sent without response have been sent, by transaction id
      */
-    private boolean isTerminated = false;
+    private final Map<String, Long> mSendTimestamps = new HashMap<>();
 
     /**
-     * Timer
+     * Round trip time of the last acknowledged chunk
      */
-    private Timer timer = new Timer();
+    private long mLastRoundTripTime = -1;
+
+    /**
+     * Total size of the chunks acknowledged by a 200 OK
+     */
+    private long mAcknowledgedSize = 0;
+
+    /**
+     * Is MSRP session terminated
+     */
+    private boolean mTerminated = false;
+
+    private boolean mTimedOut = false;
+
+    private boolean mFailed = false;
+
+    private TimingWheelTask mTimerTask;
 
     /**
      * Constructor
+     * 
+     * @param windowSize Maximum number of requests sent without response
      */
-    public MsrpTransaction() {
+    public MsrpTransaction(int windowSize) {
+        mWindowSize = Math.max(1, windowSize);
+    }
+
+    private boolean isActive() {
+        return !mTerminated && !mTimedOut && !mFailed;
     }
 
     /**
      * Wait all MSRP responses
      */
     public synchronized void waitAllResponses() {
-        if (waitingCount > 0) {
-            isWaiting = true;
+        while (!mPendingChunks.isEmpty() && isActive()) {
             try {
-                // Start timeout
-                startTimer();
-
-                // Wait semaphore
                 super.wait();
             } catch (InterruptedException e) {
-                /* Nothing to do */
+                return;
             }
         }
     }
 
     /**
-     * Handle new request
+     * Handle new request: wait until the send window is open then add the request to it
+     * 
+     * @param txId Transaction ID of the request
+     * @param size Size of the data chunk
+     * @return False if the transaction has been terminated, has failed or has timed out
      */
-    public void handleRequest() {
-        // Changed by Deutsche Telekom
-        // requests and responses are handled in different threads which need to be synchronized
-        synchronized (this) {
-            waitingCount++;
+    public synchronized boolean handleRequest(String txId, int size) {
+        while (mPendingChunks.size() >= mWindowSize && isActive()) {
+            try {
+                super.wait();
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        if (!isActive()) {
+            return false;
+        }
+        if (mPendingChunks.isEmpty()) {
+            startTimer();
         }
+        mPendingChunks.put(txId, size);
+        mSendTimestamps.put(txId, System.currentTimeMillis());
+        return true;
     }
 
     /**
      * Handle new response
+     * 
+     * @param txId Transaction ID of the response
+     * @param code Response code
+     * @return False if the response does not match a request of the window
      */
-    public synchronized void handleResponse() {
-        // Changed by Deutsche Telekom
-        // requests and responses are handled in different threads which need to be synchronized
-        synchronized (this) {
-            waitingCount--;
+    public synchronized boolean handleResponse(String txId, int code) {
+        Integer size = mPendingChunks.remove(txId);
+        if (size == null) {
+            return false;
         }
-        // Changed by Deutsche Telekom
-        totalReceivedResponses++;
-        if (isWaiting) {
-            if (waitingCount == 0) {
-                // Unblock semaphore
-                super.notify();
-            } else {
-                // ReInit timeout
-                stopTimer();
+        long sendTimestamp = mSendTimestamps.remove(txId);
+        stopTimer();
+        if (code == 200) {
+            mAcknowledgedSize += size;
+            mLastRoundTripTime = System.currentTimeMillis() - sendTimestamp;
+            if (!mPendingChunks.isEmpty()) {
+                /* ReInit timeout */
                 startTimer();
             }
+        } else {
+            mFailed = true;
         }
+        /* Unblock semaphore */
+        super.notifyAll();
+        return true;
     }
 
     /**
@@ -124,18 +171,36 @@ public class MsrpTransaction extends Object {
      * 
      * @return Boolean
      */
-    public boolean isAllResponsesReceived() {
-        return (waitingCount == 0);
+    public synchronized boolean isAllResponsesReceived() {
+        return mPendingChunks.isEmpty() && !mFailed;
+    }
+
+    /**
+     * Returns the total size of the chunks acknowledged by a 200 OK response
+     * 
+     * @return Size in bytes
+     */
+    public synchronized long getAcknowledgedSize() {
+        return mAcknowledgedSize;
+    }
+
+    /**
+     * Returns the time elapsed between the sending of the last acknowledged chunk and the
+     * reception of its 200 OK response
+     * 
+     * @return Round trip time in milliseconds or -1 if no chunk has been acknowledged yet
+     */
+    public synchronized long getLastRoundTripTime() {
+        return mLastRoundTripTime;
     }
 
     /**
      * Terminate transaction
      */
     public synchronized void terminate() {
-        isTerminated = true;
-        // Unblock semaphore
-        super.notify();
-        // Stop timer
+        mTerminated = true;
+        /* Unblock semaphore */
+        super.notifyAll();
         stopTimer();
     }
 
@@ -144,44 +209,54 @@ public class MsrpTransaction extends Object {
      * 
      * @return true if terminated
      */
-    public boolean isTerminated() {
-        return isTerminated;
+    public synchronized boolean isTerminated() {
+        return mTerminated;
+    }
+
+    /**
+     * Checks if no response has been received during the timeout period
+     * 
+     * @return true if timed out
+     */
+    public synchronized boolean isTimedOut() {
+        return mTimedOut;
     }
 
     /**
      * Start the timer
      */
     private void startTimer() {
-        timer = new Timer();
-        TimerTask timertask = new TimerTask() {
+        mTimerTask = new TimingWheelTask() {
             @Override
             public void run() {
-                timerExpire();
+                timerExpire(this);
             }
         };
-        timer.schedule(timertask, TIMEOUT);
+        sTimer.schedule(mTimerTask, TIMEOUT);
     }
 
     /**
      * Stop the timer
      */
     private void stopTimer() {
-        timer.cancel();
+        if (mTimerTask != null) {
+            mTimerTask.cancel();
+            mTimerTask = null;
+        }
     }
 
     /**
      * Timer execution
+     * 
+     * @param task Expired timer task
      */
-    private synchronized void timerExpire() {
-        // Unblock semaphore
-        super.notify();
-    }
-
-    // Changed by Deutsche Telekom
-    /**
-     * @return totalReceivedResponses - number of received reports
-     */
-    public int getNumberReceivedOk() {
-        return totalReceivedResponses;
+    private synchronized void timerExpire(TimingWheelTask task) {
+        if (task != mTimerTask || mTerminated) {
+            return;
+        }
+        mTimerTask = null;
+        mTimedOut = true;
+        /* Unblock semaphore */
+        super.notifyAll();
     }
 }
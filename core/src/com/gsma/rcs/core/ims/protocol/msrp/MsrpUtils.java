@@ -72,4 +72,30 @@ public class MsrpUtils {
         }
         return -1;
     }
+
+    /**
+     * Get the session id of a MSRP path, i.e. the session id of its last URI
+     * 
+     * @param path MSRP path
+     * @return Session id or null
+     */
+    public static String getSessionId(String path) {
+        if (path == null) {
+            return null;
+        }
+        int end = path.length();
+        while (end > 0 && path.charAt(end - 1) == ' ') {
+            end--;
+        }
+        int start = path.lastIndexOf(' ', end - 1) + 1;
+        int index = path.indexOf(';', start);
+        if (index != -1 && index < end) {
+            end = index;
+        }
+        index = path.lastIndexOf('/', end - 1);
+        if (index < start) {
+            return null;
+        }
+        return path.substring(index + 1, end);
+    }
 }
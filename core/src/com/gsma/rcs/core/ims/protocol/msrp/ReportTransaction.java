@@ -22,8 +22,6 @@
 
 package com.gsma.rcs.core.ims.protocol.msrp;
 
-import java.util.Hashtable;
-
 /**
  * Report transaction
  * 
@@ -69,7 +67,7 @@ public class ReportTransaction extends Object {
      * @param status Status code
      * @param headers MSRP headers
      */
-    public void notifyReport(int status, Hashtable<String, String> headers) {
+    public void notifyReport(int status, MsrpHeaders headers) {
         synchronized (this) {
             receivedByteRangeHeader = false;
             isNotified = true;
@@ -153,7 +151,7 @@ public class ReportTransaction extends Object {
      * @param headers
      * @return
      */
-    public static int parseStatusCode(Hashtable<String, String> headers) {
+    public static int parseStatusCode(MsrpHeaders headers) {
         final String status = headers.get(MsrpConstants.HEADER_STATUS);
         if (status == null || status.startsWith("000 ")) {
             return INVALID_STATUS_RESPONSE;
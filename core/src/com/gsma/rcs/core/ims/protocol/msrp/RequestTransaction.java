@@ -24,8 +24,6 @@ package com.gsma.rcs.core.ims.protocol.msrp;
 
 import com.gsma.rcs.provider.settings.RcsSettings;
 
-import java.util.Hashtable;
-
 /**
  * Request transaction
  * 
@@ -57,7 +55,7 @@ public class RequestTransaction extends Object {
      * @param code Response code
      * @param headers MSRP headers
      */
-    public void notifyResponse(int code, Hashtable<String, String> headers) {
+    public void notifyResponse(int code, MsrpHeaders headers) {
         synchronized (this) {
             // Set response code
             this.receivedResponse = code;
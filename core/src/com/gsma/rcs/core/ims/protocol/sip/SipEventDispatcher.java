@@ -0,0 +1,342 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.protocol.sip;
+
+import com.gsma.rcs.utils.logger.Logger;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax2.sip.RequestEvent;
+import javax2.sip.ServerTransaction;
+import javax2.sip.SipProvider;
+import javax2.sip.TransactionAlreadyExistsException;
+import javax2.sip.TransactionUnavailableException;
+import javax2.sip.message.Request;
+
+/**
+ * Dispatcher of the SIP events received from the SIP stack<br>
+ * Events are processed by a pool of lanes, the lane of an event being selected from its Call-ID:
+ * the events of a dialog are processed in order by the same lane while the events of other
+ * dialogs are processed in parallel, so that a slow event does not stall the whole signalling.
+ * With a single lane, events are processed directly in the thread of the SIP stack.<br>
+ * The server transaction of a received request is always created in the thread of the SIP stack,
+ * so that the retransmissions of a request are absorbed by its transaction before reaching a lane.
+ * <br>
+ * A new request is dropped before its transaction is created when its lane already queues the
+ * maximum number of events, as a datagram lost by the network: it is retransmitted over UDP and
+ * times out on the client side over TCP. Responses and timeouts are always queued as they complete
+ * transactions already in progress, so they are bounded by the number of pending transactions.
+ */
+public class SipEventDispatcher {
+
+    /**
+     * Default maximum number of events queued by a lane before new requests are dropped
+     */
+    public static final int DEFAULT_MAX_QUEUED_EVENTS = 256;
+
+    private final Lane[] mLanes;
+
+    private final int mMaxQueuedEvents;
+
+    private static final Logger sLogger = Logger.getLogger(SipEventDispatcher.class.getName());
+
+    /**
+     * Handler of the requests received from the SIP stack
+     */
+    public interface RequestHandler {
+
+        /**
+         * Handle a received request
+         * 
+         * @param request Request
+         * @param transaction Server transaction of the request
+         */
+        void handleRequest(Request request, ServerTransaction transaction);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param laneCount Number of lanes
+     */
+    public SipEventDispatcher(int laneCount) {
+        this(laneCount, DEFAULT_MAX_QUEUED_EVENTS);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param laneCount Number of lanes
+     * @param maxQueuedEvents Maximum number of events queued by a lane before new requests are
+     *            dropped
+     */
+    public SipEventDispatcher(int laneCount, int maxQueuedEvents) {
+        mMaxQueuedEvents = maxQueuedEvents;
+        if (laneCount <= 1) {
+            mLanes = new Lane[0];
+            return;
+        }
+        mLanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            mLanes[i] = new Lane(i);
+            mLanes[i].start();
+        }
+    }
+
+    /**
+     * Returns the number of lanes
+     * 
+     * @return Number of lanes or 0 if events are processed in the thread of the SIP stack
+     */
+    public int getLaneCount() {
+        return mLanes.length;
+    }
+
+    /**
+     * Returns the lane processing the events of a Call-ID
+     * 
+     * @param callId Call-ID
+     * @return Lane index or -1 if events are processed in the thread of the SIP stack
+     */
+    public int getLane(String callId) {
+        if (mLanes.length == 0) {
+            return -1;
+        }
+        int hash = callId != null ? callId.hashCode() : 0;
+        return (hash & Integer.MAX_VALUE) % mLanes.length;
+    }
+
+    /**
+     * Dispatch an event
+     * 
+     * @param callId Call-ID of the event
+     * @param event Processing of the event
+     */
+    public void dispatch(String callId, Runnable event) {
+        if (mLanes.length == 0) {
+            event.run();
+            return;
+        }
+        mLanes[getLane(callId)].post(event);
+    }
+
+    /**
+     * Dispatch a received request: its server transaction is looked up or created in the calling
+     * thread and only the handling of the request is dispatched. The request is dropped if its
+     * lane is full.
+     * 
+     * @param callId Call-ID of the request
+     * @param requestEvent Event of the received request
+     * @param handler Handler of the request
+     */
+    public void dispatchRequest(String callId, RequestEvent requestEvent,
+            final RequestHandler handler) {
+        final Request request = requestEvent.getRequest();
+        if (mLanes.length > 0) {
+            Lane lane = mLanes[getLane(callId)];
+            if (lane.mQueue.size() >= mMaxQueuedEvents) {
+                sLogger.warn(lane.getName() + " is full: drop SIP " + request.getMethod());
+                return;
+            }
+        }
+        ServerTransaction transaction = requestEvent.getServerTransaction();
+        if (transaction == null) {
+            try {
+                // Create a transaction for this new incoming request
+                SipProvider srcSipProvider = (SipProvider) requestEvent.getSource();
+                transaction = srcSipProvider.getNewServerTransaction(request);
+
+            } catch (TransactionAlreadyExistsException | TransactionUnavailableException e) {
+                /**
+                 * Intentionally consuming this exception as no need to create a new transaction in
+                 * case it already exists: the request is a retransmission.
+                 */
+                if (sLogger.isActivated()) {
+                    sLogger.debug(e.getMessage());
+                }
+                return;
+            }
+        }
+        final ServerTransaction serverTransaction = transaction;
+        dispatch(callId, new Runnable() {
+            @Override
+            public void run() {
+                handler.handleRequest(request, serverTransaction);
+            }
+        });
+    }
+
+    /**
+     * Returns the number of events waiting to be processed by all the lanes
+     * 
+     * @return Number of events
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (Lane lane : mLanes) {
+            depth += lane.mQueue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the number of events waiting to be processed by a lane
+     * 
+     * @param lane Lane index
+     * @return Number of events
+     */
+    public int getQueueDepth(int lane) {
+        return mLanes[lane].mQueue.size();
+    }
+
+    /**
+     * Returns the number of events processed by a lane
+     * 
+     * @param lane Lane index
+     * @return Number of events
+     */
+    public long getProcessedCount(int lane) {
+        return mLanes[lane].getProcessedCount();
+    }
+
+    /**
+     * Returns the average time elapsed between the dispatch of an event and the end of its
+     * processing by a lane
+     * 
+     * @param lane Lane index
+     * @return Latency in milliseconds
+     */
+    public long getAverageLatency(int lane) {
+        return mLanes[lane].getAverageLatency();
+    }
+
+    /**
+     * Returns the maximum time elapsed between the dispatch of an event and the end of its
+     * processing by a lane
+     * 
+     * @param lane Lane index
+     * @return Latency in milliseconds
+     */
+    public long getMaxLatency(int lane) {
+        return mLanes[lane].getMaxLatency();
+    }
+
+    /**
+     * Terminate the lanes: the events not yet processed are dropped
+     */
+    public void terminate() {
+        for (Lane lane : mLanes) {
+            if (sLogger.isActivated()) {
+                sLogger.debug("Terminate " + lane.getName() + " (" + lane.getProcessedCount()
+                        + " events, average latency " + lane.getAverageLatency()
+                        + " ms, max latency " + lane.getMaxLatency() + " ms)");
+            }
+            lane.terminate();
+        }
+    }
+
+    /**
+     * Event waiting to be processed
+     */
+    private static class PendingEvent {
+
+        private final Runnable mEvent;
+
+        private final long mTimestamp = System.currentTimeMillis();
+
+        private PendingEvent(Runnable event) {
+            mEvent = event;
+        }
+    }
+
+    /**
+     * Lane processing the events of a subset of the Call-IDs in order
+     */
+    private static class Lane extends Thread {
+
+        private final BlockingQueue<PendingEvent> mQueue = new LinkedBlockingQueue<>();
+
+        private volatile boolean mTerminated = false;
+
+        private long mProcessedCount;
+
+        private long mTotalLatency;
+
+        private long mMaxLatency;
+
+        private Lane(int index) {
+            super("SipEventLane-" + index);
+            setDaemon(true);
+        }
+
+        private void post(Runnable event) {
+            mQueue.add(new PendingEvent(event));
+        }
+
+        private void terminate() {
+            mTerminated = true;
+            mQueue.clear();
+            interrupt();
+        }
+
+        private synchronized long getProcessedCount() {
+            return mProcessedCount;
+        }
+
+        private synchronized long getAverageLatency() {
+            return mProcessedCount == 0 ? 0 : mTotalLatency / mProcessedCount;
+        }
+
+        private synchronized long getMaxLatency() {
+            return mMaxLatency;
+        }
+
+        private synchronized void updateMetrics(long latency) {
+            mProcessedCount++;
+            mTotalLatency += latency;
+            if (latency > mMaxLatency) {
+                mMaxLatency = latency;
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!mTerminated) {
+                PendingEvent pendingEvent;
+                try {
+                    pendingEvent = mQueue.take();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                try {
+                    pendingEvent.mEvent.run();
+
+                } catch (RuntimeException e) {
+                    /*
+                     * Intentionally catch runtime exceptions as else it will abruptly end the lane
+                     * and stop the processing of all the dialogs mapped to it.
+                     */
+                    sLogger.error("Failed to process SIP event!", e);
+                }
+                updateMetrics(System.currentTimeMillis() - pendingEvent.mTimestamp);
+            }
+        }
+    }
+}
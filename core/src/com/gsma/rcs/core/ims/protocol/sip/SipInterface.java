@@ -33,6 +33,7 @@ import com.gsma.rcs.provider.settings.RcsSettings;
 import com.gsma.rcs.utils.IdGenerator;
 import com.gsma.rcs.utils.InetAddressUtils;
 import com.gsma.rcs.utils.NetworkRessourceManager;
+import com.gsma.rcs.utils.capture.WireCapture;
 import com.gsma.rcs.utils.logger.Logger;
 
 import gov2.nist.javax2.sip.address.AddressImpl;
@@ -63,17 +64,17 @@ import javax2.sip.SipListener;
 import javax2.sip.SipProvider;
 import javax2.sip.SipStack;
 import javax2.sip.TimeoutEvent;
-import javax2.sip.TransactionAlreadyExistsException;
 import javax2.sip.TransactionTerminatedEvent;
-import javax2.sip.TransactionUnavailableException;
 import javax2.sip.address.Address;
 import javax2.sip.address.SipURI;
 import javax2.sip.address.URI;
+import javax2.sip.header.CallIdHeader;
 import javax2.sip.header.ContactHeader;
 import javax2.sip.header.ExtensionHeader;
 import javax2.sip.header.Header;
 import javax2.sip.header.RouteHeader;
 import javax2.sip.header.ViaHeader;
+import javax2.sip.message.Message;
 import javax2.sip.message.Request;
 import javax2.sip.message.Response;
 
@@ -85,13 +86,16 @@ import javax2.sip.message.Response;
  */
 public class SipInterface implements SipListener {
 
-    private final static String TRACE_SEPARATOR = "-----------------------------------------------------------------------------";
-
     /**
      * SIP traces activation
      */
     private boolean mSipTraceEnabled;
 
+    /**
+     * Identifier of the SIP messages in the capture
+     */
+    private final int mCaptureId = WireCapture.newConnectionId();
+
     private final String mSipTraceFile;
 
     private final String mLocalIpAddress;
@@ -128,6 +132,8 @@ public class SipInterface implements SipListener {
 
     private final KeepAliveManager mKeepAliveManager;
 
+    private final SipEventDispatcher mEventDispatcher;
+
     private String mPublicGruu;
 
     private String mTempGruu;
@@ -172,6 +178,7 @@ public class SipInterface implements SipListener {
         mOutboundProxyAddr = proxyAddr;
         mOutboundProxyPort = proxyPort;
         mKeepAliveManager = new KeepAliveManager(this, rcsSettings);
+        mEventDispatcher = new SipEventDispatcher(rcsSettings.getSipEventLanes());
         mSipTraceEnabled = rcsSettings.isSipTraceActivated();
         mSipTraceFile = rcsSettings.getSipTraceFile();
         /* Set timers value from provisioning */
@@ -206,6 +213,12 @@ public class SipInterface implements SipListener {
             Properties properties = new Properties();
             properties.setProperty("javax2.sip.STACK_NAME", mLocalIpAddress);
             properties.setProperty("gov2.nist.javax2.sip.THREAD_POOL_SIZE", "1");
+            if (mRcsSettings.isSipByteMessageParserEnabled()) {
+                properties.setProperty("gov2.nist.javax2.sip.BYTE_MESSAGE_PARSER", "true");
+            }
+            if (mRcsSettings.isSipLazyHeaderParsingEnabled()) {
+                properties.setProperty("gov2.nist.javax2.sip.LAZY_HEADER_PARSING", "true");
+            }
             properties.setProperty("javax2.sip.OUTBOUND_PROXY", getOutboundProxy());
             if (mSipTraceEnabled) {
                 /* Activate SIP stack traces */
@@ -312,6 +325,7 @@ public class SipInterface implements SipListener {
     public void close() {
         try {
             mKeepAliveManager.stop();
+            mEventDispatcher.terminate();
             mListeners.clear();
             for (SipProvider sipProvider : mSipProviders) {
                 sipProvider.removeSipListener(this);
@@ -452,6 +466,15 @@ public class SipInterface implements SipListener {
         return mKeepAliveManager;
     }
 
+    /**
+     * Returns the dispatcher of the SIP events received
+     *
+     * @return SIP event dispatcher
+     */
+    public SipEventDispatcher getEventDispatcher() {
+        return mEventDispatcher;
+    }
+
     /**
      * Get public GRUU
      *
@@ -701,8 +724,7 @@ public class SipInterface implements SipListener {
                     sLogger.debug(">>> Send SIP ".concat(req.getMethod()));
                 }
                 if (mSipTraceEnabled) {
-                    System.out.println(">>> " + req.getStackMessage().toString());
-                    System.out.println(TRACE_SEPARATOR);
+                    captureMessage(WireCapture.DIRECTION_OUT, req.getStackMessage());
                 }
                 transaction.sendRequest();
                 return ctx;
@@ -723,8 +745,7 @@ public class SipInterface implements SipListener {
                 sLogger.debug(">>> Send SIP " + resp.getStatusCode() + " response");
             }
             if (mSipTraceEnabled) {
-                System.out.println(">>> " + resp.getStackMessage().toString());
-                System.out.println(TRACE_SEPARATOR);
+                captureMessage(WireCapture.DIRECTION_OUT, resp.getStackMessage());
             }
             transaction.sendResponse(resp.getStackMessage());
             return ctx;
@@ -766,8 +787,7 @@ public class SipInterface implements SipListener {
                 sLogger.debug(">>> Send SIP " + response.getStatusCode() + " response");
             }
             if (mSipTraceEnabled) {
-                System.out.println(">>> " + response.getStackMessage().toString());
-                System.out.println(TRACE_SEPARATOR);
+                captureMessage(WireCapture.DIRECTION_OUT, response.getStackMessage());
             }
             transaction.sendResponse(response.getStackMessage());
 
@@ -790,8 +810,7 @@ public class SipInterface implements SipListener {
                 sLogger.debug(">>> Send SIP ACK");
             }
             if (mSipTraceEnabled) {
-                System.out.println(">>> " + ack.getStackMessage().toString());
-                System.out.println(TRACE_SEPARATOR);
+                captureMessage(WireCapture.DIRECTION_OUT, ack.getStackMessage());
             }
             /* Re-use INVITE transaction */
             dialog.getStackDialog().sendAck(ack.getStackMessage());
@@ -824,8 +843,7 @@ public class SipInterface implements SipListener {
                 sLogger.debug(">>> Send SIP CANCEL");
             }
             if (mSipTraceEnabled) {
-                System.out.println(">>> " + cancel.getStackMessage().toString());
-                System.out.println(TRACE_SEPARATOR);
+                captureMessage(WireCapture.DIRECTION_OUT, cancel.getStackMessage());
             }
             transaction.sendRequest();
 
@@ -857,8 +875,7 @@ public class SipInterface implements SipListener {
                 sLogger.debug(">>> Send SIP BYE");
             }
             if (mSipTraceEnabled) {
-                System.out.println(">>> " + bye.getStackMessage().toString());
-                System.out.println(TRACE_SEPARATOR);
+                captureMessage(WireCapture.DIRECTION_OUT, bye.getStackMessage());
             }
             dialog.getStackDialog().sendRequest(transaction);
 
@@ -892,8 +909,7 @@ public class SipInterface implements SipListener {
                 sLogger.debug(">>> Send SIP ".concat(request.getMethod().toUpperCase()));
             }
             if (mSipTraceEnabled) {
-                System.out.println(">>> " + request.getStackMessage().toString());
-                System.out.println(TRACE_SEPARATOR);
+                captureMessage(WireCapture.DIRECTION_OUT, request.getStackMessage());
             }
             dialog.getStackDialog().sendRequest(transaction);
             SipTransactionContext ctx = new SipTransactionContext(transaction);
@@ -938,43 +954,47 @@ public class SipInterface implements SipListener {
      */
     public void processRequest(RequestEvent requestEvent) {
         Request request = requestEvent.getRequest();
-        boolean loggerActivated = sLogger.isActivated();
-        if (loggerActivated) {
+        if (sLogger.isActivated()) {
             sLogger.debug("<<< Receive SIP " + request.getMethod());
         }
         if (mSipTraceEnabled) {
-            System.out.println("<<< " + request.toString());
-            System.out.println(TRACE_SEPARATOR);
+            captureMessage(WireCapture.DIRECTION_IN, request);
         }
-        try {
-            // Get transaction
-            ServerTransaction transaction = requestEvent.getServerTransaction();
-            if (transaction == null) {
-                // Create a transaction for this new incoming request
-                SipProvider srcSipProvider = (SipProvider) requestEvent.getSource();
-                transaction = srcSipProvider.getNewServerTransaction(request);
-            }
-            // Create received request with its associated transaction
-            SipRequest req = new SipRequest(request);
-            req.setStackTransaction(transaction);
-            if (Request.ACK.equals(req.getMethod())) {
-                // Search the context associated to the received ACK and notify it
-                String transactionId = SipTransactionContext.getTransactionContextId(req);
-                notifyTransactionContext(transactionId, req);
-                return;
-            }
-            // Notify event listeners
-            for (SipEventListener listener : mListeners) {
-                listener.receiveSipRequest(req);
-            }
-        } catch (TransactionAlreadyExistsException | TransactionUnavailableException e) {
-            /**
-             * Intentionally consuming this exception as no need to create a new transaction in case
-             * it already exists.
-             */
-            if (sLogger.isActivated()) {
-                sLogger.debug(e.getMessage());
-            }
+        mEventDispatcher.dispatchRequest(getCallId(request), requestEvent,
+                new SipEventDispatcher.RequestHandler() {
+                    @Override
+                    public void handleRequest(Request request, ServerTransaction transaction) {
+                        notifyRequest(request, transaction);
+                    }
+                });
+    }
+
+    /**
+     * Capture a SIP message
+     *
+     * @param direction Direction
+     * @param message SIP message
+     */
+    private void captureMessage(int direction, Message message) {
+        if (WireCapture.isStarted()) {
+            WireCapture.capture(WireCapture.PROTOCOL_SIP, direction, mCaptureId,
+                    message.toString());
+        }
+    }
+
+    private void notifyRequest(Request request, ServerTransaction transaction) {
+        // Create received request with its associated transaction
+        SipRequest req = new SipRequest(request);
+        req.setStackTransaction(transaction);
+        if (Request.ACK.equals(req.getMethod())) {
+            // Search the context associated to the received ACK and notify it
+            String transactionId = SipTransactionContext.getTransactionContextId(req);
+            notifyTransactionContext(transactionId, req);
+            return;
+        }
+        // Notify event listeners
+        for (SipEventListener listener : mListeners) {
+            listener.receiveSipRequest(req);
         }
     }
 
@@ -983,7 +1003,16 @@ public class SipInterface implements SipListener {
      *
      * @param responseEvent Event
      */
-    public void processResponse(ResponseEvent responseEvent) {
+    public void processResponse(final ResponseEvent responseEvent) {
+        mEventDispatcher.dispatch(getCallId(responseEvent.getResponse()), new Runnable() {
+            @Override
+            public void run() {
+                handleResponse(responseEvent);
+            }
+        });
+    }
+
+    private void handleResponse(ResponseEvent responseEvent) {
         Response response = responseEvent.getResponse();
         int responseStatusCode = response.getStatusCode();
         boolean loggerActivated = sLogger.isActivated();
@@ -991,8 +1020,7 @@ public class SipInterface implements SipListener {
             sLogger.debug("<<< Receive SIP " + responseStatusCode + " response");
         }
         if (mSipTraceEnabled) {
-            System.out.println("<<< " + response.toString());
-            System.out.println(TRACE_SEPARATOR);
+            captureMessage(WireCapture.DIRECTION_IN, response);
         }
         // Search transaction
         ClientTransaction transaction = responseEvent.getClientTransaction();
@@ -1023,7 +1051,18 @@ public class SipInterface implements SipListener {
      *
      * @param timeoutEvent Event
      */
-    public void processTimeout(TimeoutEvent timeoutEvent) {
+    public void processTimeout(final TimeoutEvent timeoutEvent) {
+        ClientTransaction transaction = timeoutEvent.getClientTransaction();
+        String callId = transaction != null ? getCallId(transaction.getRequest()) : null;
+        mEventDispatcher.dispatch(callId, new Runnable() {
+            @Override
+            public void run() {
+                handleTimeout(timeoutEvent);
+            }
+        });
+    }
+
+    private void handleTimeout(TimeoutEvent timeoutEvent) {
         boolean loggerActivated = sLogger.isActivated();
         if (loggerActivated) {
             sLogger.debug("Transaction timeout " + timeoutEvent.getTimeout().toString());
@@ -1047,6 +1086,11 @@ public class SipInterface implements SipListener {
         notifyTransactionContext(transactionId, null);
     }
 
+    private static String getCallId(Message message) {
+        CallIdHeader header = (CallIdHeader) message.getHeader(CallIdHeader.NAME);
+        return header != null ? header.getCallId() : null;
+    }
+
     /**
      * Process an asynchronously reported TransactionTerminatedEvent
      *
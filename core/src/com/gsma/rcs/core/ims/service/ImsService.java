@@ -29,12 +29,11 @@ import com.gsma.rcs.core.ims.protocol.PayloadException;
 import com.gsma.rcs.core.ims.protocol.sip.SipRequest;
 import com.gsma.rcs.core.ims.protocol.sip.SipResponse;
 import com.gsma.rcs.core.ims.service.ImsServiceSession.TerminationReason;
+import com.gsma.rcs.core.ims.service.SessionRegistry.Index;
 import com.gsma.rcs.utils.IdGenerator;
 import com.gsma.rcs.utils.logger.Logger;
 
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
 
 /**
  * Abstract IMS service
@@ -82,15 +81,17 @@ public abstract class ImsService {
 
     private ImsModule mImsModule;
 
+    private final SessionRegistry mSessionRegistry = new SessionRegistry();
+
     /**
      * ImsServiceSessionCache with session dialog path's CallId as key
      */
-    private Map<String, ImsServiceSession> mImsServiceSessionCache = new HashMap<>();
+    private final Index<String, ImsServiceSession> mImsServiceSessionCache;
 
     /**
      * ImsServiceSessionWithoutDialogPathCache with session Id as key
      */
-    private Map<String, ImsServiceSession> mImsServiceSessionWithoutDialogPathCache = new HashMap<>();
+    private final Index<String, ImsServiceSession> mImsServiceSessionWithoutDialogPathCache;
 
     private static final Logger sLogger = Logger.getLogger(ImsService.class.getSimpleName());
 
@@ -110,6 +111,9 @@ public abstract class ImsService {
     public ImsService(ImsModule parent, boolean activated) {
         mImsModule = parent;
         mActivated = activated;
+        mImsServiceSessionCache = mSessionRegistry.createIndex("ImsServiceSession");
+        mImsServiceSessionWithoutDialogPathCache = mSessionRegistry
+                .createIndex("ImsServiceSessionWithoutDialogPath");
     }
 
     /**
@@ -140,18 +144,16 @@ public abstract class ImsService {
     }
 
     /*
-     * This method is by choice not synchronized here since the class extending this base-class will
-     * need to handle the synchronization over a larger scope when calling this method anyway and we
-     * would like to avoid double locks.
+     * The class extending this base-class holds the session operation lock when this method is
+     * part of a larger update of its own session indexes.
      */
     protected void addImsServiceSession(ImsServiceSession session) {
         mImsServiceSessionCache.put(session.getDialogPath().getCallId(), session);
     }
 
     /*
-     * This method is by choice not synchronized here since the class extending this base-class will
-     * need to handle the synchronization over a larger scope when calling this method anyway and we
-     * would like to avoid double locks.
+     * The class extending this base-class holds the session operation lock when this method is
+     * part of a larger update of its own session indexes.
      */
     protected void removeImsServiceSession(ImsServiceSession session) {
         mImsServiceSessionCache.remove(session.getDialogPath().getCallId());
@@ -164,31 +166,38 @@ public abstract class ImsService {
      * @return ImsServiceSession
      */
     public ImsServiceSession getImsServiceSession(String callId) {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mImsServiceSessionCache.get(callId);
-        }
+        return mImsServiceSessionCache.get(callId);
     }
 
     /*
-     * This method is by choice not synchronized here since the class extending this base-class will
-     * need to handle the synchronization over a larger scope when calling this method anyway and we
-     * would like to avoid double locks.
+     * The class extending this base-class holds the session operation lock when this method is
+     * part of a larger update of its own session indexes.
      */
     protected void addImsServiceSessionWithoutDialogPath(ImsServiceSession session) {
         mImsServiceSessionWithoutDialogPathCache.put(session.getSessionID(), session);
     }
 
     /*
-     * This method is by choice not synchronized here since the class extending this base-class will
-     * need to handle the synchronization over a larger scope when calling this method anyway and we
-     * would like to avoid double locks.
+     * The class extending this base-class holds the session operation lock when this method is
+     * part of a larger update of its own session indexes.
      */
     protected void removeImsServiceSessionWithoutDialogPath(ImsServiceSession session) {
         mImsServiceSessionWithoutDialogPathCache.remove(session.getSessionID());
     }
 
+    /**
+     * Returns the registry of the sessions of the service: lookups in its indexes do not lock
+     * while updates of several indexes that must be done as a single operation are done while
+     * holding the lock returned by {@link #getImsServiceSessionOperationLock()}
+     * 
+     * @return Session registry
+     */
+    protected SessionRegistry getSessionRegistry() {
+        return mSessionRegistry;
+    }
+
     protected Object getImsServiceSessionOperationLock() {
-        return mImsServiceSessionCache;
+        return mSessionRegistry;
     }
 
     /**
@@ -242,23 +251,22 @@ public abstract class ImsService {
      */
     public void terminateAllSessions(TerminationReason reason) throws PayloadException,
             NetworkException {
-        synchronized (getImsServiceSessionOperationLock()) {
-            /*
-             * Iterate over a copy of the session set to allow removal in the cache map while
-             * iterating.
-             */
-            for (ImsServiceSession session : new HashSet<>(mImsServiceSessionCache.values())) {
-                session.terminateSession(reason);
-            }
+        /*
+         * Iterate over a copy of the session set to allow removal in the cache map while
+         * iterating. The registry is not locked while terminating sessions so that lookups and
+         * updates from other threads are not blocked by the network exchanges.
+         */
+        for (ImsServiceSession session : new HashSet<>(mImsServiceSessionCache.values())) {
+            session.terminateSession(reason);
+        }
 
-            /*
-             * Iterate over a copy of the session set to allow removal in the cache map while
-             * iterating.
-             */
-            for (ImsServiceSession session : new HashSet<>(
-                    mImsServiceSessionWithoutDialogPathCache.values())) {
-                session.terminateSession(reason);
-            }
+        /*
+         * Iterate over a copy of the session set to allow removal in the cache map while
+         * iterating.
+         */
+        for (ImsServiceSession session : new HashSet<>(
+                mImsServiceSessionWithoutDialogPathCache.values())) {
+            session.terminateSession(reason);
         }
     }
 
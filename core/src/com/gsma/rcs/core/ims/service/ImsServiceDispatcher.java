@@ -34,10 +34,10 @@ import com.gsma.rcs.core.ims.service.im.chat.ChatUtils;
 import com.gsma.rcs.core.ims.service.im.chat.standfw.StoreAndForwardManager;
 import com.gsma.rcs.core.ims.service.im.filetransfer.FileTransferUtils;
 import com.gsma.rcs.core.ims.service.im.filetransfer.http.FileTransferHttpInfoDocument;
+import com.gsma.rcs.core.ims.service.SipRequestScheduler.Priority;
 import com.gsma.rcs.core.ims.service.presence.PresenceService;
 import com.gsma.rcs.core.ims.service.terms.TermsConditionsService;
 import com.gsma.rcs.provider.settings.RcsSettings;
-import com.gsma.rcs.utils.FifoBuffer;
 import com.gsma.rcs.utils.IdGenerator;
 import com.gsma.rcs.utils.logger.Logger;
 
@@ -53,18 +53,23 @@ import javax2.sip.message.Request;
 import javax2.sip.message.Response;
 
 /**
- * IMS service dispatcher
+ * IMS service dispatcher<br>
+ * Received requests are processed by a pool of workers with a priority depending on their method
+ * (see {@link SipRequestScheduler}). A request is rejected with a 503 Service Unavailable when too
+ * many requests are already pending on its lane.
  * 
  * @author jexa7410
  */
-public class ImsServiceDispatcher extends Thread {
-
-    private ImsModule mImsModule;
+public class ImsServiceDispatcher {
 
     /**
-     * Buffer of messages
+     * Delay in seconds after which a request rejected because of overload may be retried
      */
-    private FifoBuffer mBuffer = new FifoBuffer();
+    private static final int RETRY_AFTER_OVERLOAD = 5;
+
+    private ImsModule mImsModule;
+
+    private final SipRequestScheduler mScheduler;
 
     private SipIntentManager mIntentMgr = new SipIntentManager();
 
@@ -79,9 +84,20 @@ public class ImsServiceDispatcher extends Thread {
      * @param rcsSettings the RCS settings
      */
     public ImsServiceDispatcher(ImsModule imsModule, RcsSettings rcsSettings) {
-        super("SipDispatcher");
         mImsModule = imsModule;
         mRcsSettings = rcsSettings;
+        mScheduler = new SipRequestScheduler("SipDispatcher",
+                rcsSettings.getImsDispatcherWorkers(), rcsSettings.getImsDispatcherMaxLaneDepth());
+    }
+
+    /**
+     * Start the SIP dispatcher
+     */
+    public void start() {
+        if (sLogger.isActivated()) {
+            sLogger.info("Start background processing");
+        }
+        mScheduler.start();
     }
 
     /**
@@ -91,7 +107,7 @@ public class ImsServiceDispatcher extends Thread {
         if (sLogger.isActivated()) {
             sLogger.info("Terminate the multi-session manager");
         }
-        mBuffer.close();
+        mScheduler.terminate();
         if (sLogger.isActivated()) {
             sLogger.info("Multi-session manager has been terminated");
         }
@@ -102,36 +118,74 @@ public class ImsServiceDispatcher extends Thread {
      * 
      * @param request SIP request
      */
-    public void postSipRequest(SipRequest request) {
-        mBuffer.addObject(request);
+    public void postSipRequest(final SipRequest request) {
+        final long timestamp = System.currentTimeMillis();
+        Priority priority = SipRequestScheduler.getPriority(request.getMethod());
+        if (mScheduler.schedule(priority, request.getCallId(), new Runnable() {
+            @Override
+            public void run() {
+                processSipRequest(request, timestamp);
+            }
+        })) {
+            return;
+        }
+        if (sLogger.isActivated()) {
+            sLogger.debug("Too many pending requests: reject " + request.getMethod() + " request");
+        }
+        try {
+            mImsModule.getSipManager().sendSipResponse(
+                    SipMessageFactory.createServiceUnavailableResponse(request,
+                            RETRY_AFTER_OVERLOAD));
+
+        } catch (PayloadException e) {
+            sLogger.error("Failed to reject received SIP request! CallId=" + request.getCallId(),
+                    e);
+        } catch (NetworkException e) {
+            if (sLogger.isActivated()) {
+                sLogger.debug(e.getMessage());
+            }
+        }
     }
 
     /**
-     * Background processing
+     * Returns the histogram of the time spent by the received requests before being processed
+     * 
+     * @param priority Priority of the requests
+     * @return Number of requests per bucket of {@link SipRequestScheduler#QUEUE_WAIT_BUCKETS}
      */
-    public void run() {
-        if (sLogger.isActivated()) {
-            sLogger.info("Start background processing");
-        }
-        SipRequest request;
-        while ((request = (SipRequest) mBuffer.getObject()) != null) {
-            try {
-                dispatch(request, System.currentTimeMillis());
+    public long[] getQueueWaitHistogram(Priority priority) {
+        return mScheduler.getQueueWaitHistogram(priority);
+    }
 
-            } catch (PayloadException | RuntimeException e) {
-                sLogger.error(
-                        "Failed to dispatch received SIP request! CallId=" + request.getCallId(), e);
-                handleImsDispatchError(request);
+    /**
+     * Returns the number of received requests rejected because of overload
+     * 
+     * @return Number of requests
+     */
+    public int getRejectedCount() {
+        return mScheduler.getRejectedCount();
+    }
 
-            } catch (NetworkException e) {
-                if (sLogger.isActivated()) {
-                    sLogger.debug(e.getMessage());
-                }
-                handleImsDispatchError(request);
+    /**
+     * Process a received SIP request (called from a worker of the scheduler)
+     * 
+     * @param request SIP request
+     * @param timestamp Local timestamp when got SipRequest
+     */
+    private void processSipRequest(SipRequest request, long timestamp) {
+        try {
+            dispatch(request, timestamp);
+
+        } catch (PayloadException | RuntimeException e) {
+            sLogger.error("Failed to dispatch received SIP request! CallId=" + request.getCallId(),
+                    e);
+            handleImsDispatchError(request);
+
+        } catch (NetworkException e) {
+            if (sLogger.isActivated()) {
+                sLogger.debug(e.getMessage());
             }
-        }
-        if (sLogger.isActivated()) {
-            sLogger.info("End of background processing");
+            handleImsDispatchError(request);
         }
     }
 
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the sessions of an IMS service<br>
+ * Sessions are registered in indexes, each index mapping a key (Call-ID, session ID, contact,
+ * chat ID, file transfer ID...) to a session. Lookups do not lock: they can be done from any
+ * thread while sessions are being registered. Updates are serialized on the registry, so that
+ * several updates done while holding the registry monitor are seen as a single operation by the
+ * other writers.
+ */
+public class SessionRegistry {
+
+    /**
+     * Key under which a session registered with a null key is stored
+     */
+    private static final Object NULL_KEY = new Object();
+
+    private final List<Index<?, ?>> mIndexes = new ArrayList<>();
+
+    /**
+     * Create an index of the registry
+     *
+     * @param name Name of the index
+     * @return Index
+     */
+    public synchronized <K, S> Index<K, S> createIndex(String name) {
+        Index<K, S> index = new Index<>(this, name);
+        mIndexes.add(index);
+        return index;
+    }
+
+    /**
+     * Returns the number of registered sessions, counted in each of the indexes
+     *
+     * @return Number of sessions
+     */
+    public synchronized int getSize() {
+        int size = 0;
+        for (Index<?, ?> index : mIndexes) {
+            size += index.size();
+        }
+        return size;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sessions = new StringBuilder();
+        for (Index<?, ?> index : mIndexes) {
+            if (sessions.length() > 0) {
+                sessions.append(", ");
+            }
+            sessions.append(index.mName).append('=').append(index.size());
+        }
+        return sessions.toString();
+    }
+
+    /**
+     * Index of the sessions by key
+     *
+     * @param <K> Type of the key
+     * @param <S> Type of the session
+     */
+    public static class Index<K, S> {
+
+        private final SessionRegistry mRegistry;
+
+        private final String mName;
+
+        private final ConcurrentHashMap<Object, S> mSessions = new ConcurrentHashMap<>();
+
+        private Index(SessionRegistry registry, String name) {
+            mRegistry = registry;
+            mName = name;
+        }
+
+        private static Object toKey(Object key) {
+            return key != null ? key : NULL_KEY;
+        }
+
+        /**
+         * Register a session
+         *
+         * @param key Key
+         * @param session Session
+         * @return Session previously registered with the same key or null
+         */
+        public S put(K key, S session) {
+            synchronized (mRegistry) {
+                return mSessions.put(toKey(key), session);
+            }
+        }
+
+        /**
+         * Unregister a session
+         *
+         * @param key Key
+         * @return Session registered with the key or null
+         */
+        public S remove(K key) {
+            synchronized (mRegistry) {
+                return mSessions.remove(toKey(key));
+            }
+        }
+
+        /**
+         * Returns the session registered with a key
+         *
+         * @param key Key
+         * @return Session or null
+         */
+        public S get(K key) {
+            return mSessions.get(toKey(key));
+        }
+
+        /**
+         * Returns any of the registered sessions
+         *
+         * @return Session or null if there is no session
+         */
+        public S getAny() {
+            Iterator<S> sessions = mSessions.values().iterator();
+            return sessions.hasNext() ? sessions.next() : null;
+        }
+
+        /**
+         * Returns the number of registered sessions
+         *
+         * @return Number of sessions
+         */
+        public int size() {
+            return mSessions.size();
+        }
+
+        /**
+         * Returns the registered sessions: the collection reflects the registrations done while
+         * iterating over it but never throws a ConcurrentModificationException
+         *
+         * @return Sessions
+         */
+        public Collection<S> values() {
+            return Collections.unmodifiableCollection(mSessions.values());
+        }
+    }
+}
@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.service;
+
+import com.gsma.rcs.utils.logger.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import javax2.sip.message.Request;
+
+/**
+ * Scheduler of the SIP requests received by the IMS service dispatcher<br>
+ * Requests are queued on lanes selected from their priority and their Call-ID, and are processed
+ * by a bounded pool of workers: a worker always takes the oldest request of the highest priority
+ * lane that is not already being processed, so that the requests of a dialog are processed in
+ * order while a storm of low priority requests (e.g. capability polling) does not delay session
+ * signalling. A request is refused when its lane already holds the maximum number of pending
+ * requests.
+ */
+public class SipRequestScheduler {
+
+    /**
+     * Priority of a request
+     */
+    public enum Priority {
+        /**
+         * Session signalling (INVITE, BYE, CANCEL, UPDATE)
+         */
+        HIGH,
+        /**
+         * Messaging (MESSAGE)
+         */
+        NORMAL,
+        /**
+         * Capability requests, notifications and other requests
+         */
+        LOW
+    }
+
+    /**
+     * Upper bounds in milliseconds of the queue wait histogram buckets, the last bucket counting
+     * the waits above the last bound
+     */
+    public static final long[] QUEUE_WAIT_BUCKETS = {
+            1, 5, 10, 50, 100, 500, 1000, 5000
+    };
+
+    private static final int LANES_PER_PRIORITY = 16;
+
+    private final Lane[][] mLanes;
+
+    /**
+     * Lanes having pending requests and not being processed, for each priority
+     */
+    private final ArrayDeque<Lane>[] mReadyLanes;
+
+    private final long[][] mQueueWaitHistograms;
+
+    private final Worker[] mWorkers;
+
+    private final int mMaxLaneDepth;
+
+    private int mRejectedCount;
+
+    private boolean mTerminated = false;
+
+    private static final Logger sLogger = Logger.getLogger(SipRequestScheduler.class
+            .getSimpleName());
+
+    /**
+     * Constructor
+     *
+     * @param name Name of the scheduler, used to name the workers
+     * @param workerCount Number of workers
+     * @param maxLaneDepth Maximum number of pending requests of a lane or 0 for no limit
+     */
+    @SuppressWarnings("unchecked")
+    public SipRequestScheduler(String name, int workerCount, int maxLaneDepth) {
+        mMaxLaneDepth = maxLaneDepth;
+        int priorityCount = Priority.values().length;
+        mLanes = new Lane[priorityCount][LANES_PER_PRIORITY];
+        mReadyLanes = new ArrayDeque[priorityCount];
+        mQueueWaitHistograms = new long[priorityCount][QUEUE_WAIT_BUCKETS.length + 1];
+        for (int priority = 0; priority < priorityCount; priority++) {
+            mReadyLanes[priority] = new ArrayDeque<>();
+            for (int i = 0; i < LANES_PER_PRIORITY; i++) {
+                mLanes[priority][i] = new Lane(priority);
+            }
+        }
+        mWorkers = new Worker[Math.max(1, workerCount)];
+        for (int i = 0; i < mWorkers.length; i++) {
+            mWorkers[i] = new Worker(name + "-" + i);
+        }
+    }
+
+    /**
+     * Returns the priority of a request
+     *
+     * @param method Method of the request
+     * @return Priority
+     */
+    public static Priority getPriority(String method) {
+        if (Request.INVITE.equals(method) || Request.BYE.equals(method)
+                || Request.CANCEL.equals(method) || Request.UPDATE.equals(method)) {
+            return Priority.HIGH;
+        }
+        if (Request.MESSAGE.equals(method)) {
+            return Priority.NORMAL;
+        }
+        return Priority.LOW;
+    }
+
+    /**
+     * Start the workers
+     */
+    public void start() {
+        for (Worker worker : mWorkers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Terminate the workers: the requests not yet processed are dropped
+     */
+    public void terminate() {
+        synchronized (this) {
+            mTerminated = true;
+            for (ArrayDeque<Lane> readyLanes : mReadyLanes) {
+                readyLanes.clear();
+            }
+            for (Lane[] lanes : mLanes) {
+                for (Lane lane : lanes) {
+                    lane.mQueue.clear();
+                }
+            }
+            notifyAll();
+        }
+        if (sLogger.isActivated()) {
+            for (Priority priority : Priority.values()) {
+                sLogger.debug("Queue wait histogram of " + priority + " requests: "
+                        + Arrays.toString(getQueueWaitHistogram(priority)));
+            }
+            sLogger.debug("Rejected requests: " + getRejectedCount());
+        }
+    }
+
+    /**
+     * Schedule the processing of a request
+     *
+     * @param priority Priority of the request
+     * @param callId Call-ID of the request
+     * @param task Processing of the request
+     * @return False if the request is refused because its lane is full or the scheduler is
+     *         terminated
+     */
+    public synchronized boolean schedule(Priority priority, String callId, Runnable task) {
+        if (mTerminated) {
+            return false;
+        }
+        int hash = callId != null ? callId.hashCode() : 0;
+        Lane lane = mLanes[priority.ordinal()][(hash & Integer.MAX_VALUE) % LANES_PER_PRIORITY];
+        if (mMaxLaneDepth > 0 && lane.mQueue.size() >= mMaxLaneDepth) {
+            mRejectedCount++;
+            return false;
+        }
+        lane.mQueue.add(new PendingTask(lane, task));
+        if (!lane.mRunning && lane.mQueue.size() == 1) {
+            mReadyLanes[lane.mPriority].add(lane);
+            notify();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of requests waiting to be processed
+     *
+     * @param priority Priority of the requests
+     * @return Number of requests
+     */
+    public synchronized int getQueueDepth(Priority priority) {
+        int depth = 0;
+        for (Lane lane : mLanes[priority.ordinal()]) {
+            depth += lane.mQueue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the histogram of the time spent by requests in the queue before being processed
+     *
+     * @param priority Priority of the requests
+     * @return Number of requests per bucket of {@link #QUEUE_WAIT_BUCKETS}
+     */
+    public synchronized long[] getQueueWaitHistogram(Priority priority) {
+        return mQueueWaitHistograms[priority.ordinal()].clone();
+    }
+
+    /**
+     * Returns the number of requests refused because their lane was full
+     *
+     * @return Number of requests
+     */
+    public synchronized int getRejectedCount() {
+        return mRejectedCount;
+    }
+
+    private synchronized PendingTask takeTask() throws InterruptedException {
+        while (!mTerminated) {
+            for (ArrayDeque<Lane> readyLanes : mReadyLanes) {
+                Lane lane = readyLanes.poll();
+                if (lane != null) {
+                    lane.mRunning = true;
+                    PendingTask task = lane.mQueue.poll();
+                    long wait = System.currentTimeMillis() - task.mTimestamp;
+                    int bucket = 0;
+                    while (bucket < QUEUE_WAIT_BUCKETS.length
+                            && wait >= QUEUE_WAIT_BUCKETS[bucket]) {
+                        bucket++;
+                    }
+                    mQueueWaitHistograms[lane.mPriority][bucket]++;
+                    return task;
+                }
+            }
+            wait();
+        }
+        return null;
+    }
+
+    private synchronized void releaseLane(Lane lane) {
+        lane.mRunning = false;
+        if (!mTerminated && !lane.mQueue.isEmpty()) {
+            /* Give the other lanes of the same priority a chance before the next request */
+            mReadyLanes[lane.mPriority].add(lane);
+            notify();
+        }
+    }
+
+    /**
+     * Request waiting to be processed
+     */
+    private static class PendingTask {
+
+        private final Lane mLane;
+
+        private final Runnable mTask;
+
+        private final long mTimestamp = System.currentTimeMillis();
+
+        private PendingTask(Lane lane, Runnable task) {
+            mLane = lane;
+            mTask = task;
+        }
+    }
+
+    /**
+     * Lane holding the requests of a subset of the Call-IDs for a priority
+     */
+    private static class Lane {
+
+        private final ArrayDeque<PendingTask> mQueue = new ArrayDeque<>();
+
+        private final int mPriority;
+
+        private boolean mRunning = false;
+
+        private Lane(int priority) {
+            mPriority = priority;
+        }
+    }
+
+    /**
+     * Worker processing the requests of the ready lanes
+     */
+    private class Worker extends Thread {
+
+        private Worker(String name) {
+            super(name);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                PendingTask task;
+                try {
+                    task = takeTask();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (task == null) {
+                    return;
+                }
+                try {
+                    task.mTask.run();
+
+                } catch (RuntimeException e) {
+                    /*
+                     * Intentionally catch runtime exceptions as else it will abruptly end the
+                     * worker and reduce the pool for all the other requests.
+                     */
+                    sLogger.error("Failed to process SIP request!", e);
+                }
+                releaseLane(task.mLane);
+            }
+        }
+    }
+}
@@ -52,7 +52,8 @@ import java.io.ByteArrayInputStream;
  * 
  * @author Jean-Marc AUFFRET
  */
-public class AnonymousFetchManager implements DiscoveryManager {
+public class AnonymousFetchManager implements DiscoveryManager,
+        CapabilityRequestPipeline.IRequestSender {
     /**
      * IMS module
      */
@@ -99,6 +100,23 @@ public class AnonymousFetchManager implements DiscoveryManager {
         task.start();
     }
 
+    @Override
+    public void sendRequest(ContactId contact, CapabilityRequestPipeline.IRequestListener listener) {
+        try {
+            requestCapabilities(contact);
+
+        } catch (ContactManagerException | PayloadException e) {
+            logger.error("Anonymous fetch request failed for contact : " + contact, e);
+
+        } catch (NetworkException e) {
+            if (logger.isActivated()) {
+                logger.debug(e.getMessage());
+            }
+        } finally {
+            listener.onRequestCompleted(contact);
+        }
+    }
+
     /**
      * Receive a notification
      * 
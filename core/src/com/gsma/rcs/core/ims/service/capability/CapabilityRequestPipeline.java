@@ -0,0 +1,351 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.service.capability;
+
+import com.gsma.rcs.utils.logger.Logger;
+import com.gsma.services.rcs.contact.ContactId;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Pipeline of the capability requests sent to refresh the capabilities of several contacts<br>
+ * Requests are sent starting with the contacts whose capabilities are the most stale, at a rate
+ * limited by a token bucket so that refreshing a large address book does not flood the network.
+ * Unthrottled requests, e.g. requested by an application, are sent first without waiting for a
+ * token. A request for a contact which is already queued or in progress is coalesced with it.
+ */
+public class CapabilityRequestPipeline {
+
+    /**
+     * Sender of the capability requests
+     */
+    public interface IRequestSender {
+        /**
+         * Send a capability request: the listener must be notified once the request is
+         * completed, whether it succeeded or not
+         *
+         * @param contact Contact
+         * @param listener Listener
+         */
+        void sendRequest(ContactId contact, IRequestListener listener);
+    }
+
+    /**
+     * Listener of the completion of a capability request
+     */
+    public interface IRequestListener {
+        /**
+         * Notify the completion of the capability request of a contact
+         *
+         * @param contact Contact
+         */
+        void onRequestCompleted(ContactId contact);
+    }
+
+    private final PriorityQueue<PendingRequest> mQueue = new PriorityQueue<>();
+
+    /**
+     * Contacts whose request is queued or in progress
+     */
+    private final Set<ContactId> mContacts = new HashSet<>();
+
+    /**
+     * Queued requests by contact
+     */
+    private final Map<ContactId, PendingRequest> mQueuedRequests = new HashMap<>();
+
+    private final String mName;
+
+    private final double mTokensPerMillisecond;
+
+    private final int mBurst;
+
+    private double mTokens;
+
+    private long mLastRefill;
+
+    private long mSequence;
+
+    private long mSubmittedCount;
+
+    private long mCoalescedCount;
+
+    private long mSentCount;
+
+    private long mStartTime;
+
+    private Thread mDispatcher;
+
+    private final IRequestListener mListener = new IRequestListener() {
+        @Override
+        public void onRequestCompleted(ContactId contact) {
+            synchronized (CapabilityRequestPipeline.this) {
+                mContacts.remove(contact);
+            }
+        }
+    };
+
+    private static final Logger sLogger = Logger.getLogger(CapabilityRequestPipeline.class
+            .getName());
+
+    /**
+     * Constructor
+     *
+     * @param name Name of the pipeline, used to name its dispatcher thread
+     * @param requestsPerSecond Maximum number of requests sent per second
+     * @param burst Maximum number of requests sent at once after an idle period
+     */
+    public CapabilityRequestPipeline(String name, int requestsPerSecond, int burst) {
+        mName = name;
+        mTokensPerMillisecond = Math.max(1, requestsPerSecond) / 1000d;
+        mBurst = Math.max(1, burst);
+    }
+
+    /**
+     * Start sending the queued requests
+     */
+    public synchronized void start() {
+        if (mDispatcher != null) {
+            return;
+        }
+        mStartTime = System.currentTimeMillis();
+        mLastRefill = mStartTime;
+        mTokens = mBurst;
+        mDispatcher = new Thread(mName) {
+            @Override
+            public void run() {
+                dispatch(this);
+            }
+        };
+        mDispatcher.start();
+    }
+
+    /**
+     * Stop sending requests: the queued requests are dropped
+     */
+    public void stop() {
+        synchronized (this) {
+            if (mDispatcher == null) {
+                return;
+            }
+            mDispatcher = null;
+            mQueue.clear();
+            mQueuedRequests.clear();
+            mContacts.clear();
+            notifyAll();
+        }
+        if (sLogger.isActivated()) {
+            sLogger.debug(new StringBuilder("Capability requests: sent=").append(getSentCount())
+                    .append(", rate=").append(getRequestRate()).append("/s, dedup ratio=")
+                    .append(getDedupRatio()).toString());
+        }
+    }
+
+    /**
+     * Queue a capability request sent at the limited rate
+     *
+     * @param contact Contact
+     * @param timestampOfLastResponse Timestamp of the last capability response of the contact,
+     *            requests being sent by increasing timestamp
+     * @param sender Sender of the request
+     * @return False if the request is coalesced with a request already queued or in progress for
+     *         the same contact
+     */
+    public boolean submit(ContactId contact, long timestampOfLastResponse, IRequestSender sender) {
+        return submit(contact, timestampOfLastResponse, sender, true);
+    }
+
+    /**
+     * Queue a capability request
+     *
+     * @param contact Contact
+     * @param timestampOfLastResponse Timestamp of the last capability response of the contact,
+     *            requests being sent by increasing timestamp
+     * @param sender Sender of the request
+     * @param throttled False if the request is sent before the throttled ones without waiting for
+     *            a token
+     * @return False if the request is coalesced with a request already queued or in progress for
+     *         the same contact
+     */
+    public synchronized boolean submit(ContactId contact, long timestampOfLastResponse,
+            IRequestSender sender, boolean throttled) {
+        mSubmittedCount++;
+        if (!mContacts.add(contact)) {
+            mCoalescedCount++;
+            PendingRequest queuedRequest = mQueuedRequests.get(contact);
+            if (!throttled && queuedRequest != null && queuedRequest.mThrottled) {
+                /* The queued request is no longer throttled */
+                mQueue.remove(queuedRequest);
+                queue(new PendingRequest(contact, queuedRequest.mTimestampOfLastResponse,
+                        queuedRequest.mSequence, queuedRequest.mSender, false));
+            }
+            return false;
+        }
+        queue(new PendingRequest(contact, timestampOfLastResponse, mSequence++, sender,
+                throttled));
+        return true;
+    }
+
+    private void queue(PendingRequest request) {
+        mQueue.add(request);
+        mQueuedRequests.put(request.mContact, request);
+        notifyAll();
+    }
+
+    /**
+     * Returns the number of requests waiting to be sent
+     *
+     * @return Number of requests
+     */
+    public synchronized int getQueueLength() {
+        return mQueue.size();
+    }
+
+    /**
+     * Returns the number of sent requests
+     *
+     * @return Number of requests
+     */
+    public synchronized long getSentCount() {
+        return mSentCount;
+    }
+
+    /**
+     * Returns the average number of requests sent per second since the pipeline was started
+     *
+     * @return Number of requests per second
+     */
+    public synchronized double getRequestRate() {
+        long duration = System.currentTimeMillis() - mStartTime;
+        return duration > 0 ? mSentCount * 1000d / duration : 0;
+    }
+
+    /**
+     * Returns the ratio of submitted requests coalesced with a request already queued or in
+     * progress for the same contact
+     *
+     * @return Ratio between 0 and 1
+     */
+    public synchronized double getDedupRatio() {
+        return mSubmittedCount > 0 ? (double) mCoalescedCount / mSubmittedCount : 0;
+    }
+
+    /**
+     * Take the next request to send, waiting for a request to be queued and for a token
+     *
+     * @param dispatcher Dispatcher thread
+     * @return Request or null if the pipeline is stopped
+     * @throws InterruptedException
+     */
+    private synchronized PendingRequest takeRequest(Thread dispatcher)
+            throws InterruptedException {
+        while (mDispatcher == dispatcher) {
+            if (mQueue.isEmpty()) {
+                wait();
+                continue;
+            }
+            if (!mQueue.peek().mThrottled) {
+                mSentCount++;
+                return dequeue();
+            }
+            long now = System.currentTimeMillis();
+            mTokens = Math.min(mBurst, mTokens + (now - mLastRefill) * mTokensPerMillisecond);
+            mLastRefill = now;
+            if (mTokens < 1) {
+                wait((long) Math.ceil((1 - mTokens) / mTokensPerMillisecond));
+                continue;
+            }
+            mTokens--;
+            mSentCount++;
+            return dequeue();
+        }
+        return null;
+    }
+
+    private PendingRequest dequeue() {
+        PendingRequest request = mQueue.poll();
+        mQueuedRequests.remove(request.mContact);
+        return request;
+    }
+
+    private void dispatch(Thread dispatcher) {
+        while (true) {
+            PendingRequest request;
+            try {
+                request = takeRequest(dispatcher);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (request == null) {
+                return;
+            }
+            try {
+                request.mSender.sendRequest(request.mContact, mListener);
+
+            } catch (RuntimeException e) {
+                /*
+                 * Intentionally catch runtime exceptions as else it will abruptly end the
+                 * dispatcher and no more capability request would be sent.
+                 */
+                sLogger.error("Failed to send capability request for " + request.mContact, e);
+                mListener.onRequestCompleted(request.mContact);
+            }
+        }
+    }
+
+    /**
+     * Request waiting to be sent
+     */
+    private static class PendingRequest implements Comparable<PendingRequest> {
+
+        private final ContactId mContact;
+
+        private final long mTimestampOfLastResponse;
+
+        private final long mSequence;
+
+        private final IRequestSender mSender;
+
+        private final boolean mThrottled;
+
+        private PendingRequest(ContactId contact, long timestampOfLastResponse, long sequence,
+                IRequestSender sender, boolean throttled) {
+            mContact = contact;
+            mTimestampOfLastResponse = timestampOfLastResponse;
+            mSequence = sequence;
+            mSender = sender;
+            mThrottled = throttled;
+        }
+
+        @Override
+        public int compareTo(PendingRequest another) {
+            if (mThrottled != another.mThrottled) {
+                return mThrottled ? 1 : -1;
+            }
+            if (mTimestampOfLastResponse != another.mTimestampOfLastResponse) {
+                return mTimestampOfLastResponse < another.mTimestampOfLastResponse ? -1 : 1;
+            }
+            return mSequence < another.mSequence ? -1 : (mSequence == another.mSequence ? 0 : 1);
+        }
+    }
+}
@@ -57,6 +57,8 @@ public class CapabilityService extends ImsService implements AddressBookEventLis
 
     private static final String CAPABILITIES_OPERATION_THREAD_NAME = "CapabiltiesOps";
 
+    private static final String CAPABILITY_REQUEST_THREAD_NAME = "CapabilityRequests";
+
     private final RcsSettings mRcsSettings;
 
     private final ContactManager mContactManager;
@@ -67,6 +69,8 @@ public class CapabilityService extends ImsService implements AddressBookEventLis
 
     private PollingManager mPollingManager;
 
+    private final CapabilityRequestPipeline mRequestPipeline;
+
     private ExecutorService mSyncExecutor;
 
     private final AddressBookManager mAddressBookManager;
@@ -116,8 +120,12 @@ public class CapabilityService extends ImsService implements AddressBookEventLis
             }
         };
 
+        int requestRate = mRcsSettings.getCapabilityRequestRate();
+        mRequestPipeline = new CapabilityRequestPipeline(CAPABILITY_REQUEST_THREAD_NAME,
+                requestRate, requestRate);
         mPollingManager = new PollingManager(this, mRcsSettings, mContactManager);
-        mOptionsManager = new OptionsManager(parent, mRcsSettings, mContactManager);
+        mOptionsManager = new OptionsManager(parent, mRcsSettings, mContactManager,
+                mRequestPipeline);
         mAnonymousFetchManager = new AnonymousFetchManager(parent, mRcsSettings, mContactManager);
     }
 
@@ -146,6 +154,7 @@ public class CapabilityService extends ImsService implements AddressBookEventLis
         }
         setServiceStarted(true);
         mOptionsManager.start();
+        mRequestPipeline.start();
 
         /* Force a first capability check */
         mSyncExecutor = Executors.newSingleThreadExecutor();
@@ -169,6 +178,7 @@ public class CapabilityService extends ImsService implements AddressBookEventLis
         mPollingManager.stop();
         /* Stop listening to address book changes */
         mAddressBookManager.removeAddressBookListener(this);
+        mRequestPipeline.stop();
         mOptionsManager.stop();
 
         if (ImsServiceSession.TerminationReason.TERMINATION_BY_SYSTEM == reasonCode) {
@@ -204,6 +214,15 @@ public class CapabilityService extends ImsService implements AddressBookEventLis
         return mAnonymousFetchManager;
     }
 
+    /**
+     * Returns the pipeline of the capability requests for several contacts
+     * 
+     * @return Capability request pipeline
+     */
+    public CapabilityRequestPipeline getRequestPipeline() {
+        return mRequestPipeline;
+    }
+
     /**
      * Request contact capabilities
      * 
@@ -45,13 +45,15 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Capability discovery manager using options procedure
  * 
  * @author jexa7410
  */
-public class OptionsManager implements DiscoveryManager {
+public class OptionsManager implements DiscoveryManager,
+        CapabilityRequestPipeline.IRequestSender {
     /**
      * Max number of threads for background processing
      */
@@ -68,6 +70,8 @@ public class OptionsManager implements DiscoveryManager {
 
     private final ContactManager mContactManager;
 
+    private final CapabilityRequestPipeline mRequestPipeline;
+
     private final static Logger sLogger = Logger.getLogger(OptionsManager.class.getSimpleName());
 
     /**
@@ -76,11 +80,14 @@ public class OptionsManager implements DiscoveryManager {
      * @param parent IMS module
      * @param rcsSettings RCS settings accessor
      * @param contactManager Contact manager accessor
+     * @param requestPipeline Pipeline of the capability requests for several contacts
      */
-    public OptionsManager(ImsModule parent, RcsSettings rcsSettings, ContactManager contactManager) {
+    public OptionsManager(ImsModule parent, RcsSettings rcsSettings,
+            ContactManager contactManager, CapabilityRequestPipeline requestPipeline) {
         mImsModule = parent;
         mRcsSettings = rcsSettings;
         mContactManager = contactManager;
+        mRequestPipeline = requestPipeline;
     }
 
     /**
@@ -112,14 +119,19 @@ public class OptionsManager implements DiscoveryManager {
         OptionsRequestTask task = new OptionsRequestTask(mImsModule, contact,
                 CapabilityUtils.getSupportedFeatureTags(richcall, mRcsSettings), mRcsSettings,
                 mContactManager, listener);
-        if (mThreadPool.isShutdown()) {
+        try {
+            mThreadPool.submit(task);
+
+        } catch (RejectedExecutionException e) {
             if (sLogger.isActivated()) {
                 sLogger.warn("Request capabilities in background for " + contact
                         + " rejected: manager is stopped!");
             }
-            return;
+            /* The request is completed, else a pipelined contact would never be requested again */
+            if (listener != null) {
+                listener.endOfOptionsRequestTask(contact);
+            }
         }
-        mThreadPool.submit(task);
     }
 
     /**
@@ -128,7 +140,7 @@ public class OptionsManager implements DiscoveryManager {
      * @param timestampOfLastRequest timestamp of last capability request in milliseconds
      * @return true if capability request is authorized
      */
-    private boolean isCapabilityRefreshAuthorized(long timestampOfLastRequest) {
+    /* package private */boolean isCapabilityRefreshAuthorized(long timestampOfLastRequest) {
         long currentTime = System.currentTimeMillis();
         /*
          * Is current time before last capability request ? (may occur if current time has been
@@ -172,14 +184,58 @@ public class OptionsManager implements DiscoveryManager {
     }
 
     /**
-     * Request capabilities for a set of contacts
+     * Request capabilities for a set of contacts: the requests are queued on the capability
+     * request pipeline, without being throttled as they are requested by an application
      * 
      * @param contacts Contact set
      */
     public void requestCapabilities(Set<ContactId> contacts) {
+        Set<ContactId> requestedContacts = new HashSet<>();
         for (ContactId contact : contacts) {
-            requestCapabilities(contact);
+            if (queueCapabilityRequest(contact, mContactManager.getContactCapabilities(contact),
+                    false)) {
+                requestedContacts.add(contact);
+            }
         }
+        mContactManager.updateCapabilitiesTimeLastRequest(requestedContacts);
+    }
+
+    /**
+     * Queue a capability request on the capability request pipeline if the refresh of the
+     * capabilities is authorized. The caller is responsible for updating the time of last
+     * capabilities request of the queued contacts.
+     * 
+     * @param contact Remote contact identifier
+     * @param capabilities Current capabilities of the contact or null
+     * @param throttled True if the request is sent at the limited rate of the pipeline
+     * @return True if the request is queued
+     */
+    /* package private */boolean queueCapabilityRequest(ContactId contact,
+            Capabilities capabilities, boolean throttled) {
+        if (contact == null || contact.equals(ImsModule.getImsUserProfile().getUsername())) {
+            return false;
+        }
+        if (capabilities == null) {
+            return mRequestPipeline.submit(contact, Capabilities.INVALID_TIMESTAMP, this,
+                    throttled);
+        }
+        if (!isCapabilityRefreshAuthorized(capabilities.getTimestampOfLastRequest())) {
+            return false;
+        }
+        return mRequestPipeline.submit(contact, capabilities.getTimestampOfLastResponse(), this,
+                throttled);
+    }
+
+    @Override
+    public void sendRequest(ContactId contact,
+            final CapabilityRequestPipeline.IRequestListener listener) {
+        requestCapabilitiesInBackground(contact, new IOptionsRequestTaskListener() {
+
+            @Override
+            public void endOfOptionsRequestTask(ContactId contact) {
+                listener.onRequestCompleted(contact);
+            }
+        });
     }
 
     /**
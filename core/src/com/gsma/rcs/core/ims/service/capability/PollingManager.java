@@ -31,6 +31,8 @@ import com.gsma.rcs.utils.PeriodicRefresher;
 import com.gsma.rcs.utils.logger.Logger;
 import com.gsma.services.rcs.contact.ContactId;
 
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -100,10 +102,25 @@ public class PollingManager extends PeriodicRefresher {
             sLogger.info("Execute new capabilities update");
         }
 
-        // Update all contacts capabilities if refresh timeout has not expired
-        Set<ContactId> contacts = mContatManager.getAllContactsFromRcsContactProvider();
-        for (ContactId contact : contacts) {
-            requestContactCapabilities(contact);
+        /*
+         * Queue the requests of the contacts whose capabilities have expired on the capability
+         * request pipeline, most stale capabilities first
+         */
+        Map<ContactId, Capabilities> allCapabilities = mContatManager
+                .getAllCapabilityTimestampsFromRcsContactProvider();
+        Set<ContactId> optionsRequestedContacts = new HashSet<>();
+        for (Map.Entry<ContactId, Capabilities> entry : allCapabilities.entrySet()) {
+            if (requestContactCapabilities(entry.getKey(), entry.getValue())) {
+                optionsRequestedContacts.add(entry.getKey());
+            }
+        }
+        mContatManager.updateCapabilitiesTimeLastRequest(optionsRequestedContacts);
+        if (sLogger.isActivated()) {
+            CapabilityRequestPipeline pipeline = mImsService.getRequestPipeline();
+            sLogger.info(new StringBuilder("Capability requests queued: ")
+                    .append(pipeline.getQueueLength()).append(", rate=")
+                    .append(pipeline.getRequestRate()).append("/s, dedup ratio=")
+                    .append(pipeline.getDedupRatio()).toString());
         }
 
         // Restart timer
@@ -114,44 +131,32 @@ public class PollingManager extends PeriodicRefresher {
      * Request contact capabilities
      * 
      * @param contact Contact identifier
-     * @throws NetworkException
-     * @throws PayloadException
-     * @throws ContactManagerException
+     * @param capabilities Capabilities holding the timestamps of last request and response
+     * @return True if an OPTIONS request is queued
      */
-    private void requestContactCapabilities(ContactId contact) throws PayloadException,
-            NetworkException, ContactManagerException {
-        // Read capabilities from the database
-        Capabilities capabilities = mContatManager.getContactCapabilities(contact);
+    private boolean requestContactCapabilities(ContactId contact, Capabilities capabilities) {
         boolean locActivated = sLogger.isActivated();
-        if (capabilities == null) {
+        if (!isCapabilityRefreshRequired(capabilities.getTimestampOfLastResponse(), mRcsSettings)) {
             if (locActivated) {
-                sLogger.debug("No capability exist for ".concat(contact.toString()));
+                sLogger.debug("Capabilities exist for ".concat(contact.toString()));
             }
-
-            // New contact: request capabilities from the network
-            mImsService.getOptionsManager().requestCapabilities(contact);
-            return;
-
+            return false;
+        }
+        if (locActivated) {
+            sLogger.debug("Capabilities have expired for ".concat(contact.toString()));
         }
-        if (isCapabilityRefreshRequired(capabilities.getTimestampOfLastResponse(), mRcsSettings)) {
-            if (locActivated) {
-                sLogger.debug("Capabilities have expired for ".concat(contact.toString()));
-            }
 
-            // Capabilities are too old: request capabilities from the network
-            if (capabilities.isPresenceDiscoverySupported()) {
-                // If contact supports capability discovery via presence, use the selected
-                // discoveryManager
-                mImsService.getAnonymousFetchManager().requestCapabilities(contact);
-            } else {
-                // The contact only supports OPTIONS requests
-                mImsService.getOptionsManager().requestCapabilities(contact);
-            }
-        } else {
-            if (locActivated) {
-                sLogger.debug("Capabilities exist for ".concat(contact.toString()));
-            }
+        // Capabilities are too old: request capabilities from the network
+        if (capabilities.isPresenceDiscoverySupported()) {
+            // If contact supports capability discovery via presence, use the selected
+            // discoveryManager
+            mImsService.getRequestPipeline().submit(contact,
+                    capabilities.getTimestampOfLastResponse(),
+                    mImsService.getAnonymousFetchManager());
+            return false;
         }
+        // The contact only supports OPTIONS requests
+        return mImsService.getOptionsManager().queueCapabilityRequest(contact, capabilities, true);
     }
 
     /**
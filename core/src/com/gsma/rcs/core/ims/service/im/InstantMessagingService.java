@@ -42,6 +42,7 @@ import com.gsma.rcs.core.ims.service.ContactInfo.RegistrationState;
 import com.gsma.rcs.core.ims.service.ImsService;
 import com.gsma.rcs.core.ims.service.ImsServiceSession;
 import com.gsma.rcs.core.ims.service.ImsServiceSession.InvitationStatus;
+import com.gsma.rcs.core.ims.service.SessionRegistry.Index;
 import com.gsma.rcs.core.ims.service.capability.Capabilities;
 import com.gsma.rcs.core.ims.service.capability.Capabilities.CapabilitiesBuilder;
 import com.gsma.rcs.core.ims.service.im.chat.ChatMessage;
@@ -89,6 +90,8 @@ import com.gsma.rcs.provider.messaging.FileTransferDequeueTask;
 import com.gsma.rcs.provider.messaging.GroupChatDeleteTask;
 import com.gsma.rcs.provider.messaging.GroupChatMessageDeleteTask;
 import com.gsma.rcs.provider.messaging.GroupFileTransferDeleteTask;
+import com.gsma.rcs.provider.messaging.MessageStateBatcher;
+import com.gsma.rcs.provider.messaging.MessageStateBatcher.IMessageStateListener;
 import com.gsma.rcs.provider.messaging.MessagingLog;
 import com.gsma.rcs.provider.messaging.OneToOneChatMessageDeleteTask;
 import com.gsma.rcs.provider.messaging.OneToOneChatMessageDequeueTask;
@@ -107,10 +110,12 @@ import com.gsma.rcs.utils.ContactUtil;
 import com.gsma.rcs.utils.ContactUtil.PhoneNumber;
 import com.gsma.rcs.utils.IdGenerator;
 import com.gsma.rcs.utils.logger.Logger;
+import com.gsma.services.rcs.chat.ChatLog.Message.Content.Status;
 import com.gsma.services.rcs.chat.GroupChat;
 import com.gsma.services.rcs.chat.GroupChat.ParticipantStatus;
 import com.gsma.services.rcs.contact.ContactId;
 import com.gsma.services.rcs.filetransfer.FileTransfer;
+import com.gsma.services.rcs.groupdelivery.GroupDeliveryInfo;
 
 import android.content.Context;
 import android.net.Uri;
@@ -120,10 +125,10 @@ import android.os.HandlerThread;
 
 import org.xml.sax.SAXException;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax2.sip.header.ContactHeader;
@@ -153,42 +158,48 @@ public class InstantMessagingService extends ImsService {
     /**
      * OneToOneChatSessionCache with ContactId as key
      */
-    private Map<ContactId, OneToOneChatSession> mOneToOneChatSessionCache = new HashMap<>();
+    private final Index<ContactId, OneToOneChatSession> mOneToOneChatSessionCache = getSessionRegistry()
+            .createIndex("OneToOneChatSession");
 
     /**
      * StoreAndForwardMsgSessionCache with ContactId as key
      */
-    private Map<ContactId, TerminatingStoreAndForwardOneToOneChatMessageSession> mStoreAndForwardMsgSessionCache = new HashMap<>();
+    private final Index<ContactId, TerminatingStoreAndForwardOneToOneChatMessageSession> mStoreAndForwardMsgSessionCache = getSessionRegistry()
+            .createIndex("StoreAndForwardMsgSession");
 
     /**
      * GroupChatSessionCache with ChatId as key
      */
-    private Map<String, GroupChatSession> mGroupChatSessionCache = new HashMap<>();
+    private final Index<String, GroupChatSession> mGroupChatSessionCache = getSessionRegistry()
+            .createIndex("GroupChatSession");
 
     /**
      * FileSharingSessionCache with FileTransferId as key
      */
-    private Map<String, FileSharingSession> mFileTransferSessionCache = new HashMap<>();
+    private final Index<String, FileSharingSession> mFileTransferSessionCache = getSessionRegistry()
+            .createIndex("FileSharingSession");
 
     /**
      * FileUploadSessionCache with UploadId as key
      */
-    private Map<String, FileUploadSession> mFileUploadSessionCache = new HashMap<>();
+    private final Index<String, FileUploadSession> mFileUploadSessionCache = getSessionRegistry()
+            .createIndex("FileUploadSession");
 
     /**
      * GroupChatConferenceSubscriberCache with Conference subscriber's dialog path CallId as key
      */
-    private Map<String, GroupChatSession> mGroupChatConferenceSubscriberCache = new HashMap<>();
+    private final Index<String, GroupChatSession> mGroupChatConferenceSubscriberCache = getSessionRegistry()
+            .createIndex("GroupChatConferenceSubscriber");
 
     /**
      * Group Chat composing status to notify upon MSRP session restart
      */
-    private final Map<String, Boolean> mGroupChatComposingStatusToNotify = new HashMap<>();
+    private final Map<String, Boolean> mGroupChatComposingStatusToNotify = new ConcurrentHashMap<>();
 
     /**
      * One-to-One Chat composing status to notify upon MSRP session restart
      */
-    private final Map<ContactId, Boolean> mOneToOneChatComposingStatusToNotify = new HashMap<>();
+    private final Map<ContactId, Boolean> mOneToOneChatComposingStatusToNotify = new ConcurrentHashMap<>();
 
     /**
      * Chat features tags
@@ -214,6 +225,8 @@ public class InstantMessagingService extends ImsService {
 
     private final DeliveryExpirationManager mDeliveryExpirationManager;
 
+    private final MessageStateBatcher mMessageStateBatcher;
+
     private static final Logger sLogger = Logger.getLogger(InstantMessagingService.class.getName());
 
     private static final String sSizeExceededMsg = "133 Size exceeded";
@@ -254,6 +267,21 @@ public class InstantMessagingService extends ImsService {
                 mMessagingLog);
         mImdnManager = new ImdnManager(this, mRcsSettings, mMessagingLog);
         mDeliveryExpirationManager = new DeliveryExpirationManager(this, ctx, mMessagingLog);
+        mMessageStateBatcher = new MessageStateBatcher(mMessagingLog,
+                new IMessageStateListener() {
+                    @Override
+                    public void onOneToOneMessageStatusChanged(ContactId contact, String msgId,
+                            Status status) {
+                        mChatService.onOneToOneMessageStatusChanged(contact, msgId, status);
+                    }
+
+                    @Override
+                    public void onGroupChatMessageStatusChanged(String chatId, String msgId,
+                            Map<ContactId, GroupDeliveryInfo.Status> deliveryInfos, Status status) {
+                        mChatService.getOrCreateGroupChat(chatId).onMessageStatusChanged(msgId,
+                                deliveryInfos, status);
+                    }
+                }, mRcsSettings.getMessageStateBatchWindow());
     }
 
     private Handler allocateBgHandler(String threadName) {
@@ -314,6 +342,7 @@ public class InstantMessagingService extends ImsService {
             return;
         }
         setServiceStarted(true);
+        mMessageStateBatcher.start();
         /* Try to auto-rejoin group chats that are still marked as active. */
         mImOperationHandler.post(new GroupChatAutoRejoinTask(this, mMessagingLog));
         /* Try to start auto resuming of HTTP file transfers marked as PAUSED_BY_SYSTEM */
@@ -344,6 +373,8 @@ public class InstantMessagingService extends ImsService {
 
         mImdnManager.terminate();
         mImdnManager.interrupt();
+        /* Persist the received delivery reports still queued and end the batch thread */
+        mMessageStateBatcher.stop();
 
         if (ImsServiceSession.TerminationReason.TERMINATION_BY_SYSTEM == reasonCode) {
             mImOperationHandler.getLooper().quit();
@@ -375,6 +406,20 @@ public class InstantMessagingService extends ImsService {
         return mStoreAndFwdMgr;
     }
 
+    /**
+     * Get the messaging log
+     */
+    public MessagingLog getMessagingLog() {
+        return mMessagingLog;
+    }
+
+    /**
+     * Get the batcher of the message states updated by received delivery reports
+     */
+    public MessageStateBatcher getMessageStateBatcher() {
+        return mMessageStateBatcher;
+    }
+
     /**
      * Get the delivery expiration manager
      */
@@ -405,9 +450,7 @@ public class InstantMessagingService extends ImsService {
     }
 
     public OneToOneChatSession getOneToOneChatSession(ContactId contact) {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mOneToOneChatSessionCache.get(contact);
-        }
+        return mOneToOneChatSessionCache.get(contact);
     }
 
     public void addSession(TerminatingStoreAndForwardOneToOneChatMessageSession session) {
@@ -434,9 +477,7 @@ public class InstantMessagingService extends ImsService {
 
     public TerminatingStoreAndForwardOneToOneChatMessageSession getStoreAndForwardMsgSession(
             ContactId contact) {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mStoreAndForwardMsgSessionCache.get(contact);
-        }
+        return mStoreAndForwardMsgSessionCache.get(contact);
     }
 
     public void addSession(TerminatingStoreAndForwardOneToOneChatNotificationSession session) {
@@ -444,9 +485,7 @@ public class InstantMessagingService extends ImsService {
         if (sLogger.isActivated()) {
             sLogger.debug("Add StoreAndForwardNotifSessionCache with contact '" + contact + "'");
         }
-        synchronized (getImsServiceSessionOperationLock()) {
-            addImsServiceSession(session);
-        }
+        addImsServiceSession(session);
     }
 
     public void removeSession(
@@ -455,9 +494,7 @@ public class InstantMessagingService extends ImsService {
         if (sLogger.isActivated()) {
             sLogger.debug("Remove StoreAndForwardNotifSessionCache with contact '" + contact + "'");
         }
-        synchronized (getImsServiceSessionOperationLock()) {
-            removeImsServiceSession(session);
-        }
+        removeImsServiceSession(session);
     }
 
     public void addSession(GroupChatSession session) {
@@ -489,45 +526,34 @@ public class InstantMessagingService extends ImsService {
     }
 
     public GroupChatSession getGroupChatSession(String chatId) {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mGroupChatSessionCache.get(chatId);
-        }
+        return mGroupChatSessionCache.get(chatId);
     }
 
     public void addGroupChatConferenceSubscriber(String callId, GroupChatSession session) {
         if (sLogger.isActivated()) {
             sLogger.debug("Add GroupChatConferenceSubscriber with callId '" + callId + "'");
         }
-        synchronized (getImsServiceSessionOperationLock()) {
-            mGroupChatConferenceSubscriberCache.put(callId, session);
-        }
+        mGroupChatConferenceSubscriberCache.put(callId, session);
     }
 
     public void removeGroupChatConferenceSubscriber(final String callId) {
         if (sLogger.isActivated()) {
             sLogger.debug("Remove GroupChatConferenceSubscriber with callId '" + callId + "'");
         }
-        synchronized (getImsServiceSessionOperationLock()) {
-            mGroupChatConferenceSubscriberCache.remove(callId);
-        }
+        mGroupChatConferenceSubscriberCache.remove(callId);
     }
 
     public GroupChatSession getGroupChatSessionOfConferenceSubscriber(String callId) {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mGroupChatConferenceSubscriberCache.get(callId);
-        }
+        return mGroupChatConferenceSubscriberCache.get(callId);
     }
 
     public boolean isChatSessionAvailable() {
-        synchronized (getImsServiceSessionOperationLock()) {
-            /*
-             * maxChatSessions == 0 means that the allowed number of chat sessions in use is
-             * disabled
-             */
-            int maxChatSessions = mRcsSettings.getMaxChatSessions();
-            return maxChatSessions == 0
-                    || mOneToOneChatSessionCache.size() + mGroupChatSessionCache.size() < maxChatSessions;
-        }
+        /*
+         * maxChatSessions == 0 means that the allowed number of chat sessions in use is disabled
+         */
+        int maxChatSessions = mRcsSettings.getMaxChatSessions();
+        return maxChatSessions == 0
+                || mOneToOneChatSessionCache.size() + mGroupChatSessionCache.size() < maxChatSessions;
     }
 
     /**
@@ -583,9 +609,7 @@ public class InstantMessagingService extends ImsService {
     }
 
     public FileSharingSession getFileSharingSession(String fileTransferId) {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mFileTransferSessionCache.get(fileTransferId);
-        }
+        return mFileTransferSessionCache.get(fileTransferId);
     }
 
     public void addSession(FileUploadSession session) {
@@ -593,9 +617,7 @@ public class InstantMessagingService extends ImsService {
         if (sLogger.isActivated()) {
             sLogger.debug("Add FileUploadSession with upload ID '" + uploadId + "'");
         }
-        synchronized (getImsServiceSessionOperationLock()) {
-            mFileUploadSessionCache.put(uploadId, session);
-        }
+        mFileUploadSessionCache.put(uploadId, session);
     }
 
     public void removeSession(final FileUploadSession session) {
@@ -603,27 +625,21 @@ public class InstantMessagingService extends ImsService {
         if (sLogger.isActivated()) {
             sLogger.debug("Remove FileUploadSession with upload ID '" + uploadId + "'");
         }
-        synchronized (getImsServiceSessionOperationLock()) {
-            mFileUploadSessionCache.remove(uploadId);
-        }
+        mFileUploadSessionCache.remove(uploadId);
     }
 
     public FileUploadSession getFileUploadSession(String uploadId) {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mFileUploadSessionCache.get(uploadId);
-        }
+        return mFileUploadSessionCache.get(uploadId);
     }
 
     public boolean isFileTransferSessionAvailable() {
-        synchronized (getImsServiceSessionOperationLock()) {
-            /*
-             * maxFtSessions == 0 means that the checking of allowed number of file transfer
-             * sessions in use is disabled
-             */
-            int maxFileTransferSessions = mRcsSettings.getMaxFileTransferSessions();
-            return maxFileTransferSessions == 0
-                    || mFileTransferSessionCache.size() + mFileUploadSessionCache.size() < maxFileTransferSessions;
-        }
+        /*
+         * maxFtSessions == 0 means that the checking of allowed number of file transfer sessions
+         * in use is disabled
+         */
+        int maxFileTransferSessions = mRcsSettings.getMaxFileTransferSessions();
+        return maxFileTransferSessions == 0
+                || mFileTransferSessionCache.size() + mFileUploadSessionCache.size() < maxFileTransferSessions;
     }
 
     public void assertAvailableFileTransferSession(String errorMessage) {
@@ -650,27 +666,25 @@ public class InstantMessagingService extends ImsService {
      */
     public boolean isMaxConcurrentOutgoingFileTransfersReached() {
         int nrOfConcurrentOutgoingFileTransferSessions = 0;
-        synchronized (getImsServiceSessionOperationLock()) {
-            for (FileSharingSession session : mFileTransferSessionCache.values()) {
-                if (!session.isInitiatedByRemote()) {
-                    nrOfConcurrentOutgoingFileTransferSessions++;
-                }
-            }
-            /*
-             * maxConcurrentOutgoingFilrTransferSessions == 0 means that the checking of allowed
-             * concurrent number of outgoing file transfers in use is disabled
-             */
-            int maxConcurrentOutgoingFileTransferSessions = mRcsSettings
-                    .getMaxConcurrentOutgoingFileTransferSessions();
-            if (maxConcurrentOutgoingFileTransferSessions == 0) {
-                return false;
-            }
-            if (nrOfConcurrentOutgoingFileTransferSessions >= maxConcurrentOutgoingFileTransferSessions) {
-                return true;
+        for (FileSharingSession session : mFileTransferSessionCache.values()) {
+            if (!session.isInitiatedByRemote()) {
+                nrOfConcurrentOutgoingFileTransferSessions++;
             }
-            nrOfConcurrentOutgoingFileTransferSessions += mFileUploadSessionCache.size();
-            return nrOfConcurrentOutgoingFileTransferSessions >= maxConcurrentOutgoingFileTransferSessions;
         }
+        /*
+         * maxConcurrentOutgoingFilrTransferSessions == 0 means that the checking of allowed
+         * concurrent number of outgoing file transfers in use is disabled
+         */
+        int maxConcurrentOutgoingFileTransferSessions = mRcsSettings
+                .getMaxConcurrentOutgoingFileTransferSessions();
+        if (maxConcurrentOutgoingFileTransferSessions == 0) {
+            return false;
+        }
+        if (nrOfConcurrentOutgoingFileTransferSessions >= maxConcurrentOutgoingFileTransferSessions) {
+            return true;
+        }
+        nrOfConcurrentOutgoingFileTransferSessions += mFileUploadSessionCache.size();
+        return nrOfConcurrentOutgoingFileTransferSessions >= maxConcurrentOutgoingFileTransferSessions;
     }
 
     /**
@@ -1851,9 +1865,7 @@ public class InstantMessagingService extends ImsService {
      * @param chatId The chat ID
      */
     public void removeGroupChatComposingStatus(final String chatId) {
-        synchronized (getImsServiceSessionOperationLock()) {
-            mGroupChatComposingStatusToNotify.remove(chatId);
-        }
+        mGroupChatComposingStatusToNotify.remove(chatId);
     }
 
     /**
@@ -1864,9 +1876,7 @@ public class InstantMessagingService extends ImsService {
      * @param status the composing status which failed to be notified
      */
     public void addGroupChatComposingStatus(String chatId, boolean status) {
-        synchronized (getImsServiceSessionOperationLock()) {
-            mGroupChatComposingStatusToNotify.put(chatId, status);
-        }
+        mGroupChatComposingStatusToNotify.put(chatId, status);
     }
 
     /**
@@ -1877,9 +1887,7 @@ public class InstantMessagingService extends ImsService {
      *         aligned with client composing status
      */
     public Boolean getGroupChatComposingStatus(String chatId) {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mGroupChatComposingStatusToNotify.get(chatId);
-        }
+        return mGroupChatComposingStatusToNotify.get(chatId);
     }
 
     /**
@@ -1888,9 +1896,7 @@ public class InstantMessagingService extends ImsService {
      * @param contact the remote contact
      */
     public void removeOneToOneChatComposingStatus(final ContactId contact) {
-        synchronized (getImsServiceSessionOperationLock()) {
-            mOneToOneChatComposingStatusToNotify.remove(contact);
-        }
+        mOneToOneChatComposingStatusToNotify.remove(contact);
     }
 
     /**
@@ -1901,9 +1907,7 @@ public class InstantMessagingService extends ImsService {
      * @param status the composing status which failed to be notified
      */
     public void addOneToOneChatComposingStatus(ContactId contact, boolean status) {
-        synchronized (getImsServiceSessionOperationLock()) {
-            mOneToOneChatComposingStatusToNotify.put(contact, status);
-        }
+        mOneToOneChatComposingStatusToNotify.put(contact, status);
     }
 
     /**
@@ -1914,9 +1918,7 @@ public class InstantMessagingService extends ImsService {
      *         aligned with client composing status
      */
     public Boolean getOneToOneChatComposingStatus(ContactId contact) {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mOneToOneChatComposingStatusToNotify.get(contact);
-        }
+        return mOneToOneChatComposingStatusToNotify.get(contact);
     }
 
     /**
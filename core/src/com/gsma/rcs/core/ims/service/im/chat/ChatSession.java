@@ -75,6 +75,11 @@ import javax.xml.parsers.ParserConfigurationException;
  */
 public abstract class ChatSession extends ImsServiceSession implements MsrpEventListener {
 
+    /**
+     * Maximum size of a received chat content, larger contents being rejected
+     */
+    public static final int MAX_RECEIVED_DATA_SIZE = 1024 * 1024;
+
     private String mSubject;
     private final MsrpManager mMsrpMgr;
     private final IsComposingManager mIsComposingMgr = new IsComposingManager(this);
@@ -158,6 +163,7 @@ public abstract class ChatSession extends ImsServiceSession implements MsrpEvent
         String localIpAddress = mImService.getImsModule().getCurrentNetworkInterface()
                 .getNetworkAccess().getIpAddress();
         mMsrpMgr = new MsrpManager(localIpAddress, localMsrpPort, imService, rcsSettings);
+        mMsrpMgr.setMaxReceivedDataSize(MAX_RECEIVED_DATA_SIZE);
         mFirstMsg = firstMsg;
     }
 
@@ -399,19 +405,6 @@ public abstract class ChatSession extends ImsServiceSession implements MsrpEvent
         // Not used by chat
     }
 
-    /**
-     * Data transfer in progress
-     *
-     * @param currentSize Current transferred size in bytes
-     * @param totalSize Total size in bytes
-     * @param data received data chunk
-     * @return always false TODO
-     */
-    public boolean msrpTransferProgress(long currentSize, long totalSize, byte[] data) {
-        // Not used by chat
-        return false;
-    }
-
     /**
      * Data transfer has been aborted
      */
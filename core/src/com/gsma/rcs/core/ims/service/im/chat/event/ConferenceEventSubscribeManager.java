@@ -39,6 +39,7 @@ import com.gsma.rcs.core.ims.service.im.InstantMessagingService;
 import com.gsma.rcs.core.ims.service.im.chat.ChatError;
 import com.gsma.rcs.core.ims.service.im.chat.GroupChatSession;
 import com.gsma.rcs.core.ims.service.im.chat.GroupChatSessionListener;
+import com.gsma.rcs.core.ims.service.im.chat.event.ConferenceInfoParser.IConferenceInfoListener;
 import com.gsma.rcs.platform.registry.RegistryFactory;
 import com.gsma.rcs.provider.messaging.MessagingLog;
 import com.gsma.rcs.provider.settings.RcsSettings;
@@ -118,6 +119,18 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
 
     private final MessagingLog mMessagingLog;
 
+    /**
+     * Versions of the notified conference-info documents
+     */
+    private final ConferenceInfoSequence mSequence = new ConferenceInfoSequence();
+
+    /**
+     * Group chat events of the participants, read from the provider on each full-state
+     * notification as other paths also add group chat events, then kept in line with the events
+     * added on the partial notifications
+     */
+    private Map<ContactId, GroupChatEvent.Status> mGroupChatEvents;
+
     private final static Logger sLogger = Logger.getLogger(ConferenceEventSubscribeManager.class
             .getSimpleName());
 
@@ -190,9 +203,10 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
         if (content != null) {
             try {
                 InputSource pidfInput = new InputSource(new ByteArrayInputStream(content));
-                ConferenceInfoParser confParser = new ConferenceInfoParser(pidfInput).parse();
-                ConferenceInfoDocument conference = confParser.getConferenceInfo();
-                if (conference != null) {
+                ConferenceInfoListener listener = new ConferenceInfoListener(logActivated);
+                ConferenceInfoDocument conference = new ConferenceInfoParser(pidfInput, listener)
+                        .parse().getConferenceInfo();
+                if (conference != null && !listener.mOutdated) {
                     int maxParticipants = conference.getMaxUserCount();
                     if (maxParticipants > 0) {
                         if (logActivated) {
@@ -200,46 +214,14 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
                         }
                         mSession.setMaxParticipants(maxParticipants);
                     }
-
-                    Map<ContactId, ParticipantStatus> participants = new HashMap<ContactId, ParticipantStatus>();
-                    Vector<User> users = conference.getUsers();
-                    for (User user : users) {
-                        String phonenumber = user.getEntity();
-                        ContactId contact;
-                        PhoneNumber validPhoneNumber = ContactUtil
-                                .getValidPhoneNumberFromUri(phonenumber);
-                        if (validPhoneNumber != null) {
-                            contact = ContactUtil
-                                    .createContactIdFromValidatedData(validPhoneNumber);
-                        } else {
-                            // Invalid entity
-                            continue;
-                        }
-
-                        if (logActivated) {
-                            sLogger.debug("Conference info notification for " + contact);
-                        }
-
-                        if (user.isMe()
-                                || contact.equals(ImsModule.getImsUserProfile().getUsername())) {
-                            // By-pass me
-                            continue;
-                        }
-
-                        if (logActivated) {
-                            sLogger.debug("User conference info: " + user);
-                        }
-
-                        /*
-                         * Collect contact updates to be able to apply them in a one-shot operation
-                         * outside the loop.
-                         */
-                        participants.put(contact, getStatus(user));
-
+                    if (!conference.isPartial()) {
+                        mGroupChatEvents = null;
                     }
-
-                    if (!participants.isEmpty()) {
-                        updateParticipantStatus(participants, timestamp);
+                    if (!listener.mParticipants.isEmpty()) {
+                        updateParticipantStatus(listener.mParticipants, timestamp);
+                    }
+                    if (listener.mMissedNotifications) {
+                        refreshSubscription();
                     }
                 }
             } catch (ParserConfigurationException e) {
@@ -272,21 +254,69 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
         if (participantsToUpdate.isEmpty()) {
             return;
         }
-        Map<ContactId, GroupChatEvent.Status> groupChatEventsInDB = mMessagingLog
-                .getGroupChatEvents(mSession.getContributionID());
-
+        if (mGroupChatEvents == null) {
+            mGroupChatEvents = new HashMap<>(mMessagingLog.getGroupChatEvents(mSession
+                    .getContributionID()));
+        }
         for (Map.Entry<ContactId, ParticipantStatus> participant : participantsToUpdate.entrySet()) {
             ContactId contact = participant.getKey();
             ParticipantStatus status = participant.getValue();
-            if (isGroupChatEventRequired(contact, status, groupChatEventsInDB))
+            if (isGroupChatEventRequired(contact, status, mGroupChatEvents)) {
                 for (ImsSessionListener listener : mSession.getListeners()) {
                     ((GroupChatSessionListener) listener).onConferenceEventReceived(contact,
                             status, timestamp);
                 }
+                /* Keep in line with the group chat event added by the listener */
+                if (ParticipantStatus.CONNECTED == status) {
+                    mGroupChatEvents.put(contact, GroupChatEvent.Status.JOINED);
+                } else if (ParticipantStatus.DEPARTED == status) {
+                    mGroupChatEvents.put(contact, GroupChatEvent.Status.DEPARTED);
+                }
+            }
         }
         mSession.updateParticipants(participantsToUpdate);
     }
 
+    /**
+     * Refresh the subscription to get the full state of the conference after missed
+     * notifications: the subscribe is sent from the core operations like the periodic refresh as
+     * it waits for its response
+     */
+    private void refreshSubscription() {
+        if (!mSubscribed) {
+            return;
+        }
+        if (sLogger.isActivated()) {
+            sLogger.info("Missed conference event notifications: refresh the subscription");
+        }
+        Core.getInstance().scheduleCoreOperation(new Runnable() {
+            @Override
+            public void run() {
+                if (!mSubscribed) {
+                    return;
+                }
+                try {
+                    subscribe();
+
+                } catch (PayloadException e) {
+                    sLogger.error("Failed to refresh the subscription!", e);
+
+                } catch (NetworkException e) {
+                    if (sLogger.isActivated()) {
+                        sLogger.debug(new StringBuilder("Failed to refresh the subscription: ")
+                                .append(e.getMessage()).toString());
+                    }
+                } catch (RuntimeException e) {
+                    /*
+                     * Intentionally catch runtime exceptions as else it will abruptly end the
+                     * thread of the core operations.
+                     */
+                    sLogger.error("Failed to refresh the subscription!", e);
+                }
+            }
+        });
+    }
+
     /*
      * Check if a new group chat event is required. It is required if there was none before for this
      * contact or if switch from JOINED to DEPARTED (or reverse) is detected.
@@ -486,6 +516,7 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
      * Reset the dialog path
      */
     private void resetDialogPath() {
+        mSequence.reset();
         if (mDialogPath != null) {
             Core.getInstance().getImService()
                     .removeGroupChatConferenceSubscriber(mDialogPath.getCallId());
@@ -722,14 +753,89 @@ public class ConferenceEventSubscribeManager extends PeriodicRefresher {
         resetDialogPath();
     }
 
+    /**
+     * Listener collecting the participant updates of a conference-info document while it is
+     * parsed
+     */
+    private class ConferenceInfoListener implements IConferenceInfoListener {
+
+        private final boolean mLogActivated;
+
+        private final Map<ContactId, ParticipantStatus> mParticipants = new HashMap<>();
+
+        private boolean mOutdated;
+
+        private boolean mMissedNotifications;
+
+        private ConferenceInfoListener(boolean logActivated) {
+            mLogActivated = logActivated;
+        }
+
+        @Override
+        public boolean onConferenceInfoStarted(ConferenceInfoDocument conference) {
+            switch (mSequence.apply(conference)) {
+                case OUTDATED:
+                    if (mLogActivated) {
+                        sLogger.debug(new StringBuilder("Ignore outdated conference info version ")
+                                .append(conference.getVersion()).append(", last version is ")
+                                .append(mSequence.getVersion()).toString());
+                    }
+                    mOutdated = true;
+                    return false;
+
+                case MISSED_NOTIFICATIONS:
+                    mMissedNotifications = true;
+                    return true;
+
+                default:
+                    return true;
+            }
+        }
+
+        @Override
+        public void onUserParsed(User user) {
+            PhoneNumber validPhoneNumber = ContactUtil.getValidPhoneNumberFromUri(user
+                    .getEntity());
+            if (validPhoneNumber == null) {
+                // Invalid entity
+                return;
+            }
+            ContactId contact = ContactUtil.createContactIdFromValidatedData(validPhoneNumber);
+            if (mLogActivated) {
+                sLogger.debug("Conference info notification for " + contact);
+            }
+            if (user.isMe() || contact.equals(ImsModule.getImsUserProfile().getUsername())) {
+                // By-pass me
+                return;
+            }
+            if (mLogActivated) {
+                sLogger.debug("User conference info: " + user);
+            }
+            ParticipantStatus status = getStatus(user);
+            if (status == null) {
+                /* Partial user information not changing the participant status */
+                return;
+            }
+            /*
+             * Collect contact updates to be able to apply them in a one-shot operation once the
+             * document is parsed.
+             */
+            mParticipants.put(contact, status);
+        }
+    }
+
     /**
      * Convert the user status into integer
      * 
      * @param user the user
-     * @return the integer status
+     * @return the integer status or null if the user has no status
      */
     private static ParticipantStatus getStatus(User user) {
         String state = user.getState();
+        if (state == null) {
+            /* A user deleted from the conference has departed */
+            return user.isDeleted() ? ParticipantStatus.DEPARTED : null;
+        }
         /*
          * Manage "pending-out" and "pending-in" status like "pending" status. See RFC 4575
          * dialing-in: Endpoint is dialing into the conference, not yet in the roster (probably
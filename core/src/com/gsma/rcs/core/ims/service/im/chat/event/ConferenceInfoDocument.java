@@ -43,6 +43,11 @@ public class ConferenceInfoDocument {
      */
     private String state;
 
+    /**
+     * Version attribute or -1 if not contained in the conference info
+     */
+    private long version;
+
     /**
      * List of users
      */
@@ -65,8 +70,20 @@ public class ConferenceInfoDocument {
      * @param state State attribute
      */
     public ConferenceInfoDocument(String entity, String state) {
+        this(entity, state, -1);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param entity Conference URI
+     * @param state State attribute
+     * @param version Version attribute or -1 if not contained in the conference info
+     */
+    public ConferenceInfoDocument(String entity, String state, long version) {
         this.entity = entity;
         this.state = state;
+        this.version = version;
     }
 
     /**
@@ -87,6 +104,24 @@ public class ConferenceInfoDocument {
         return state;
     }
 
+    /**
+     * Return the version
+     * 
+     * @return Version or -1 if not contained in the conference info
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Is a partial notification, only containing the changes since the previous version
+     * 
+     * @return True if partial
+     */
+    public boolean isPartial() {
+        return STATE_PARTIAL.equals(state);
+    }
+
     /**
      * Add a user
      * 
@@ -23,6 +23,7 @@
 package com.gsma.rcs.core.ims.service.im.chat.event;
 
 import com.gsma.rcs.core.ParseFailureException;
+import com.gsma.rcs.utils.XmlParserUtils;
 import com.gsma.rcs.utils.logger.Logger;
 
 import org.xml.sax.Attributes;
@@ -33,8 +34,6 @@ import org.xml.sax.helpers.DefaultHandler;
 import java.io.IOException;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 
 /**
  * Conference-Info parser
@@ -68,7 +67,28 @@ public class ConferenceInfoParser extends DefaultHandler {
      * </user> </users> </conference-info>
      */
 
-    private StringBuffer mAccumulator;
+    /**
+     * Listener of a conference-info document, notified of its users while the document is parsed
+     * instead of collecting them in the document
+     */
+    public interface IConferenceInfoListener {
+        /**
+         * Notify the start of a conference-info document
+         * 
+         * @param conference Conference-Info document, without its content
+         * @return False to ignore the users of the document
+         */
+        boolean onConferenceInfoStarted(ConferenceInfoDocument conference);
+
+        /**
+         * Notify a user of the conference-info document
+         * 
+         * @param user User
+         */
+        void onUserParsed(User user);
+    }
+
+    private final StringBuilder mAccumulator = new StringBuilder();
 
     private ConferenceInfoDocument mConference;
 
@@ -76,6 +96,8 @@ public class ConferenceInfoParser extends DefaultHandler {
 
     private boolean mMe;
 
+    private boolean mDeleted;
+
     private String mStatus;
 
     private String mDisplayName;
@@ -84,17 +106,36 @@ public class ConferenceInfoParser extends DefaultHandler {
 
     private String mFailureReason;
 
+    private boolean mInEndpoint;
+
+    private boolean mInMedia;
+
+    private boolean mIgnoreUsers;
+
     private static final Logger sLogger = Logger.getLogger(ConferenceInfoParser.class.getName());
 
     private final InputSource mInputSource;
 
+    private final IConferenceInfoListener mListener;
+
     /**
      * Constructor
      * 
      * @param inputSource Input source
      */
     public ConferenceInfoParser(InputSource inputSource) {
+        this(inputSource, null);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param inputSource Input source
+     * @param listener Listener notified of the users instead of collecting them in the document
+     */
+    public ConferenceInfoParser(InputSource inputSource, IConferenceInfoListener listener) {
         mInputSource = inputSource;
+        mListener = listener;
     }
 
     /**
@@ -108,9 +149,7 @@ public class ConferenceInfoParser extends DefaultHandler {
     public ConferenceInfoParser parse() throws ParserConfigurationException, SAXException,
             ParseFailureException {
         try {
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            SAXParser parser = factory.newSAXParser();
-            parser.parse(mInputSource, this);
+            XmlParserUtils.parse(mInputSource, this);
             return this;
 
         } catch (IOException e) {
@@ -122,11 +161,6 @@ public class ConferenceInfoParser extends DefaultHandler {
         return mConference;
     }
 
-    @Override
-    public void startDocument() {
-        mAccumulator = new StringBuffer();
-    }
-
     @Override
     public void characters(char buffer[], int start, int length) {
         mAccumulator.append(buffer, start, length);
@@ -138,12 +172,17 @@ public class ConferenceInfoParser extends DefaultHandler {
         if (localName.equals("conference-info")) {
             String entity = attr.getValue("entity").trim();
             String state = attr.getValue("state").trim();
-            mConference = new ConferenceInfoDocument(entity, state);
+            mConference = new ConferenceInfoDocument(entity, state,
+                    parseVersion(attr.getValue("version")));
+            if (mListener != null) {
+                mIgnoreUsers = !mListener.onConferenceInfoStarted(mConference);
+            }
 
         } else if (localName.equals("user")) {
             mEntity = attr.getValue("entity").trim();
             String yourown = attr.getValue("yourown");
             mMe = false;
+            mDeleted = ConferenceInfoDocument.STATE_DELETED.equals(attr.getValue("state"));
             mStatus = null;
             mDisplayName = null;
             mDisconnectionMethod = null;
@@ -151,6 +190,11 @@ public class ConferenceInfoParser extends DefaultHandler {
             if (yourown != null) {
                 mMe = Boolean.parseBoolean(yourown);
             }
+        } else if (localName.equals("endpoint")) {
+            mInEndpoint = true;
+
+        } else if (localName.equals("media")) {
+            mInMedia = true;
         }
     }
 
@@ -158,17 +202,33 @@ public class ConferenceInfoParser extends DefaultHandler {
     public void endElement(String namespaceURL, String localName, String qname) {
         switch (localName) {
             case "user":
-                if (mConference != null) {
+                if (mConference != null && !mIgnoreUsers) {
                     User user = new User(mEntity, mMe, mStatus, mDisplayName, mDisconnectionMethod,
-                            mFailureReason);
-                    mConference.addUser(user);
+                            mFailureReason, mDeleted);
+                    if (mListener != null) {
+                        mListener.onUserParsed(user);
+                    } else {
+                        mConference.addUser(user);
+                    }
                 }
                 break;
+            case "endpoint":
+                mInEndpoint = false;
+                break;
+            case "media":
+                mInMedia = false;
+                break;
             case "display-text":
-                mDisplayName = mAccumulator.toString().trim();
+                /* Ignore the display text of the endpoints and media of the user */
+                if (!mInEndpoint) {
+                    mDisplayName = mAccumulator.toString().trim();
+                }
                 break;
             case "status":
-                mStatus = mAccumulator.toString().trim();
+                /* Ignore the status of the media streams of the endpoint */
+                if (!mInMedia) {
+                    mStatus = mAccumulator.toString().trim();
+                }
                 break;
             case "maximum-user-count":
                 if (mConference != null) {
@@ -194,4 +254,18 @@ public class ConferenceInfoParser extends DefaultHandler {
         }
     }
 
+    private static long parseVersion(String version) {
+        if (version == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(version.trim());
+
+        } catch (NumberFormatException e) {
+            if (sLogger.isActivated()) {
+                sLogger.warn("Invalid conference-info version ".concat(version));
+            }
+            return -1;
+        }
+    }
 }
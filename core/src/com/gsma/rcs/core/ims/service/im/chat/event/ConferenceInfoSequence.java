@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.service.im.chat.event;
+
+/**
+ * Sequence of the conference-info documents notified within a conference event subscription<br>
+ * See RFC 4575: a document whose version is not greater than the version of the last applied
+ * document is outdated, and a partial document whose version is more than one greater reveals
+ * that notifications were missed, the subscription then having to be refreshed to get the full
+ * state of the conference.
+ */
+public class ConferenceInfoSequence {
+
+    /**
+     * Position of a document in the sequence
+     */
+    public enum Order {
+        /**
+         * Document to apply
+         */
+        IN_SEQUENCE,
+        /**
+         * Document older than or equal to the last applied document, to ignore
+         */
+        OUTDATED,
+        /**
+         * Partial document notified after missed notifications, to apply before refreshing
+         * the subscription
+         */
+        MISSED_NOTIFICATIONS
+    }
+
+    private long mVersion = -1;
+
+    /**
+     * Check the version of a notified document and set it as the last applied version unless the
+     * document is outdated
+     * 
+     * @param conference Conference-Info document
+     * @return Order
+     */
+    public synchronized Order apply(ConferenceInfoDocument conference) {
+        long version = conference.getVersion();
+        if (version < 0) {
+            /* No version to order the document */
+            return Order.IN_SEQUENCE;
+        }
+        long lastVersion = mVersion;
+        if (lastVersion >= 0 && version <= lastVersion) {
+            return Order.OUTDATED;
+        }
+        mVersion = version;
+        if (conference.isPartial() && (lastVersion < 0 || version > lastVersion + 1)) {
+            return Order.MISSED_NOTIFICATIONS;
+        }
+        return Order.IN_SEQUENCE;
+    }
+
+    /**
+     * Returns the version of the last applied document
+     * 
+     * @return Version or -1 if none
+     */
+    public synchronized long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Restart the sequence, as for a new subscription
+     */
+    public synchronized void reset() {
+        mVersion = -1;
+    }
+}
@@ -55,14 +55,22 @@ public class User {
 
     private final String mFailureReason;
 
+    private final boolean mDeleted;
+
     public User(String entity, boolean me, String state, String displayName,
             String disconnectionMethod, String failureReason) {
+        this(entity, me, state, displayName, disconnectionMethod, failureReason, false);
+    }
+
+    public User(String entity, boolean me, String state, String displayName,
+            String disconnectionMethod, String failureReason, boolean deleted) {
         mEntity = entity;
         mMe = me;
         mState = state;
         mDisplayName = displayName;
         mDisconnectionMethod = disconnectionMethod;
         mFailureReason = failureReason;
+        mDeleted = deleted;
     }
 
     public String getEntity() {
@@ -89,6 +97,16 @@ public class User {
         return mFailureReason;
     }
 
+    /**
+     * Is removed from the conference: the user element state is "deleted" in a partial
+     * notification
+     * 
+     * @return True if deleted
+     */
+    public boolean isDeleted() {
+        return mDeleted;
+    }
+
     public String toString() {
         StringBuilder result = new StringBuilder("user=").append(mEntity).append(", state=")
                 .append(mState);
@@ -98,6 +116,9 @@ public class User {
         if (mFailureReason != null) {
             result.append(", reason=").append(mFailureReason);
         }
+        if (mDeleted) {
+            result.append(", deleted");
+        }
         return result.toString();
     }
 
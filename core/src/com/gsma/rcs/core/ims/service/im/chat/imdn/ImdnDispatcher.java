@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.service.im.chat.imdn;
+
+import com.gsma.rcs.core.ims.service.im.chat.imdn.ImdnManager.DeliveryStatus;
+import com.gsma.rcs.utils.logger.Logger;
+import com.gsma.services.rcs.contact.ContactId;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatcher of the delivery reports to send<br>
+ * Reports are queued per remote contact and sent in the order they were queued, up to a maximum
+ * number of transactions in progress: the reports of a contact do not wait for the end of the
+ * transaction of the previous report, so that the reports of a chat with many unread messages
+ * are sent concurrently. The reports of a same message are sent one after the other, and the
+ * contacts having reports to send are served in turn. A report already queued for the same
+ * message and status is sent once.
+ */
+public class ImdnDispatcher {
+
+    /**
+     * Sender of the delivery reports
+     */
+    public interface IDeliveryStatusSender {
+        /**
+         * Send a delivery report and wait for the end of its transaction
+         * 
+         * @param delivery Delivery status
+         */
+        void sendDeliveryStatus(DeliveryStatus delivery);
+    }
+
+    private final IDeliveryStatusSender mSender;
+
+    private final ScheduledExecutorService mExecutor;
+
+    private final int mMaxConcurrentSends;
+
+    private final long mFlushInterval;
+
+    /**
+     * Queued reports per remote contact, in the order the contacts are served
+     */
+    private final Map<ContactId, ArrayDeque<DeliveryStatus>> mQueues = new LinkedHashMap<>();
+
+    /**
+     * Contacts whose queued reports are held until the end of the flush interval
+     */
+    private final Set<ContactId> mHeldContacts = new HashSet<>();
+
+    /**
+     * Messages whose report is being sent
+     */
+    private final Set<String> mMsgIdsInProgress = new HashSet<>();
+
+    private int mSenderCount;
+
+    private long mSentCount;
+
+    private long mCoalescedCount;
+
+    private static final Logger sLogger = Logger.getLogger(ImdnDispatcher.class.getName());
+
+    /**
+     * Constructor
+     * 
+     * @param name Name of the threads sending the reports
+     * @param sender Sender of the delivery reports
+     * @param maxConcurrentSends Maximum number of reports being sent concurrently, whatever
+     *            their contact
+     * @param flushInterval Period in milliseconds during which the reports of a contact are
+     *            queued before being sent
+     */
+    public ImdnDispatcher(final String name, IDeliveryStatusSender sender,
+            int maxConcurrentSends, long flushInterval) {
+        mSender = sender;
+        mMaxConcurrentSends = Math.max(1, maxConcurrentSends);
+        mFlushInterval = Math.max(0, flushInterval);
+        mExecutor = new ScheduledThreadPoolExecutor(mMaxConcurrentSends, new ThreadFactory() {
+            private int mCount;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                return new Thread(runnable, name + "-" + (++mCount));
+            }
+        });
+    }
+
+    /**
+     * Queue a delivery report
+     * 
+     * @param delivery Delivery status
+     * @return False if the same report is already queued
+     */
+    public synchronized boolean add(DeliveryStatus delivery) {
+        final ContactId remote = delivery.getRemote();
+        ArrayDeque<DeliveryStatus> queue = mQueues.get(remote);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            mQueues.put(remote, queue);
+            if (mFlushInterval > 0) {
+                mHeldContacts.add(remote);
+                try {
+                    mExecutor.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            release(remote);
+                        }
+                    }, mFlushInterval, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    /* Dispatcher stopped */
+                    mQueues.remove(remote);
+                    mHeldContacts.remove(remote);
+                    return false;
+                }
+            }
+        } else {
+            for (DeliveryStatus queued : queue) {
+                if (queued.getStatus() == delivery.getStatus()
+                        && queued.getMsgId().equals(delivery.getMsgId())) {
+                    mCoalescedCount++;
+                    return false;
+                }
+            }
+        }
+        queue.add(delivery);
+        startSenders();
+        return true;
+    }
+
+    private synchronized void release(ContactId remote) {
+        mHeldContacts.remove(remote);
+        startSenders();
+    }
+
+    // Called with the lock of the dispatcher held.
+    private void startSenders() {
+        int sendable = 0;
+        for (Map.Entry<ContactId, ArrayDeque<DeliveryStatus>> entry : mQueues.entrySet()) {
+            if (!mHeldContacts.contains(entry.getKey())) {
+                sendable += entry.getValue().size();
+            }
+        }
+        while (mSenderCount < mMaxConcurrentSends && mSenderCount < sendable) {
+            try {
+                mExecutor.execute(new Sender());
+                mSenderCount++;
+
+            } catch (RejectedExecutionException e) {
+                /* Dispatcher stopped */
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stop sending reports: the queued reports are dropped
+     */
+    public void stop() {
+        mExecutor.shutdownNow();
+        synchronized (this) {
+            mQueues.clear();
+            mHeldContacts.clear();
+        }
+    }
+
+    /**
+     * Returns the number of queued reports
+     * 
+     * @return Number of reports
+     */
+    public synchronized int getQueuedCount() {
+        int count = 0;
+        for (ArrayDeque<DeliveryStatus> queue : mQueues.values()) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of sent reports
+     * 
+     * @return Number of reports
+     */
+    public synchronized long getSentCount() {
+        return mSentCount;
+    }
+
+    /**
+     * Returns the number of reports not sent as already queued
+     * 
+     * @return Number of reports
+     */
+    public synchronized long getCoalescedCount() {
+        return mCoalescedCount;
+    }
+
+    /**
+     * Take the next report to send: the first report of the next contact in turn whose message
+     * has no report being sent
+     * 
+     * @return Report or null if no report can be sent, the sender then ending
+     */
+    private synchronized DeliveryStatus poll() {
+        Iterator<Map.Entry<ContactId, ArrayDeque<DeliveryStatus>>> contacts = mQueues.entrySet()
+                .iterator();
+        while (contacts.hasNext()) {
+            Map.Entry<ContactId, ArrayDeque<DeliveryStatus>> entry = contacts.next();
+            ContactId remote = entry.getKey();
+            if (mHeldContacts.contains(remote)) {
+                continue;
+            }
+            ArrayDeque<DeliveryStatus> queue = entry.getValue();
+            Iterator<DeliveryStatus> reports = queue.iterator();
+            while (reports.hasNext()) {
+                DeliveryStatus delivery = reports.next();
+                if (mMsgIdsInProgress.contains(delivery.getMsgId())) {
+                    continue;
+                }
+                reports.remove();
+                /* Served in turn: the contact moves to the end of the map */
+                contacts.remove();
+                if (!queue.isEmpty()) {
+                    mQueues.put(remote, queue);
+                }
+                mMsgIdsInProgress.add(delivery.getMsgId());
+                mSentCount++;
+                return delivery;
+            }
+        }
+        mSenderCount--;
+        return null;
+    }
+
+    private synchronized void onSent(DeliveryStatus delivery) {
+        mMsgIdsInProgress.remove(delivery.getMsgId());
+    }
+
+    /**
+     * Task sending the queued reports until no report can be sent
+     */
+    private class Sender implements Runnable {
+
+        @Override
+        public void run() {
+            DeliveryStatus delivery;
+            while ((delivery = poll()) != null) {
+                try {
+                    mSender.sendDeliveryStatus(delivery);
+
+                } catch (RuntimeException e) {
+                    /*
+                     * Intentionally catch runtime exceptions as else it will abruptly end the
+                     * task and the next reports would never be sent.
+                     */
+                    sLogger.error("Failed to send delivery status for message "
+                            + delivery.getMsgId(), e);
+                } finally {
+                    onSent(delivery);
+                }
+            }
+        }
+    }
+}
@@ -36,6 +36,7 @@ import com.gsma.rcs.core.ims.service.SessionAuthenticationAgent;
 import com.gsma.rcs.core.ims.service.im.InstantMessagingService;
 import com.gsma.rcs.core.ims.service.im.chat.ChatUtils;
 import com.gsma.rcs.core.ims.service.im.chat.cpim.CpimMessage;
+import com.gsma.rcs.core.ims.service.im.chat.imdn.ImdnDispatcher.IDeliveryStatusSender;
 import com.gsma.rcs.provider.messaging.MessagingLog;
 import com.gsma.rcs.provider.settings.RcsSettings;
 import com.gsma.rcs.utils.FifoBuffer;
@@ -60,6 +61,8 @@ public class ImdnManager extends Thread {
     private final MessagingLog mMessagingLog;
     private FifoBuffer mBuffer = new FifoBuffer();
     private final RcsSettings mRcsSettings;
+    private final ImdnDispatcher mDispatcher;
+
     private final static Logger sLogger = Logger.getLogger(ImdnManager.class.getSimpleName());
 
     /**
@@ -74,6 +77,12 @@ public class ImdnManager extends Thread {
         mImService = imService;
         mRcsSettings = rcsSettings;
         mMessagingLog = messagingLog;
+        mDispatcher = new ImdnDispatcher("ImdnSender", new IDeliveryStatusSender() {
+            @Override
+            public void sendDeliveryStatus(DeliveryStatus delivery) {
+                ImdnManager.this.sendDeliveryStatus(delivery);
+            }
+        }, rcsSettings.getImdnMaxConcurrentSends(), rcsSettings.getImdnFlushInterval());
     }
 
     /**
@@ -129,40 +138,44 @@ public class ImdnManager extends Thread {
     public void run() {
         DeliveryStatus delivery;
         while ((delivery = (DeliveryStatus) mBuffer.getObject()) != null) {
-            try {
-                boolean imdnDisplay = ImdnDocument.DeliveryStatus.DISPLAYED == delivery.getStatus();
-                String msgId = delivery.getMsgId();
-                if (imdnDisplay) {
-                    /*
-                     * Display notification are processed asynchronously from the server API.
-                     * Therefore the IMDN message may have already been processed. Here we need to
-                     * check if the Display Report is still requested.
-                     */
-                    ChatLog.Message.Content.Status status = mMessagingLog.getMessageStatus(msgId);
-                    if (ChatLog.Message.Content.Status.DISPLAY_REPORT_REQUESTED != status) {
-                        if (sLogger.isActivated()) {
-                            sLogger.debug("Display report for ID: " + msgId + " already processed!");
-                        }
-                        continue;
-                    }
-                }
-                sendSipMessageDeliveryStatus(delivery, null); // TODO: add sip.instance
+            mDispatcher.add(delivery);
+        }
+        mDispatcher.stop();
+    }
+
+    private void sendDeliveryStatus(DeliveryStatus delivery) {
+        try {
+            boolean imdnDisplay = ImdnDocument.DeliveryStatus.DISPLAYED == delivery.getStatus();
+            String msgId = delivery.getMsgId();
+            if (imdnDisplay) {
                 /*
-                 * Update rich messaging history when sending DISPLAYED report Since the requested
-                 * display report was now successfully send we mark this message as fully received
+                 * Display notification are processed asynchronously from the server API.
+                 * Therefore the IMDN message may have already been processed. Here we need to
+                 * check if the Display Report is still requested.
                  */
-                if (imdnDisplay) {
-                    mImService.onChatMessageDisplayReportSent(delivery.getChatId(),
-                            delivery.getRemote(), msgId);
+                ChatLog.Message.Content.Status status = mMessagingLog.getMessageStatus(msgId);
+                if (ChatLog.Message.Content.Status.DISPLAY_REPORT_REQUESTED != status) {
+                    if (sLogger.isActivated()) {
+                        sLogger.debug("Display report for ID: " + msgId + " already processed!");
+                    }
+                    return;
                 }
-            } catch (PayloadException | RuntimeException e) {
-                sLogger.error("Failed to send delivery status for chatId: " + delivery.getChatId(),
-                        e);
+            }
+            sendSipMessageDeliveryStatus(delivery, null); // TODO: add sip.instance
+            /*
+             * Update rich messaging history when sending DISPLAYED report Since the requested
+             * display report was now successfully send we mark this message as fully received
+             */
+            if (imdnDisplay) {
+                mImService.onChatMessageDisplayReportSent(delivery.getChatId(),
+                        delivery.getRemote(), msgId);
+            }
+        } catch (PayloadException | RuntimeException e) {
+            sLogger.error("Failed to send delivery status for chatId: " + delivery.getChatId(), e);
 
-            } catch (NetworkException e) {
-                if (sLogger.isActivated()) {
-                    sLogger.debug(e.getMessage());
-                }
+        } catch (NetworkException e) {
+            if (sLogger.isActivated()) {
+                sLogger.debug(e.getMessage());
             }
         }
     }
@@ -298,7 +311,7 @@ public class ImdnManager extends Thread {
     /**
      * Delivery status
      */
-    private static class DeliveryStatus {
+    public static class DeliveryStatus {
         private final String mChatId;
         private final ContactId mRemote;
         private final String mMsgId;
@@ -24,6 +24,7 @@ package com.gsma.rcs.core.ims.service.im.chat.imdn;
 
 import com.gsma.rcs.core.ParseFailureException;
 import com.gsma.rcs.utils.DateUtils;
+import com.gsma.rcs.utils.XmlParserUtils;
 import com.gsma.rcs.utils.logger.Logger;
 
 import org.xml.sax.Attributes;
@@ -35,8 +36,6 @@ import org.xml.sax.helpers.DefaultHandler;
 import java.io.IOException;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 
 /**
  * IMDN parser (RFC5438)
@@ -77,9 +76,7 @@ public class ImdnParser extends DefaultHandler {
     public ImdnParser parse() throws ParserConfigurationException, SAXException,
             ParseFailureException {
         try {
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            SAXParser parser = factory.newSAXParser();
-            parser.parse(mInputSource, this);
+            XmlParserUtils.parse(mInputSource, this);
             return this;
 
         } catch (IOException e) {
@@ -23,6 +23,7 @@
 package com.gsma.rcs.core.ims.service.im.chat.iscomposing;
 
 import com.gsma.rcs.core.ParseFailureException;
+import com.gsma.rcs.utils.XmlParserUtils;
 import com.gsma.rcs.utils.logger.Logger;
 
 import org.xml.sax.Attributes;
@@ -34,8 +35,6 @@ import org.xml.sax.helpers.DefaultHandler;
 import java.io.IOException;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 
 /**
  * Is composing event parser (RFC3994)
@@ -86,9 +85,7 @@ public class IsComposingParser extends DefaultHandler {
     public IsComposingParser parse() throws ParserConfigurationException, SAXException,
             ParseFailureException {
         try {
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            SAXParser parser = factory.newSAXParser();
-            parser.parse(mInputSource, this);
+            XmlParserUtils.parse(mInputSource, this);
             return this;
 
         } catch (IOException e) {
@@ -88,6 +88,7 @@ public class TerminatingStoreAndForwardOneToOneChatNotificationSession extends O
         String localIpAddress = imService.getImsModule().getCurrentNetworkInterface()
                 .getNetworkAccess().getIpAddress();
         mMsrpMgr = new MsrpManager(localIpAddress, localMsrpPort, imService, rcsSettings);
+        mMsrpMgr.setMaxReceivedDataSize(MAX_RECEIVED_DATA_SIZE);
         createTerminatingDialogPath(invite);
     }
 
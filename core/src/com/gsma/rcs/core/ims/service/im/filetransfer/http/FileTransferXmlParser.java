@@ -26,6 +26,7 @@ import com.gsma.rcs.core.ParseFailureException;
 import com.gsma.rcs.core.ims.service.im.filetransfer.FileSharingSession;
 import com.gsma.rcs.provider.settings.RcsSettings;
 import com.gsma.rcs.utils.DateUtils;
+import com.gsma.rcs.utils.XmlParserUtils;
 import com.gsma.services.rcs.filetransfer.FileTransfer;
 
 import android.net.Uri;
@@ -33,7 +34,6 @@ import android.net.Uri;
 import org.xml.sax.SAXException;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
-import org.xmlpull.v1.XmlPullParserFactory;
 
 import java.io.IOException;
 import java.io.StringReader;
@@ -102,10 +102,7 @@ public class FileTransferXmlParser {
     public FileTransferXmlParser parse() throws ParserConfigurationException, SAXException,
             ParseFailureException {
         try {
-            XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
-            factory.setNamespaceAware(false);
-            XmlPullParser xpp = factory.newPullParser();
-            xpp.setInput(new StringReader(mXmlSource));
+            XmlPullParser xpp = XmlParserUtils.newPullParser(new StringReader(mXmlSource));
             int eventType = xpp.getEventType();
             String text = null;
             while (eventType != XmlPullParser.END_DOCUMENT) {
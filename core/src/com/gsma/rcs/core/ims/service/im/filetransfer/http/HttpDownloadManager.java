@@ -28,6 +28,7 @@ import com.gsma.rcs.core.ims.network.NetworkException;
 import com.gsma.rcs.platform.file.FileFactory;
 import com.gsma.rcs.provider.settings.RcsSettings;
 import com.gsma.rcs.utils.CloseableUtils;
+import com.gsma.rcs.utils.capture.WireCapture;
 import com.gsma.rcs.utils.logger.Logger;
 
 import android.net.Uri;
@@ -139,7 +140,7 @@ public class HttpDownloadManager extends HttpTransferManager {
         }
         /* Send GET request */
         if (isHttpTraceEnabled()) {
-            System.out.println(">>> Send HTTP request:\nGET " + getHttpServerAddr());
+            captureHttpMessage(WireCapture.DIRECTION_OUT, "GET " + getHttpServerAddr());
         }
         try {
             writeHttpContentToFile(new URL(getHttpServerAddr().toString()),
@@ -200,7 +201,7 @@ public class HttpDownloadManager extends HttpTransferManager {
                 sLogger.debug("HTTP get file response: " + statusCode + " (" + message + ")");
             }
             if (isHttpTraceEnabled()) {
-                System.out.println("<<< Receive HTTP response: \n" + statusCode + " " + statusCode);
+                captureHttpMessage(WireCapture.DIRECTION_IN, statusCode + " " + message);
             }
             int receivedBytes = 0;
             /* Analyze HTTP response */
@@ -265,7 +266,7 @@ public class HttpDownloadManager extends HttpTransferManager {
             sLogger.debug("Download file icon from ".concat(getHttpServerAddr().toString()));
         }
         if (isHttpTraceEnabled()) {
-            System.out.println(">>> Send HTTP request:\nGET " + iconUri);
+            captureHttpMessage(WireCapture.DIRECTION_OUT, "GET " + iconUri);
         }
         ByteArrayOutputStream baos = null;
         try {
@@ -302,7 +303,7 @@ public class HttpDownloadManager extends HttpTransferManager {
                 sLogger.debug("HTTP get thumbnail response: " + statusCode + " (" + message + ")");
             }
             if (isHttpTraceEnabled()) {
-                System.out.println("<<< Receive HTTP response:\n" + statusCode + " " + statusCode);
+                captureHttpMessage(WireCapture.DIRECTION_IN, statusCode + " " + message);
             }
             if (HttpURLConnection.HTTP_OK == statusCode) {
                 byte[] buffer = new byte[CHUNK_MAX_SIZE];
@@ -353,7 +354,8 @@ public class HttpDownloadManager extends HttpTransferManager {
         Map<String, String> properties = new HashMap<>();
         properties.put("Range", "bytes=" + downloadedLength + "-" + completeSize);
         if (isHttpTraceEnabled()) {
-            System.out.println(">>> Send HTTP request:\n GET " + serverAddress);
+            captureHttpMessage(WireCapture.DIRECTION_OUT, "GET " + serverAddress + "\nRange: "
+                    + properties.get("Range"));
         }
         try {
             writeHttpContentToFile(new URL(serverAddress.toString()), properties);
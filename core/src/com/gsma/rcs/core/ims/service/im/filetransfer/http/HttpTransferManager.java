@@ -25,6 +25,7 @@ package com.gsma.rcs.core.ims.service.im.filetransfer.http;
 import com.gsma.rcs.core.ims.network.NetworkException;
 import com.gsma.rcs.core.ims.network.sip.SipUtils;
 import com.gsma.rcs.provider.settings.RcsSettings;
+import com.gsma.rcs.utils.capture.WireCapture;
 import com.gsma.rcs.utils.logger.Logger;
 
 import android.net.Uri;
@@ -50,6 +51,11 @@ public abstract class HttpTransferManager {
 
     private static boolean sHttpTraceEnabled = false;
 
+    /**
+     * Identifier of the HTTP messages of the transfer in the capture
+     */
+    private final int mCaptureId = WireCapture.newConnectionId();
+
     private final Uri mServerAddr;
 
     private final String mServerLogin;
@@ -225,6 +231,26 @@ public abstract class HttpTransferManager {
         }
     }
 
+    /**
+     * Capture an HTTP message of the transfer
+     * 
+     * @param direction Direction
+     * @param message HTTP message
+     */
+    protected void captureHttpMessage(int direction, String message) {
+        WireCapture.capture(WireCapture.PROTOCOL_HTTP, direction, mCaptureId, message);
+    }
+
+    /**
+     * Capture the body of an HTTP response of the transfer
+     * 
+     * @param body Body
+     */
+    protected void captureHttpResponseBody(byte[] body) {
+        WireCapture.capture(WireCapture.PROTOCOL_HTTP, WireCapture.DIRECTION_IN, mCaptureId,
+                body, 0, body.length);
+    }
+
     /**
      * Checks if HTTP trace is enabled
      * 
@@ -34,6 +34,7 @@ import com.gsma.rcs.platform.AndroidFactory;
 import com.gsma.rcs.provider.settings.RcsSettings;
 import com.gsma.rcs.utils.CloseableUtils;
 import com.gsma.rcs.utils.StringUtils;
+import com.gsma.rcs.utils.capture.WireCapture;
 import com.gsma.rcs.utils.logger.Logger;
 
 import android.net.Uri;
@@ -50,7 +51,6 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLEncoder;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -172,7 +172,7 @@ public class HttpUploadManager extends HttpTransferManager {
             urlConnection.setReadTimeout(HTTP_READ_TIMEOUT);
             urlConnection.setChunkedStreamingMode(CHUNK_MAX_SIZE);
             if (isHttpTraceEnabled()) {
-                System.out.println(">>> Send HTTP request:\nPOST " + url);
+                captureHttpMessage(WireCapture.DIRECTION_OUT, "POST " + url);
             }
             int statusCode = urlConnection.getResponseCode();
             String message = urlConnection.getResponseMessage();
@@ -260,15 +260,14 @@ public class HttpUploadManager extends HttpTransferManager {
                 connection.setRequestProperty("Authorization", authValue);
             }
             if (httpTraceEnabled) {
-                StringBuilder trace = new StringBuilder(">>> Send HTTP request:\nPOST ")
-                        .append(url);
+                StringBuilder trace = new StringBuilder("POST ").append(url);
                 Map<String, List<String>> properties = connection.getRequestProperties();
                 for (Entry<String, List<String>> property : properties.entrySet()) {
                     trace.append("\n").append(property.getKey()).append(": ")
                             .append(property.getValue());
                 }
                 trace.append("\n").append(body);
-                System.out.println(trace);
+                captureHttpMessage(WireCapture.DIRECTION_OUT, trace.toString());
             }
             /* Create the DataOutputStream and start writing its body */
             outputStream = new DataOutputStream(connection.getOutputStream());
@@ -306,8 +305,7 @@ public class HttpUploadManager extends HttpTransferManager {
                 boolean success = false;
                 boolean retry = false;
                 if (httpTraceEnabled) {
-                    String trace = "<<< Receive HTTP response:" + responseCode + " " + message;
-                    System.out.println(trace);
+                    captureHttpMessage(WireCapture.DIRECTION_IN, responseCode + " " + message);
                 }
                 switch (responseCode) {
                     case HttpURLConnection.HTTP_OK:
@@ -315,7 +313,7 @@ public class HttpUploadManager extends HttpTransferManager {
                         InputStream inputStream = connection.getInputStream();
                         result = convertStreamToString(inputStream);
                         if (httpTraceEnabled) {
-                            System.out.println("\n" + new String(result));
+                            captureHttpResponseBody(result);
                         }
                         break;
                     case HttpURLConnection.HTTP_UNAVAILABLE:
@@ -513,8 +511,7 @@ public class HttpUploadManager extends HttpTransferManager {
         }
         try {
             if (isHttpTraceEnabled()) {
-                String trace = "Get Upload Info response:\n".concat(Arrays.toString(resp));
-                System.out.println(trace);
+                captureHttpResponseBody(resp);
             }
             FileTransferHttpResumeInfo ftResumeInfo = ChatUtils
                     .parseFileTransferHttpResumeInfo(resp);
@@ -581,14 +578,14 @@ public class HttpUploadManager extends HttpTransferManager {
             String body = "";
             // Update authentication agent from response
             if (httpTraceEnabled) {
-                StringBuilder trace = new StringBuilder(">>> Send HTTP request:\nPUT ").append(url);
+                StringBuilder trace = new StringBuilder("PUT ").append(url);
                 Map<String, List<String>> headers = connection.getRequestProperties();
                 for (Entry<String, List<String>> property : headers.entrySet()) {
                     trace.append("\n").append(property.getKey()).append(": ")
                             .append(property.getValue());
                 }
                 trace.append("\n").append(body);
-                System.out.println(trace);
+                captureHttpMessage(WireCapture.DIRECTION_OUT, trace.toString());
             }
             // Create the DataOutputStream and start writing its body
             outputStream = new DataOutputStream(connection.getOutputStream());
@@ -611,7 +608,7 @@ public class HttpUploadManager extends HttpTransferManager {
                         InputStream inputStream = connection.getInputStream();
                         result = convertStreamToString(inputStream);
                         if (httpTraceEnabled) {
-                            System.out.println("\n" + new String(result));
+                            captureHttpResponseBody(result);
                         }
                         break;
                     default:
@@ -729,13 +726,13 @@ public class HttpUploadManager extends HttpTransferManager {
             connection = openHttpConnection(url, properties);
             connection.setReadTimeout(HTTP_READ_TIMEOUT);
             if (httpTraceEnabled) {
-                StringBuilder trace = new StringBuilder(">>> Send HTTP request:\nGET ").append(url);
+                StringBuilder trace = new StringBuilder("GET ").append(url);
                 Map<String, List<String>> headers = connection.getHeaderFields();
                 for (Entry<String, List<String>> header : headers.entrySet()) {
                     trace.append("\n").append(header.getKey()).append(" ")
                             .append(header.getValue());
                 }
-                System.out.println(trace);
+                captureHttpMessage(WireCapture.DIRECTION_OUT, trace.toString());
             }
             int statusCode = connection.getResponseCode();
             String message = connection.getResponseMessage();
@@ -744,14 +741,14 @@ public class HttpUploadManager extends HttpTransferManager {
                         + ")");
             }
             if (httpTraceEnabled) {
-                StringBuilder trace = new StringBuilder("<<< Receive HTTP response: ")
-                        .append(statusCode).append(" ").append(message);
+                StringBuilder trace = new StringBuilder().append(statusCode).append(" ")
+                        .append(message);
                 Map<String, List<String>> headers = connection.getHeaderFields();
                 for (Entry<String, List<String>> header : headers.entrySet()) {
                     trace.append("\n").append(header.getKey()).append(" ")
                             .append(header.getValue());
                 }
-                System.out.println(trace);
+                captureHttpMessage(WireCapture.DIRECTION_IN, trace.toString());
             }
             switch (statusCode) {
                 case HttpURLConnection.HTTP_UNAUTHORIZED:
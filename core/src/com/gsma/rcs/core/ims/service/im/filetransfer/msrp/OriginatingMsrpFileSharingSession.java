@@ -340,12 +340,6 @@ public class OriginatingMsrpFileSharingSession extends ImsFileSharingSession imp
         }
     }
 
-    @Override
-    public boolean msrpTransferProgress(long currentSize, long totalSize, byte[] data) {
-        // Not used in originating side
-        return false;
-    }
-
     @Override
     public void msrpTransferAborted() {
         if (sLogger.isActivated()) {
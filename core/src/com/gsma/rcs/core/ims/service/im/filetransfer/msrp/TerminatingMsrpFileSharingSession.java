@@ -32,6 +32,7 @@ import com.gsma.rcs.core.ims.network.sip.SipMessageFactory;
 import com.gsma.rcs.core.ims.network.sip.SipUtils;
 import com.gsma.rcs.core.ims.protocol.PayloadException;
 import com.gsma.rcs.core.ims.protocol.msrp.MsrpConstants;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpDataSink;
 import com.gsma.rcs.core.ims.protocol.msrp.MsrpEventListener;
 import com.gsma.rcs.core.ims.protocol.msrp.MsrpManager;
 import com.gsma.rcs.core.ims.protocol.msrp.MsrpSession;
@@ -61,6 +62,7 @@ import com.gsma.rcs.utils.logger.Logger;
 import com.gsma.services.rcs.contact.ContactId;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Vector;
 
@@ -70,7 +72,7 @@ import java.util.Vector;
  * @author jexa7410
  */
 public class TerminatingMsrpFileSharingSession extends ImsFileSharingSession implements
-        MsrpEventListener {
+        MsrpEventListener, MsrpDataSink {
 
     private MsrpManager mMsrpMgr;
 
@@ -81,6 +83,8 @@ public class TerminatingMsrpFileSharingSession extends ImsFileSharingSession imp
      */
     private long mTimestampSent;
 
+    private volatile boolean mDataWriteFailed;
+
     private static final Logger sLogger = Logger.getLogger(TerminatingMsrpFileSharingSession.class
             .getName());
 
@@ -313,6 +317,7 @@ public class TerminatingMsrpFileSharingSession extends ImsFileSharingSession imp
                 MsrpSession session = mMsrpMgr.createMsrpServerSession(remotePath, this);
                 /* Do not use right now the mapping to do not increase memory and cpu consumption */
                 session.setMapMsgIdFromTransationId(false);
+                session.setDataSink(this);
                 mMsrpMgr.openMsrpSession(ImsFileSharingSession.DEFAULT_SO_TIMEOUT);
                 mMsrpMgr.sendEmptyChunk();
             }
@@ -336,6 +341,7 @@ public class TerminatingMsrpFileSharingSession extends ImsFileSharingSession imp
                     MsrpSession session = mMsrpMgr.createMsrpClientSession(remoteHost, remotePort,
                             remotePath, this, fingerprint);
                     session.setMapMsgIdFromTransationId(false);
+                    session.setDataSink(this);
                     mMsrpMgr.openMsrpSession(ImsFileSharingSession.DEFAULT_SO_TIMEOUT);
                     mMsrpMgr.sendEmptyChunk();
                 }
@@ -389,7 +395,9 @@ public class TerminatingMsrpFileSharingSession extends ImsFileSharingSession imp
         MmContent file = getContent();
         Collection<ImsSessionListener> listeners = getListeners();
         try {
-            file.writeData2File(data);
+            if (data != null) {
+                file.writeData2File(data);
+            }
             file.closeFile();
             for (ImsSessionListener listener : listeners) {
                 ((FileSharingSessionListener) listener).onFileTransferred(file, contact,
@@ -407,30 +415,36 @@ public class TerminatingMsrpFileSharingSession extends ImsFileSharingSession imp
 
     @Override
     public void msrpTransferProgress(long currentSize, long totalSize) {
-        // Not used
+        if (isSessionInterrupted() || isInterrupted()) {
+            return;
+        }
+        ContactId contact = getRemoteContact();
+        for (ImsSessionListener listener : getListeners()) {
+            ((FileSharingSessionListener) listener).onTransferProgress(contact, currentSize,
+                    totalSize);
+        }
     }
 
     @Override
-    public boolean msrpTransferProgress(long currentSize, long totalSize, byte[] data) {
-        if (isSessionInterrupted() || isInterrupted()) {
-            return true;
+    public boolean writeData(long offset, ByteBuffer data) {
+        if (mDataWriteFailed || isSessionInterrupted() || isInterrupted()) {
+            return false;
         }
-        ContactId contact = getRemoteContact();
-        Collection<ImsSessionListener> listeners = getListeners();
         try {
-            getContent().writeData2File(data);
-            for (ImsSessionListener listener : listeners) {
-                ((FileSharingSessionListener) listener).onTransferProgress(contact, currentSize,
-                        totalSize);
-            }
+            getContent().writeData2File(offset, data);
+            return true;
+
         } catch (FileAccessException e) {
+            /* The error is notified once, the next chunks are refused */
+            mDataWriteFailed = true;
             deleteFile();
-            for (ImsSessionListener listener : listeners) {
+            ContactId contact = getRemoteContact();
+            for (ImsSessionListener listener : getListeners()) {
                 ((FileSharingSessionListener) listener).onTransferError(new FileSharingError(
                         FileSharingError.MEDIA_SAVING_FAILED, e.getMessage()), contact);
             }
+            return false;
         }
-        return true;
     }
 
     @Override
@@ -306,6 +306,9 @@ public class PresenceService extends ImsService implements AddressBookEventListe
         // Stop subscriptions
         mWatcherInfoSubscriber.terminate();
         mPresenceSubscriber.terminate();
+
+        // Close the connections to the XDM server
+        mXdm.terminate();
     }
 
     /**
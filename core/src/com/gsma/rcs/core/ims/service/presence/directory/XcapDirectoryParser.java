@@ -23,6 +23,7 @@
 package com.gsma.rcs.core.ims.service.presence.directory;
 
 import com.gsma.rcs.utils.DateUtils;
+import com.gsma.rcs.utils.XmlParserUtils;
 import com.gsma.rcs.utils.logger.Logger;
 
 import org.xml.sax.Attributes;
@@ -34,8 +35,6 @@ import java.io.IOException;
 import java.util.Hashtable;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 
 /**
  * XCAP directory parser
@@ -65,9 +64,7 @@ public class XcapDirectoryParser extends DefaultHandler {
      */
     public XcapDirectoryParser(InputSource inputSource) throws ParserConfigurationException,
             SAXException, IOException {
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        SAXParser parser = factory.newSAXParser();
-        parser.parse(inputSource, this);
+        XmlParserUtils.parse(inputSource, this);
     }
 
     public void startDocument() {
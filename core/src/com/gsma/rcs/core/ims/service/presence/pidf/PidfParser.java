@@ -26,6 +26,7 @@ import com.gsma.rcs.core.ParseFailureException;
 import com.gsma.rcs.core.ims.service.presence.pidf.geoloc.Geopriv;
 import com.gsma.rcs.utils.DateUtils;
 import com.gsma.rcs.utils.StringUtils;
+import com.gsma.rcs.utils.XmlParserUtils;
 import com.gsma.rcs.utils.logger.Logger;
 
 import org.xml.sax.Attributes;
@@ -37,8 +38,6 @@ import java.io.IOException;
 import java.util.StringTokenizer;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 
 /**
  * PDIF parser
@@ -113,9 +112,7 @@ public class PidfParser extends DefaultHandler {
     public PidfParser parse() throws ParserConfigurationException, SAXException,
             ParseFailureException {
         try {
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            SAXParser parser = factory.newSAXParser();
-            parser.parse(mInputSource, this);
+            XmlParserUtils.parse(mInputSource, this);
             return this;
 
         } catch (IOException e) {
@@ -22,6 +22,7 @@
 
 package com.gsma.rcs.core.ims.service.presence.watcherinfo;
 
+import com.gsma.rcs.utils.XmlParserUtils;
 import com.gsma.rcs.utils.logger.Logger;
 
 import org.xml.sax.Attributes;
@@ -33,8 +34,6 @@ import org.xml.sax.helpers.DefaultHandler;
 import java.io.IOException;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 
 /**
  * Watcher-info parser
@@ -68,9 +67,7 @@ public class WatcherInfoParser extends DefaultHandler {
      */
     public WatcherInfoParser(InputSource inputSource) throws ParserConfigurationException,
             SAXException, IOException {
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        SAXParser parser = factory.newSAXParser();
-        parser.parse(inputSource, this);
+        XmlParserUtils.parse(inputSource, this);
     }
 
     public void startDocument() {
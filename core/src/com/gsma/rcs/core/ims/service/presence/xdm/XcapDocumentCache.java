@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.core.ims.service.presence.xdm;
+
+import com.gsma.rcs.utils.PersistedFile;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persisted cache of the XCAP lists read from the XDM server<br>
+ * The entry URIs of a list are kept with the ETag of its document, keyed by the XCAP URI of the
+ * list, so that the list is read again with a conditional GET. In XCAP the ETag is the one of the
+ * whole document: a list is kept up to date when an element of its document is changed by this
+ * client, and is dropped when the document is changed by another one.
+ */
+public class XcapDocumentCache {
+
+    /**
+     * Separator between the document selector and the node selector of an XCAP URI
+     */
+    private static final String NODE_SELECTOR_SEPARATOR = "/~~/";
+
+    private static final int VERSION = 1;
+
+    /**
+     * Cached list
+     */
+    public static class Entry {
+
+        private final String mEtag;
+
+        private final List<String> mUris;
+
+        private Entry(String etag, List<String> uris) {
+            mEtag = etag;
+            mUris = Collections.unmodifiableList(uris);
+        }
+
+        /**
+         * Returns the ETag of the document of the list
+         *
+         * @return ETag
+         */
+        public String getEtag() {
+            return mEtag;
+        }
+
+        /**
+         * Returns the entry URIs of the list
+         *
+         * @return URIs
+         */
+        public List<String> getUris() {
+            return mUris;
+        }
+    }
+
+    private final PersistedFile mFile;
+
+    private Map<String, Entry> mEntries;
+
+    /**
+     * Constructor
+     *
+     * @param file File in which the cache is persisted
+     */
+    public XcapDocumentCache(File file) {
+        mFile = new PersistedFile(file, VERSION);
+    }
+
+    /**
+     * Returns a cached list
+     *
+     * @param uri XCAP URI of the list
+     * @return Entry or null if not cached
+     */
+    public synchronized Entry get(String uri) {
+        return getEntries().get(uri);
+    }
+
+    /**
+     * Cache a list read from the server
+     *
+     * @param uri XCAP URI of the list
+     * @param etag ETag of the document, the list is not cached if null
+     * @param uris Entry URIs of the list
+     */
+    public synchronized void put(String uri, String etag, List<String> uris) {
+        if (etag == null) {
+            if (getEntries().remove(uri) != null) {
+                save();
+            }
+            return;
+        }
+        getEntries().put(uri, new Entry(etag, new ArrayList<>(uris)));
+        save();
+    }
+
+    /**
+     * Apply locally an entry added to or removed from a list by this client<br>
+     * The lists of the same document which were read at the ETag preceding the change remain up to
+     * date with the new ETag, the other ones are dropped.
+     *
+     * @param uri XCAP URI of the changed list
+     * @param previousEtag ETag of the document the change was conditioned on or null
+     * @param etag ETag of the document after the change or null
+     * @param addedUri Entry URI added to the list or null
+     * @param removedUris Entry URIs removed from the list or null
+     */
+    public synchronized void applyChange(String uri, String previousEtag, String etag,
+            String addedUri, Collection<String> removedUris) {
+        String document = getDocument(uri);
+        Iterator<Map.Entry<String, Entry>> iterator = getEntries().entrySet().iterator();
+        boolean changed = false;
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> cached = iterator.next();
+            if (!document.equals(getDocument(cached.getKey()))) {
+                continue;
+            }
+            changed = true;
+            Entry entry = cached.getValue();
+            if (previousEtag == null || etag == null || !previousEtag.equals(entry.mEtag)) {
+                iterator.remove();
+                continue;
+            }
+            List<String> uris = entry.mUris;
+            if (cached.getKey().equals(uri)) {
+                uris = new ArrayList<>(uris);
+                if (removedUris != null) {
+                    uris.removeAll(removedUris);
+                }
+                if (addedUri != null && !uris.contains(addedUri)) {
+                    uris.add(addedUri);
+                }
+            }
+            cached.setValue(new Entry(etag, uris));
+        }
+        if (changed) {
+            save();
+        }
+    }
+
+    /**
+     * Drop the cached lists of a document, e.g. when it has been changed on the server
+     *
+     * @param uri XCAP URI of the document or of a node of the document
+     */
+    public synchronized void invalidate(String uri) {
+        String document = getDocument(uri);
+        Iterator<String> iterator = getEntries().keySet().iterator();
+        boolean changed = false;
+        while (iterator.hasNext()) {
+            if (document.equals(getDocument(iterator.next()))) {
+                iterator.remove();
+                changed = true;
+            }
+        }
+        if (changed) {
+            save();
+        }
+    }
+
+    /**
+     * Drop all the cached lists
+     */
+    public synchronized void clear() {
+        getEntries().clear();
+        mFile.delete();
+    }
+
+    /**
+     * Returns the document selector of an XCAP URI
+     *
+     * @param uri XCAP URI
+     * @return Document selector
+     */
+    private static String getDocument(String uri) {
+        int index = uri.indexOf(NODE_SELECTOR_SEPARATOR);
+        return index == -1 ? uri : uri.substring(0, index);
+    }
+
+    private Map<String, Entry> getEntries() {
+        if (mEntries == null) {
+            mEntries = new HashMap<>();
+            load();
+        }
+        return mEntries;
+    }
+
+    private void load() {
+        boolean read = mFile.read(new PersistedFile.Reader() {
+            @Override
+            public void read(DataInputStream input) throws IOException {
+                int count = input.readInt();
+                for (int i = 0; i < count; i++) {
+                    String uri = input.readUTF();
+                    String etag = input.readUTF();
+                    int size = input.readInt();
+                    List<String> uris = new ArrayList<>(size);
+                    for (int j = 0; j < size; j++) {
+                        uris.add(input.readUTF());
+                    }
+                    mEntries.put(uri, new Entry(etag, uris));
+                }
+            }
+        });
+        if (!read) {
+            mEntries.clear();
+        }
+    }
+
+    private void save() {
+        mFile.write(new PersistedFile.Writer() {
+            @Override
+            public void write(DataOutputStream output) throws IOException {
+                output.writeInt(mEntries.size());
+                for (Map.Entry<String, Entry> cached : mEntries.entrySet()) {
+                    Entry entry = cached.getValue();
+                    output.writeUTF(cached.getKey());
+                    output.writeUTF(entry.mEtag);
+                    output.writeInt(entry.mUris.size());
+                    for (String uri : entry.mUris) {
+                        output.writeUTF(uri);
+                    }
+                }
+            }
+        });
+    }
+}
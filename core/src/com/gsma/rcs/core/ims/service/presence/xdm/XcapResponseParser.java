@@ -22,6 +22,7 @@
 
 package com.gsma.rcs.core.ims.service.presence.xdm;
 
+import com.gsma.rcs.utils.XmlParserUtils;
 import com.gsma.rcs.utils.logger.Logger;
 
 import org.xml.sax.Attributes;
@@ -35,8 +36,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 
 /**
  * XCAP response parser
@@ -64,9 +63,7 @@ public class XcapResponseParser extends DefaultHandler {
      */
     public XcapResponseParser(InputSource inputSource) throws ParserConfigurationException,
             SAXException, IOException {
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        SAXParser parser = factory.newSAXParser();
-        parser.parse(inputSource, this);
+        XmlParserUtils.parse(inputSource, this);
     }
 
     public void startDocument() {
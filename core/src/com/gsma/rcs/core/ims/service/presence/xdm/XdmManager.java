@@ -35,6 +35,7 @@ import com.gsma.rcs.core.ims.protocol.http.HttpGetRequest;
 import com.gsma.rcs.core.ims.protocol.http.HttpPutRequest;
 import com.gsma.rcs.core.ims.protocol.http.HttpRequest;
 import com.gsma.rcs.core.ims.protocol.http.HttpResponse;
+import com.gsma.rcs.core.ims.protocol.http.PersistentHttpClient;
 import com.gsma.rcs.core.ims.service.presence.PhotoIcon;
 import com.gsma.rcs.core.ims.service.presence.directory.Folder;
 import com.gsma.rcs.core.ims.service.presence.directory.XcapDirectoryParser;
@@ -42,7 +43,6 @@ import com.gsma.rcs.core.ims.userprofile.UserProfile;
 import com.gsma.rcs.platform.network.NetworkFactory;
 import com.gsma.rcs.platform.network.SocketConnection;
 import com.gsma.rcs.utils.Base64;
-import com.gsma.rcs.utils.CloseableUtils;
 import com.gsma.rcs.utils.ContactUtil;
 import com.gsma.rcs.utils.ContactUtil.PhoneNumber;
 import com.gsma.rcs.utils.PhoneUtils;
@@ -57,11 +57,12 @@ import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
@@ -109,12 +110,47 @@ public class XdmManager {
 
     private static final int DEFAULT_HTTP_PORT = 80;
 
+    /**
+     * Maximum number of idle connections kept open to the XDM server
+     */
+    private static final int MAX_IDLE_CONNECTIONS = 2;
+
+    /**
+     * Time after which an idle connection to the XDM server is closed in milliseconds
+     */
+    private static final long KEEP_ALIVE_TIMEOUT = 30000;
+
+    /**
+     * Maximum number of times a request is sent
+     */
+    private static final int MAX_SEND_ATTEMPTS = 3;
+
+    private static final String XCAP_CACHE_FILENAME = "xcap_cache";
+
+    private static final String GRANTED_LIST = "rcs";
+
+    private static final String BLOCKED_LIST = "rcs_blockedcontacts";
+
+    private static final String REVOKED_LIST = "rcs_revokedcontacts";
+
     private Uri xdmServerAddr;
 
     private String xdmServerLogin;
 
     private String xdmServerPwd;
 
+    /**
+     * Authentication agent shared by the requests so that the nonce of the last challenge is
+     * reused
+     */
+    private HttpAuthenticationAgent mAuthenticationAgent = new HttpAuthenticationAgent(null, null);
+
+    private PersistentHttpClient mHttpClient;
+
+    private String mServiceRoot;
+
+    private final XcapDocumentCache mCache;
+
     /**
      * Managed documents
      */
@@ -132,10 +168,12 @@ public class XdmManager {
      */
     public XdmManager(Context ctx) {
         mCtx = ctx;
+        mCache = new XcapDocumentCache(new File(ctx.getFilesDir(), XCAP_CACHE_FILENAME));
     }
 
     /**
-     * Send HTTP PUT request
+     * Send HTTP request, authenticating the request and sending it again once if the server
+     * challenges it or if the document changed on the server
      * 
      * @param request HTTP request
      * @return HTTP response
@@ -144,224 +182,249 @@ public class XdmManager {
      */
     private HttpResponse sendRequestToXDMS(HttpRequest request) throws PayloadException,
             NetworkException {
-        return sendRequestToXDMS(request, new HttpAuthenticationAgent(xdmServerLogin, xdmServerPwd));
+        return checkResponse(request, sendHttpRequest(request));
     }
 
     /**
-     * Send HTTP PUT request with authentication
+     * Send HTTP requests pipelined on a same connection
+     * 
+     * @param requests HTTP requests
+     * @return HTTP responses in the order of the requests
+     * @throws PayloadException
+     * @throws NetworkException
+     */
+    private List<HttpResponse> sendRequestsToXDMS(List<HttpRequest> requests)
+            throws PayloadException, NetworkException {
+        List<PersistentHttpClient.Request> httpRequests = new ArrayList<>(requests.size());
+        for (HttpRequest request : requests) {
+            httpRequests.add(createHttpRequest(request));
+        }
+        List<HttpResponse> responses = getHttpClient().execute(httpRequests);
+        for (int i = 0; i < responses.size(); i++) {
+            HttpRequest request = requests.get(i);
+            HttpResponse response = responses.get(i);
+            readHttpResponse(request, response);
+            responses.set(i, checkResponse(request, response));
+        }
+        return responses;
+    }
+
+    /**
+     * Check the response to a request and send the request again if needed
      * 
      * @param request HTTP request
-     * @param authenticationAgent Authentication agent
-     * @return HTTP response
+     * @param response HTTP response
+     * @return Final HTTP response
      * @throws PayloadException
      * @throws NetworkException
      */
-    private HttpResponse sendRequestToXDMS(HttpRequest request,
-            HttpAuthenticationAgent authenticationAgent) throws PayloadException, NetworkException {
-        HttpResponse response = sendHttpRequest(request, authenticationAgent);
-        final int responseCode = response.getResponseCode();
-        switch (responseCode) {
-            case Response.UNAUTHORIZED:
-                if (sLogger.isActivated()) {
-                    sLogger.debug("401 Unauthorized response received");
-                }
-                if (authenticationAgent != null) {
-                    authenticationAgent.readWwwAuthenticateHeader(response
-                            .getHeader("www-authenticate"));
-                }
-                String cookie = response.getHeader("set-cookie");
-                request.setCookie(cookie);
-                return sendRequestToXDMS(request, authenticationAgent);
+    private HttpResponse checkResponse(HttpRequest request, HttpResponse response)
+            throws PayloadException, NetworkException {
+        for (int attempt = 1; attempt < MAX_SEND_ATTEMPTS; attempt++) {
+            switch (response.getResponseCode()) {
+                case Response.UNAUTHORIZED:
+                    if (sLogger.isActivated()) {
+                        sLogger.debug("401 Unauthorized response received");
+                    }
+                    synchronized (mAuthenticationAgent) {
+                        mAuthenticationAgent.readWwwAuthenticateHeader(response
+                                .getHeader("www-authenticate"));
+                    }
+                    String cookie = response.getHeader("set-cookie");
+                    if (cookie != null) {
+                        request.setCookie(cookie);
+                    }
+                    break;
 
-            case Response.CONDITIONAL_REQUEST_FAILED:
-                if (sLogger.isActivated()) {
-                    sLogger.debug("412 Precondition failed");
-                }
-                documents.remove(request.getAUID());
-                return sendRequestToXDMS(request);
+                case Response.CONDITIONAL_REQUEST_FAILED:
+                    if (sLogger.isActivated()) {
+                        sLogger.debug("412 Precondition failed");
+                    }
+                    documents.remove(request.getAUID());
+                    mCache.invalidate(getCacheKey(request.getUrl()));
+                    break;
 
-            default:
-                throw new NetworkException(new StringBuilder("Invalid response : ").append(
-                        responseCode).toString());
+                default:
+                    return response;
+            }
+            response = sendHttpRequest(request);
         }
+        return response;
     }
 
     /**
-     * Send HTTP PUT request
+     * Send HTTP request
      * 
      * @param request HTTP request
-     * @param authenticationAgent Authentication agent
      * @return HTTP response
      * @throws PayloadException
      * @throws NetworkException
      */
-    // @FIXME: This method needs a complete refactor, However at this moment due to other prior
-    // tasks the refactoring task has been kept in backlog.
-    private HttpResponse sendHttpRequest(HttpRequest request,
-            HttpAuthenticationAgent authenticationAgent) throws PayloadException, NetworkException {
-        SocketConnection conn = null;
-        InputStream is = null;
-        OutputStream os = null;
-        try {
-            URL url = new URL(xdmServerAddr.toString());
-            StringBuilder serviceRoot = new StringBuilder();
-            final String path = url.getPath();
-            if (!TextUtils.isEmpty(path)) {
-                serviceRoot.append(path);
-            }
-            /* Open connection with the XCAP server */
-            conn = NetworkFactory.getFactory().createSocketClientConnection();
-            final String host = url.getHost();
-            int port = url.getPort();
-            if (port == -1) {
-                port = PROTOCOL_HTTPS.equals(url.getProtocol()) ? DEFAULT_HTTPS_PORT
-                        : DEFAULT_HTTP_PORT;
-            }
-            conn.open(host, port);
-            is = conn.getInputStream();
-            os = conn.getOutputStream();
-
-            /* Create the HTTP request */
-            String requestUri = serviceRoot.append(request.getUrl()).toString();
-            StringBuilder httpRequest = new StringBuilder(request.getMethod()).append(" ")
-                    .append(requestUri).append(" HTTP/1.1").append(CRLF).append("Host: ")
-                    .append(host).append(":").append(port).append(CRLF).append("User-Agent: ")
-                    .append(TerminalInfo.getProductName()).append(" ")
-                    .append(TerminalInfo.getProductVersion(mCtx)).append(CRLF);
-
-            if (authenticationAgent != null) {
-                String authorizationHeader = authenticationAgent.generateAuthorizationHeader(
-                        request.getMethod(), requestUri, request.getContent());
-                httpRequest.append(authorizationHeader).append(CRLF);
-            }
+    private HttpResponse sendHttpRequest(HttpRequest request) throws PayloadException,
+            NetworkException {
+        HttpResponse response = getHttpClient().execute(createHttpRequest(request));
+        readHttpResponse(request, response);
+        return response;
+    }
 
-            String cookie = request.getCookie();
-            if (cookie != null) {
-                httpRequest.append("Cookie: ").append(cookie).append(CRLF);
-            }
+    /**
+     * Create the request sent by the HTTP client
+     * 
+     * @param request HTTP request
+     * @return Request of the HTTP client
+     */
+    private PersistentHttpClient.Request createHttpRequest(HttpRequest request) {
+        String requestUri = mServiceRoot + request.getUrl();
+        StringBuilder headers = new StringBuilder("User-Agent: ")
+                .append(TerminalInfo.getProductName()).append(" ")
+                .append(TerminalInfo.getProductVersion(mCtx)).append(CRLF);
+
+        /* The nonce of the last challenge is reused with an incremented nonce count */
+        synchronized (mAuthenticationAgent) {
+            headers.append(
+                    mAuthenticationAgent.generateAuthorizationHeader(request.getMethod(),
+                            requestUri, request.getContent())).append(CRLF);
+        }
 
-            httpRequest.append("X-3GPP-Intended-Identity: \"")
-                    .append(ImsModule.getImsUserProfile().getXdmServerLogin()).append("\"")
-                    .append(CRLF);
+        String cookie = request.getCookie();
+        if (cookie != null) {
+            headers.append("Cookie: ").append(cookie).append(CRLF);
+        }
 
-            /* Set the If-match header */
-            Folder folder = documents.get(request.getAUID());
-            if ((folder != null) && (folder.getEntry() != null)
-                    && (folder.getEntry().getEtag() != null)) {
-                httpRequest.append("If-match: \"").append(folder.getEntry().getEtag()).append("\"")
-                        .append(CRLF);
-            }
+        headers.append("X-3GPP-Intended-Identity: \"")
+                .append(ImsModule.getImsUserProfile().getXdmServerLogin()).append("\"")
+                .append(CRLF);
 
-            if (request.getContent() != null) {
-                httpRequest.append("Content-type: ").append(request.getContentType()).append(CRLF);
-                httpRequest.append("Content-Length:").append(request.getContentLength())
-                        .append(CRLF).append(CRLF);
-            } else {
-                httpRequest.append("Content-Length: 0").append(CRLF).append(CRLF);
+        if (request instanceof HttpGetRequest) {
+            /* Read a cached list only if it has been modified */
+            XcapDocumentCache.Entry entry = mCache.get(getCacheKey(request.getUrl()));
+            if (entry != null) {
+                headers.append("If-None-Match: \"").append(entry.getEtag()).append("\"")
+                        .append(CRLF);
             }
-
-            /* Write HTTP request headers */
-            os.write(httpRequest.toString().getBytes(UTF8));
-            os.flush();
-
-            /* Write HTTP content */
-            if (request.getContent() != null) {
-                os.write(request.getContent().getBytes(UTF8));
-                os.flush();
+        } else {
+            /* Set the If-match header */
+            String etag = getDocumentEtag(request);
+            if (etag != null) {
+                headers.append("If-match: \"").append(etag).append("\"").append(CRLF);
             }
+        }
 
+        byte[] content = null;
+        if (request.getContent() != null) {
+            headers.append("Content-type: ").append(request.getContentType()).append(CRLF);
+            content = request.getContent().getBytes(UTF8);
             if (sLogger.isActivated()) {
-                if (request.getContent() != null) {
-                    sLogger.debug("Send HTTP request:\n" + httpRequest + request.getContent());
-                } else {
-                    sLogger.debug("Send HTTP request:\n" + httpRequest);
-                }
+                sLogger.debug("HTTP request content:\n" + request.getContent());
             }
+        }
+        return new PersistentHttpClient.Request(request.getMethod(), requestUri,
+                headers.toString(), content);
+    }
 
-            /* Read HTTP headers response */
-            StringBuffer respTrace = new StringBuffer();
-            HttpResponse response = new HttpResponse();
-            int ch = -1;
-            String line = "";
-            while ((ch = is.read()) != -1) {
-                line += (char) ch;
-
-                if (line.endsWith(CRLF)) {
-                    if (line.equals(CRLF)) {
-                        /* All headers has been read */
-                        break;
-                    }
-
-                    if (sLogger.isActivated()) {
-                        respTrace.append(line);
-                    }
-
-                    /* Remove CRLF */
-                    line = line.substring(0, line.length() - 2);
-
-                    if (line.startsWith("HTTP/")) {
-                        response.setStatusLine(line);
-                    } else {
-                        int index = line.indexOf(":");
-                        String name = line.substring(0, index).trim().toLowerCase();
-                        String value = line.substring(index + 1).trim();
-                        response.addHeader(name, value);
-                    }
+    /**
+     * Read the authentication info and the Etag of a response
+     * 
+     * @param request HTTP request
+     * @param response HTTP response
+     */
+    private void readHttpResponse(HttpRequest request, HttpResponse response) {
+        synchronized (mAuthenticationAgent) {
+            mAuthenticationAgent.readAuthenticationInfoHeader(response
+                    .getHeader("authentication-info"));
+        }
+        if (sLogger.isActivated() && response.getContent() != null) {
+            sLogger.debug("HTTP response content:\n" + new String(response.getContent(), UTF8));
+        }
 
-                    line = "";
-                }
-            }
+        /* Save the Etag from the received response */
+        String etag = getEtag(response);
+        Folder folder = documents.get(request.getAUID());
+        if ((etag != null) && (folder != null) && (folder.getEntry() != null)) {
+            folder.getEntry().setEtag(etag);
+        }
+    }
 
-            int contentLength = -1;
-            try {
-                String value = response.getHeader("content-length");
-                contentLength = Integer.parseInt(value);
-            } catch (NumberFormatException e) {
-                contentLength = -1;
-            }
+    /**
+     * Returns the Etag of a response without quotes
+     * 
+     * @param response HTTP response
+     * @return Etag or null
+     */
+    private static String getEtag(HttpResponse response) {
+        String etag = response.getHeader("etag");
+        if (etag != null && etag.length() >= 2 && etag.startsWith("\"") && etag.endsWith("\"")) {
+            return etag.substring(1, etag.length() - 1);
+        }
+        return etag;
+    }
 
-            if (contentLength > 0) {
-                byte[] content = new byte[contentLength];
-                int nb = -1;
-                int pos = 0;
-                byte[] buffer = new byte[1024];
-                while ((nb = is.read(buffer)) != -1) {
-                    System.arraycopy(buffer, 0, content, pos, nb);
-                    pos += nb;
-
-                    if (pos >= contentLength) {
-                        break;
-                    }
-                }
-                if (sLogger.isActivated()) {
-                    respTrace.append(CRLF).append(new String(content, UTF8));
-                }
-                response.setContent(content);
-            }
+    /**
+     * Returns the known Etag of the document targeted by a request
+     * 
+     * @param request HTTP request
+     * @return Etag or null
+     */
+    private String getDocumentEtag(HttpRequest request) {
+        Folder folder = documents.get(request.getAUID());
+        if ((folder == null) || (folder.getEntry() == null)) {
+            return null;
+        }
+        return folder.getEntry().getEtag();
+    }
 
-            if (sLogger.isActivated()) {
-                sLogger.debug("Receive HTTP response:\n" + respTrace.toString());
-            }
+    /**
+     * Returns the key of an XCAP URI in the cache
+     * 
+     * @param url XCAP URI relative to the XDM server address
+     * @return Key
+     */
+    private String getCacheKey(String url) {
+        return xdmServerAddr + url;
+    }
 
-            /* Save the Etag from the received response */
-            String etag = response.getHeader("etag");
-            if ((etag != null) && (folder != null) && (folder.getEntry() != null)) {
-                folder.getEntry().setEtag(etag);
+    /**
+     * Returns the HTTP client connected to the XDM server
+     * 
+     * @return HTTP client
+     * @throws PayloadException
+     */
+    private synchronized PersistentHttpClient getHttpClient() throws PayloadException {
+        if (mHttpClient != null) {
+            return mHttpClient;
+        }
+        try {
+            URL url = new URL(xdmServerAddr.toString());
+            final String path = url.getPath();
+            mServiceRoot = TextUtils.isEmpty(path) ? "" : path;
+            int port = url.getPort();
+            if (port == -1) {
+                port = PROTOCOL_HTTPS.equals(url.getProtocol()) ? DEFAULT_HTTPS_PORT
+                        : DEFAULT_HTTP_PORT;
             }
-            return response;
+            mHttpClient = new PersistentHttpClient(url.getHost(), port,
+                    new PersistentHttpClient.IConnectionFactory() {
+                        @Override
+                        public SocketConnection createConnection() {
+                            return NetworkFactory.getFactory().createSocketClientConnection();
+                        }
+                    }, MAX_IDLE_CONNECTIONS, KEEP_ALIVE_TIMEOUT);
+            return mHttpClient;
 
         } catch (MalformedURLException e) {
             throw new PayloadException(new StringBuilder(
                     "Failed to send http request, malformed uri: ").append(xdmServerAddr)
                     .toString(), e);
+        }
+    }
 
-        } catch (IOException e) {
-            throw new NetworkException("Failed to send http request!", e);
-
-        } finally {
-            CloseableUtils.tryToClose(conn);
-            CloseableUtils.tryToClose(is);
-            CloseableUtils.tryToClose(os);
+    /**
+     * Close the connections to the XDM server
+     */
+    public synchronized void terminate() {
+        if (mHttpClient != null) {
+            mHttpClient.close();
+            mHttpClient = null;
         }
     }
 
@@ -377,6 +440,8 @@ public class XdmManager {
             xdmServerAddr = profile.getXdmServerAddr();
             xdmServerLogin = profile.getXdmServerLogin();
             xdmServerPwd = profile.getXdmServerPassword();
+            terminate();
+            mAuthenticationAgent = new HttpAuthenticationAgent(xdmServerLogin, xdmServerPwd);
 
             HttpResponse response = getXcapDocuments();
             if (!response.isSuccessfullResponse()) {
@@ -388,6 +453,9 @@ public class XdmManager {
             XcapDirectoryParser parser = new XcapDirectoryParser(input);
             documents = parser.getDocuments();
 
+            // The missing documents are set by requests pipelined on a same connection
+            List<HttpRequest> requests = new ArrayList<>();
+
             // Check RCS list document
             Folder folder = documents.get("rls-services");
             if ((folder == null) || (folder.getEntry() == null)) {
@@ -396,7 +464,7 @@ public class XdmManager {
                 }
 
                 // Set RCS list document
-                setRcsList();
+                requests.add(createRcsListRequest());
             } else {
                 if (sLogger.isActivated()) {
                     sLogger.debug("The rls-services document already exists");
@@ -411,7 +479,7 @@ public class XdmManager {
                 }
 
                 // Set resource list document
-                setResourcesList();
+                requests.add(createResourcesListRequest());
             } else {
                 if (sLogger.isActivated()) {
                     sLogger.debug("The resource-lists document already exists");
@@ -426,12 +494,16 @@ public class XdmManager {
                 }
 
                 // Set presence rules document
-                setPresenceRules();
+                requests.add(createPresenceRulesRequest());
             } else {
                 if (sLogger.isActivated()) {
                     sLogger.debug("The org.openmobilealliance.pres-rules document already exists");
                 }
             }
+
+            if (!requests.isEmpty()) {
+                sendRequestsToXDMS(requests);
+            }
         } catch (ParserConfigurationException e) {
             throw new PayloadException("Can't parse the XCAP directory document!", e);
 
@@ -457,13 +529,11 @@ public class XdmManager {
     }
 
     /**
-     * Set RCS list
+     * Create the request to set RCS list
      * 
-     * @return Response
-     * @throws PayloadException
-     * @throws NetworkException
+     * @return Request
      */
-    private HttpResponse setRcsList() throws PayloadException, NetworkException {
+    private HttpRequest createRcsListRequest() {
         if (sLogger.isActivated()) {
             sLogger.info("Set RCS list");
         }
@@ -481,19 +551,17 @@ public class XdmManager {
                 .append(" <package>presence</package>").append(CRLF).append("</packages>")
                 .append(CRLF).append("</service></rls-services>").toString();
 
-        return sendRequestToXDMS(new HttpPutRequest(Uri.fromParts(RLS_SCHEME, user, INDEX_FRAGMENT)
-                .getEncodedPath(), content, CONTENT_TYPE_RLS));
+        return new HttpPutRequest(Uri.fromParts(RLS_SCHEME, user, INDEX_FRAGMENT)
+                .getEncodedPath(), content, CONTENT_TYPE_RLS);
 
     }
 
     /**
-     * Set resources list
+     * Create the request to set resources list
      * 
-     * @return Response
-     * @throws PayloadException
-     * @throws NetworkException
+     * @return Request
      */
-    private HttpResponse setResourcesList() throws PayloadException, NetworkException {
+    private HttpRequest createResourcesListRequest() {
         if (sLogger.isActivated()) {
             sLogger.info("Set resources list");
         }
@@ -523,19 +591,17 @@ public class XdmManager {
                 .append(" <display-name>My revoked contacts</display-name>").append(CRLF)
                 .append("</list>").append(CRLF).append("</resource-lists>").toString();
 
-        return sendRequestToXDMS(new HttpPutRequest(Uri.fromParts(RESOURCE_SCHEME, user,
-                INDEX_FRAGMENT).getEncodedPath(), content, CONTENT_TYPE_RESOURCE));
+        return new HttpPutRequest(Uri.fromParts(RESOURCE_SCHEME, user, INDEX_FRAGMENT)
+                .getEncodedPath(), content, CONTENT_TYPE_RESOURCE);
 
     }
 
     /**
-     * Set presence rules
+     * Create the request to set presence rules
      * 
-     * @return Response
-     * @throws PayloadException
-     * @throws NetworkException
+     * @return Request
      */
-    private HttpResponse setPresenceRules() throws PayloadException, NetworkException {
+    private HttpRequest createPresenceRulesRequest() {
         if (sLogger.isActivated()) {
             sLogger.info("Set presence rules");
         }
@@ -595,8 +661,151 @@ public class XdmManager {
                 .append(" <cr:actions><pr:sub-handling>block</pr:sub-handling></cr:actions>")
                 .append(CRLF).append("</cr:rule>").append(CRLF).append("</cr:ruleset>").toString();
 
-        return sendRequestToXDMS(new HttpPutRequest(Uri.fromParts(PRES_RULES_SCHEME, user,
-                PRES_RULES_FRAGMENT).getEncodedPath(), content, CONTENT_TYPE_AUTH));
+        return new HttpPutRequest(Uri.fromParts(PRES_RULES_SCHEME, user, PRES_RULES_FRAGMENT)
+                .getEncodedPath(), content, CONTENT_TYPE_AUTH);
+    }
+
+    /**
+     * Returns the XCAP URI of a list of the resource-lists document
+     * 
+     * @param listName Name of the list
+     * @return URI
+     */
+    private String getListUrl(String listName) {
+        return new StringBuilder("/resource-lists/users/")
+                .append(Uri.encode(ImsModule.getImsUserProfile().getPublicUri()))
+                .append("/index/~~/resource-lists/list%5B@name=%22").append(listName)
+                .append("%22%5D").toString();
+    }
+
+    /**
+     * Returns the XCAP URI of the entry of a contact in a list of the resource-lists document
+     * 
+     * @param listName Name of the list
+     * @param contact Contact
+     * @return URI
+     */
+    private String getEntryUrl(String listName, ContactId contact) {
+        return new StringBuilder(getListUrl(listName)).append("/entry%5B@uri=%22")
+                .append(Uri.encode(PhoneUtils.formatContactIdToUri(contact).toString()))
+                .append("%22%5D").toString();
+    }
+
+    /**
+     * Add a contact to a list and apply the change to the cached lists
+     * 
+     * @param listName Name of the list
+     * @param contact Contact
+     * @return Response
+     * @throws PayloadException
+     * @throws NetworkException
+     */
+    private HttpResponse addContactToList(String listName, ContactId contact)
+            throws PayloadException, NetworkException {
+        String entryUri = contact.toString();
+        String content = "<entry uri='" + entryUri + "'></entry>";
+        HttpPutRequest request = new HttpPutRequest(getEntryUrl(listName, contact), content,
+                "application/xcap-el+xml");
+        String previousEtag = getDocumentEtag(request);
+        HttpResponse response = sendRequestToXDMS(request);
+        if (response.isSuccessfullResponse()) {
+            String key = getCacheKey(getListUrl(listName));
+            /* The entry is not added twice if the list already has it under another URI form */
+            if (!getCachedEntryUris(key, contact).isEmpty()) {
+                entryUri = null;
+            }
+            mCache.applyChange(key, previousEtag, getEtag(response), entryUri, null);
+        }
+        return response;
+    }
+
+    /**
+     * Remove a contact from a list and apply the change to the cached lists
+     * 
+     * @param listName Name of the list
+     * @param contact Contact
+     * @return Response
+     * @throws PayloadException
+     * @throws NetworkException
+     */
+    private HttpResponse removeContactFromList(String listName, ContactId contact)
+            throws PayloadException, NetworkException {
+        HttpDeleteRequest request = new HttpDeleteRequest(getEntryUrl(listName, contact));
+        String previousEtag = getDocumentEtag(request);
+        HttpResponse response = sendRequestToXDMS(request);
+        if (response.isSuccessfullResponse()) {
+            String key = getCacheKey(getListUrl(listName));
+            mCache.applyChange(key, previousEtag, getEtag(response), null,
+                    getCachedEntryUris(key, contact));
+        }
+        return response;
+    }
+
+    /**
+     * Returns the cached entry URIs of a list which designate a contact<br>
+     * The URIs are compared by their phone number as the list may have the contact under any URI
+     * form: the one added by this client, a tel URI or a SIP URI.
+     * 
+     * @param key Key of the list in the cache
+     * @param contact Contact
+     * @return URIs
+     */
+    private List<String> getCachedEntryUris(String key, ContactId contact) {
+        List<String> uris = new ArrayList<>();
+        XcapDocumentCache.Entry entry = mCache.get(key);
+        if (entry == null) {
+            return uris;
+        }
+        for (String uri : entry.getUris()) {
+            PhoneNumber number = ContactUtil.getValidPhoneNumberFromUri(uri);
+            if (number != null
+                    && contact.equals(ContactUtil.createContactIdFromValidatedData(number))) {
+                uris.add(uri);
+            }
+        }
+        return uris;
+    }
+
+    /**
+     * Returns the entry URIs of a list, read with a conditional GET if the list is cached
+     * 
+     * @param listName Name of the list
+     * @return URIs
+     * @throws PayloadException
+     * @throws NetworkException
+     */
+    private List<String> getListUris(String listName) throws PayloadException, NetworkException {
+        String url = getListUrl(listName);
+        try {
+            String key = getCacheKey(url);
+            XcapDocumentCache.Entry entry = mCache.get(key);
+            HttpResponse response = sendRequestToXDMS(new HttpGetRequest(url));
+            if (entry != null
+                    && HttpURLConnection.HTTP_NOT_MODIFIED == response.getResponseCode()) {
+                if (sLogger.isActivated()) {
+                    sLogger.debug("List " + listName + " not modified, use cached list");
+                }
+                return entry.getUris();
+            }
+            if (!response.isSuccessfullResponse()) {
+                throw new PayloadException(new StringBuilder("Can't get list ").append(listName)
+                        .append(", Error Response :  ").append(response.getResponseCode())
+                        .append("!").toString());
+            }
+            InputSource input = new InputSource(new ByteArrayInputStream(response.getContent()));
+            List<String> uris = new XcapResponseParser(input).getUris();
+            mCache.put(key, getEtag(response), uris);
+            return uris;
+
+        } catch (ParserConfigurationException e) {
+            throw new PayloadException("Unable to get list " + listName + "!", e);
+
+        } catch (SAXException e) {
+            throw new PayloadException("Unable to get list " + listName + "!", e);
+
+        } catch (IOException e) {
+            throw new NetworkException("Unable to get list " + listName + "!", e);
+        }
     }
 
     /**
@@ -612,21 +821,7 @@ public class XdmManager {
         if (sLogger.isActivated()) {
             sLogger.info("Add " + contact + " to granted list");
         }
-
-        // URL
-        String url = "/resource-lists/users/"
-                + Uri.encode(ImsModule.getImsUserProfile().getPublicUri())
-                + "/index/~~/resource-lists/list%5B@name=%22rcs%22%5D/entry%5B@uri=%22"
-                + Uri.encode(PhoneUtils.formatContactIdToUri(contact).toString()) + "%22%5D";
-
-        // Content
-        String content = "<entry uri='" + contact + "'></entry>";
-
-        // Create the request
-        HttpPutRequest request = new HttpPutRequest(url, content, "application/xcap-el+xml");
-
-        // Send the request
-        HttpResponse response = sendRequestToXDMS(request);
+        HttpResponse response = addContactToList(GRANTED_LIST, contact);
         if (response.isSuccessfullResponse()) {
             if (sLogger.isActivated()) {
                 sLogger.info(contact + " has been added with success to granted list");
@@ -653,18 +848,7 @@ public class XdmManager {
         if (sLogger.isActivated()) {
             sLogger.info("Remove " + contact + " from granted list");
         }
-
-        // URL
-        String url = "/resource-lists/users/"
-                + Uri.encode(ImsModule.getImsUserProfile().getPublicUri())
-                + "/index/~~/resource-lists/list%5B@name=%22rcs%22%5D/entry%5B@uri=%22"
-                + Uri.encode(PhoneUtils.formatContactIdToUri(contact).toString()) + "%22%5D";
-
-        // Create the request
-        HttpDeleteRequest request = new HttpDeleteRequest(url);
-
-        // Send the request
-        HttpResponse response = sendRequestToXDMS(request);
+        HttpResponse response = removeContactFromList(GRANTED_LIST, contact);
         if (response.isSuccessfullResponse()) {
             if (sLogger.isActivated()) {
                 sLogger.info(contact + " has been removed with success from granted list");
@@ -703,35 +887,14 @@ public class XdmManager {
      * @throws PayloadException
      */
     public Set<ContactId> getGrantedContacts() throws PayloadException, NetworkException {
-        try {
-            if (sLogger.isActivated()) {
-                sLogger.info("Get granted contacts list");
-            }
-            String url = "/resource-lists/users/"
-                    + Uri.encode(ImsModule.getImsUserProfile().getPublicUri())
-                    + "/index/~~/resource-lists/list%5B@name=%22rcs%22%5D";
-            HttpResponse response = sendRequestToXDMS(new HttpGetRequest(url));
-            if (!response.isSuccessfullResponse()) {
-                throw new PayloadException(new StringBuilder(
-                        "Can't get granted contacts list, Error Response :  ")
-                        .append(response.getResponseCode()).append("!").toString());
-            }
-            if (sLogger.isActivated()) {
-                sLogger.info("Granted contacts list has been read with success");
-            }
-            InputSource input = new InputSource(new ByteArrayInputStream(response.getContent()));
-            XcapResponseParser parser = new XcapResponseParser(input);
-            return convertListOfUrisToSetOfContactId(parser.getUris());
-
-        } catch (ParserConfigurationException e) {
-            throw new PayloadException("Unable to get granted contacts list!", e);
-
-        } catch (SAXException e) {
-            throw new PayloadException("Unable to get granted contacts list!", e);
-
-        } catch (IOException e) {
-            throw new NetworkException("Unable to get granted contacts list!", e);
+        if (sLogger.isActivated()) {
+            sLogger.info("Get granted contacts list");
         }
+        List<String> uris = getListUris(GRANTED_LIST);
+        if (sLogger.isActivated()) {
+            sLogger.info("Granted contacts list has been read with success");
+        }
+        return convertListOfUrisToSetOfContactId(uris);
     }
 
     /**
@@ -747,11 +910,7 @@ public class XdmManager {
         if (sLogger.isActivated()) {
             sLogger.info("Remove " + contact + " from blocked list");
         }
-        String url = "/resource-lists/users/"
-                + Uri.encode(ImsModule.getImsUserProfile().getPublicUri())
-                + "/index/~~/resource-lists/list%5B@name=%22rcs_blockedcontacts%22%5D/entry%5B@uri=%22"
-                + Uri.encode(PhoneUtils.formatContactIdToUri(contact).toString()) + "%22%5D";
-        return sendRequestToXDMS(new HttpDeleteRequest(url));
+        return removeContactFromList(BLOCKED_LIST, contact);
     }
 
     /**
@@ -762,35 +921,14 @@ public class XdmManager {
      * @throws NetworkException
      */
     public Set<ContactId> getBlockedContacts() throws PayloadException, NetworkException {
-        try {
-            if (sLogger.isActivated()) {
-                sLogger.info("Get blocked contacts list");
-            }
-            String url = "/resource-lists/users/"
-                    + Uri.encode(ImsModule.getImsUserProfile().getPublicUri())
-                    + "/index/~~/resource-lists/list%5B@name=%22rcs_blockedcontacts%22%5D";
-            HttpResponse response = sendRequestToXDMS(new HttpGetRequest(url));
-            if (!response.isSuccessfullResponse()) {
-                throw new PayloadException(new StringBuilder(
-                        "Can't get blocked contacts list, Error Response :  ")
-                        .append(response.getResponseCode()).append("!").toString());
-            }
-            if (sLogger.isActivated()) {
-                sLogger.info("Blocked contacts list has been read with success");
-            }
-            InputSource input = new InputSource(new ByteArrayInputStream(response.getContent()));
-            XcapResponseParser parser = new XcapResponseParser(input);
-            return convertListOfUrisToSetOfContactId(parser.getUris());
-
-        } catch (ParserConfigurationException e) {
-            throw new PayloadException("Unable to get blocked contacts list!", e);
-
-        } catch (SAXException e) {
-            throw new PayloadException("Unable to get blocked contacts list!", e);
-
-        } catch (IOException e) {
-            throw new NetworkException("Unable to get blocked contacts list!", e);
+        if (sLogger.isActivated()) {
+            sLogger.info("Get blocked contacts list");
+        }
+        List<String> uris = getListUris(BLOCKED_LIST);
+        if (sLogger.isActivated()) {
+            sLogger.info("Blocked contacts list has been read with success");
         }
+        return convertListOfUrisToSetOfContactId(uris);
     }
 
     /**
@@ -806,12 +944,7 @@ public class XdmManager {
         if (sLogger.isActivated()) {
             sLogger.info("Add " + contact + " to revoked list");
         }
-        String url = "/resource-lists/users/"
-                + Uri.encode(ImsModule.getImsUserProfile().getPublicUri())
-                + "/index/~~/resource-lists/list%5B@name=%22rcs_revokedcontacts%22%5D/entry%5B@uri=%22"
-                + Uri.encode(PhoneUtils.formatContactIdToUri(contact).toString()) + "%22%5D";
-        String content = "<entry uri='" + contact + "'></entry>";
-        return sendRequestToXDMS(new HttpPutRequest(url, content, "application/xcap-el+xml"));
+        return addContactToList(REVOKED_LIST, contact);
     }
 
     /**
@@ -827,11 +960,7 @@ public class XdmManager {
         if (sLogger.isActivated()) {
             sLogger.info("Remove " + contact + " from revoked list");
         }
-        String url = "/resource-lists/users/"
-                + Uri.encode(ImsModule.getImsUserProfile().getPublicUri())
-                + "/index/~~/resource-lists/list%5B@name=%22rcs_revokedcontacts%22%5D/entry%5B@uri=%22"
-                + Uri.encode(PhoneUtils.formatContactIdToUri(contact).toString()) + "%22%5D";
-        return sendRequestToXDMS(new HttpDeleteRequest(url));
+        return removeContactFromList(REVOKED_LIST, contact);
     }
 
     /**
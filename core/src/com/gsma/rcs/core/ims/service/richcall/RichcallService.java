@@ -38,6 +38,7 @@ import com.gsma.rcs.core.ims.protocol.PayloadException;
 import com.gsma.rcs.core.ims.protocol.sip.SipRequest;
 import com.gsma.rcs.core.ims.service.ImsService;
 import com.gsma.rcs.core.ims.service.ImsServiceSession.TerminationReason;
+import com.gsma.rcs.core.ims.service.SessionRegistry.Index;
 import com.gsma.rcs.core.ims.service.capability.CapabilityService;
 import com.gsma.rcs.core.ims.service.richcall.geoloc.GeolocTransferSession;
 import com.gsma.rcs.core.ims.service.richcall.geoloc.OriginatingGeolocTransferSession;
@@ -75,9 +76,6 @@ import android.os.Build;
 import android.os.Handler;
 import android.os.HandlerThread;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import javax2.sip.message.Response;
 
 /**
@@ -127,17 +125,20 @@ public class RichcallService extends ImsService {
     /**
      * ImageTransferSessionCache with Session ID as key
      */
-    private Map<String, ImageTransferSession> mImageTransferSessionCache = new HashMap<>();
+    private final Index<String, ImageTransferSession> mImageTransferSessionCache = getSessionRegistry()
+            .createIndex("ImageTransferSession");
 
     /**
      * VideoStreamingSessionCache with Session ID as key
      */
-    private Map<String, VideoStreamingSession> mVideoStremaingSessionCache = new HashMap<>();
+    private final Index<String, VideoStreamingSession> mVideoStremaingSessionCache = getSessionRegistry()
+            .createIndex("VideoStreamingSession");
 
     /**
      * GeolocTransferSessionCache with Session ID as key
      */
-    private Map<String, GeolocTransferSession> mGeolocTransferSessionCache = new HashMap<>();
+    private final Index<String, GeolocTransferSession> mGeolocTransferSessionCache = getSessionRegistry()
+            .createIndex("GeolocTransferSession");
 
     private final ContactManager mContactManager;
 
@@ -293,21 +294,15 @@ public class RichcallService extends ImsService {
         if (sLogger.isActivated()) {
             sLogger.debug("Get Unidirection ImageTransferSession ");
         }
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mImageTransferSessionCache.values().iterator().next();
-        }
+        return mImageTransferSessionCache.getAny();
     }
 
     private boolean isCurrentlyImageSharingUniDirectional() {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mImageTransferSessionCache.size() >= SharingDirection.UNIDIRECTIONAL;
-        }
+        return mImageTransferSessionCache.size() >= SharingDirection.UNIDIRECTIONAL;
     }
 
     private boolean isCurrentlyImageSharingBiDirectional() {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mImageTransferSessionCache.size() >= SharingDirection.BIDIRECTIONAL;
-        }
+        return mImageTransferSessionCache.size() >= SharingDirection.BIDIRECTIONAL;
     }
 
     private void assertMaximumImageTransferSize(long size, String errorMessage)
@@ -325,42 +320,30 @@ public class RichcallService extends ImsService {
         if (sLogger.isActivated()) {
             sLogger.debug("Get Unidirection VideoStreamingSession ");
         }
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mVideoStremaingSessionCache.values().iterator().next();
-        }
+        return mVideoStremaingSessionCache.getAny();
     }
 
     private boolean isCurrentlyVideoSharingUniDirectional() {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mVideoStremaingSessionCache.size() >= SharingDirection.UNIDIRECTIONAL;
-        }
+        return mVideoStremaingSessionCache.size() >= SharingDirection.UNIDIRECTIONAL;
     }
 
     private boolean isCurrentlyVideoSharingBiDirectional() {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mVideoStremaingSessionCache.size() >= SharingDirection.BIDIRECTIONAL;
-        }
+        return mVideoStremaingSessionCache.size() >= SharingDirection.BIDIRECTIONAL;
     }
 
     private GeolocTransferSession getUnidirectionalGeolocSharingSession() {
         if (sLogger.isActivated()) {
             sLogger.debug("Get Unidirection GeolocTransferSession ");
         }
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mGeolocTransferSessionCache.values().iterator().next();
-        }
+        return mGeolocTransferSessionCache.getAny();
     }
 
     private boolean isCurrentlyGeolocSharingUniDirectional() {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mGeolocTransferSessionCache.size() >= SharingDirection.UNIDIRECTIONAL;
-        }
+        return mGeolocTransferSessionCache.size() >= SharingDirection.UNIDIRECTIONAL;
     }
 
     private boolean isCurrentlyGeolocSharingBiDirectional() {
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mGeolocTransferSessionCache.size() >= SharingDirection.BIDIRECTIONAL;
-        }
+        return mGeolocTransferSessionCache.size() >= SharingDirection.BIDIRECTIONAL;
     }
 
     public void addSession(ImageTransferSession session) {
@@ -389,9 +372,7 @@ public class RichcallService extends ImsService {
         if (sLogger.isActivated()) {
             sLogger.debug("Get ImageTransferSession with sessionId '" + sessionId + "'");
         }
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mImageTransferSessionCache.get(sessionId);
-        }
+        return mImageTransferSessionCache.get(sessionId);
     }
 
     public void addSession(VideoStreamingSession session) {
@@ -420,9 +401,7 @@ public class RichcallService extends ImsService {
         if (sLogger.isActivated()) {
             sLogger.debug("Get VideoStreamingSession with sessionId '" + sessionId + "'");
         }
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mVideoStremaingSessionCache.get(sessionId);
-        }
+        return mVideoStremaingSessionCache.get(sessionId);
     }
 
     public void addSession(GeolocTransferSession session) {
@@ -451,9 +430,7 @@ public class RichcallService extends ImsService {
         if (sLogger.isActivated()) {
             sLogger.debug("Get GeolocTransferSession with sessionId '" + sessionId + "'");
         }
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mGeolocTransferSessionCache.get(sessionId);
-        }
+        return mGeolocTransferSessionCache.get(sessionId);
     }
 
     /**
@@ -257,12 +257,6 @@ public class OriginatingGeolocTransferSession extends GeolocTransferSession impl
         // Not used for geolocation sharing
     }
 
-    @Override
-    public boolean msrpTransferProgress(long currentSize, long totalSize, byte[] data) {
-        // Not used in originating side
-        return false;
-    }
-
     @Override
     public void msrpTransferAborted() {
         if (sLogger.isActivated()) {
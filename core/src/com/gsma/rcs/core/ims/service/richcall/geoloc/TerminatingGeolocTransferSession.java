@@ -340,12 +340,6 @@ public class TerminatingGeolocTransferSession extends GeolocTransferSession impl
         // Not used
     }
 
-    @Override
-    public boolean msrpTransferProgress(long currentSize, long totalSize, byte[] data) {
-        // Not used for geolocation sharing
-        return true;
-    }
-
     @Override
     public void msrpTransferAborted() {
         if (sLogger.isActivated()) {
@@ -300,12 +300,6 @@ public class OriginatingImageTransferSession extends ImageTransferSession implem
         }
     }
 
-    @Override
-    public boolean msrpTransferProgress(long currentSize, long totalSize, byte[] data) {
-        // Not used in originating side
-        return false;
-    }
-
     @Override
     public void msrpTransferAborted() {
         if (sLogger.isActivated()) {
@@ -32,6 +32,7 @@ import com.gsma.rcs.core.ims.network.sip.SipMessageFactory;
 import com.gsma.rcs.core.ims.network.sip.SipUtils;
 import com.gsma.rcs.core.ims.protocol.PayloadException;
 import com.gsma.rcs.core.ims.protocol.msrp.MsrpConstants;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpDataSink;
 import com.gsma.rcs.core.ims.protocol.msrp.MsrpEventListener;
 import com.gsma.rcs.core.ims.protocol.msrp.MsrpManager;
 import com.gsma.rcs.core.ims.protocol.msrp.MsrpSession;
@@ -59,6 +60,7 @@ import com.gsma.services.rcs.contact.ContactId;
 import android.net.Uri;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Vector;
 
@@ -68,10 +70,12 @@ import java.util.Vector;
  * @author jexa7410
  */
 public class TerminatingImageTransferSession extends ImageTransferSession implements
-        MsrpEventListener {
+        MsrpEventListener, MsrpDataSink {
 
     private MsrpManager msrpMgr;
 
+    private volatile boolean mDataWriteFailed;
+
     private static final Logger sLogger = Logger.getLogger(TerminatingImageTransferSession.class
             .getName());
 
@@ -267,6 +271,7 @@ public class TerminatingImageTransferSession extends ImageTransferSession implem
                 MsrpSession session = msrpMgr.createMsrpServerSession(remotePath, this);
                 // Do not use right now the mapping to do not increase memory and cpu consumption
                 session.setMapMsgIdFromTransationId(false);
+                session.setDataSink(this);
 
                 msrpMgr.openMsrpSession(ImageTransferSession.DEFAULT_SO_TIMEOUT);
                 sendEmptyDataChunk();
@@ -288,6 +293,7 @@ public class TerminatingImageTransferSession extends ImageTransferSession implem
                     MsrpSession session = msrpMgr.createMsrpClientSession(remoteHost, remotePort,
                             remotePath, this, fingerprint);
                     session.setMapMsgIdFromTransationId(false);
+                    session.setDataSink(this);
                     msrpMgr.openMsrpSession(ImageTransferSession.DEFAULT_SO_TIMEOUT);
                     sendEmptyDataChunk();
                 }
@@ -351,7 +357,9 @@ public class TerminatingImageTransferSession extends ImageTransferSession implem
         ContactId contact = getRemoteContact();
         MmContent content = getContent();
         try {
-            content.writeData2File(data);
+            if (data != null) {
+                content.writeData2File(data);
+            }
             content.closeFile();
 
             Uri image = getContent().getUri();
@@ -370,27 +378,33 @@ public class TerminatingImageTransferSession extends ImageTransferSession implem
 
     @Override
     public void msrpTransferProgress(long currentSize, long totalSize) {
-        // Not used
+        ContactId contact = getRemoteContact();
+        for (ImsSessionListener listener : getListeners()) {
+            ((ImageTransferSessionListener) listener).onSharingProgress(contact, currentSize,
+                    totalSize);
+        }
     }
 
     @Override
-    public boolean msrpTransferProgress(long currentSize, long totalSize, byte[] data) {
-        ContactId contact = getRemoteContact();
+    public boolean writeData(long offset, ByteBuffer data) {
+        if (mDataWriteFailed) {
+            return false;
+        }
         try {
-            getContent().writeData2File(data);
-            for (ImsSessionListener listener : getListeners()) {
-                ((ImageTransferSessionListener) listener).onSharingProgress(contact, currentSize,
-                        totalSize);
-            }
+            getContent().writeData2File(offset, data);
+            return true;
 
         } catch (FileAccessException e) {
+            /* The error is notified once, the next chunks are refused */
+            mDataWriteFailed = true;
             deleteFile();
+            ContactId contact = getRemoteContact();
             for (ImsSessionListener listener : getListeners()) {
                 ((ImageTransferSessionListener) listener).onSharingError(contact,
                         new ContentSharingError(ContentSharingError.MEDIA_TRANSFER_FAILED));
             }
+            return false;
         }
-        return true;
     }
 
     @Override
@@ -30,6 +30,7 @@ import com.gsma.rcs.core.ims.protocol.PayloadException;
 import com.gsma.rcs.core.ims.protocol.sip.SipRequest;
 import com.gsma.rcs.core.ims.service.ImsService;
 import com.gsma.rcs.core.ims.service.ImsServiceSession;
+import com.gsma.rcs.core.ims.service.SessionRegistry.Index;
 import com.gsma.rcs.core.ims.service.capability.CapabilityUtils;
 import com.gsma.rcs.core.ims.service.sip.messaging.GenericSipMsrpSession;
 import com.gsma.rcs.core.ims.service.sip.messaging.OriginatingSipMsrpSession;
@@ -50,8 +51,6 @@ import android.content.Intent;
 import android.os.Handler;
 import android.os.HandlerThread;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Set;
 
 import javax2.sip.message.Response;
@@ -79,12 +78,14 @@ public class SipService extends ImsService {
     /**
      * GenericSipMsrpSessionCache with SessionId as key
      */
-    private Map<String, GenericSipMsrpSession> mGenericSipMsrpSessionCache = new HashMap<>();
+    private final Index<String, GenericSipMsrpSession> mGenericSipMsrpSessionCache = getSessionRegistry()
+            .createIndex("GenericSipMsrpSession");
 
     /**
      * GenericSipRtpSessionCache with SessionId as key
      */
-    private Map<String, GenericSipRtpSession> mGenericSipRtpSessionCache = new HashMap<>();
+    private final Index<String, GenericSipRtpSession> mGenericSipRtpSessionCache = getSessionRegistry()
+            .createIndex("GenericSipRtpSession");
 
     private final ContactManager mContactManager;
 
@@ -357,9 +358,7 @@ public class SipService extends ImsService {
         if (sLogger.isActivated()) {
             sLogger.debug("Get GenericSipMsrpSession with sessionId '" + sessionId + "'");
         }
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mGenericSipMsrpSessionCache.get(sessionId);
-        }
+        return mGenericSipMsrpSessionCache.get(sessionId);
     }
 
     public void addSession(GenericSipRtpSession session) {
@@ -388,9 +387,7 @@ public class SipService extends ImsService {
         if (sLogger.isActivated()) {
             sLogger.debug("Get GenericSipRtpSession with sessionId '" + sessionId + "'");
         }
-        synchronized (getImsServiceSessionOperationLock()) {
-            return mGenericSipRtpSessionCache.get(sessionId);
-        }
+        return mGenericSipRtpSessionCache.get(sessionId);
     }
 
     public void sendInstantMultimediaMessage(ContactId contact, String featureTag, byte[] content,
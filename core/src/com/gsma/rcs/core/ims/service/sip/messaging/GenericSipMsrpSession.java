@@ -319,12 +319,6 @@ public abstract class GenericSipMsrpSession extends GenericSipSession implements
         // Not used here
     }
 
-    @Override
-    public boolean msrpTransferProgress(long currentSize, long totalSize, byte[] data) {
-        // Not used here
-        return false;
-    }
-
     @Override
     public void msrpTransferAborted() {
         // Not used here
@@ -23,6 +23,7 @@
 package com.gsma.rcs.core.ims.service.terms;
 
 import com.gsma.rcs.core.ParseFailureException;
+import com.gsma.rcs.utils.XmlParserUtils;
 import com.gsma.rcs.utils.logger.Logger;
 
 import org.xml.sax.Attributes;
@@ -34,8 +35,6 @@ import java.io.IOException;
 import java.util.HashMap;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 
 /**
  * End user notification request parser. If the message contains the text in different languages
@@ -124,9 +123,7 @@ public class EndUserNotificationParser extends DefaultHandler {
     public EndUserNotificationParser parse() throws ParserConfigurationException, SAXException,
             ParseFailureException {
         try {
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            SAXParser parser = factory.newSAXParser();
-            parser.parse(mInputSource, this);
+            XmlParserUtils.parse(mInputSource, this);
             return this;
 
         } catch (IOException e) {
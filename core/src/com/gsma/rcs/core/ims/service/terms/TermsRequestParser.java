@@ -24,6 +24,7 @@ package com.gsma.rcs.core.ims.service.terms;
 
 import com.gsma.rcs.core.ParseFailureException;
 import com.gsma.rcs.provider.settings.RcsSettings;
+import com.gsma.rcs.utils.XmlParserUtils;
 import com.gsma.rcs.utils.logger.Logger;
 
 import org.xml.sax.Attributes;
@@ -35,8 +36,6 @@ import java.io.IOException;
 import java.util.HashMap;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
 
 /**
  * End User Confirmation Request request parser. Parse message of type
@@ -161,9 +160,7 @@ public class TermsRequestParser extends DefaultHandler {
     public TermsRequestParser parse() throws ParserConfigurationException, SAXException,
             ParseFailureException {
         try {
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            SAXParser parser = factory.newSAXParser();
-            parser.parse(mInputSource, this);
+            XmlParserUtils.parse(mInputSource, this);
             return this;
 
         } catch (IOException e) {
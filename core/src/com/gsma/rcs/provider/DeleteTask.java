@@ -25,6 +25,7 @@ import com.gsma.services.rcs.contact.ContactId;
 import android.database.Cursor;
 import android.net.Uri;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -247,20 +248,42 @@ public abstract class DeleteTask<T> implements Runnable {
         if (items == null || items.isEmpty()) {
             return null;
         }
+        Set<String> allItemKeys = null;
+        if (mDeleteAllAtOnce) {
+            allItemKeys = new HashSet<>();
+            for (Set<String> itemKeys : items.values()) {
+                allItemKeys.addAll(itemKeys);
+            }
+        }
         for (T groupId : items.keySet()) {
             for (String itemKey : items.get(groupId)) {
                 onRowDelete(groupId, itemKey);
                 if (!mDeleteAllAtOnce) {
-                    mLocalContentResolver.delete(getAppendedPathUri(itemKey), null, null);
+                    deleteRows(getAppendedPathUri(itemKey), null, null,
+                            Collections.singleton(itemKey));
                 }
             }
             if (mDeleteAllAtOnce) {
-                mLocalContentResolver.delete(mContentUri, mSelection, mSelectionArgs);
+                deleteRows(mContentUri, mSelection, mSelectionArgs, allItemKeys);
             }
         }
         return items;
     }
 
+    /**
+     * Delete rows from the provider. Overridden by the tasks whose rows are cached, to drop them
+     * from the cache in the same step.
+     * 
+     * @param uri the URI of the rows
+     * @param selection the selection of the rows or null
+     * @param selectionArgs the selection arguments or null
+     * @param itemIds the IDs of the deleted rows
+     */
+    protected void deleteRows(Uri uri, String selection, String[] selectionArgs,
+            Set<String> itemIds) {
+        mLocalContentResolver.delete(uri, selection, selectionArgs);
+    }
+
     protected boolean isSingleRowDelete() {
         return mPathAppended;
     }
@@ -87,6 +87,7 @@ import com.gsma.rcs.utils.CloseableUtils;
 import com.gsma.rcs.utils.ContactUtil;
 import com.gsma.rcs.utils.ContactUtil.PhoneNumber;
 import com.gsma.rcs.utils.StringUtils;
+import com.gsma.rcs.utils.StripedLruCache;
 import com.gsma.rcs.utils.logger.Logger;
 import com.gsma.services.rcs.capability.CapabilitiesLog;
 import com.gsma.services.rcs.contact.ContactId;
@@ -125,6 +126,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -324,6 +326,17 @@ public final class ContactManager {
         KEY_CONTACT
     };
 
+    /**
+     * Projection to get CONTACT and capability timestamps from RCS contact Provider
+     */
+    private static final String[] PROJ_RCSCONTACT_CAPABILITY_TIMESTAMPS = new String[] {
+            KEY_CONTACT, KEY_CAPABILITY_TIMESTAMP_LAST_REQUEST,
+            KEY_CAPABILITY_TIMESTAMP_LAST_RESPONSE, KEY_CAPABILITY_PRESENCE_DISCOVERY
+    };
+
+    private static final String ORDER_BY_LAST_RESPONSE_ASC = KEY_CAPABILITY_TIMESTAMP_LAST_RESPONSE
+            .concat(" ASC");
+
     private static final String SEL_RAW_CONTACT_FROM_NUMBER = Data.MIMETYPE
             + "=? AND PHONE_NUMBERS_EQUAL(" + Phone.NUMBER + ", ?)";
 
@@ -426,7 +439,15 @@ public final class ContactManager {
 
     private final RcsSettings mRcsSettings;
 
-    private final Map<ContactId, ContactInfo> mContactInfoCache;
+    private static final int CONTACT_INFO_CACHE_SIZE = 2048;
+
+    private static final int CONTACT_INFO_CACHE_STRIPES = 16;
+
+    /**
+     * Most recently used contact infos: updates of the info of a contact are done while holding
+     * the lock returned by {@link StripedLruCache#getLock} for this contact
+     */
+    private final StripedLruCache<ContactId, ContactInfo> mContactInfoCache;
 
     private static final Logger sLogger = Logger.getLogger(ContactManager.class.getSimpleName());
 
@@ -466,7 +487,8 @@ public final class ContactManager {
         mContext = context;
         mContentResolver = contentResolver;
         mLocalContentResolver = localContentResolver;
-        mContactInfoCache = new HashMap<>();
+        mContactInfoCache = new StripedLruCache<>(CONTACT_INFO_CACHE_SIZE,
+                CONTACT_INFO_CACHE_STRIPES);
         mRcsSettings = rcsSettings;
     }
 
@@ -490,16 +512,17 @@ public final class ContactManager {
      * 
      * @param newInfo New contact info
      * @param oldInfo Old contact info
+     * @param generation Generation of the cache before reading the old contact info
      * @throws ContactManagerException
      * @throws FileAccessException
      */
-    private void setContactInfoInternal(ContactInfo newInfo, ContactInfo oldInfo)
-            throws ContactManagerException, FileAccessException {
+    private void setContactInfoInternal(ContactInfo newInfo, ContactInfo oldInfo,
+            long generation) throws ContactManagerException, FileAccessException {
         ContactId contact = newInfo.getContact();
         String contactNumber = contact.toString();
         boolean logActivated = sLogger.isActivated();
-        /* Update contactInfo cache with new contact information */
-        mContactInfoCache.put(contact, newInfo);
+        /* Update contactInfo cache with new contact information unless it was flushed since */
+        mContactInfoCache.put(contact, newInfo, generation);
 
         /* Check if we have an entry for the contact */
         boolean hasEntryInRcsContactAddressBook = isContactIdAssociatedWithRcsContactProvider(contact);
@@ -912,7 +935,7 @@ public final class ContactManager {
 
     /**
      * Get contact info . This method is by choice not synchronized here since the methods invoking
-     * this will handle the synchronization and we would like to avoid double locks.
+     * this will hold the lock of the contact and we would like to avoid double locks.
      * 
      * @param contact the contact ID
      * @return ContactInfo
@@ -920,8 +943,10 @@ public final class ContactManager {
     private ContactInfo getContactInfoInternal(ContactId contact) {
         ContactInfo contactInfo = mContactInfoCache.get(contact);
         if (contactInfo == null) {
+            /* Do not cache the info read before a flush of the provider */
+            long generation = mContactInfoCache.getGeneration();
             contactInfo = getContactInfoFromProvider(contact);
-            mContactInfoCache.put(contact, contactInfo);
+            mContactInfoCache.put(contact, contactInfo, generation);
         }
         return contactInfo;
     }
@@ -995,11 +1020,12 @@ public final class ContactManager {
         if (sLogger.isActivated()) {
             sLogger.info("Block contact ".concat(contact.toString()));
         }
-        synchronized (mContactInfoCache) {
+        synchronized (mContactInfoCache.getLock(contact)) {
+            long generation = mContactInfoCache.getGeneration();
             ContactInfo oldInfo = getContactInfoInternal(contact);
             ContactInfo newInfo = new ContactInfo(oldInfo);
             newInfo.setRcsStatus(RcsStatus.BLOCKED);
-            setContactInfoInternal(newInfo, oldInfo);
+            setContactInfoInternal(newInfo, oldInfo, generation);
         }
     }
 
@@ -1010,10 +1036,8 @@ public final class ContactManager {
         if (sLogger.isActivated()) {
             sLogger.debug("clear ContactInfo cache");
         }
-        synchronized (mContactInfoCache) {
-            mContactInfoCache.clear();
-            mLocalContentResolver.delete(CONTENT_URI, null, null);
-        }
+        mLocalContentResolver.delete(CONTENT_URI, null, null);
+        mContactInfoCache.clear();
     }
 
     /**
@@ -1024,7 +1048,7 @@ public final class ContactManager {
      * @param rcsStatus RCS status
      */
     public void updateRcsStatusOrCreateNewContact(ContactId contact, RcsStatus rcsStatus) {
-        synchronized (mContactInfoCache) {
+        synchronized (mContactInfoCache.getLock(contact)) {
             long currentTime = System.currentTimeMillis();
             ContentValues values = new ContentValues();
             values.put(KEY_PRESENCE_SHARING_STATUS, rcsStatus.toInt());
@@ -1150,6 +1174,45 @@ public final class ContactManager {
         }
     }
 
+    /**
+     * Get the capability timestamps of all the contacts from RCS contact provider in a single query
+     * 
+     * @return map of the contacts to capabilities holding only the timestamps of last request and
+     *         response and the presence discovery support, ordered by increasing timestamp of last
+     *         response
+     */
+    public Map<ContactId, Capabilities> getAllCapabilityTimestampsFromRcsContactProvider() {
+        Map<ContactId, Capabilities> timestamps = new LinkedHashMap<>();
+        Cursor cursor = null;
+        try {
+            cursor = mLocalContentResolver.query(CONTENT_URI,
+                    PROJ_RCSCONTACT_CAPABILITY_TIMESTAMPS, null, null, ORDER_BY_LAST_RESPONSE_ASC);
+            CursorUtil.assertCursorIsNotNull(cursor, CONTENT_URI);
+            if (!cursor.moveToFirst()) {
+                return timestamps;
+            }
+            int contactColumnIdx = cursor.getColumnIndexOrThrow(KEY_CONTACT);
+            int lastRequestColumnIdx = cursor
+                    .getColumnIndexOrThrow(KEY_CAPABILITY_TIMESTAMP_LAST_REQUEST);
+            int lastResponseColumnIdx = cursor
+                    .getColumnIndexOrThrow(KEY_CAPABILITY_TIMESTAMP_LAST_RESPONSE);
+            do {
+                CapabilitiesBuilder capaBuilder = new CapabilitiesBuilder();
+                capaBuilder.setTimestampOfLastRequest(cursor.getLong(lastRequestColumnIdx));
+                capaBuilder.setTimestampOfLastResponse(cursor.getLong(lastResponseColumnIdx));
+                capaBuilder.setPresenceDiscovery(isCapabilitySupported(cursor,
+                        KEY_CAPABILITY_PRESENCE_DISCOVERY));
+                /* Do not check validity of trusted data */
+                timestamps.put(ContactUtil.createContactIdFromTrustedData(cursor
+                        .getString(contactColumnIdx)), capaBuilder.build());
+            } while (cursor.moveToNext());
+            return timestamps;
+
+        } finally {
+            CursorUtil.close(cursor);
+        }
+    }
+
     /**
      * Is the number in the RCS blocked list
      * 
@@ -1695,7 +1758,11 @@ public final class ContactManager {
      * @return Contact info
      */
     public ContactInfo getContactInfo(ContactId contact) {
-        synchronized (mContactInfoCache) {
+        ContactInfo contactInfo = mContactInfoCache.get(contact);
+        if (contactInfo != null) {
+            return contactInfo;
+        }
+        synchronized (mContactInfoCache.getLock(contact)) {
             return getContactInfoInternal(contact);
         }
     }
@@ -1727,7 +1794,8 @@ public final class ContactManager {
     public void setContactCapabilities(ContactId contact, Capabilities capabilities,
             RcsStatus contactType, RegistrationState registrationState)
             throws ContactManagerException, FileAccessException {
-        synchronized (mContactInfoCache) {
+        synchronized (mContactInfoCache.getLock(contact)) {
+            long generation = mContactInfoCache.getGeneration();
             /* Get the current information on this contact */
             ContactInfo oldInfo = getContactInfoInternal(contact);
             ContactInfo newInfo = new ContactInfo(oldInfo);
@@ -1787,7 +1855,7 @@ public final class ContactManager {
                 return;
             }
             /* Save the modifications */
-            setContactInfoInternal(newInfo, oldInfo);
+            setContactInfoInternal(newInfo, oldInfo, generation);
         }
     }
 
@@ -1805,7 +1873,8 @@ public final class ContactManager {
     public void mergeContactCapabilities(ContactId contact, Capabilities capabilities,
             RcsStatus contactType, RegistrationState registrationState, String displayName)
             throws ContactManagerException, FileAccessException {
-        synchronized (mContactInfoCache) {
+        synchronized (mContactInfoCache.getLock(contact)) {
+            long generation = mContactInfoCache.getGeneration();
             /* Get the current information on this contact */
             ContactInfo oldInfo = getContactInfoInternal(contact);
             /* Merge the capabilities */
@@ -1888,7 +1957,7 @@ public final class ContactManager {
                 return;
             }
             /* Save the modifications */
-            setContactInfoInternal(newInfo, oldInfo);
+            setContactInfoInternal(newInfo, oldInfo, generation);
         }
     }
 
@@ -1924,7 +1993,7 @@ public final class ContactManager {
         if (sLogger.isActivated()) {
             sLogger.debug("Update time of last capabilities request for ".concat(contactNumber));
         }
-        synchronized (mContactInfoCache) {
+        synchronized (mContactInfoCache.getLock(contact)) {
             ContactInfo contactInfo = getContactInfoInternal(contact);
             Capabilities capabilities = contactInfo.getCapabilities();
             long now = System.currentTimeMillis();
@@ -1939,6 +2008,53 @@ public final class ContactManager {
         }
     }
 
+    /**
+     * Update time of last capabilities request for a set of contacts in a single transaction
+     * 
+     * @param contacts Contact Ids
+     */
+    public void updateCapabilitiesTimeLastRequest(Set<ContactId> contacts) {
+        if (contacts.isEmpty()) {
+            return;
+        }
+        if (sLogger.isActivated()) {
+            sLogger.debug("Update time of last capabilities request for " + contacts.size()
+                    + " contacts");
+        }
+        /* Do not cache the updated info if the cache is flushed while updating the provider */
+        long generation = mContactInfoCache.getGeneration();
+        long now = System.currentTimeMillis();
+        ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+        for (ContactId contact : contacts) {
+            ops.add(ContentProviderOperation
+                    .newUpdate(Uri.withAppendedPath(CONTENT_URI, contact.toString()))
+                    .withValue(KEY_CAPABILITY_TIMESTAMP_LAST_REQUEST, now).build());
+        }
+        try {
+            mLocalContentResolver.applyBatch(CONTENT_URI, ops);
+
+        } catch (OperationApplicationException e) {
+            sLogger.error("Unable to update time of last capabilities request for "
+                    + contacts.size() + " contacts", e);
+            return;
+        }
+        for (ContactId contact : contacts) {
+            synchronized (mContactInfoCache.getLock(contact)) {
+                /* Update the cache only if the contact info is cached */
+                ContactInfo oldInfo = mContactInfoCache.get(contact);
+                if (oldInfo != null) {
+                    /* The cached info may be in use: it is replaced, not modified */
+                    CapabilitiesBuilder capaBuilder = new CapabilitiesBuilder(
+                            oldInfo.getCapabilities());
+                    capaBuilder.setTimestampOfLastRequest(now);
+                    ContactInfo newInfo = new ContactInfo(oldInfo);
+                    newInfo.setCapabilities(capaBuilder.build());
+                    mContactInfoCache.put(contact, newInfo, generation);
+                }
+            }
+        }
+    }
+
     /**
      * Utility method to create new "RCS" raw contact, that aggregates with other raw contact
      * 
@@ -2658,10 +2774,8 @@ public final class ContactManager {
      * @throws ContactManagerException
      */
     public void cleanRCSEntries() throws ContactManagerException {
-        synchronized (mContactInfoCache) {
-            cleanRCSRawContactsInAB();
-            cleanEntriesInRcsContactProvider();
-        }
+        cleanRCSRawContactsInAB();
+        cleanEntriesInRcsContactProvider();
     }
 
     /**
@@ -2742,12 +2856,14 @@ public final class ContactManager {
                 ContactId contact = ContactUtil.createContactIdFromValidatedData(number);
                 if (getRawContactIdsFromPhoneNumber(contact).isEmpty()) {
                     Uri uri = Uri.withAppendedPath(ContactData.CONTENT_URI, phoneNumber);
-                    mLocalContentResolver.delete(uri, null, null);
+                    synchronized (mContactInfoCache.getLock(contact)) {
+                        mLocalContentResolver.delete(uri, null, null);
+                        mContactInfoCache.remove(contact);
+                    }
                     if (sLogger.isActivated()) {
                         sLogger.debug("cleanEntriesInRcsContactProvider clear for contact="
                                 .concat(phoneNumber));
                     }
-                    mContactInfoCache.remove(contact);
                 }
             } while (cursor.moveToNext());
         } finally {
@@ -2761,15 +2877,13 @@ public final class ContactManager {
     public void deleteRCSEntries() {
         /* Delete Aggregation data */
         mLocalContentResolver.delete(AggregationData.CONTENT_URI, null, null);
-        synchronized (mContactInfoCache) {
-            /* Empty the cache */
-            if (sLogger.isActivated()) {
-                sLogger.debug("deleteRCSEntries");
-            }
-            mContactInfoCache.clear();
-            /* Delete presence data */
-            mLocalContentResolver.delete(CONTENT_URI, null, null);
+        if (sLogger.isActivated()) {
+            sLogger.debug("deleteRCSEntries");
         }
+        /* Delete presence data */
+        mLocalContentResolver.delete(CONTENT_URI, null, null);
+        /* Empty the cache */
+        mContactInfoCache.clear();
     }
 
     /**
@@ -2790,7 +2904,7 @@ public final class ContactManager {
      * @param displayName the display name
      */
     public void setContactDisplayName(ContactId contact, String displayName) {
-        synchronized (mContactInfoCache) {
+        synchronized (mContactInfoCache.getLock(contact)) {
             ContentValues values = new ContentValues();
             values.put(KEY_DISPLAY_NAME, displayName);
             /* Check if record exists and if so then update is required */
@@ -2832,7 +2946,7 @@ public final class ContactManager {
             sLogger.debug("Update the time of last capabilities response for "
                     .concat(contactNumber));
         }
-        synchronized (mContactInfoCache) {
+        synchronized (mContactInfoCache.getLock(contact)) {
             ContactInfo contactInfo = getContactInfoInternal(contact);
             Capabilities capabilities = contactInfo.getCapabilities();
             /* Update the cache */
@@ -2856,7 +2970,8 @@ public final class ContactManager {
      */
     public void setBlockingState(ContactId contact, BlockingState state)
             throws ContactManagerException, FileAccessException {
-        synchronized (mContactInfoCache) {
+        synchronized (mContactInfoCache.getLock(contact)) {
+            long generation = mContactInfoCache.getGeneration();
             /* Get the current information on this contact */
             ContactInfo oldInfo = getContactInfoInternal(contact);
             ContactInfo newInfo = new ContactInfo(oldInfo);
@@ -2864,7 +2979,7 @@ public final class ContactManager {
             newInfo.setBlockingState(state);
             newInfo.setBlockingTimestamp(System.currentTimeMillis());
             /* Save the modifications */
-            setContactInfoInternal(newInfo, oldInfo);
+            setContactInfoInternal(newInfo, oldInfo, generation);
         }
     }
 
@@ -2942,12 +3057,13 @@ public final class ContactManager {
      */
     public void aggregateContactWithRcsRawContact(ContactInfo contactInfo)
             throws ContactManagerException, FileAccessException {
-        synchronized (mContactInfoCache) {
+        synchronized (mContactInfoCache.getLock(contactInfo.getContact())) {
+            long generation = mContactInfoCache.getGeneration();
             /*
              * if RCS contact does not exist, it will be created and RCS raw contact also. if RCS
              * contact already exists, it will enforce creation and association of RCS raw contact.
              */
-            setContactInfoInternal(contactInfo, contactInfo);
+            setContactInfoInternal(contactInfo, contactInfo, generation);
         }
     }
 
@@ -29,8 +29,11 @@ import com.gsma.rcs.utils.DatabaseUtils;
 import com.gsma.services.rcs.chat.ChatLog;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
@@ -39,6 +42,7 @@ import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -590,4 +594,26 @@ public class ChatProvider extends ContentProvider {
         }
     }
 
+    /**
+     * Apply the operations in a single transaction
+     */
+    @Override
+    public ContentProviderResult[] applyBatch(
+            @NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        SQLiteDatabase database = mOpenHelper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            ContentProviderResult[] results = new ContentProviderResult[operations.size()];
+            int index = 0;
+            for (ContentProviderOperation operation : operations) {
+                results[index] = operation.apply(this, results, index);
+                index++;
+            }
+            database.setTransactionSuccessful();
+            return results;
+        } finally {
+            database.endTransaction();
+        }
+    }
 }
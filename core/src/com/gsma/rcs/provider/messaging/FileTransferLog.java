@@ -129,6 +129,19 @@ public class FileTransferLog implements IFileTransferLog {
 
     private static final int FIRST_COLUMN_IDX = 0;
 
+    private static final String[] PROJECTION_FILE_TRANSFER_STATE = new String[] {
+            FileTransferData.KEY_STATE, FileTransferData.KEY_REASON_CODE,
+            FileTransferData.KEY_EXPIRED_DELIVERY
+    };
+
+    /**
+     * Maximum number of file transfers whose state is cached
+     */
+    private static final int MAX_CACHED_FILE_TRANSFER_STATES = 1000;
+
+    private final MessageStateCache mStateCache = new MessageStateCache(
+            MAX_CACHED_FILE_TRANSFER_STATES);
+
     private final LocalContentResolver mLocalContentResolver;
 
     private final GroupDeliveryInfoLog mGroupChatDeliveryInfoLog;
@@ -195,7 +208,7 @@ public class FileTransferLog implements IFileTransferLog {
         values.put(FileTransferData.KEY_DELIVERY_EXPIRATION, 0);
         values.put(FileTransferData.KEY_EXPIRED_DELIVERY, 0);
         values.put(FileTransferData.KEY_FILE_EXPIRATION, fileExpiration);
-        mLocalContentResolver.insert(FileTransferData.CONTENT_URI, values);
+        insertFileTransfer(fileTransferId, values, state, reasonCode);
     }
 
     @Override
@@ -236,7 +249,7 @@ public class FileTransferLog implements IFileTransferLog {
         } else {
             values.put(FileTransferData.KEY_DISPOSITION, FileTransfer.Disposition.ATTACH.toInt());
         }
-        mLocalContentResolver.insert(FileTransferData.CONTENT_URI, values);
+        insertFileTransfer(fileTransferId, values, state, reasonCode);
 
         try {
             for (ContactId contact : recipients) {
@@ -250,8 +263,8 @@ public class FileTransferLog implements IFileTransferLog {
                 sLogger.error("Group file transfer with fileTransferId '" + fileTransferId
                         + "' could not be added to database!", e);
             }
-            mLocalContentResolver.delete(
-                    Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), null, null);
+            deleteFileTransfers(Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId),
+                    null, null, Collections.singleton(fileTransferId));
             mLocalContentResolver.delete(
                     Uri.withAppendedPath(GroupDeliveryInfoData.CONTENT_URI, fileTransferId), null,
                     null);
@@ -305,7 +318,23 @@ public class FileTransferLog implements IFileTransferLog {
         } else {
             values.put(FileTransferData.KEY_DISPOSITION, FileTransfer.Disposition.ATTACH.toInt());
         }
-        mLocalContentResolver.insert(FileTransferData.CONTENT_URI, values);
+        insertFileTransfer(fileTransferId, values, state, reasonCode);
+    }
+
+    /**
+     * Insert a file transfer and cache its state
+     * 
+     * @param fileTransferId File transfer ID
+     * @param values Values of the file transfer
+     * @param state State
+     * @param reasonCode Reason code
+     */
+    private void insertFileTransfer(String fileTransferId, ContentValues values, State state,
+            ReasonCode reasonCode) {
+        synchronized (mStateCache) {
+            mLocalContentResolver.insert(FileTransferData.CONTENT_URI, values);
+            mStateCache.put(fileTransferId, state.toInt(), reasonCode.toInt(), false);
+        }
     }
 
     /**
@@ -337,9 +366,15 @@ public class FileTransferLog implements IFileTransferLog {
         ContentValues values = new ContentValues();
         values.put(FileTransferData.KEY_STATE, state.toInt());
         values.put(FileTransferData.KEY_REASON_CODE, reasonCode.toInt());
-        return mLocalContentResolver.update(
-                Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), values,
-                SELECTION_BY_UNDELIVERED_STATUS, null) > 0;
+        synchronized (mStateCache) {
+            if (mLocalContentResolver.update(
+                    Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), values,
+                    SELECTION_BY_UNDELIVERED_STATUS, null) == 0) {
+                return false;
+            }
+            mStateCache.setStateAndReasonCode(fileTransferId, state.toInt(), reasonCode.toInt());
+            return true;
+        }
     }
 
     @Override
@@ -387,9 +422,16 @@ public class FileTransferLog implements IFileTransferLog {
         values.put(FileTransferData.KEY_FILE_EXPIRATION, fileExpiration);
         values.put(FileTransferData.KEY_FILEICON_EXPIRATION, fileIconExpiration);
         values.put(FileTransferData.KEY_DELIVERY_EXPIRATION, deliveryExpiration);
-        return mLocalContentResolver.update(
-                Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), values, null,
-                null) > 0;
+        synchronized (mStateCache) {
+            if (mLocalContentResolver.update(
+                    Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), values,
+                    null, null) == 0) {
+                return false;
+            }
+            mStateCache.setStateAndReasonCode(fileTransferId, State.TRANSFERRED.toInt(),
+                    ReasonCode.UNSPECIFIED.toInt());
+            return true;
+        }
     }
 
     @Override
@@ -616,12 +658,35 @@ public class FileTransferLog implements IFileTransferLog {
         }
     }
 
-    private Boolean getDataAsBoolean(Cursor cursor) {
+    /**
+     * Get the state, reason code and expired delivery flag of a file transfer from the cache, or
+     * from the provider with a single query
+     * 
+     * @param fileTransferId File transfer ID
+     * @return Cached state or null if the file transfer is not persisted
+     */
+    private MessageStateCache.Entry getFileTransferStateEntry(String fileTransferId) {
+        MessageStateCache.Entry state = mStateCache.get(fileTransferId);
+        if (state != null) {
+            return state;
+        }
+        long version = mStateCache.getVersion();
+        Cursor cursor = null;
+        Uri contentUri = Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId);
         try {
-            if (cursor.isNull(FIRST_COLUMN_IDX)) {
+            cursor = mLocalContentResolver.query(contentUri, PROJECTION_FILE_TRANSFER_STATE, null,
+                    null, null);
+            CursorUtil.assertCursorIsNotNull(cursor, contentUri);
+            if (!cursor.moveToNext()) {
                 return null;
             }
-            return cursor.getInt(FIRST_COLUMN_IDX) == 1;
+            int ftState = cursor.getInt(cursor.getColumnIndexOrThrow(FileTransferData.KEY_STATE));
+            int reasonCode = cursor.getInt(cursor
+                    .getColumnIndexOrThrow(FileTransferData.KEY_REASON_CODE));
+            boolean expiredDelivery = cursor.getInt(cursor
+                    .getColumnIndexOrThrow(FileTransferData.KEY_EXPIRED_DELIVERY)) == 1;
+            return mStateCache.load(fileTransferId, version, ftState, reasonCode,
+                    expiredDelivery);
 
         } finally {
             CursorUtil.close(cursor);
@@ -651,20 +716,20 @@ public class FileTransferLog implements IFileTransferLog {
 
     @Override
     public State getFileTransferState(String fileTransferId) {
-        Cursor cursor = getFileTransferData(FileTransferData.KEY_STATE, fileTransferId);
-        if (cursor == null) {
+        MessageStateCache.Entry state = getFileTransferStateEntry(fileTransferId);
+        if (state == null) {
             return null;
         }
-        return State.valueOf(getDataAsInteger(cursor));
+        return State.valueOf(state.getState());
     }
 
     @Override
     public ReasonCode getFileTransferReasonCode(String fileTransferId) {
-        Cursor cursor = getFileTransferData(FileTransferData.KEY_REASON_CODE, fileTransferId);
-        if (cursor == null) {
+        MessageStateCache.Entry state = getFileTransferStateEntry(fileTransferId);
+        if (state == null) {
             return null;
         }
-        return ReasonCode.valueOf(getDataAsInteger(cursor));
+        return ReasonCode.valueOf(state.getReasonCode());
     }
 
     @Override
@@ -696,11 +761,37 @@ public class FileTransferLog implements IFileTransferLog {
 
     @Override
     public Boolean isFileTransferExpiredDelivery(String fileTransferId) {
-        Cursor cursor = getFileTransferData(FileTransferData.KEY_EXPIRED_DELIVERY, fileTransferId);
-        if (cursor == null) {
+        MessageStateCache.Entry state = getFileTransferStateEntry(fileTransferId);
+        if (state == null) {
             return null;
         }
-        return getDataAsBoolean(cursor);
+        return state.isExpiredDelivery();
+    }
+
+    /**
+     * Drop the cached state of all the file transfers
+     */
+    /* package private */void clearCachedFileTransferStates() {
+        mStateCache.clear();
+    }
+
+    /**
+     * Delete all the file transfers and drop their cached state
+     */
+    /* package private */void deleteAllFileTransfers() {
+        synchronized (mStateCache) {
+            mLocalContentResolver.delete(FileTransferData.CONTENT_URI, null, null);
+            mStateCache.clear();
+        }
+    }
+
+    @Override
+    public void deleteFileTransfers(Uri uri, String selection, String[] selectionArgs,
+            Set<String> fileTransferIds) {
+        synchronized (mStateCache) {
+            mLocalContentResolver.delete(uri, selection, selectionArgs);
+            mStateCache.remove(fileTransferIds);
+        }
     }
 
     @Override
@@ -821,9 +912,15 @@ public class FileTransferLog implements IFileTransferLog {
         values.put(FileTransferData.KEY_REASON_CODE, reasonCode.toInt());
         values.put(FileTransferData.KEY_TIMESTAMP, timestamp);
         values.put(FileTransferData.KEY_TIMESTAMP_SENT, timestampSent);
-        return mLocalContentResolver.update(
-                Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), values, null,
-                null) > 0;
+        synchronized (mStateCache) {
+            if (mLocalContentResolver.update(
+                    Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), values,
+                    null, null) == 0) {
+                return false;
+            }
+            mStateCache.setStateAndReasonCode(fileTransferId, state.toInt(), reasonCode.toInt());
+            return true;
+        }
     }
 
     @Override
@@ -839,9 +936,16 @@ public class FileTransferLog implements IFileTransferLog {
         values.put(FileTransferData.KEY_TIMESTAMP_DELIVERED, timestampDelivered);
         values.put(FileTransferData.KEY_EXPIRED_DELIVERY, 0);
 
-        return mLocalContentResolver.update(
-                Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), values,
-                SELECTION_BY_NOT_DISPLAYED, null) > 0;
+        synchronized (mStateCache) {
+            if (mLocalContentResolver.update(
+                    Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), values,
+                    SELECTION_BY_NOT_DISPLAYED, null) == 0) {
+                return false;
+            }
+            mStateCache.put(fileTransferId, State.DELIVERED.toInt(), ReasonCode.UNSPECIFIED.toInt(),
+                    false);
+            return true;
+        }
     }
 
     @Override
@@ -858,9 +962,16 @@ public class FileTransferLog implements IFileTransferLog {
         values.put(FileTransferData.KEY_TIMESTAMP_DISPLAYED, timestampDisplayed);
         values.put(FileTransferData.KEY_EXPIRED_DELIVERY, 0);
 
-        return mLocalContentResolver.update(
-                Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), values, null,
-                null) > 0;
+        synchronized (mStateCache) {
+            if (mLocalContentResolver.update(
+                    Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), values,
+                    null, null) == 0) {
+                return false;
+            }
+            mStateCache.put(fileTransferId, State.DISPLAYED.toInt(), ReasonCode.UNSPECIFIED.toInt(),
+                    false);
+            return true;
+        }
     }
 
     @Override
@@ -874,17 +985,26 @@ public class FileTransferLog implements IFileTransferLog {
         }
         String selection = FileTransferData.KEY_FT_ID + " IN (" + TextUtils.join(",", parameters)
                 + ")";
-        mLocalContentResolver.update(FileTransferData.CONTENT_URI, values, selection,
-                fileTransferIds.toArray(new String[fileTransferIds.size()]));
+        synchronized (mStateCache) {
+            mLocalContentResolver.update(FileTransferData.CONTENT_URI, values, selection,
+                    fileTransferIds.toArray(new String[fileTransferIds.size()]));
+            mStateCache.setExpiredDelivery(fileTransferIds, false);
+        }
     }
 
     @Override
     public boolean setFileTransferDeliveryExpired(String fileTransferId) {
         ContentValues values = new ContentValues();
         values.put(FileTransferData.KEY_EXPIRED_DELIVERY, 1);
-        return mLocalContentResolver.update(
-                Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), values, null,
-                null) > 0;
+        synchronized (mStateCache) {
+            if (mLocalContentResolver.update(
+                    Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), values,
+                    null, null) == 0) {
+                return false;
+            }
+            mStateCache.setExpiredDelivery(Collections.singleton(fileTransferId), true);
+            return true;
+        }
     }
 
     @Override
@@ -1002,9 +1122,16 @@ public class FileTransferLog implements IFileTransferLog {
         values.put(FileTransferData.KEY_STATE, State.TRANSFERRED.toInt());
         values.put(FileTransferData.KEY_REASON_CODE, ReasonCode.UNSPECIFIED.toInt());
         values.put(FileTransferData.KEY_DELIVERY_EXPIRATION, deliveryExpiration);
-        return mLocalContentResolver.update(
-                Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), values, null,
-                null) > 0;
+        synchronized (mStateCache) {
+            if (mLocalContentResolver.update(
+                    Uri.withAppendedPath(FileTransferData.CONTENT_URI, fileTransferId), values,
+                    null, null) == 0) {
+                return false;
+            }
+            mStateCache.setStateAndReasonCode(fileTransferId, State.TRANSFERRED.toInt(),
+                    ReasonCode.UNSPECIFIED.toInt());
+            return true;
+        }
     }
 
     @Override
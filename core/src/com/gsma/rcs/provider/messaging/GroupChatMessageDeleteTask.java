@@ -25,6 +25,8 @@ import com.gsma.rcs.provider.LocalContentResolver;
 import com.gsma.rcs.service.api.ChatServiceImpl;
 import com.gsma.rcs.utils.logger.Logger;
 
+import android.net.Uri;
+
 import java.util.Set;
 
 public class GroupChatMessageDeleteTask extends DeleteTask.GroupedByChatId {
@@ -117,6 +119,12 @@ public class GroupChatMessageDeleteTask extends DeleteTask.GroupedByChatId {
         mChatService.removeGroupChat(chatId);
     }
 
+    @Override
+    protected void deleteRows(Uri uri, String selection, String[] selectionArgs,
+            Set<String> msgIds) {
+        mImService.getMessagingLog().deleteChatMessages(uri, selection, selectionArgs, msgIds);
+    }
+
     @Override
     protected void onCompleted(String chatId, Set<String> msgIds) {
         mChatService.broadcastGroupChatMessagesDeleted(chatId, msgIds);
@@ -24,15 +24,22 @@ package com.gsma.rcs.provider.messaging;
 
 import com.gsma.rcs.provider.CursorUtil;
 import com.gsma.rcs.provider.LocalContentResolver;
+import com.gsma.rcs.utils.logger.Logger;
 import com.gsma.services.rcs.contact.ContactId;
 import com.gsma.services.rcs.groupdelivery.GroupDeliveryInfo;
 import com.gsma.services.rcs.groupdelivery.GroupDeliveryInfo.ReasonCode;
 import com.gsma.services.rcs.groupdelivery.GroupDeliveryInfo.Status;
 
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Class to interface the deliveryinfo table
  */
@@ -69,6 +76,9 @@ public class GroupDeliveryInfoLog implements IGroupDeliveryInfoLog {
 
     private final LocalContentResolver mLocalContentResolver;
 
+    private static final Logger sLogger = Logger.getLogger(GroupDeliveryInfoLog.class
+            .getSimpleName());
+
     /**
      * Constructor
      * 
@@ -235,4 +245,62 @@ public class GroupDeliveryInfoLog implements IGroupDeliveryInfoLog {
         }
         return true;
     }
+
+    /**
+     * Set the delivery info of group chat message recipients to delivered or displayed in a
+     * single transaction, the missing delivery info being then added one by one
+     * 
+     * @param reports Delivery and display reports of the recipients
+     * @return Whether each delivery info was updated
+     */
+    /* package private */boolean[] setGroupChatDeliveryInfoReports(
+            List<MessageStateBatcher.Report> reports) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(reports.size());
+        for (MessageStateBatcher.Report report : reports) {
+            ContentValues values = new ContentValues();
+            values.put(GroupDeliveryInfoData.KEY_REASON_CODE, ReasonCode.UNSPECIFIED.toInt());
+            if (report.isDelivered()) {
+                values.put(GroupDeliveryInfoData.KEY_TIMESTAMP_DELIVERED,
+                        report.getTimestampDelivered());
+            }
+            String selection = SELECTION_DELIVERY_INFO_BY_MSG_ID_AND_CONTACT_EXCLUDE_DISPLAYED;
+            if (report.isDisplayed()) {
+                values.put(GroupDeliveryInfoData.KEY_STATUS, Status.DISPLAYED.toInt());
+                values.put(GroupDeliveryInfoData.KEY_TIMESTAMP_DISPLAYED,
+                        report.getTimestampDisplayed());
+                selection = SELECTION_DELIVERY_INFO_BY_MSG_ID_AND_CONTACT;
+            } else {
+                values.put(GroupDeliveryInfoData.KEY_STATUS, Status.DELIVERED.toInt());
+            }
+            operations.add(ContentProviderOperation.newUpdate(GroupDeliveryInfoData.CONTENT_URI)
+                    .withValues(values).withSelection(selection, new String[] {
+                            report.getMsgId(), report.getContact().toString()
+                    }).build());
+        }
+        boolean[] updated = new boolean[reports.size()];
+        try {
+            ContentProviderResult[] results = mLocalContentResolver.applyBatch(
+                    GroupDeliveryInfoData.CONTENT_URI, operations);
+            for (int i = 0; i < results.length; i++) {
+                updated[i] = results[i].count != null && results[i].count > 0;
+            }
+        } catch (OperationApplicationException e) {
+            sLogger.error("Failed to apply group delivery reports, updating one by one", e);
+        }
+        for (int i = 0; i < reports.size(); i++) {
+            if (updated[i]) {
+                continue;
+            }
+            /* No matching row updated: the row is added if missing */
+            MessageStateBatcher.Report report = reports.get(i);
+            if (report.isDisplayed()) {
+                updated[i] = setGroupChatDeliveryInfoDisplayed(report.getChatId(),
+                        report.getContact(), report.getMsgId(), report.getTimestampDisplayed());
+            } else {
+                updated[i] = setGroupChatDeliveryInfoDelivered(report.getChatId(),
+                        report.getContact(), report.getMsgId(), report.getTimestampDelivered());
+            }
+        }
+        return updated;
+    }
 }
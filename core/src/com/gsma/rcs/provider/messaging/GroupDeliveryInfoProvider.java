@@ -12,8 +12,11 @@ import com.gsma.rcs.utils.DatabaseUtils;
 import com.gsma.services.rcs.groupdelivery.GroupDeliveryInfoLog;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
@@ -22,6 +25,8 @@ import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
+import java.util.ArrayList;
+
 /**
  * Group Delivery info provider of chat and file messages
  */
@@ -292,4 +297,27 @@ public class GroupDeliveryInfoProvider extends ContentProvider {
                 throw new IllegalArgumentException("Unsupported URI " + uri + "!");
         }
     }
+
+    /**
+     * Apply the operations in a single transaction
+     */
+    @Override
+    public ContentProviderResult[] applyBatch(
+            @NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        SQLiteDatabase database = mOpenHelper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            ContentProviderResult[] results = new ContentProviderResult[operations.size()];
+            int index = 0;
+            for (ContentProviderOperation operation : operations) {
+                results[index] = operation.apply(this, results, index);
+                index++;
+            }
+            database.setTransactionSuccessful();
+            return results;
+        } finally {
+            database.endTransaction();
+        }
+    }
 }
@@ -25,6 +25,8 @@ import com.gsma.rcs.provider.LocalContentResolver;
 import com.gsma.rcs.service.api.FileTransferServiceImpl;
 import com.gsma.rcs.utils.logger.Logger;
 
+import android.net.Uri;
+
 import java.util.Set;
 
 public class GroupFileTransferDeleteTask extends DeleteTask.GroupedByChatId {
@@ -119,6 +121,13 @@ public class GroupFileTransferDeleteTask extends DeleteTask.GroupedByChatId {
         mFileTransferService.removeGroupFileTransfer(transferId);
     }
 
+    @Override
+    protected void deleteRows(Uri uri, String selection, String[] selectionArgs,
+            Set<String> transferIds) {
+        mImService.getMessagingLog().deleteFileTransfers(uri, selection, selectionArgs,
+                transferIds);
+    }
+
     @Override
     protected void onCompleted(String chatId, Set<String> transferIds) {
         mFileTransferService.broadcastGroupFileTransfersDeleted(chatId, transferIds);
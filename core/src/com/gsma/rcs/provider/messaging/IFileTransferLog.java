@@ -420,4 +420,15 @@ public interface IFileTransferLog {
      * @return the number of transferred bytes
      */
     Long getFileTransferProgress(String fileTransferId);
+
+    /**
+     * Delete file transfers and drop their cached state in the same step
+     * 
+     * @param uri the URI of the file transfers
+     * @param selection the selection of the file transfers or null
+     * @param selectionArgs the selection arguments or null
+     * @param fileTransferIds the IDs of the deleted file transfers
+     */
+    void deleteFileTransfers(Uri uri, String selection, String[] selectionArgs,
+            Set<String> fileTransferIds);
 }
@@ -29,6 +29,7 @@ import com.gsma.services.rcs.chat.ChatLog.Message.GroupChatEvent;
 import com.gsma.services.rcs.contact.ContactId;
 
 import android.database.Cursor;
+import android.net.Uri;
 
 import java.util.List;
 import java.util.Map;
@@ -296,4 +297,14 @@ public interface IMessageLog {
      * @param msg Chat message
      */
     void addGroupChatFailedDeliveryMessage(String chatId, ChatMessage msg);
+
+    /**
+     * Delete chat messages and drop their cached status in the same step
+     * 
+     * @param uri the URI of the messages
+     * @param selection the selection of the messages or null
+     * @param selectionArgs the selection arguments or null
+     * @param msgIds the IDs of the deleted messages
+     */
+    void deleteChatMessages(Uri uri, String selection, String[] selectionArgs, Set<String> msgIds);
 }
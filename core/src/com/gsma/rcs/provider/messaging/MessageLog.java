@@ -38,7 +38,10 @@ import com.gsma.services.rcs.chat.ChatLog.Message.MimeType;
 import com.gsma.services.rcs.contact.ContactId;
 import com.gsma.services.rcs.groupdelivery.GroupDeliveryInfo;
 
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
 import android.text.TextUtils;
@@ -108,6 +111,17 @@ public class MessageLog implements IMessageLog {
     private static final String SELECTION_BY_NOT_READ = MessageData.KEY_READ_STATUS + "="
             + ReadStatus.UNREAD.toInt();
 
+    private static final String[] PROJECTION_MESSAGE_STATE = new String[] {
+            MessageData.KEY_STATUS, MessageData.KEY_REASON_CODE, MessageData.KEY_EXPIRED_DELIVERY
+    };
+
+    /**
+     * Maximum number of chat messages whose status is cached
+     */
+    private static final int MAX_CACHED_MESSAGE_STATES = 1000;
+
+    private final MessageStateCache mStateCache = new MessageStateCache(MAX_CACHED_MESSAGE_STATES);
+
     /**
      * Constructor
      * 
@@ -145,7 +159,7 @@ public class MessageLog implements IMessageLog {
         values.put(MessageData.KEY_EXPIRED_DELIVERY, 0);
         values.put(MessageData.KEY_STATUS, status.toInt());
         values.put(MessageData.KEY_REASON_CODE, reasonCode.toInt());
-        mLocalContentResolver.insert(MessageData.CONTENT_URI, values);
+        insertMessage(msgId, values, status, reasonCode);
     }
 
     @Override
@@ -173,7 +187,7 @@ public class MessageLog implements IMessageLog {
         values.put(MessageData.KEY_EXPIRED_DELIVERY, 0);
         values.put(MessageData.KEY_STATUS, status.toInt());
         values.put(MessageData.KEY_REASON_CODE, reasonCode.toInt());
-        mLocalContentResolver.insert(MessageData.CONTENT_URI, values);
+        insertMessage(msgId, values, status, reasonCode);
     }
 
     @Override
@@ -245,7 +259,7 @@ public class MessageLog implements IMessageLog {
         values.put(MessageData.KEY_TIMESTAMP_DISPLAYED, 0);
         values.put(MessageData.KEY_DELIVERY_EXPIRATION, 0);
         values.put(MessageData.KEY_EXPIRED_DELIVERY, 0);
-        mLocalContentResolver.insert(MessageData.CONTENT_URI, values);
+        insertMessage(msgId, values, status, reasonCode);
         if (Direction.OUTGOING == direction) {
             try {
                 GroupDeliveryInfo.Status deliveryStatus = GroupDeliveryInfo.Status.NOT_DELIVERED;
@@ -258,8 +272,8 @@ public class MessageLog implements IMessageLog {
                             msgId, deliveryStatus, GroupDeliveryInfo.ReasonCode.UNSPECIFIED, 0, 0);
                 }
             } catch (Exception e) {
-                mLocalContentResolver.delete(Uri.withAppendedPath(MessageData.CONTENT_URI, msgId),
-                        null, null);
+                deleteChatMessages(Uri.withAppendedPath(MessageData.CONTENT_URI, msgId), null,
+                        null, Collections.singleton(msgId));
                 mLocalContentResolver.delete(
                         Uri.withAppendedPath(GroupDeliveryInfoData.CONTENT_URI, msgId), null, null);
                 if (sLogger.isActivated()) {
@@ -270,6 +284,22 @@ public class MessageLog implements IMessageLog {
         }
     }
 
+    /**
+     * Insert a chat message and cache its status
+     * 
+     * @param msgId Message ID
+     * @param values Values of the message
+     * @param status Status
+     * @param reasonCode Reason code
+     */
+    private void insertMessage(String msgId, ContentValues values, Status status,
+            ReasonCode reasonCode) {
+        synchronized (mStateCache) {
+            mLocalContentResolver.insert(MessageData.CONTENT_URI, values);
+            mStateCache.put(msgId, status.toInt(), reasonCode.toInt(), false);
+        }
+    }
+
     @Override
     public String addGroupChatEvent(String chatId, ContactId contact, GroupChatEvent.Status status,
             long timestamp) {
@@ -329,8 +359,14 @@ public class MessageLog implements IMessageLog {
         ContentValues values = new ContentValues();
         values.put(MessageData.KEY_STATUS, status.toInt());
         values.put(MessageData.KEY_REASON_CODE, reasonCode.toInt());
-        return mLocalContentResolver.update(Uri.withAppendedPath(MessageData.CONTENT_URI, msgId),
-                values, SELECTION_BY_UNDELIVERED_STATUS, null) > 0;
+        synchronized (mStateCache) {
+            if (mLocalContentResolver.update(Uri.withAppendedPath(MessageData.CONTENT_URI, msgId),
+                    values, SELECTION_BY_UNDELIVERED_STATUS, null) == 0) {
+                return false;
+            }
+            mStateCache.setStateAndReasonCode(msgId, status.toInt(), reasonCode.toInt());
+            return true;
+        }
     }
 
     @Override
@@ -394,18 +430,6 @@ public class MessageLog implements IMessageLog {
         }
     }
 
-    private Boolean getDataAsBoolean(Cursor cursor) {
-        try {
-            if (cursor.isNull(FIRST_COLUMN_IDX)) {
-                return null;
-            }
-            return cursor.getInt(FIRST_COLUMN_IDX) == 1;
-
-        } finally {
-            CursorUtil.close(cursor);
-        }
-    }
-
     @Override
     public Boolean isMessageRead(String msgId) {
         Cursor cursor = getMessageData(MessageData.KEY_READ_STATUS, msgId);
@@ -433,22 +457,56 @@ public class MessageLog implements IMessageLog {
         return getDataAsLong(cursor);
     }
 
+    /**
+     * Get the status, reason code and expired delivery flag of a chat message from the cache, or
+     * from the provider with a single query
+     * 
+     * @param msgId Message ID
+     * @return Cached state or null if the message is not persisted
+     */
+    private MessageStateCache.Entry getMessageState(String msgId) {
+        MessageStateCache.Entry state = mStateCache.get(msgId);
+        if (state != null) {
+            return state;
+        }
+        long version = mStateCache.getVersion();
+        Cursor cursor = null;
+        Uri contentUri = Uri.withAppendedPath(MessageData.CONTENT_URI, msgId);
+        try {
+            cursor = mLocalContentResolver.query(contentUri, PROJECTION_MESSAGE_STATE, null, null,
+                    null);
+            CursorUtil.assertCursorIsNotNull(cursor, contentUri);
+            if (!cursor.moveToNext()) {
+                return null;
+            }
+            int status = cursor.getInt(cursor.getColumnIndexOrThrow(MessageData.KEY_STATUS));
+            int reasonCode = cursor.getInt(cursor
+                    .getColumnIndexOrThrow(MessageData.KEY_REASON_CODE));
+            boolean expiredDelivery = cursor.getInt(cursor
+                    .getColumnIndexOrThrow(MessageData.KEY_EXPIRED_DELIVERY)) == 1;
+            return mStateCache.load(msgId, version, status, reasonCode, expiredDelivery);
+
+        } finally {
+            CursorUtil.close(cursor);
+        }
+    }
+
     @Override
     public Status getMessageStatus(String msgId) {
-        Cursor cursor = getMessageData(MessageData.KEY_STATUS, msgId);
-        if (cursor == null) {
+        MessageStateCache.Entry state = getMessageState(msgId);
+        if (state == null) {
             return null;
         }
-        return Status.valueOf(getDataAsInteger(cursor));
+        return Status.valueOf(state.getState());
     }
 
     @Override
     public ReasonCode getMessageReasonCode(String msgId) {
-        Cursor cursor = getMessageData(MessageData.KEY_REASON_CODE, msgId);
-        if (cursor == null) {
+        MessageStateCache.Entry state = getMessageState(msgId);
+        if (state == null) {
             return null;
         }
-        return ReasonCode.valueOf(getDataAsInteger(cursor));
+        return ReasonCode.valueOf(state.getReasonCode());
     }
 
     @Override
@@ -471,11 +529,11 @@ public class MessageLog implements IMessageLog {
 
     @Override
     public Boolean isChatMessageExpiredDelivery(String msgId) {
-        Cursor cursor = getMessageData(MessageData.KEY_EXPIRED_DELIVERY, msgId);
-        if (cursor == null) {
+        MessageStateCache.Entry state = getMessageState(msgId);
+        if (state == null) {
             return null;
         }
-        return getDataAsBoolean(cursor);
+        return state.isExpiredDelivery();
     }
 
     @Override
@@ -561,8 +619,15 @@ public class MessageLog implements IMessageLog {
         values.put(MessageData.KEY_REASON_CODE, ReasonCode.UNSPECIFIED.toInt());
         values.put(MessageData.KEY_TIMESTAMP_DELIVERED, timestampDelivered);
         values.put(MessageData.KEY_EXPIRED_DELIVERY, 0);
-        return mLocalContentResolver.update(Uri.withAppendedPath(MessageData.CONTENT_URI, msgId),
-                values, SELECTION_BY_NOT_DISPLAYED, null) > 0;
+        synchronized (mStateCache) {
+            if (mLocalContentResolver.update(Uri.withAppendedPath(MessageData.CONTENT_URI, msgId),
+                    values, SELECTION_BY_NOT_DISPLAYED, null) == 0) {
+                return false;
+            }
+            mStateCache.put(msgId, Status.DELIVERED.toInt(), ReasonCode.UNSPECIFIED.toInt(),
+                    false);
+            return true;
+        }
     }
 
     @Override
@@ -576,8 +641,79 @@ public class MessageLog implements IMessageLog {
         values.put(MessageData.KEY_REASON_CODE, ReasonCode.UNSPECIFIED.toInt());
         values.put(MessageData.KEY_TIMESTAMP_DISPLAYED, timestampDisplayed);
         values.put(MessageData.KEY_EXPIRED_DELIVERY, 0);
-        return mLocalContentResolver.update(Uri.withAppendedPath(MessageData.CONTENT_URI, msgId),
-                values, null, null) > 0;
+        synchronized (mStateCache) {
+            if (mLocalContentResolver.update(Uri.withAppendedPath(MessageData.CONTENT_URI, msgId),
+                    values, null, null) == 0) {
+                return false;
+            }
+            mStateCache.put(msgId, Status.DISPLAYED.toInt(), ReasonCode.UNSPECIFIED.toInt(),
+                    false);
+            return true;
+        }
+    }
+
+    /**
+     * Set chat messages to delivered or displayed in a single transaction, a message reported as
+     * both being set to displayed with its delivery timestamp
+     * 
+     * @param reports Delivery and display reports of the messages
+     * @return Whether each message was updated
+     */
+    /* package private */boolean[] setChatMessageStatusReports(
+            List<MessageStateBatcher.Report> reports) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(reports.size());
+        for (MessageStateBatcher.Report report : reports) {
+            ContentValues values = new ContentValues();
+            values.put(MessageData.KEY_STATUS, getReportedStatus(report).toInt());
+            values.put(MessageData.KEY_REASON_CODE, ReasonCode.UNSPECIFIED.toInt());
+            values.put(MessageData.KEY_EXPIRED_DELIVERY, 0);
+            if (report.isDelivered()) {
+                values.put(MessageData.KEY_TIMESTAMP_DELIVERED, report.getTimestampDelivered());
+            }
+            if (report.isDisplayed()) {
+                values.put(MessageData.KEY_TIMESTAMP_DISPLAYED, report.getTimestampDisplayed());
+            }
+            ContentProviderOperation.Builder builder = ContentProviderOperation.newUpdate(
+                    Uri.withAppendedPath(MessageData.CONTENT_URI, report.getMsgId())).withValues(
+                    values);
+            if (!report.isDisplayed()) {
+                builder.withSelection(SELECTION_BY_NOT_DISPLAYED, null);
+            }
+            operations.add(builder.build());
+        }
+        boolean[] updated = new boolean[reports.size()];
+        synchronized (mStateCache) {
+            try {
+                ContentProviderResult[] results = mLocalContentResolver.applyBatch(
+                        MessageData.CONTENT_URI, operations);
+                for (int i = 0; i < results.length; i++) {
+                    updated[i] = results[i].count != null && results[i].count > 0;
+                    if (updated[i]) {
+                        mStateCache.put(reports.get(i).getMsgId(), getReportedStatus(
+                                reports.get(i)).toInt(), ReasonCode.UNSPECIFIED.toInt(), false);
+                    }
+                }
+                return updated;
+
+            } catch (OperationApplicationException e) {
+                sLogger.error("Failed to apply chat message reports, updating one by one", e);
+            }
+        }
+        for (int i = 0; i < reports.size(); i++) {
+            MessageStateBatcher.Report report = reports.get(i);
+            if (report.isDisplayed()) {
+                updated[i] = setChatMessageStatusDisplayed(report.getMsgId(),
+                        report.getTimestampDisplayed());
+            } else {
+                updated[i] = setChatMessageStatusDelivered(report.getMsgId(),
+                        report.getTimestampDelivered());
+            }
+        }
+        return updated;
+    }
+
+    private static Status getReportedStatus(MessageStateBatcher.Report report) {
+        return report.isDisplayed() ? Status.DISPLAYED : Status.DELIVERED;
     }
 
     @Override
@@ -591,16 +727,25 @@ public class MessageLog implements IMessageLog {
         }
         String selection = MessageData.KEY_MESSAGE_ID + " IN (" + TextUtils.join(",", parameters)
                 + ")";
-        mLocalContentResolver.update(MessageData.CONTENT_URI, values, selection,
-                msgIds.toArray(new String[msgIds.size()]));
+        synchronized (mStateCache) {
+            mLocalContentResolver.update(MessageData.CONTENT_URI, values, selection,
+                    msgIds.toArray(new String[msgIds.size()]));
+            mStateCache.setExpiredDelivery(msgIds, false);
+        }
     }
 
     @Override
     public boolean setChatMessageDeliveryExpired(String msgId) {
         ContentValues values = new ContentValues();
         values.put(MessageData.KEY_EXPIRED_DELIVERY, 1);
-        return mLocalContentResolver.update(Uri.withAppendedPath(MessageData.CONTENT_URI, msgId),
-                values, null, null) > 0;
+        synchronized (mStateCache) {
+            if (mLocalContentResolver.update(Uri.withAppendedPath(MessageData.CONTENT_URI, msgId),
+                    values, null, null) == 0) {
+                return false;
+            }
+            mStateCache.setExpiredDelivery(Collections.singleton(msgId), true);
+            return true;
+        }
     }
 
     @Override
@@ -624,8 +769,40 @@ public class MessageLog implements IMessageLog {
         values.put(MessageData.KEY_REASON_CODE, reasonCode.toInt());
         values.put(MessageData.KEY_TIMESTAMP, timestamp);
         values.put(MessageData.KEY_TIMESTAMP_SENT, timestampSent);
-        return mLocalContentResolver.update(Uri.withAppendedPath(MessageData.CONTENT_URI, msgId),
-                values, null, null) > 0;
+        synchronized (mStateCache) {
+            if (mLocalContentResolver.update(Uri.withAppendedPath(MessageData.CONTENT_URI, msgId),
+                    values, null, null) == 0) {
+                return false;
+            }
+            mStateCache.setStateAndReasonCode(msgId, status.toInt(), reasonCode.toInt());
+            return true;
+        }
+    }
+
+    /**
+     * Drop the cached state of all the chat messages
+     */
+    /* package private */void clearCachedChatMessageStates() {
+        mStateCache.clear();
+    }
+
+    /**
+     * Delete all the chat messages and drop their cached state
+     */
+    /* package private */void deleteAllChatMessages() {
+        synchronized (mStateCache) {
+            mLocalContentResolver.delete(MessageData.CONTENT_URI, null, null);
+            mStateCache.clear();
+        }
+    }
+
+    @Override
+    public void deleteChatMessages(Uri uri, String selection, String[] selectionArgs,
+            Set<String> msgIds) {
+        synchronized (mStateCache) {
+            mLocalContentResolver.delete(uri, selection, selectionArgs);
+            mStateCache.remove(msgIds);
+        }
     }
 
     @Override
@@ -0,0 +1,507 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.provider.messaging;
+
+import com.gsma.rcs.utils.logger.Logger;
+import com.gsma.services.rcs.chat.ChatLog.Message.Content.Status;
+import com.gsma.services.rcs.contact.ContactId;
+import com.gsma.services.rcs.groupdelivery.GroupDeliveryInfo;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind updater of the chat message states from the received delivery and display
+ * reports<br>
+ * Reports are queued during a batch window, then applied with one transaction per provider: a
+ * display report supersedes the delivery report of the same message and contact, and the listener
+ * is called once per updated message. With a batch window of 0, each report is applied at once.
+ */
+public class MessageStateBatcher {
+
+    /**
+     * Listener of the message states updated by a batch
+     */
+    public interface IMessageStateListener {
+        /**
+         * The state of a one-to-one chat message was updated
+         *
+         * @param contact Remote contact
+         * @param msgId Message ID
+         * @param status New status
+         */
+        void onOneToOneMessageStatusChanged(ContactId contact, String msgId, Status status);
+
+        /**
+         * The delivery info of group chat message recipients were updated
+         *
+         * @param chatId Group chat ID
+         * @param msgId Message ID
+         * @param deliveryInfos New delivery status per updated recipient
+         * @param status New message status or null if unchanged
+         */
+        void onGroupChatMessageStatusChanged(String chatId, String msgId,
+                Map<ContactId, GroupDeliveryInfo.Status> deliveryInfos, Status status);
+    }
+
+    /**
+     * Delivery and display reports of a message, for a contact in case of group chat
+     */
+    /* package private */static final class Report {
+
+        private final String mChatId;
+
+        private final ContactId mContact;
+
+        private final String mMsgId;
+
+        private boolean mDelivered;
+
+        private long mTimestampDelivered;
+
+        private boolean mDisplayed;
+
+        private long mTimestampDisplayed;
+
+        private Report(String chatId, ContactId contact, String msgId) {
+            mChatId = chatId;
+            mContact = contact;
+            mMsgId = msgId;
+        }
+
+        /* package private */String getChatId() {
+            return mChatId;
+        }
+
+        /* package private */ContactId getContact() {
+            return mContact;
+        }
+
+        /* package private */String getMsgId() {
+            return mMsgId;
+        }
+
+        /* package private */boolean isDelivered() {
+            return mDelivered;
+        }
+
+        /* package private */long getTimestampDelivered() {
+            return mTimestampDelivered;
+        }
+
+        /* package private */boolean isDisplayed() {
+            return mDisplayed;
+        }
+
+        /* package private */long getTimestampDisplayed() {
+            return mTimestampDisplayed;
+        }
+    }
+
+    /**
+     * Reports received for a group chat message
+     */
+    private static final class GroupChatMessageReports {
+
+        private final String mChatId;
+
+        private final Map<ContactId, Report> mReports = new LinkedHashMap<>();
+
+        private GroupChatMessageReports(String chatId) {
+            mChatId = chatId;
+        }
+    }
+
+    private final MessagingLog mMessagingLog;
+
+    private final IMessageStateListener mListener;
+
+    private final long mBatchWindow;
+
+    private ScheduledExecutorService mExecutor;
+
+    /**
+     * Lock serializing the batches so that they are persisted in the order they were queued
+     */
+    private final Object mFlushLock = new Object();
+
+    private Map<String, Report> mOneToOneReports = new LinkedHashMap<>();
+
+    private Map<String, GroupChatMessageReports> mGroupChatReports = new LinkedHashMap<>();
+
+    private boolean mFlushScheduled;
+
+    private long mReportCount;
+
+    private long mCoalescedCount;
+
+    private long mTransactionCount;
+
+    private static final Logger sLogger = Logger.getLogger(MessageStateBatcher.class
+            .getSimpleName());
+
+    /**
+     * Constructor
+     *
+     * @param messagingLog Messaging log
+     * @param listener Listener of the updated message states
+     * @param batchWindow Period in milliseconds during which the reports are queued
+     */
+    public MessageStateBatcher(MessagingLog messagingLog, IMessageStateListener listener,
+            long batchWindow) {
+        mMessagingLog = messagingLog;
+        mListener = listener;
+        mBatchWindow = Math.max(0, batchWindow);
+        mExecutor = createExecutor();
+    }
+
+    private static ScheduledExecutorService createExecutor() {
+        /* The thread is only created by the first scheduled flush */
+        return new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "MessageStateBatcher");
+            }
+        });
+    }
+
+    /**
+     * Queue the delivery report of a one-to-one chat message
+     *
+     * @param contact Remote contact
+     * @param msgId Message ID
+     * @param timestampDelivered Time of delivery
+     */
+    public void setOneToOneMessageDelivered(ContactId contact, String msgId,
+            long timestampDelivered) {
+        synchronized (this) {
+            Report report = getOneToOneReport(contact, msgId);
+            report.mDelivered = true;
+            report.mTimestampDelivered = timestampDelivered;
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Queue the display report of a one-to-one chat message
+     *
+     * @param contact Remote contact
+     * @param msgId Message ID
+     * @param timestampDisplayed Time of display
+     */
+    public void setOneToOneMessageDisplayed(ContactId contact, String msgId,
+            long timestampDisplayed) {
+        synchronized (this) {
+            Report report = getOneToOneReport(contact, msgId);
+            report.mDisplayed = true;
+            report.mTimestampDisplayed = timestampDisplayed;
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Queue the delivery report of a group chat message by a recipient
+     *
+     * @param chatId Group chat ID
+     * @param contact Recipient
+     * @param msgId Message ID
+     * @param timestampDelivered Time of delivery
+     */
+    public void setGroupChatMessageDelivered(String chatId, ContactId contact, String msgId,
+            long timestampDelivered) {
+        synchronized (this) {
+            Report report = getGroupChatReport(chatId, contact, msgId);
+            report.mDelivered = true;
+            report.mTimestampDelivered = timestampDelivered;
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Queue the display report of a group chat message by a recipient
+     *
+     * @param chatId Group chat ID
+     * @param contact Recipient
+     * @param msgId Message ID
+     * @param timestampDisplayed Time of display
+     */
+    public void setGroupChatMessageDisplayed(String chatId, ContactId contact, String msgId,
+            long timestampDisplayed) {
+        synchronized (this) {
+            Report report = getGroupChatReport(chatId, contact, msgId);
+            report.mDisplayed = true;
+            report.mTimestampDisplayed = timestampDisplayed;
+        }
+        scheduleFlush();
+    }
+
+    private Report getOneToOneReport(ContactId contact, String msgId) {
+        mReportCount++;
+        Report report = mOneToOneReports.get(msgId);
+        if (report != null) {
+            mCoalescedCount++;
+            return report;
+        }
+        report = new Report(null, contact, msgId);
+        mOneToOneReports.put(msgId, report);
+        return report;
+    }
+
+    private Report getGroupChatReport(String chatId, ContactId contact, String msgId) {
+        mReportCount++;
+        GroupChatMessageReports reports = mGroupChatReports.get(msgId);
+        if (reports == null) {
+            reports = new GroupChatMessageReports(chatId);
+            mGroupChatReports.put(msgId, reports);
+        }
+        Report report = reports.mReports.get(contact);
+        if (report != null) {
+            mCoalescedCount++;
+            return report;
+        }
+        report = new Report(chatId, contact, msgId);
+        reports.mReports.put(contact, report);
+        return report;
+    }
+
+    private void scheduleFlush() {
+        if (mBatchWindow == 0) {
+            flush();
+            return;
+        }
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            if (mFlushScheduled) {
+                return;
+            }
+            mFlushScheduled = true;
+            executor = mExecutor;
+        }
+        try {
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, mBatchWindow, TimeUnit.MILLISECONDS);
+
+        } catch (RejectedExecutionException e) {
+            /* Batcher stopped: the reports are applied at once */
+            flush();
+        }
+    }
+
+    /**
+     * Apply the queued reports
+     */
+    public void flush() {
+        synchronized (mFlushLock) {
+            Map<String, Report> oneToOneReports;
+            Map<String, GroupChatMessageReports> groupChatReports;
+            synchronized (this) {
+                mFlushScheduled = false;
+                oneToOneReports = mOneToOneReports;
+                groupChatReports = mGroupChatReports;
+                if (oneToOneReports.isEmpty() && groupChatReports.isEmpty()) {
+                    return;
+                }
+                mOneToOneReports = new LinkedHashMap<>();
+                mGroupChatReports = new LinkedHashMap<>();
+            }
+            try {
+                apply(oneToOneReports, groupChatReports);
+
+            } catch (RuntimeException e) {
+                /*
+                 * Intentionally catch runtime exceptions as else it will abruptly end the batch
+                 * thread and the next reports would never be applied.
+                 */
+                sLogger.error("Failed to apply message delivery reports!", e);
+            }
+        }
+    }
+
+    /**
+     * Apply the queued reports then an update not handled by the batcher, such as a failure report,
+     * so that the updates of a message are persisted and notified in the order they were received
+     *
+     * @param update Update to run once the queued reports are applied
+     */
+    public void applyInOrder(Runnable update) {
+        synchronized (mFlushLock) {
+            flush();
+            update.run();
+        }
+    }
+
+    private void apply(Map<String, Report> oneToOneReports,
+            Map<String, GroupChatMessageReports> groupChatReports) {
+        /* Delivery info of the group chat recipients, in one transaction */
+        List<Report> deliveryInfoReports = new ArrayList<>();
+        for (GroupChatMessageReports reports : groupChatReports.values()) {
+            deliveryInfoReports.addAll(reports.mReports.values());
+        }
+        boolean[] deliveryInfoUpdated = new boolean[0];
+        if (!deliveryInfoReports.isEmpty()) {
+            deliveryInfoUpdated = mMessagingLog
+                    .setGroupChatDeliveryInfoReports(deliveryInfoReports);
+            incrementTransactionCount();
+        }
+        /* Group chat messages delivered to or displayed by all the recipients */
+        List<Report> messageReports = new ArrayList<>(oneToOneReports.values());
+        Map<String, Map<ContactId, GroupDeliveryInfo.Status>> groupChatDeliveryInfos;
+        groupChatDeliveryInfos = new LinkedHashMap<>();
+        int index = 0;
+        for (Map.Entry<String, GroupChatMessageReports> entry : groupChatReports.entrySet()) {
+            String msgId = entry.getKey();
+            GroupChatMessageReports reports = entry.getValue();
+            Map<ContactId, GroupDeliveryInfo.Status> deliveryInfos = new LinkedHashMap<>();
+            Report messageReport = new Report(reports.mChatId, null, msgId);
+            for (Report report : reports.mReports.values()) {
+                if (!deliveryInfoUpdated[index++]) {
+                    continue;
+                }
+                if (report.mDisplayed) {
+                    deliveryInfos.put(report.mContact, GroupDeliveryInfo.Status.DISPLAYED);
+                    messageReport.mDisplayed = true;
+                    messageReport.mTimestampDisplayed = report.mTimestampDisplayed;
+                } else {
+                    deliveryInfos.put(report.mContact, GroupDeliveryInfo.Status.DELIVERED);
+                }
+                messageReport.mTimestampDelivered = report.mDelivered ? report.mTimestampDelivered
+                        : report.mTimestampDisplayed;
+            }
+            if (deliveryInfos.isEmpty()) {
+                continue;
+            }
+            groupChatDeliveryInfos.put(msgId, deliveryInfos);
+            if (!messageReport.mDisplayed || !mMessagingLog.isDisplayedByAllRecipients(msgId)) {
+                messageReport.mDisplayed = false;
+                messageReport.mDelivered = mMessagingLog.isDeliveredToAllRecipients(msgId);
+            }
+            if (messageReport.mDisplayed || messageReport.mDelivered) {
+                messageReports.add(messageReport);
+            }
+        }
+        /* Chat message states, in one transaction */
+        boolean[] messageUpdated = new boolean[0];
+        if (!messageReports.isEmpty()) {
+            messageUpdated = mMessagingLog.setChatMessageStatusReports(messageReports);
+            incrementTransactionCount();
+        }
+        /* One callback per updated message */
+        Map<String, Status> groupChatMessageStates = new LinkedHashMap<>();
+        for (int i = 0; i < messageReports.size(); i++) {
+            if (!messageUpdated[i]) {
+                continue;
+            }
+            Report report = messageReports.get(i);
+            Status status = report.mDisplayed ? Status.DISPLAYED : Status.DELIVERED;
+            if (report.mChatId == null) {
+                notifyOneToOneMessageStatusChanged(report.mContact, report.mMsgId, status);
+            } else {
+                groupChatMessageStates.put(report.mMsgId, status);
+            }
+        }
+        for (String msgId : groupChatDeliveryInfos.keySet()) {
+            notifyGroupChatMessageStatusChanged(groupChatReports.get(msgId).mChatId, msgId,
+                    groupChatDeliveryInfos.get(msgId), groupChatMessageStates.get(msgId));
+        }
+    }
+
+    private void notifyOneToOneMessageStatusChanged(ContactId contact, String msgId,
+            Status status) {
+        try {
+            mListener.onOneToOneMessageStatusChanged(contact, msgId, status);
+
+        } catch (RuntimeException e) {
+            sLogger.error("Failed to notify status of message " + msgId, e);
+        }
+    }
+
+    private void notifyGroupChatMessageStatusChanged(String chatId, String msgId,
+            Map<ContactId, GroupDeliveryInfo.Status> deliveryInfos, Status status) {
+        try {
+            mListener.onGroupChatMessageStatusChanged(chatId, msgId, deliveryInfos, status);
+
+        } catch (RuntimeException e) {
+            sLogger.error("Failed to notify status of message " + msgId, e);
+        }
+    }
+
+    private synchronized void incrementTransactionCount() {
+        mTransactionCount++;
+    }
+
+    /**
+     * Resume batching after a stop
+     */
+    public void start() {
+        synchronized (this) {
+            if (mExecutor.isShutdown()) {
+                mExecutor = createExecutor();
+            }
+        }
+    }
+
+    /**
+     * Apply the queued reports and stop batching: the thread of the batcher ends and the next
+     * reports are applied at once until the batcher is started again
+     */
+    public void stop() {
+        synchronized (this) {
+            mExecutor.shutdown();
+        }
+        flush();
+    }
+
+    /**
+     * Returns the number of received reports
+     *
+     * @return Number of reports
+     */
+    public synchronized long getReportCount() {
+        return mReportCount;
+    }
+
+    /**
+     * Returns the number of reports merged into a report of the same message and contact
+     *
+     * @return Number of reports
+     */
+    public synchronized long getCoalescedCount() {
+        return mCoalescedCount;
+    }
+
+    /**
+     * Returns the number of provider transactions used to apply the reports
+     *
+     * @return Number of transactions
+     */
+    public synchronized long getTransactionCount() {
+        return mTransactionCount;
+    }
+}
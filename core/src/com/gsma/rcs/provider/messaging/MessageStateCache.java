@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.provider.messaging;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the persisted state, reason code and expired delivery flag of chat messages or
+ * file transfers, so that they are read without querying the provider.<br>
+ * The cache is written through by the log updating the provider: an update and the related cache
+ * change are done while holding the lock of the cache, so that concurrent updates of the same row
+ * are applied to the cache in the order they were persisted. A value read from the provider is
+ * only cached if no update happened in between.
+ */
+public class MessageStateCache {
+
+    /**
+     * Cached state of a row
+     */
+    public static final class Entry {
+
+        private final int mState;
+
+        private final int mReasonCode;
+
+        private final boolean mExpiredDelivery;
+
+        private Entry(int state, int reasonCode, boolean expiredDelivery) {
+            mState = state;
+            mReasonCode = reasonCode;
+            mExpiredDelivery = expiredDelivery;
+        }
+
+        /**
+         * Returns the state or status
+         *
+         * @return State
+         */
+        public int getState() {
+            return mState;
+        }
+
+        /**
+         * Returns the reason code
+         *
+         * @return Reason code
+         */
+        public int getReasonCode() {
+            return mReasonCode;
+        }
+
+        /**
+         * Is the delivery expired
+         *
+         * @return True if expired
+         */
+        public boolean isExpiredDelivery() {
+            return mExpiredDelivery;
+        }
+    }
+
+    private final Map<String, Entry> mEntries;
+
+    /**
+     * Number of updates, used to detect an update concurrent to a read from the provider
+     */
+    private long mVersion;
+
+    /**
+     * Constructor
+     *
+     * @param maxSize Maximum number of cached rows, the least recently used being evicted
+     */
+    public MessageStateCache(final int maxSize) {
+        mEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached state of a row
+     *
+     * @param id Row ID
+     * @return Entry or null if not cached
+     */
+    public synchronized Entry get(String id) {
+        return mEntries.get(id);
+    }
+
+    /**
+     * Returns the version to be passed to load before reading a row from the provider
+     *
+     * @return Version
+     */
+    public synchronized long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Cache the state read from the provider unless the cache was updated since the read started
+     *
+     * @param id Row ID
+     * @param version Version returned by getVersion before the read
+     * @param state State
+     * @param reasonCode Reason code
+     * @param expiredDelivery Expired delivery flag
+     * @return Entry
+     */
+    public synchronized Entry load(String id, long version, int state, int reasonCode,
+            boolean expiredDelivery) {
+        Entry entry = new Entry(state, reasonCode, expiredDelivery);
+        if (version == mVersion) {
+            mEntries.put(id, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Cache the state of a persisted row
+     *
+     * @param id Row ID
+     * @param state State
+     * @param reasonCode Reason code
+     * @param expiredDelivery Expired delivery flag
+     */
+    public synchronized void put(String id, int state, int reasonCode, boolean expiredDelivery) {
+        mVersion++;
+        mEntries.put(id, new Entry(state, reasonCode, expiredDelivery));
+    }
+
+    /**
+     * Update the state and reason code of a row if cached
+     *
+     * @param id Row ID
+     * @param state State
+     * @param reasonCode Reason code
+     */
+    public synchronized void setStateAndReasonCode(String id, int state, int reasonCode) {
+        mVersion++;
+        Entry entry = mEntries.get(id);
+        if (entry != null) {
+            mEntries.put(id, new Entry(state, reasonCode, entry.mExpiredDelivery));
+        }
+    }
+
+    /**
+     * Update the expired delivery flag of rows if cached
+     *
+     * @param ids Row IDs
+     * @param expiredDelivery Expired delivery flag
+     */
+    public synchronized void setExpiredDelivery(Collection<String> ids, boolean expiredDelivery) {
+        mVersion++;
+        for (String id : ids) {
+            Entry entry = mEntries.get(id);
+            if (entry != null) {
+                mEntries.put(id, new Entry(entry.mState, entry.mReasonCode, expiredDelivery));
+            }
+        }
+    }
+
+    /**
+     * Drop deleted rows
+     *
+     * @param ids Row IDs
+     */
+    public synchronized void remove(Collection<String> ids) {
+        mVersion++;
+        for (String id : ids) {
+            mEntries.remove(id);
+        }
+    }
+
+    /**
+     * Drop all the cached rows
+     */
+    public synchronized void clear() {
+        mVersion++;
+        mEntries.clear();
+    }
+}
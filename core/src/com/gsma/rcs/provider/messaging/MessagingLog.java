@@ -277,13 +277,22 @@ public class MessagingLog implements IGroupChatLog, IMessageLog, IFileTransferLo
         return mGroupChatLog.isGroupChatNextInviteRejected(chatId);
     }
 
+    /**
+     * Drop the cached states of the chat messages and file transfers: the next reads query the
+     * provider, e.g. after rows were updated outside the logs
+     */
+    public void clearCachedStates() {
+        mMessageLog.clearCachedChatMessageStates();
+        mFileTransferLog.clearCachedFileTransferStates();
+    }
+
     /**
      * Delete all entries in Chat, Message and FileTransfer Logs
      */
     public void deleteAllEntries() {
         mLocalContentResolver.delete(GroupChatData.CONTENT_URI, null, null);
-        mLocalContentResolver.delete(MessageData.CONTENT_URI, null, null);
-        mLocalContentResolver.delete(FileTransferData.CONTENT_URI, null, null);
+        mMessageLog.deleteAllChatMessages();
+        mFileTransferLog.deleteAllFileTransfers();
         mLocalContentResolver.delete(GroupDeliveryInfoData.CONTENT_URI, null, null);
     }
 
@@ -604,6 +613,40 @@ public class MessagingLog implements IGroupChatLog, IMessageLog, IFileTransferLo
         mMessageLog.addGroupChatFailedDeliveryMessage(chatId, msg);
     }
 
+    /**
+     * Set chat messages to delivered or displayed in a single transaction
+     * 
+     * @param reports Delivery and display reports of the messages
+     * @return Whether each message was updated
+     */
+    /* package private */boolean[] setChatMessageStatusReports(
+            List<MessageStateBatcher.Report> reports) {
+        return mMessageLog.setChatMessageStatusReports(reports);
+    }
+
+    /**
+     * Set the delivery info of group chat message recipients in a single transaction
+     * 
+     * @param reports Delivery and display reports of the recipients
+     * @return Whether each delivery info was updated
+     */
+    /* package private */boolean[] setGroupChatDeliveryInfoReports(
+            List<MessageStateBatcher.Report> reports) {
+        return mGroupChatDeliveryInfoLog.setGroupChatDeliveryInfoReports(reports);
+    }
+
+    @Override
+    public void deleteChatMessages(Uri uri, String selection, String[] selectionArgs,
+            Set<String> msgIds) {
+        mMessageLog.deleteChatMessages(uri, selection, selectionArgs, msgIds);
+    }
+
+    @Override
+    public void deleteFileTransfers(Uri uri, String selection, String[] selectionArgs,
+            Set<String> fileTransferIds) {
+        mFileTransferLog.deleteFileTransfers(uri, selection, selectionArgs, fileTransferIds);
+    }
+
     @Override
     public Uri getFile(String fileTransferId) {
         return mFileTransferLog.getFile(fileTransferId);
@@ -27,6 +27,8 @@ import com.gsma.rcs.service.api.ChatServiceImpl;
 import com.gsma.rcs.utils.logger.Logger;
 import com.gsma.services.rcs.contact.ContactId;
 
+import android.net.Uri;
+
 import java.util.Set;
 
 public class OneToOneChatMessageDeleteTask extends DeleteTask.GroupedByContactId {
@@ -123,6 +125,12 @@ public class OneToOneChatMessageDeleteTask extends DeleteTask.GroupedByContactId
         mChatService.removeOneToOneChat(contact);
     }
 
+    @Override
+    protected void deleteRows(Uri uri, String selection, String[] selectionArgs,
+            Set<String> msgIds) {
+        mImService.getMessagingLog().deleteChatMessages(uri, selection, selectionArgs, msgIds);
+    }
+
     @Override
     protected void onCompleted(ContactId contact, Set<String> msgIds) {
         DeliveryExpirationManager expirationManager = mImService.getDeliveryExpirationManager();
@@ -27,6 +27,8 @@ import com.gsma.rcs.service.api.FileTransferServiceImpl;
 import com.gsma.rcs.utils.logger.Logger;
 import com.gsma.services.rcs.contact.ContactId;
 
+import android.net.Uri;
+
 import java.util.Set;
 
 public class OneToOneFileTransferDeleteTask extends DeleteTask.GroupedByContactId {
@@ -121,6 +123,13 @@ public class OneToOneFileTransferDeleteTask extends DeleteTask.GroupedByContactI
         mFileTransferService.removeOneToOneFileTransfer(transferId);
     }
 
+    @Override
+    protected void deleteRows(Uri uri, String selection, String[] selectionArgs,
+            Set<String> transferIds) {
+        mImService.getMessagingLog().deleteFileTransfers(uri, selection, selectionArgs,
+                transferIds);
+    }
+
     @Override
     protected void onCompleted(ContactId contact, Set<String> transferIds) {
         DeliveryExpirationManager expirationManager = mImService.getDeliveryExpirationManager();
@@ -1116,6 +1116,70 @@ public class RcsSettings {
         return readLong(RcsSettingsData.MSRP_TRANSACTION_TIMEOUT);
     }
 
+    /**
+     * Is MSRP event-driven transport enabled
+     *
+     * @return Boolean
+     */
+    public boolean isMsrpNioTransportEnabled() {
+        return readBoolean(RcsSettingsData.MSRP_NIO_TRANSPORT);
+    }
+
+    /**
+     * Get the number of I/O threads of the MSRP event-driven transport
+     *
+     * @return Number of threads
+     */
+    public int getMsrpNioIoThreads() {
+        return readInteger(RcsSettingsData.MSRP_NIO_IO_THREADS);
+    }
+
+    /**
+     * Is MSRP connection reuse between sessions to the same remote end point enabled
+     *
+     * @return Boolean
+     */
+    public boolean isMsrpConnectionReuseEnabled() {
+        return readBoolean(RcsSettingsData.MSRP_CONNECTION_REUSE);
+    }
+
+    /**
+     * Get the delay after which a shared MSRP connection no more used is closed
+     *
+     * @return Timeout in milliseconds
+     */
+    public long getMsrpConnectionIdleTimeout() {
+        return readLong(RcsSettingsData.MSRP_CONNECTION_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Get the maximum number of MSRP chunks sent without response when failure reports are
+     * requested
+     *
+     * @return Number of chunks
+     */
+    public int getMsrpSendWindowSize() {
+        return readInteger(RcsSettingsData.MSRP_SEND_WINDOW_SIZE);
+    }
+
+    /**
+     * Is the size of the MSRP chunks adapted to the round trip time and to the connection backlog
+     *
+     * @return Boolean
+     */
+    public boolean isMsrpAdaptiveChunkSizeEnabled() {
+        return readBoolean(RcsSettingsData.MSRP_ADAPTIVE_CHUNK_SIZE);
+    }
+
+    /**
+     * Get the maximum size of the MSRP chunks when the chunk size is adaptive
+     *
+     * @return Size in bytes
+     */
+    public int getMsrpMaxChunkSize() {
+        return readInteger(RcsSettingsData.MSRP_MAX_CHUNK_SIZE);
+    }
+
     /**
      * Get default expire period for REGISTER
      *
@@ -1289,6 +1353,33 @@ public class RcsSettings {
         return readBoolean(RcsSettingsData.MEDIA_TRACE_ACTIVATED);
     }
 
+    /**
+     * Get directory of the capture of the SIP and media messages
+     *
+     * @return Directory
+     */
+    public String getWireCaptureDirectory() {
+        return readString(RcsSettingsData.WIRE_CAPTURE_DIRECTORY);
+    }
+
+    /**
+     * Get size of each file of the capture of the SIP and media messages
+     *
+     * @return Size in bytes
+     */
+    public int getWireCaptureFileSize() {
+        return readInteger(RcsSettingsData.WIRE_CAPTURE_FILE_SIZE);
+    }
+
+    /**
+     * Get number of files of the capture of the SIP and media messages
+     *
+     * @return Number of files
+     */
+    public int getWireCaptureFileCount() {
+        return readInteger(RcsSettingsData.WIRE_CAPTURE_FILE_COUNT);
+    }
+
     /**
      * Get capability refresh timeout used to avoid too many requests in a short time
      *
@@ -1316,6 +1407,16 @@ public class RcsSettings {
         return readLong(RcsSettingsData.CAPABILITY_POLLING_PERIOD);
     }
 
+    /**
+     * Get the maximum number of capability requests sent per second when refreshing the
+     * capabilities of several contacts
+     *
+     * @return Number of requests per second
+     */
+    public int getCapabilityRequestRate() {
+        return readInteger(RcsSettingsData.CAPABILITY_REQUEST_RATE);
+    }
+
     /**
      * Is CS video supported
      *
@@ -1604,6 +1705,53 @@ public class RcsSettings {
         return readLong(RcsSettingsData.SIP_TIMER_T4);
     }
 
+    /**
+     * Get the number of lanes processing the SIP events received
+     *
+     * @return Number of lanes
+     */
+    public int getSipEventLanes() {
+        return readInteger(RcsSettingsData.SIP_EVENT_LANES);
+    }
+
+    /**
+     * Are the received SIP datagrams parsed directly from their bytes
+     *
+     * @return Boolean
+     */
+    public boolean isSipByteMessageParserEnabled() {
+        return readBoolean(RcsSettingsData.SIP_BYTE_MESSAGE_PARSER);
+    }
+
+    /**
+     * Is lazy parsing of the received SIP headers enabled
+     *
+     * @return Boolean
+     */
+    public boolean isSipLazyHeaderParsingEnabled() {
+        return readBoolean(RcsSettingsData.SIP_LAZY_HEADER_PARSING);
+    }
+
+    /**
+     * Get the number of workers processing the SIP requests received by the IMS service
+     * dispatcher
+     *
+     * @return Number of workers
+     */
+    public int getImsDispatcherWorkers() {
+        return readInteger(RcsSettingsData.IMS_DISPATCHER_WORKERS);
+    }
+
+    /**
+     * Get the maximum number of received SIP requests pending on a lane of the IMS service
+     * dispatcher
+     *
+     * @return Number of requests or 0 for no limit
+     */
+    public int getImsDispatcherMaxLaneDepth() {
+        return readInteger(RcsSettingsData.IMS_DISPATCHER_MAX_LANE_DEPTH);
+    }
+
     /**
      * Is SIP keep-alive enabled
      *
@@ -2162,6 +2310,34 @@ public class RcsSettings {
         return readBoolean(RcsSettingsData.REQUEST_AND_RESPOND_TO_GROUP_DISPLAY_REPORTS);
     }
 
+    /**
+     * Get the period during which the delivery reports to send to a contact are queued
+     *
+     * @return Period in milliseconds
+     */
+    public long getImdnFlushInterval() {
+        return readLong(RcsSettingsData.IMDN_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Get the maximum number of delivery reports being sent concurrently
+     *
+     * @return Number of reports
+     */
+    public int getImdnMaxConcurrentSends() {
+        return readInteger(RcsSettingsData.IMDN_MAX_CONCURRENT_SENDS);
+    }
+
+    /**
+     * Get the period during which the received delivery reports are queued before the message
+     * states are updated
+     *
+     * @return Period in milliseconds
+     */
+    public long getMessageStateBatchWindow() {
+        return readLong(RcsSettingsData.MESSAGE_STATE_BATCH_WINDOW);
+    }
+
     /**
      * Get message delivery timeout in one-one messaging
      *
@@ -878,6 +878,49 @@ public class RcsSettingsData {
     public static final String MSRP_TRANSACTION_TIMEOUT = "MsrpTransactionTimeout";
     /* package private */static final Long DEFAULT_MSRP_TRANSACTION_TIMEOUT = 5000L;
 
+    /**
+     * MSRP event-driven transport: connections share a few I/O threads instead of using a
+     * receiver and a sender thread each
+     */
+    public static final String MSRP_NIO_TRANSPORT = "MsrpNioTransport";
+    /* package private */static final Boolean DEFAULT_MSRP_NIO_TRANSPORT = false;
+
+    /**
+     * Number of I/O threads of the MSRP event-driven transport
+     */
+    public static final String MSRP_NIO_IO_THREADS = "MsrpNioIoThreads";
+    /* package private */static final Integer DEFAULT_MSRP_NIO_IO_THREADS = 1;
+
+    /**
+     * Share MSRP client connections between the sessions to the same remote end point
+     */
+    public static final String MSRP_CONNECTION_REUSE = "MsrpConnectionReuse";
+    /* package private */static final Boolean DEFAULT_MSRP_CONNECTION_REUSE = false;
+
+    /**
+     * Delay in milliseconds after which a shared MSRP connection no more used is closed
+     */
+    public static final String MSRP_CONNECTION_IDLE_TIMEOUT = "MsrpConnectionIdleTimeout";
+    /* package private */static final Long DEFAULT_MSRP_CONNECTION_IDLE_TIMEOUT = 30000L;
+
+    /**
+     * Maximum number of MSRP chunks sent without response when failure reports are requested
+     */
+    public static final String MSRP_SEND_WINDOW_SIZE = "MsrpSendWindowSize";
+    /* package private */static final Integer DEFAULT_MSRP_SEND_WINDOW_SIZE = 16;
+
+    /**
+     * Adapt the size of the MSRP chunks to the round trip time and to the connection backlog
+     */
+    public static final String MSRP_ADAPTIVE_CHUNK_SIZE = "MsrpAdaptiveChunkSize";
+    /* package private */static final Boolean DEFAULT_MSRP_ADAPTIVE_CHUNK_SIZE = false;
+
+    /**
+     * Maximum size in bytes of the MSRP chunks when the chunk size is adaptive
+     */
+    public static final String MSRP_MAX_CHUNK_SIZE = "MsrpMaxChunkSize";
+    /* package private */static final Integer DEFAULT_MSRP_MAX_CHUNK_SIZE = 64 * 1024;
+
     /**
      * Registration expire period
      */
@@ -989,6 +1032,25 @@ public class RcsSettingsData {
     public static final String MEDIA_TRACE_ACTIVATED = "MediaTraceActivated";
     /* package private */static final Boolean DEFAULT_MEDIA_TRACE_ACTIVATED = false;
 
+    /**
+     * Directory of the capture of the SIP and media messages
+     */
+    public static final String WIRE_CAPTURE_DIRECTORY = "WireCaptureDirectory";
+    /* package private */static final String DEFAULT_WIRE_CAPTURE_DIRECTORY = Environment
+            .getExternalStorageDirectory() + "/capture";
+
+    /**
+     * Size of each file of the capture of the SIP and media messages
+     */
+    public static final String WIRE_CAPTURE_FILE_SIZE = "WireCaptureFileSize";
+    /* package private */static final Integer DEFAULT_WIRE_CAPTURE_FILE_SIZE = 1024 * 1024;
+
+    /**
+     * Number of files of the capture of the SIP and media messages
+     */
+    public static final String WIRE_CAPTURE_FILE_COUNT = "WireCaptureFileCount";
+    /* package private */static final Integer DEFAULT_WIRE_CAPTURE_FILE_COUNT = 4;
+
     /**
      * Capability refresh timeout used to avoid too many requests in a short time
      */
@@ -1007,6 +1069,13 @@ public class RcsSettingsData {
     public static final String CAPABILITY_POLLING_PERIOD = "CapabilityPollingPeriod";
     /* package private */static final Long DEFAULT_CAPABILITY_POLLING_PERIOD = 3600000L;
 
+    /**
+     * Maximum number of capability requests sent per second when refreshing the capabilities of
+     * several contacts
+     */
+    public static final String CAPABILITY_REQUEST_RATE = "CapabilityRequestRate";
+    /* package private */static final Integer DEFAULT_CAPABILITY_REQUEST_RATE = 10;
+
     /**
      * CS video capability
      */
@@ -1208,6 +1277,38 @@ public class RcsSettingsData {
     public static final String SIP_TIMER_T4 = "SipTimerT4";
     /* package private */static final Long DEFAULT_SIP_TIMER_T4 = 17000L;
 
+    /**
+     * Number of lanes processing the SIP events received, the events of a dialog being processed
+     * in order by the same lane (1 to process the events in the thread of the SIP stack)
+     */
+    public static final String SIP_EVENT_LANES = "SipEventLanes";
+    /* package private */static final Integer DEFAULT_SIP_EVENT_LANES = 1;
+
+    /**
+     * Parse the received SIP datagrams directly from their bytes
+     */
+    public static final String SIP_BYTE_MESSAGE_PARSER = "SipByteMessageParser";
+    /* package private */static final Boolean DEFAULT_SIP_BYTE_MESSAGE_PARSER = false;
+
+    /**
+     * Only parse the SIP headers used by the transaction layer on reception
+     */
+    public static final String SIP_LAZY_HEADER_PARSING = "SipLazyHeaderParsing";
+    /* package private */static final Boolean DEFAULT_SIP_LAZY_HEADER_PARSING = false;
+
+    /**
+     * Number of workers processing the SIP requests received by the IMS service dispatcher
+     */
+    public static final String IMS_DISPATCHER_WORKERS = "ImsDispatcherWorkers";
+    /* package private */static final Integer DEFAULT_IMS_DISPATCHER_WORKERS = 1;
+
+    /**
+     * Maximum number of received SIP requests pending on a lane of the IMS service dispatcher
+     * before new requests of the lane are rejected with a 503 Service Unavailable (0 for no limit)
+     */
+    public static final String IMS_DISPATCHER_MAX_LANE_DEPTH = "ImsDispatcherMaxLaneDepth";
+    /* package private */static final Integer DEFAULT_IMS_DISPATCHER_MAX_LANE_DEPTH = 0;
+
     /**
      * Enable SIP keep alive
      */
@@ -1455,6 +1556,26 @@ public class RcsSettingsData {
     public static final String REQUEST_AND_RESPOND_TO_GROUP_DISPLAY_REPORTS = "RequestAndRespondToGroupDisplayReports";
     /* package private */static final Boolean DEFAULT_REQUEST_AND_RESPOND_TO_GROUP_DISPLAY_REPORTS = false;
 
+    /**
+     * Period in milliseconds during which the delivery reports to send to a contact are queued,
+     * so that duplicated reports are sent once
+     */
+    public static final String IMDN_FLUSH_INTERVAL = "ImdnFlushInterval";
+    /* package private */static final Long DEFAULT_IMDN_FLUSH_INTERVAL = 0L;
+
+    /**
+     * Maximum number of delivery reports being sent concurrently, including to the same contact
+     */
+    public static final String IMDN_MAX_CONCURRENT_SENDS = "ImdnMaxConcurrentSends";
+    /* package private */static final Integer DEFAULT_IMDN_MAX_CONCURRENT_SENDS = 4;
+
+    /**
+     * Period in milliseconds during which the received delivery reports are queued before the
+     * message states are updated in a single transaction, 0 to apply each report at once
+     */
+    public static final String MESSAGE_STATE_BATCH_WINDOW = "MessageStateBatchWindow";
+    /* package private */static final Long DEFAULT_MESSAGE_STATE_BATCH_WINDOW = 50L;
+
     public static final String MAX_ALLOWED_DISPLAY_NAME_CHARS = "MaxAllowedDisplayNameChars";
     /* package private */static final Integer DEFAULT_MAX_ALLOWED_DISPLAY_NAME_CHARS = 256;
 
@@ -1648,6 +1769,20 @@ public class RcsSettingsData {
                 RcsSettingsData.DEFAULT_RTP_DEFAULT_PORT);
         sSettingsKeyDefaultValue.put(RcsSettingsData.MSRP_TRANSACTION_TIMEOUT,
                 RcsSettingsData.DEFAULT_MSRP_TRANSACTION_TIMEOUT);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.MSRP_NIO_TRANSPORT,
+                RcsSettingsData.DEFAULT_MSRP_NIO_TRANSPORT);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.MSRP_NIO_IO_THREADS,
+                RcsSettingsData.DEFAULT_MSRP_NIO_IO_THREADS);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.MSRP_CONNECTION_REUSE,
+                RcsSettingsData.DEFAULT_MSRP_CONNECTION_REUSE);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.MSRP_CONNECTION_IDLE_TIMEOUT,
+                RcsSettingsData.DEFAULT_MSRP_CONNECTION_IDLE_TIMEOUT);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.MSRP_SEND_WINDOW_SIZE,
+                RcsSettingsData.DEFAULT_MSRP_SEND_WINDOW_SIZE);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.MSRP_ADAPTIVE_CHUNK_SIZE,
+                RcsSettingsData.DEFAULT_MSRP_ADAPTIVE_CHUNK_SIZE);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.MSRP_MAX_CHUNK_SIZE,
+                RcsSettingsData.DEFAULT_MSRP_MAX_CHUNK_SIZE);
         sSettingsKeyDefaultValue.put(RcsSettingsData.REGISTER_EXPIRE_PERIOD,
                 RcsSettingsData.DEFAULT_REGISTER_EXPIRE_PERIOD);
         sSettingsKeyDefaultValue.put(RcsSettingsData.REGISTER_RETRY_BASE_TIME,
@@ -1684,12 +1819,20 @@ public class RcsSettingsData {
                 RcsSettingsData.DEFAULT_SIP_TRACE_FILE);
         sSettingsKeyDefaultValue.put(RcsSettingsData.MEDIA_TRACE_ACTIVATED,
                 RcsSettingsData.DEFAULT_MEDIA_TRACE_ACTIVATED);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.WIRE_CAPTURE_DIRECTORY,
+                RcsSettingsData.DEFAULT_WIRE_CAPTURE_DIRECTORY);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.WIRE_CAPTURE_FILE_SIZE,
+                RcsSettingsData.DEFAULT_WIRE_CAPTURE_FILE_SIZE);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.WIRE_CAPTURE_FILE_COUNT,
+                RcsSettingsData.DEFAULT_WIRE_CAPTURE_FILE_COUNT);
         sSettingsKeyDefaultValue.put(RcsSettingsData.CAPABILITY_REFRESH_TIMEOUT,
                 RcsSettingsData.DEFAULT_CAPABILITY_REFRESH_TIMEOUT);
         sSettingsKeyDefaultValue.put(RcsSettingsData.CAPABILITY_EXPIRY_TIMEOUT,
                 RcsSettingsData.DEFAULT_CAPABILITY_EXPIRY_TIMEOUT);
         sSettingsKeyDefaultValue.put(RcsSettingsData.CAPABILITY_POLLING_PERIOD,
                 RcsSettingsData.DEFAULT_CAPABILITY_POLLING_PERIOD);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.CAPABILITY_REQUEST_RATE,
+                RcsSettingsData.DEFAULT_CAPABILITY_REQUEST_RATE);
         sSettingsKeyDefaultValue.put(RcsSettingsData.IM_CAPABILITY_ALWAYS_ON,
                 RcsSettingsData.DEFAULT_IM_CAPABILITY_ALWAYS_ON);
         sSettingsKeyDefaultValue.put(RcsSettingsData.GROUP_CHAT_INVITE_ONLY_FULL_SF,
@@ -1712,6 +1855,16 @@ public class RcsSettingsData {
                 RcsSettingsData.DEFAULT_SIP_TIMER_T2);
         sSettingsKeyDefaultValue.put(RcsSettingsData.SIP_TIMER_T4,
                 RcsSettingsData.DEFAULT_SIP_TIMER_T4);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.SIP_EVENT_LANES,
+                RcsSettingsData.DEFAULT_SIP_EVENT_LANES);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.SIP_BYTE_MESSAGE_PARSER,
+                RcsSettingsData.DEFAULT_SIP_BYTE_MESSAGE_PARSER);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.SIP_LAZY_HEADER_PARSING,
+                RcsSettingsData.DEFAULT_SIP_LAZY_HEADER_PARSING);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.IMS_DISPATCHER_WORKERS,
+                RcsSettingsData.DEFAULT_IMS_DISPATCHER_WORKERS);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.IMS_DISPATCHER_MAX_LANE_DEPTH,
+                RcsSettingsData.DEFAULT_IMS_DISPATCHER_MAX_LANE_DEPTH);
         sSettingsKeyDefaultValue.put(RcsSettingsData.SIP_KEEP_ALIVE,
                 RcsSettingsData.DEFAULT_SIP_KEEP_ALIVE);
         sSettingsKeyDefaultValue.put(RcsSettingsData.SIP_KEEP_ALIVE_PERIOD,
@@ -1804,6 +1957,12 @@ public class RcsSettingsData {
                 RcsSettingsData.DEFAULT_FIRST_MESSAGE_INVITE);
         sSettingsKeyDefaultValue.put(RcsSettingsData.REQUEST_AND_RESPOND_TO_GROUP_DISPLAY_REPORTS,
                 RcsSettingsData.DEFAULT_REQUEST_AND_RESPOND_TO_GROUP_DISPLAY_REPORTS);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.IMDN_FLUSH_INTERVAL,
+                RcsSettingsData.DEFAULT_IMDN_FLUSH_INTERVAL);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.IMDN_MAX_CONCURRENT_SENDS,
+                RcsSettingsData.DEFAULT_IMDN_MAX_CONCURRENT_SENDS);
+        sSettingsKeyDefaultValue.put(RcsSettingsData.MESSAGE_STATE_BATCH_WINDOW,
+                RcsSettingsData.DEFAULT_MESSAGE_STATE_BATCH_WINDOW);
         sSettingsKeyDefaultValue.put(RcsSettingsData.MAX_ALLOWED_DISPLAY_NAME_CHARS,
                 RcsSettingsData.DEFAULT_MAX_ALLOWED_DISPLAY_NAME_CHARS);
         sSettingsKeyDefaultValue.put(RcsSettingsData.PROV_USER_MSG_CONTENT,
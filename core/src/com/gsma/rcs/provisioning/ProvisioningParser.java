@@ -37,6 +37,7 @@ import com.gsma.rcs.utils.ContactUtil;
 import com.gsma.rcs.utils.ContactUtil.PhoneNumber;
 import com.gsma.rcs.utils.DeviceUtils;
 import com.gsma.rcs.utils.PhoneUtils;
+import com.gsma.rcs.utils.XmlParserUtils;
 import com.gsma.rcs.utils.logger.Logger;
 import com.gsma.services.rcs.CommonServiceConfiguration.MessagingMethod;
 import com.gsma.services.rcs.CommonServiceConfiguration.MessagingMode;
@@ -52,8 +53,6 @@ import org.xml.sax.SAXException;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import javax2.sip.ListeningPoint;
@@ -144,9 +143,7 @@ public class ProvisioningParser {
             }
             mFirst = first;
             inputStream = new ByteArrayInputStream(mContent.getBytes(UTF8));
-            DocumentBuilderFactory dfactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder dbuilder = dfactory.newDocumentBuilder();
-            Document doc = dbuilder.parse(inputStream);
+            Document doc = XmlParserUtils.newDocumentBuilder().parse(inputStream);
             if (doc == null) {
                 throw new SAXException("The provisioning content document is null!");
             }
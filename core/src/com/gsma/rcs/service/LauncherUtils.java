@@ -89,8 +89,7 @@ public class LauncherUtils {
     public static void launchRcsService(Context context, boolean boot, boolean user,
             RcsSettings rcsSettings) {
         /* Set the logger properties */
-        Logger.sActivationFlag = rcsSettings.isTraceActivated();
-        Logger.traceLevel = rcsSettings.getTraceLevel();
+        Logger.setTraceProperties(rcsSettings.isTraceActivated(), rcsSettings.getTraceLevel());
         if (rcsSettings.isServiceActivated()) {
             StartService.LaunchRcsStartService(context, boot, user);
         }
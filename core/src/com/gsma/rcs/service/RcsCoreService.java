@@ -299,8 +299,8 @@ public class RcsCoreService extends Service implements CoreListener {
             mMmSessionApi = new MultimediaSessionServiceImpl(sipService, mRcsSettings);
             mUploadApi = new FileUploadServiceImpl(imService, mRcsSettings);
 
-            Logger.sActivationFlag = mRcsSettings.isTraceActivated();
-            Logger.traceLevel = mRcsSettings.getTraceLevel();
+            Logger.setTraceProperties(mRcsSettings.isTraceActivated(),
+                    mRcsSettings.getTraceLevel());
 
             if (logActivated) {
                 sLogger.info("RCS stack release is ".concat(TerminalInfo.getProductVersion(mCtx)));
@@ -282,43 +282,58 @@ public class ChatServiceImpl extends IChatService.Stub {
      * @param contact Contact ID
      * @param imdn Imdn document
      */
-    public void onOneToOneMessageDeliveryStatusReceived(ContactId contact, ImdnDocument imdn) {
+    public void onOneToOneMessageDeliveryStatusReceived(final ContactId contact,
+            ImdnDocument imdn) {
         ImdnDocument.DeliveryStatus status = imdn.getStatus();
-        String msgId = imdn.getMsgId();
+        final String msgId = imdn.getMsgId();
         String notificationType = imdn.getNotificationType();
         long timestamp = imdn.getDateTime();
         if (sLogger.isActivated()) {
             sLogger.info("Receive IMDN for message " + msgId + ", status=" + status + ", Type="
                     + notificationType);
         }
-        String mimeType = mMessagingLog.getMessageMimeType(msgId);
         if (ImdnDocument.DeliveryStatus.ERROR == status
                 || ImdnDocument.DeliveryStatus.FAILED == status
                 || ImdnDocument.DeliveryStatus.FORBIDDEN == status) {
-            ReasonCode reasonCode = imdnToFailedReasonCode(imdn);
-            synchronized (mLock) {
-                if (mMessagingLog.setChatMessageStatusAndReasonCode(msgId, Status.FAILED,
-                        reasonCode)) {
-                    mOneToOneChatEventBroadcaster.broadcastMessageStatusChanged(contact, mimeType,
-                            msgId, Status.FAILED, reasonCode);
+            final String mimeType = mMessagingLog.getMessageMimeType(msgId);
+            final ReasonCode reasonCode = imdnToFailedReasonCode(imdn);
+            /* Not applied before the delivery reports of the message already received */
+            mImService.getMessageStateBatcher().applyInOrder(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (mLock) {
+                        if (mMessagingLog.setChatMessageStatusAndReasonCode(msgId, Status.FAILED,
+                                reasonCode)) {
+                            mOneToOneChatEventBroadcaster.broadcastMessageStatusChanged(contact,
+                                    mimeType, msgId, Status.FAILED, reasonCode);
+                        }
+                    }
                 }
-            }
+            });
         } else if (ImdnDocument.DeliveryStatus.DELIVERED == status) {
             mImService.getDeliveryExpirationManager().cancelDeliveryTimeoutAlarm(msgId);
-            synchronized (mLock) {
-                if (mMessagingLog.setChatMessageStatusDelivered(msgId, timestamp)) {
-                    mOneToOneChatEventBroadcaster.broadcastMessageStatusChanged(contact, mimeType,
-                            msgId, Status.DELIVERED, ReasonCode.UNSPECIFIED);
-                }
-            }
+            /* Status persisted and broadcast by the batcher, see onOneToOneMessageStatusChanged */
+            mImService.getMessageStateBatcher().setOneToOneMessageDelivered(contact, msgId,
+                    timestamp);
         } else if (ImdnDocument.DeliveryStatus.DISPLAYED == status) {
             mImService.getDeliveryExpirationManager().cancelDeliveryTimeoutAlarm(msgId);
-            synchronized (mLock) {
-                if (mMessagingLog.setChatMessageStatusDisplayed(msgId, timestamp)) {
-                    mOneToOneChatEventBroadcaster.broadcastMessageStatusChanged(contact, mimeType,
-                            msgId, Status.DISPLAYED, ReasonCode.UNSPECIFIED);
-                }
-            }
+            mImService.getMessageStateBatcher().setOneToOneMessageDisplayed(contact, msgId,
+                    timestamp);
+        }
+    }
+
+    /**
+     * One-to-one message status updated from the received delivery reports
+     *
+     * @param contact Contact ID
+     * @param msgId Message ID
+     * @param status New status
+     */
+    public void onOneToOneMessageStatusChanged(ContactId contact, String msgId, Status status) {
+        String mimeType = mMessagingLog.getMessageMimeType(msgId);
+        synchronized (mLock) {
+            mOneToOneChatEventBroadcaster.broadcastMessageStatusChanged(contact, mimeType, msgId,
+                    status, ReasonCode.UNSPECIFIED);
         }
     }
 
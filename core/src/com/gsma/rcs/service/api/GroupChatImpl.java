@@ -181,43 +181,53 @@ public class GroupChatImpl extends IGroupChat.Stub implements GroupChatSessionLi
 
     private void onMessageDeliveryStatusDelivered(ContactId contact, String msgId,
             long timestampDelivered) {
-        String mimeType = mMessagingLog.getMessageMimeType(msgId);
-        synchronized (mLock) {
-            if (mPersistedStorage.setGroupChatDeliveryInfoDelivered(mChatId, contact, msgId,
-                    timestampDelivered)) {
-                mBroadcaster.broadcastMessageGroupDeliveryInfoChanged(mChatId, contact, mimeType,
-                        msgId, GroupDeliveryInfo.Status.DELIVERED,
-                        GroupDeliveryInfo.ReasonCode.UNSPECIFIED);
-                if (mPersistedStorage.isDeliveredToAllRecipients(msgId)) {
-                    if (mPersistedStorage.setMessageStatusDelivered(msgId, timestampDelivered)) {
-                        mBroadcaster.broadcastMessageStatusChanged(mChatId, mimeType, msgId,
-                                Status.DELIVERED, Content.ReasonCode.UNSPECIFIED);
-                    }
-                }
-            }
-        }
+        /* Status persisted and broadcast by the batcher, see onMessageStatusChanged */
+        mImService.getMessageStateBatcher().setGroupChatMessageDelivered(mChatId, contact, msgId,
+                timestampDelivered);
     }
 
     private void onMessageDeliveryStatusDisplayed(ContactId contact, String msgId,
             long timestampDisplayed) {
+        mImService.getMessageStateBatcher().setGroupChatMessageDisplayed(mChatId, contact, msgId,
+                timestampDisplayed);
+    }
+
+    /**
+     * Message delivery info and status updated from the received delivery reports
+     *
+     * @param msgId Message ID
+     * @param deliveryInfos New delivery status per updated recipient
+     * @param status New message status or null if unchanged
+     */
+    public void onMessageStatusChanged(String msgId,
+            Map<ContactId, GroupDeliveryInfo.Status> deliveryInfos, Status status) {
         String mimeType = mMessagingLog.getMessageMimeType(msgId);
         synchronized (mLock) {
-            if (mPersistedStorage.setDeliveryInfoDisplayed(mChatId, contact, msgId,
-                    timestampDisplayed)) {
-                mBroadcaster.broadcastMessageGroupDeliveryInfoChanged(mChatId, contact, mimeType,
-                        msgId, GroupDeliveryInfo.Status.DISPLAYED,
+            for (Map.Entry<ContactId, GroupDeliveryInfo.Status> deliveryInfo : deliveryInfos
+                    .entrySet()) {
+                mBroadcaster.broadcastMessageGroupDeliveryInfoChanged(mChatId,
+                        deliveryInfo.getKey(), mimeType, msgId, deliveryInfo.getValue(),
                         GroupDeliveryInfo.ReasonCode.UNSPECIFIED);
-                if (mPersistedStorage.isDisplayedByAllRecipients(msgId)) {
-                    if (mPersistedStorage.setMessageStatusDisplayed(msgId, timestampDisplayed)) {
-                        mBroadcaster.broadcastMessageStatusChanged(mChatId, mimeType, msgId,
-                                Status.DISPLAYED, Content.ReasonCode.UNSPECIFIED);
-                    }
-                }
+            }
+            if (status != null) {
+                mBroadcaster.broadcastMessageStatusChanged(mChatId, mimeType, msgId, status,
+                        Content.ReasonCode.UNSPECIFIED);
             }
         }
     }
 
-    private void onMessageDeliveryStatusFailed(ContactId contact, String msgId,
+    private void onMessageDeliveryStatusFailed(final ContactId contact, final String msgId,
+            final Content.ReasonCode reasonCode) {
+        /* Not applied before the delivery reports of the message already received */
+        mImService.getMessageStateBatcher().applyInOrder(new Runnable() {
+            @Override
+            public void run() {
+                setMessageDeliveryStatusFailed(contact, msgId, reasonCode);
+            }
+        });
+    }
+
+    private void setMessageDeliveryStatusFailed(ContactId contact, String msgId,
             Content.ReasonCode reasonCode) {
         String mimeType = mMessagingLog.getMessageMimeType(msgId);
         synchronized (mLock) {
@@ -34,6 +34,22 @@ public class ContactUtil {
 
     private static volatile com.gsma.services.rcs.contact.ContactUtil mContactUtil;
 
+    private static final int CACHE_SIZE = 1024;
+
+    private static final int CACHE_STRIPES = 16;
+
+    /**
+     * Valid phone numbers of the most recently received URIs
+     */
+    private static final StripedLruCache<String, PhoneNumber> sNumberCache = new StripedLruCache<>(
+            CACHE_SIZE, CACHE_STRIPES);
+
+    /**
+     * Contact identifiers of the most recently formatted phone numbers
+     */
+    private static final StripedLruCache<String, ContactId> sContactCache = new StripedLruCache<>(
+            CACHE_SIZE, CACHE_STRIPES);
+
     private static final Logger sLogger = Logger.getLogger(ContactUtil.class.getSimpleName());
 
     /**
@@ -61,6 +77,20 @@ public class ContactUtil {
         }
     }
 
+    private static com.gsma.services.rcs.contact.ContactUtil getContactUtil() {
+        com.gsma.services.rcs.contact.ContactUtil contactUtil = mContactUtil;
+        if (contactUtil != null) {
+            return contactUtil;
+        }
+        synchronized (ContactUtil.class) {
+            if (mContactUtil == null) {
+                mContactUtil = com.gsma.services.rcs.contact.ContactUtil.getInstance(AndroidFactory
+                        .getApplicationContext());
+            }
+            return mContactUtil;
+        }
+    }
+
     /**
      * Gets a valid phone number from a URI
      * 
@@ -68,16 +98,19 @@ public class ContactUtil {
      * @return the phone number without URI formating or null if not valid
      */
     public static PhoneNumber getValidPhoneNumberFromUri(String uri) {
-        String number = PhoneUtils.extractNumberFromUriWithoutFormatting(uri);
-        synchronized (ContactUtil.class) {
-            if (mContactUtil == null) {
-                mContactUtil = com.gsma.services.rcs.contact.ContactUtil.getInstance(AndroidFactory
-                        .getApplicationContext());
-            }
+        if (uri == null) {
+            return null;
         }
+        PhoneNumber phoneNumber = sNumberCache.get(uri);
+        if (phoneNumber != null) {
+            return phoneNumber;
+        }
+        String number = PhoneUtils.extractNumberFromUriWithoutFormatting(uri);
         try {
-            if (mContactUtil.isValidContact(number)) {
-                return new PhoneNumber(number);
+            if (getContactUtil().isValidContact(number)) {
+                phoneNumber = new PhoneNumber(number);
+                sNumberCache.put(uri, phoneNumber);
+                return phoneNumber;
             }
         } catch (RcsPermissionDeniedException e) {
             if (sLogger.isActivated()) {
@@ -95,14 +128,8 @@ public class ContactUtil {
      * @return the phone number or null if not valid
      */
     public static PhoneNumber getValidPhoneNumberFromAndroid(String contact) {
-        synchronized (ContactUtil.class) {
-            if (mContactUtil == null) {
-                mContactUtil = com.gsma.services.rcs.contact.ContactUtil.getInstance(AndroidFactory
-                        .getApplicationContext());
-            }
-        }
         try {
-            if (mContactUtil.isValidContact(contact)) {
+            if (getContactUtil().isValidContact(contact)) {
                 return new PhoneNumber(contact);
             }
         } catch (RcsPermissionDeniedException e) {
@@ -118,14 +145,8 @@ public class ContactUtil {
      * @return the Contact Identifier
      */
     public static ContactId createContactIdFromValidatedData(PhoneNumber phoneNumber) {
-        synchronized (ContactUtil.class) {
-            if (mContactUtil == null) {
-                mContactUtil = com.gsma.services.rcs.contact.ContactUtil.getInstance(AndroidFactory
-                        .getApplicationContext());
-            }
-        }
         try {
-            return mContactUtil.formatContact(phoneNumber.getNumber());
+            return formatContact(phoneNumber.getNumber());
 
         } catch (RcsPermissionDeniedException e) {
             /*
@@ -146,14 +167,8 @@ public class ContactUtil {
      * @return the Contact Identifier
      */
     public static ContactId createContactIdFromTrustedData(String phoneNumber) {
-        synchronized (ContactUtil.class) {
-            if (mContactUtil == null) {
-                mContactUtil = com.gsma.services.rcs.contact.ContactUtil.getInstance(AndroidFactory
-                        .getApplicationContext());
-            }
-        }
         try {
-            return mContactUtil.formatContact(phoneNumber);
+            return formatContact(phoneNumber);
 
         } catch (RcsPermissionDeniedException e) {
             /*
@@ -166,4 +181,13 @@ public class ContactUtil {
         }
     }
 
+    private static ContactId formatContact(String phoneNumber) throws RcsPermissionDeniedException {
+        ContactId contact = sContactCache.get(phoneNumber);
+        if (contact == null) {
+            contact = getContactUtil().formatContact(phoneNumber);
+            sContactCache.put(phoneNumber, contact);
+        }
+        return contact;
+    }
+
 }
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.utils;
+
+import com.gsma.rcs.utils.logger.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * File in which a versioned state is persisted as a whole<br>
+ * The state is written to a temporary file which then replaces the previous one, so that a write
+ * failure leaves the previous state intact. A state of another version is ignored.
+ */
+public class PersistedFile {
+
+    /**
+     * Reader of the persisted state
+     */
+    public interface Reader {
+
+        /**
+         * Read the state
+         *
+         * @param input Input positioned after the version
+         * @throws IOException
+         */
+        void read(DataInputStream input) throws IOException;
+    }
+
+    /**
+     * Writer of the state
+     */
+    public interface Writer {
+
+        /**
+         * Write the state
+         *
+         * @param output Output positioned after the version
+         * @throws IOException
+         */
+        void write(DataOutputStream output) throws IOException;
+    }
+
+    private final File mFile;
+
+    private final int mVersion;
+
+    private static final Logger sLogger = Logger.getLogger(PersistedFile.class.getName());
+
+    /**
+     * Constructor
+     *
+     * @param file File
+     * @param version Version of the state format
+     */
+    public PersistedFile(File file, int version) {
+        mFile = file;
+        mVersion = version;
+    }
+
+    /**
+     * Read the persisted state, if any and of the current version
+     *
+     * @param reader Reader of the state
+     * @return False if the state could not be read entirely, it should then be dropped
+     */
+    public boolean read(Reader reader) {
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            if (input.readInt() == mVersion) {
+                reader.read(input);
+            }
+            return true;
+
+        } catch (FileNotFoundException e) {
+            /* Nothing persisted yet */
+            return true;
+
+        } catch (IOException e) {
+            sLogger.warn("Failed to read " + mFile.getPath() + ", it is dropped: "
+                    + e.getMessage());
+            return false;
+
+        } finally {
+            CloseableUtils.tryToClose(input);
+        }
+    }
+
+    /**
+     * Persist the state
+     *
+     * @param writer Writer of the state
+     */
+    public void write(Writer writer) {
+        File tmpFile = new File(mFile.getPath() + ".tmp");
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            output.writeInt(mVersion);
+            writer.write(output);
+            output.close();
+            output = null;
+            if (!tmpFile.renameTo(mFile)) {
+                throw new IOException("Failed to rename " + tmpFile);
+            }
+        } catch (IOException e) {
+            sLogger.warn("Failed to write " + mFile.getPath() + ": " + e.getMessage());
+
+        } finally {
+            CloseableUtils.tryToClose(output);
+        }
+    }
+
+    /**
+     * Delete the persisted state
+     */
+    public void delete() {
+        if (mFile.exists() && !mFile.delete()) {
+            sLogger.warn("Failed to delete ".concat(mFile.getPath()));
+        }
+    }
+}
@@ -109,27 +109,36 @@ public class PhoneUtils {
         if (uri == null) {
             return null;
         }
+        /* Narrow the bounds of the number instead of extracting intermediate substrings */
+        int begin = 0;
+        int end = uri.length();
         /* Extract URI from address */
         int index0 = uri.indexOf(URI_START_DELIMITER);
         if (index0 != -1) {
-            uri = uri.substring(index0 + URI_START_DELIMITER.length(),
-                    uri.indexOf(URI_END_DELIMITER, index0));
+            begin = index0 + URI_START_DELIMITER.length();
+            int index1 = uri.indexOf(URI_END_DELIMITER, begin);
+            if (index1 != -1) {
+                end = index1;
+            }
         }
         /* Extract a Tel-URI */
-        int index1 = uri.indexOf(TEL_URI_HEADER);
+        int index1 = indexOf(uri, TEL_URI_HEADER, begin, end);
         if (index1 != -1) {
-            uri = uri.substring(index1 + TEL_URI_HEADER.length());
+            begin = index1 + TEL_URI_HEADER.length();
         }
         /* Extract a SIP-URI */
-        index1 = uri.indexOf(SIP_URI_HEADER);
+        index1 = indexOf(uri, SIP_URI_HEADER, begin, end);
         if (index1 != -1) {
-            int index2 = uri.indexOf("@", index1);
-            uri = uri.substring(index1 + SIP_URI_HEADER.length(), index2);
+            begin = index1 + SIP_URI_HEADER.length();
+            int index2 = indexOf(uri, "@", begin, end);
+            if (index2 != -1) {
+                end = index2;
+            }
         }
         /* Remove URI parameters */
-        int index2 = uri.indexOf(";");
+        int index2 = indexOf(uri, ";", begin, end);
         if (index2 != -1) {
-            uri = uri.substring(0, index2);
+            end = index2;
         }
         // @formatter:off
         /* Remove URI headers.
@@ -143,12 +152,26 @@ public class PhoneUtils {
             hnv-unreserved  =  "[" / "]" / "/" / "?" / ":" / "+" / "$"
         */
         // @formatter:on
-        index2 = uri.indexOf("?");
+        index2 = indexOf(uri, "?", begin, end);
         if (index2 != -1) {
-            uri = uri.substring(0, index2);
+            end = index2;
         }
         /* Returns the extracted number (username part of the URI) */
-        return uri;
+        return uri.substring(begin, end);
+    }
+
+    /**
+     * Returns the index of the first occurrence of a string within a region of another string
+     * 
+     * @param str the string to search in
+     * @param target the string to search for
+     * @param begin the beginning index of the region, inclusive
+     * @param end the ending index of the region, exclusive
+     * @return the index or -1 if the target does not occur within the region
+     */
+    private static int indexOf(String str, String target, int begin, int end) {
+        int index = str.indexOf(target, begin);
+        return (index != -1 && index + target.length() <= end) ? index : -1;
     }
 
     /**
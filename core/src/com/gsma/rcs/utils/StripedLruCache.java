@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded cache evicting the least recently used entries<br>
+ * Entries are spread over stripes by the hash of their key, each stripe being an independent LRU
+ * cache with its own lock, so that threads accessing different keys rarely contend. The cache
+ * also provides a lock per key for read-modify-write sequences, and a generation that changes
+ * each time the cache is cleared so that a value loaded before a clear is not cached after it.
+ *
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ */
+public class StripedLruCache<K, V> {
+
+    private final Stripe<K, V>[] mStripes;
+
+    private final Object[] mKeyLocks;
+
+    private final AtomicLong mGeneration = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param maxSize Maximum number of entries
+     * @param stripeCount Number of stripes
+     */
+    @SuppressWarnings("unchecked")
+    public StripedLruCache(int maxSize, int stripeCount) {
+        if (maxSize < stripeCount || stripeCount < 1) {
+            throw new IllegalArgumentException("Invalid cache size " + maxSize + " for "
+                    + stripeCount + " stripes!");
+        }
+        int stripeSize = (maxSize + stripeCount - 1) / stripeCount;
+        mStripes = new Stripe[stripeCount];
+        mKeyLocks = new Object[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            mStripes[i] = new Stripe<>(stripeSize);
+            mKeyLocks[i] = new Object();
+        }
+    }
+
+    private int indexOf(K key) {
+        int hash = key.hashCode();
+        /* Spread the hash bits as the low bits of phone number hashes are poorly distributed */
+        hash ^= (hash >>> 16);
+        return (hash & Integer.MAX_VALUE) % mStripes.length;
+    }
+
+    /**
+     * Returns the lock to hold while reading, modifying and writing back the value of a key
+     *
+     * @param key Key
+     * @return Lock
+     */
+    public Object getLock(K key) {
+        return mKeyLocks[indexOf(key)];
+    }
+
+    /**
+     * Returns the current generation of the cache
+     *
+     * @return Generation
+     */
+    public long getGeneration() {
+        return mGeneration.get();
+    }
+
+    /**
+     * Returns the value of a key
+     *
+     * @param key Key
+     * @return Value or null if not cached
+     */
+    public V get(K key) {
+        Stripe<K, V> stripe = mStripes[indexOf(key)];
+        synchronized (stripe) {
+            V value = stripe.get(key);
+            if (value == null) {
+                stripe.mMissCount++;
+            } else {
+                stripe.mHitCount++;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Cache the value of a key
+     *
+     * @param key Key
+     * @param value Value
+     */
+    public void put(K key, V value) {
+        Stripe<K, V> stripe = mStripes[indexOf(key)];
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    /**
+     * Cache a value loaded while the cache was at a given generation: the value is not cached if
+     * the cache has been cleared since
+     *
+     * @param key Key
+     * @param value Value
+     * @param generation Generation of the cache before loading the value
+     * @return True if the value is cached
+     */
+    public boolean put(K key, V value, long generation) {
+        Stripe<K, V> stripe = mStripes[indexOf(key)];
+        synchronized (stripe) {
+            if (generation != mGeneration.get()) {
+                return false;
+            }
+            stripe.put(key, value);
+            return true;
+        }
+    }
+
+    /**
+     * Remove the value of a key
+     *
+     * @param key Key
+     * @return Removed value or null
+     */
+    public V remove(K key) {
+        Stripe<K, V> stripe = mStripes[indexOf(key)];
+        synchronized (stripe) {
+            return stripe.remove(key);
+        }
+    }
+
+    /**
+     * Remove all the values
+     */
+    public void clear() {
+        mGeneration.incrementAndGet();
+        for (Stripe<K, V> stripe : mStripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cached values
+     *
+     * @return Number of values
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe<K, V> stripe : mStripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached value
+     *
+     * @return Number of lookups
+     */
+    public long getHitCount() {
+        long count = 0;
+        for (Stripe<K, V> stripe : mStripes) {
+            synchronized (stripe) {
+                count += stripe.mHitCount;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a cached value
+     *
+     * @return Number of lookups
+     */
+    public long getMissCount() {
+        long count = 0;
+        for (Stripe<K, V> stripe : mStripes) {
+            synchronized (stripe) {
+                count += stripe.mMissCount;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of values evicted to keep the cache under its maximum size
+     *
+     * @return Number of values
+     */
+    public long getEvictionCount() {
+        long count = 0;
+        for (Stripe<K, V> stripe : mStripes) {
+            synchronized (stripe) {
+                count += stripe.mEvictionCount;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount();
+    }
+
+    /**
+     * Stripe of the cache: a map in access order evicting its eldest entry when full
+     */
+    private static class Stripe<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int mMaxSize;
+
+        private long mHitCount;
+
+        private long mMissCount;
+
+        private long mEvictionCount;
+
+        private Stripe(int maxSize) {
+            super(16, 0.75f, true);
+            mMaxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > mMaxSize) {
+                mEvictionCount++;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.utils;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * XML parsing utility functions<br>
+ * Parser factories are looked up once and SAX parsers are reused by each thread, as looking up a
+ * factory and building a parser cost more than parsing the small XML bodies exchanged over SIP
+ * and MSRP.
+ */
+public class XmlParserUtils {
+
+    private static final SAXParserFactory sSaxParserFactory = SAXParserFactory.newInstance();
+
+    private static final DocumentBuilderFactory sDocumentBuilderFactory = DocumentBuilderFactory
+            .newInstance();
+
+    private static XmlPullParserFactory sPullParserFactory;
+
+    private static final ThreadLocal<ReusableSaxParser> sSaxParsers =
+            new ThreadLocal<ReusableSaxParser>() {
+        @Override
+        protected ReusableSaxParser initialValue() {
+            return new ReusableSaxParser();
+        }
+    };
+
+    private static SAXParser newSaxParser() throws ParserConfigurationException, SAXException {
+        /* Factories are not guaranteed to be thread safe */
+        synchronized (sSaxParserFactory) {
+            return sSaxParserFactory.newSAXParser();
+        }
+    }
+
+    /**
+     * Parse an XML document with a SAX handler, reusing the SAX parser of the current thread
+     * 
+     * @param inputSource Input source of the document
+     * @param handler Handler
+     * @throws ParserConfigurationException
+     * @throws SAXException
+     * @throws IOException
+     */
+    public static void parse(InputSource inputSource, DefaultHandler handler)
+            throws ParserConfigurationException, SAXException, IOException {
+        ReusableSaxParser reusableParser = sSaxParsers.get();
+        if (reusableParser.mInUse) {
+            /* Document parsed from a handler of another document */
+            newSaxParser().parse(inputSource, handler);
+            return;
+        }
+        reusableParser.mInUse = true;
+        boolean parsed = false;
+        try {
+            if (reusableParser.mParser == null) {
+                reusableParser.mParser = newSaxParser();
+            }
+            reusableParser.mParser.parse(inputSource, handler);
+            parsed = true;
+
+        } finally {
+            reusableParser.mInUse = false;
+            if (parsed) {
+                try {
+                    reusableParser.mParser.reset();
+
+                } catch (UnsupportedOperationException e) {
+                    reusableParser.mParser = null;
+                }
+            } else {
+                /* Do not reuse a parser left in an unknown state */
+                reusableParser.mParser = null;
+            }
+        }
+    }
+
+    /**
+     * Create a pull parser to stream an XML document, without namespace processing
+     * 
+     * @param reader Reader of the document
+     * @return Pull parser positioned at the start of the document
+     * @throws XmlPullParserException
+     */
+    public static XmlPullParser newPullParser(Reader reader) throws XmlPullParserException {
+        XmlPullParser parser;
+        synchronized (XmlParserUtils.class) {
+            if (sPullParserFactory == null) {
+                sPullParserFactory = XmlPullParserFactory.newInstance();
+                sPullParserFactory.setNamespaceAware(false);
+            }
+            parser = sPullParserFactory.newPullParser();
+        }
+        parser.setInput(reader);
+        return parser;
+    }
+
+    /**
+     * Create a DOM document builder
+     * 
+     * @return Document builder
+     * @throws ParserConfigurationException
+     */
+    public static DocumentBuilder newDocumentBuilder() throws ParserConfigurationException {
+        synchronized (sDocumentBuilderFactory) {
+            return sDocumentBuilderFactory.newDocumentBuilder();
+        }
+    }
+
+    /**
+     * SAX parser of a thread
+     */
+    private static class ReusableSaxParser {
+
+        private SAXParser mParser;
+
+        private boolean mInUse;
+    }
+}
@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.utils.capture;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+import com.gsma.rcs.utils.CloseableUtils;
+import com.gsma.rcs.utils.logger.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Capture of the messages sent and received on the network<br>
+ * The raw bytes of the messages are written with a timestamp, a direction and a connection
+ * identifier into a ring of memory-mapped files: when a file is full, the capture goes on in the
+ * next file, overwriting the oldest one. Writing a message is a copy into the mapped memory, the
+ * system writing the pages to the files, so that the capture survives a crash of the process.
+ * The files are decoded offline by {@link WireCaptureReader}.<br>
+ * File format (big endian): a header of {@link #FILE_HEADER_SIZE} bytes holding the magic number,
+ * the format version, the sequence number of the file in the ring, the offset of the end of the
+ * last complete record and the creation time, followed by the records. A record is made of the
+ * original length of the message, the captured length, the timestamp in milliseconds, the
+ * protocol, the direction, two reserved bytes and the connection identifier, followed by the
+ * captured bytes.
+ */
+public class WireCapture {
+
+    /**
+     * SIP protocol
+     */
+    public static final int PROTOCOL_SIP = 1;
+
+    /**
+     * MSRP protocol
+     */
+    public static final int PROTOCOL_MSRP = 2;
+
+    /**
+     * HTTP protocol
+     */
+    public static final int PROTOCOL_HTTP = 3;
+
+    /**
+     * Message received
+     */
+    public static final int DIRECTION_IN = 0;
+
+    /**
+     * Message sent
+     */
+    public static final int DIRECTION_OUT = 1;
+
+    /* package private */static final int MAGIC = 0x52435343;
+
+    /* package private */static final int VERSION = 1;
+
+    /* package private */static final int FILE_HEADER_SIZE = 32;
+
+    /* package private */static final int RECORD_HEADER_SIZE = 24;
+
+    /* package private */static final int END_OFFSET_POSITION = 16;
+
+    /* package private */static final String FILE_PREFIX = "capture-";
+
+    /* package private */static final String FILE_EXTENSION = ".rcap";
+
+    /**
+     * Minimum size of a capture file
+     */
+    private static final int MIN_FILE_SIZE = 4096;
+
+    private static volatile WireCapture sInstance;
+
+    private static final AtomicInteger sConnectionIds = new AtomicInteger();
+
+    private final File mDirectory;
+
+    private final int mFileSize;
+
+    private final int mFileCount;
+
+    private MappedByteBuffer mFile;
+
+    private long mSequence;
+
+    private static final Logger sLogger = Logger.getLogger(WireCapture.class.getSimpleName());
+
+    private WireCapture(File directory, int fileSize, int fileCount) {
+        mDirectory = directory;
+        mFileSize = Math.max(MIN_FILE_SIZE, fileSize);
+        mFileCount = Math.max(2, fileCount);
+    }
+
+    /**
+     * Start capturing into a directory: the files of a previous capture are deleted
+     *
+     * @param directory Directory of the capture files
+     * @param fileSize Size of each file in bytes
+     * @param fileCount Number of files in the ring
+     * @throws IOException
+     */
+    public static synchronized void start(File directory, int fileSize, int fileCount)
+            throws IOException {
+        stop();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create capture directory " + directory);
+        }
+        for (File file : getFiles(directory)) {
+            if (!file.delete()) {
+                throw new IOException("Failed to delete capture file " + file);
+            }
+        }
+        WireCapture capture = new WireCapture(directory, fileSize, fileCount);
+        capture.openFile(0);
+        sInstance = capture;
+        if (sLogger.isActivated()) {
+            sLogger.info("Start capture into ".concat(directory.getPath()));
+        }
+    }
+
+    /**
+     * Stop capturing
+     */
+    public static synchronized void stop() {
+        WireCapture capture = sInstance;
+        if (capture == null) {
+            return;
+        }
+        sInstance = null;
+        synchronized (capture) {
+            if (capture.mFile != null) {
+                capture.mFile.force();
+                capture.mFile = null;
+            }
+        }
+    }
+
+    /**
+     * Is the capture started
+     *
+     * @return True if started
+     */
+    public static boolean isStarted() {
+        return sInstance != null;
+    }
+
+    /**
+     * Returns a new identifier for the messages of a connection
+     *
+     * @return Connection identifier
+     */
+    public static int newConnectionId() {
+        return sConnectionIds.incrementAndGet();
+    }
+
+    /**
+     * Capture a message if the capture is started
+     *
+     * @param protocol Protocol
+     * @param direction Direction
+     * @param connectionId Connection identifier
+     * @param data Data
+     * @param offset Offset of the message in the data
+     * @param length Length of the message
+     */
+    public static void capture(int protocol, int direction, int connectionId, byte[] data,
+            int offset, int length) {
+        WireCapture capture = sInstance;
+        if (capture != null) {
+            capture.write(protocol, direction, connectionId, data, offset, length);
+        }
+    }
+
+    /**
+     * Capture a message if the capture is started
+     *
+     * @param protocol Protocol
+     * @param direction Direction
+     * @param connectionId Connection identifier
+     * @param message Message
+     */
+    public static void capture(int protocol, int direction, int connectionId, String message) {
+        if (sInstance != null) {
+            byte[] data = message.getBytes(UTF8);
+            capture(protocol, direction, connectionId, data, 0, data.length);
+        }
+    }
+
+    /**
+     * Returns the capture files of a directory
+     *
+     * @param directory Directory
+     * @return Files
+     */
+    /* package private */static File[] getFiles(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        int count = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(FILE_PREFIX) && name.endsWith(FILE_EXTENSION)) {
+                files[count++] = file;
+            }
+        }
+        File[] captureFiles = new File[count];
+        System.arraycopy(files, 0, captureFiles, 0, count);
+        return captureFiles;
+    }
+
+    private void openFile(long sequence) throws IOException {
+        File file = new File(mDirectory, FILE_PREFIX + (sequence % mFileCount) + FILE_EXTENSION);
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.setLength(mFileSize);
+            /* The mapping remains valid once the file is closed */
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(
+                    FileChannel.MapMode.READ_WRITE, 0, mFileSize);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(sequence).putInt(FILE_HEADER_SIZE)
+                    .putInt(0).putLong(System.currentTimeMillis());
+            if (mFile != null) {
+                mFile.force();
+            }
+            mFile = buffer;
+            mSequence = sequence;
+
+        } finally {
+            CloseableUtils.tryToClose(randomAccessFile);
+        }
+    }
+
+    private synchronized void write(int protocol, int direction, int connectionId, byte[] data,
+            int offset, int length) {
+        if (mFile == null) {
+            return;
+        }
+        /* Messages larger than a file are truncated */
+        int capturedLength = Math.min(length, mFileSize - FILE_HEADER_SIZE - RECORD_HEADER_SIZE);
+        try {
+            if (mFile.remaining() < RECORD_HEADER_SIZE + capturedLength) {
+                openFile(mSequence + 1);
+            }
+
+        } catch (IOException e) {
+            sLogger.error("Failed to open capture file, capture is stopped!", e);
+            mFile = null;
+            if (sInstance == this) {
+                sInstance = null;
+            }
+            return;
+        }
+        mFile.putInt(length).putInt(capturedLength).putLong(System.currentTimeMillis())
+                .put((byte) protocol).put((byte) direction).putShort((short) 0)
+                .putInt(connectionId).put(data, offset, capturedLength);
+        /* Publish the record once complete */
+        mFile.putInt(END_OFFSET_POSITION, mFile.position());
+    }
+}
@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.utils.capture;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+import com.gsma.rcs.utils.CloseableUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Offline decoder of the files written by {@link WireCapture}<br>
+ * Usage: java com.gsma.rcs.utils.capture.WireCaptureReader &lt;capture directory&gt;
+ */
+public class WireCaptureReader {
+
+    /**
+     * Captured message
+     */
+    public static class Record {
+
+        private final long mTimestamp;
+
+        private final int mProtocol;
+
+        private final int mDirection;
+
+        private final int mConnectionId;
+
+        private final int mOriginalLength;
+
+        private final byte[] mData;
+
+        private Record(long timestamp, int protocol, int direction, int connectionId,
+                int originalLength, byte[] data) {
+            mTimestamp = timestamp;
+            mProtocol = protocol;
+            mDirection = direction;
+            mConnectionId = connectionId;
+            mOriginalLength = originalLength;
+            mData = data;
+        }
+
+        /**
+         * Returns the time at which the message was captured
+         *
+         * @return Timestamp in milliseconds
+         */
+        public long getTimestamp() {
+            return mTimestamp;
+        }
+
+        /**
+         * Returns the protocol
+         *
+         * @return Protocol
+         */
+        public int getProtocol() {
+            return mProtocol;
+        }
+
+        /**
+         * Returns the direction
+         *
+         * @return Direction
+         */
+        public int getDirection() {
+            return mDirection;
+        }
+
+        /**
+         * Returns the connection identifier
+         *
+         * @return Connection identifier
+         */
+        public int getConnectionId() {
+            return mConnectionId;
+        }
+
+        /**
+         * Returns the length of the message, which is larger than the captured data if the
+         * message was truncated
+         *
+         * @return Length in bytes
+         */
+        public int getOriginalLength() {
+            return mOriginalLength;
+        }
+
+        /**
+         * Returns the captured data
+         *
+         * @return Data
+         */
+        public byte[] getData() {
+            return mData;
+        }
+    }
+
+    /**
+     * Capture file read in memory
+     */
+    private static class CaptureFile {
+
+        private final long mSequence;
+
+        private final ByteBuffer mBuffer;
+
+        private CaptureFile(long sequence, ByteBuffer buffer) {
+            mSequence = sequence;
+            mBuffer = buffer;
+        }
+    }
+
+    /**
+     * Read the messages captured in a directory, from the oldest one to the most recent one
+     *
+     * @param directory Capture directory
+     * @return Messages
+     * @throws IOException
+     */
+    public static List<Record> read(File directory) throws IOException {
+        List<CaptureFile> files = new ArrayList<>();
+        for (File file : WireCapture.getFiles(directory)) {
+            CaptureFile captureFile = readFile(file);
+            if (captureFile != null) {
+                files.add(captureFile);
+            }
+        }
+        Collections.sort(files, new Comparator<CaptureFile>() {
+            @Override
+            public int compare(CaptureFile file1, CaptureFile file2) {
+                if (file1.mSequence == file2.mSequence) {
+                    return 0;
+                }
+                return file1.mSequence < file2.mSequence ? -1 : 1;
+            }
+        });
+        List<Record> records = new ArrayList<>();
+        for (CaptureFile file : files) {
+            readRecords(file.mBuffer, records);
+        }
+        return records;
+    }
+
+    private static CaptureFile readFile(File file) throws IOException {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "r");
+            byte[] data = new byte[(int) randomAccessFile.length()];
+            randomAccessFile.readFully(data);
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            if (data.length < WireCapture.FILE_HEADER_SIZE || buffer.getInt() != WireCapture.MAGIC
+                    || buffer.getInt() != WireCapture.VERSION) {
+                return null;
+            }
+            long sequence = buffer.getLong();
+            int endOffset = buffer.getInt();
+            if (endOffset < WireCapture.FILE_HEADER_SIZE || endOffset > data.length) {
+                return null;
+            }
+            buffer.limit(endOffset).position(WireCapture.FILE_HEADER_SIZE);
+            return new CaptureFile(sequence, buffer);
+
+        } finally {
+            CloseableUtils.tryToClose(randomAccessFile);
+        }
+    }
+
+    private static void readRecords(ByteBuffer buffer, List<Record> records) {
+        while (buffer.remaining() >= WireCapture.RECORD_HEADER_SIZE) {
+            int originalLength = buffer.getInt();
+            int capturedLength = buffer.getInt();
+            long timestamp = buffer.getLong();
+            int protocol = buffer.get();
+            int direction = buffer.get();
+            buffer.getShort();
+            int connectionId = buffer.getInt();
+            if (capturedLength < 0 || capturedLength > buffer.remaining()) {
+                return;
+            }
+            byte[] data = new byte[capturedLength];
+            buffer.get(data);
+            records.add(new Record(timestamp, protocol, direction, connectionId, originalLength,
+                    data));
+        }
+    }
+
+    private static String getProtocolName(int protocol) {
+        switch (protocol) {
+            case WireCapture.PROTOCOL_SIP:
+                return "SIP";
+            case WireCapture.PROTOCOL_MSRP:
+                return "MSRP";
+            case WireCapture.PROTOCOL_HTTP:
+                return "HTTP";
+            default:
+                return "Unknown";
+        }
+    }
+
+    /**
+     * Print the messages captured in a directory
+     *
+     * @param directory Capture directory
+     * @param out Output stream
+     * @throws IOException
+     */
+    public static void print(File directory, PrintStream out) throws IOException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        for (Record record : read(directory)) {
+            out.append(format.format(new Date(record.getTimestamp())))
+                    .append(record.getDirection() == WireCapture.DIRECTION_OUT ? " >>> " : " <<< ")
+                    .append(getProtocolName(record.getProtocol())).append(" connection ")
+                    .append(String.valueOf(record.getConnectionId())).append(" (")
+                    .append(String.valueOf(record.getOriginalLength())).append(" bytes")
+                    .append(record.getData().length < record.getOriginalLength() ? ", truncated"
+                            : "").append(")\n");
+            out.append(new String(record.getData(), UTF8)).append("\n\n");
+        }
+        out.flush();
+    }
+
+    /**
+     * Decode a capture directory to the standard output
+     *
+     * @param args Capture directory
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: WireCaptureReader <capture directory>");
+            System.exit(1);
+        }
+        print(new File(args[0]), System.out);
+    }
+}
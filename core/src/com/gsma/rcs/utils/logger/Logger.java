@@ -20,9 +20,18 @@ package com.gsma.rcs.utils.logger;
 
 import com.gsma.rcs.platform.logger.AndroidAppender;
 import com.gsma.rcs.service.api.ExceptionUtil;
+import com.gsma.rcs.utils.logger.TraceRingBuffer.ITraceConsumer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * Logger
+ * Logger<br>
+ * Traces are written to a ring buffer and printed by the appenders on a background thread, so
+ * that the threads writing traces do not wait for the appenders. When the buffer is full, debug
+ * and info traces are dropped while warning traces are printed on the writing thread. Error and
+ * fatal traces are always printed on the writing thread, once the buffered traces are printed, so
+ * that they are not lost on a crash.
  * 
  * @author jexa7410
  */
@@ -65,20 +74,48 @@ public class Logger {
     /**
      * Trace flag
      */
-    public static boolean sActivationFlag = TRACE_ON;
+    private static volatile boolean sActivationFlag = TRACE_ON;
 
     /**
-     * Trace level
+     * Lowest level of the traces to print
      */
-    public static int traceLevel = DEBUG_LEVEL;
+    private static volatile int sTraceLevel = DEBUG_LEVEL;
+
+    /**
+     * Lowest level of the traces to print when traces are activated, for isActivated(level)
+     */
+    private static volatile int sActivatedLevel = DEBUG_LEVEL;
 
     /**
      * List of appenders
      */
-    private static Appender[] sAppenders = new Appender[] {
+    private static volatile Appender[] sAppenders = new Appender[] {
         new AndroidAppender()
     };
 
+    /**
+     * Capacity of the buffer of traces waiting to be printed
+     */
+    private static final int BUFFER_CAPACITY = 4096;
+
+    /**
+     * Maximum time to wait for the buffered traces to be printed when flushing (in milliseconds)
+     */
+    private static final long FLUSH_TIMEOUT = 1000;
+
+    private static final TraceRingBuffer sBuffer = new TraceRingBuffer(BUFFER_CAPACITY);
+
+    private static final ITraceConsumer sPrinter = new ITraceConsumer() {
+        @Override
+        public void printTrace(String classname, int level, String trace) {
+            writeTrace(classname, level, trace);
+        }
+    };
+
+    private static volatile Thread sPrinterThread;
+
+    private static volatile boolean sPrinterWaiting;
+
     /**
      * Classname
      */
@@ -107,6 +144,28 @@ public class Logger {
         return (sActivationFlag == TRACE_ON);
     }
 
+    /**
+     * Is logger activated for a trace level
+     * 
+     * @param level Trace level
+     * @return boolean
+     */
+    public boolean isActivated(int level) {
+        return level >= sActivatedLevel;
+    }
+
+    /**
+     * Set the logger properties
+     * 
+     * @param activationFlag Trace flag
+     * @param level Trace level
+     */
+    public static synchronized void setTraceProperties(boolean activationFlag, int level) {
+        sActivationFlag = activationFlag;
+        sTraceLevel = level;
+        sActivatedLevel = activationFlag ? level : Integer.MAX_VALUE;
+    }
+
     /**
      * Debug trace
      * 
@@ -116,6 +175,43 @@ public class Logger {
         printTrace(trace, DEBUG_LEVEL);
     }
 
+    /**
+     * Debug trace formatted only if the level is activated
+     * 
+     * @param pattern Pattern of the trace, each {} being replaced by an argument
+     * @param arg Argument
+     */
+    public void debug(String pattern, Object arg) {
+        if (DEBUG_LEVEL >= sTraceLevel) {
+            printTrace(format(pattern, 1, arg, null, null), DEBUG_LEVEL);
+        }
+    }
+
+    /**
+     * Debug trace formatted only if the level is activated
+     * 
+     * @param pattern Pattern of the trace, each {} being replaced by an argument
+     * @param arg1 First argument
+     * @param arg2 Second argument
+     */
+    public void debug(String pattern, Object arg1, Object arg2) {
+        if (DEBUG_LEVEL >= sTraceLevel) {
+            printTrace(format(pattern, 2, arg1, arg2, null), DEBUG_LEVEL);
+        }
+    }
+
+    /**
+     * Debug trace formatted only if the level is activated
+     * 
+     * @param pattern Pattern of the trace, each {} being replaced by an argument
+     * @param args Arguments
+     */
+    public void debug(String pattern, Object... args) {
+        if (DEBUG_LEVEL >= sTraceLevel) {
+            printTrace(format(pattern, args.length, null, null, args), DEBUG_LEVEL);
+        }
+    }
+
     /**
      * Info trace
      * 
@@ -125,6 +221,43 @@ public class Logger {
         printTrace(trace, INFO_LEVEL);
     }
 
+    /**
+     * Info trace formatted only if the level is activated
+     * 
+     * @param pattern Pattern of the trace, each {} being replaced by an argument
+     * @param arg Argument
+     */
+    public void info(String pattern, Object arg) {
+        if (INFO_LEVEL >= sTraceLevel) {
+            printTrace(format(pattern, 1, arg, null, null), INFO_LEVEL);
+        }
+    }
+
+    /**
+     * Info trace formatted only if the level is activated
+     * 
+     * @param pattern Pattern of the trace, each {} being replaced by an argument
+     * @param arg1 First argument
+     * @param arg2 Second argument
+     */
+    public void info(String pattern, Object arg1, Object arg2) {
+        if (INFO_LEVEL >= sTraceLevel) {
+            printTrace(format(pattern, 2, arg1, arg2, null), INFO_LEVEL);
+        }
+    }
+
+    /**
+     * Info trace formatted only if the level is activated
+     * 
+     * @param pattern Pattern of the trace, each {} being replaced by an argument
+     * @param args Arguments
+     */
+    public void info(String pattern, Object... args) {
+        if (INFO_LEVEL >= sTraceLevel) {
+            printTrace(format(pattern, args.length, null, null, args), INFO_LEVEL);
+        }
+    }
+
     /**
      * Warning trace
      * 
@@ -134,6 +267,43 @@ public class Logger {
         printTrace(trace, WARN_LEVEL);
     }
 
+    /**
+     * Warning trace formatted only if the level is activated
+     * 
+     * @param pattern Pattern of the trace, each {} being replaced by an argument
+     * @param arg Argument
+     */
+    public void warn(String pattern, Object arg) {
+        if (WARN_LEVEL >= sTraceLevel) {
+            printTrace(format(pattern, 1, arg, null, null), WARN_LEVEL);
+        }
+    }
+
+    /**
+     * Warning trace formatted only if the level is activated
+     * 
+     * @param pattern Pattern of the trace, each {} being replaced by an argument
+     * @param arg1 First argument
+     * @param arg2 Second argument
+     */
+    public void warn(String pattern, Object arg1, Object arg2) {
+        if (WARN_LEVEL >= sTraceLevel) {
+            printTrace(format(pattern, 2, arg1, arg2, null), WARN_LEVEL);
+        }
+    }
+
+    /**
+     * Warning trace formatted only if the level is activated
+     * 
+     * @param pattern Pattern of the trace, each {} being replaced by an argument
+     * @param args Arguments
+     */
+    public void warn(String pattern, Object... args) {
+        if (WARN_LEVEL >= sTraceLevel) {
+            printTrace(format(pattern, args.length, null, null, args), WARN_LEVEL);
+        }
+    }
+
     /**
      * Warning trace
      * 
@@ -154,6 +324,43 @@ public class Logger {
         printTrace(trace, ERROR_LEVEL);
     }
 
+    /**
+     * Error trace formatted only if the level is activated
+     * 
+     * @param pattern Pattern of the trace, each {} being replaced by an argument
+     * @param arg Argument
+     */
+    public void error(String pattern, Object arg) {
+        if (ERROR_LEVEL >= sTraceLevel) {
+            printTrace(format(pattern, 1, arg, null, null), ERROR_LEVEL);
+        }
+    }
+
+    /**
+     * Error trace formatted only if the level is activated
+     * 
+     * @param pattern Pattern of the trace, each {} being replaced by an argument
+     * @param arg1 First argument
+     * @param arg2 Second argument
+     */
+    public void error(String pattern, Object arg1, Object arg2) {
+        if (ERROR_LEVEL >= sTraceLevel) {
+            printTrace(format(pattern, 2, arg1, arg2, null), ERROR_LEVEL);
+        }
+    }
+
+    /**
+     * Error trace formatted only if the level is activated
+     * 
+     * @param pattern Pattern of the trace, each {} being replaced by an argument
+     * @param args Arguments
+     */
+    public void error(String pattern, Object... args) {
+        if (ERROR_LEVEL >= sTraceLevel) {
+            printTrace(format(pattern, args.length, null, null, args), ERROR_LEVEL);
+        }
+    }
+
     /**
      * Error trace
      * 
@@ -193,15 +400,150 @@ public class Logger {
      * @param level Trace level
      */
     private void printTrace(String trace, int level) {
-        if (sAppenders != null && level >= traceLevel) {
-            /*
-             * String having '\' characters are not printed out in locat console !
-             */
+        if (sAppenders == null || level < sTraceLevel) {
+            return;
+        }
+        if (level >= ERROR_LEVEL) {
+            printBufferedTraces();
+            writeTrace(mClassname, level, trace);
+            return;
+        }
+        if (sBuffer.offer(mClassname, level, trace)) {
+            Thread printer = sPrinterThread;
+            if (printer == null) {
+                startPrinter();
+            } else if (sPrinterWaiting) {
+                LockSupport.unpark(printer);
+            }
+        } else if (level >= WARN_LEVEL) {
+            printBufferedTraces();
+            writeTrace(mClassname, level, trace);
+        }
+    }
+
+    /**
+     * Wait for the buffered traces to be printed before printing a trace on the writing thread, so
+     * that the traces are printed in order
+     */
+    private static void printBufferedTraces() {
+        if (Thread.currentThread() != sPrinterThread) {
+            flush();
+        }
+    }
+
+    private static void writeTrace(String classname, int level, String trace) {
+        Appender[] appenders = sAppenders;
+        if (appenders == null) {
+            return;
+        }
+        /*
+         * String having '\' characters are not printed out in locat console !
+         */
+        if (trace.indexOf('\r') != -1) {
             trace = trace.replace("\r", "");
-            for (Appender appender : sAppenders) {
-                appender.printTrace(mClassname, level, trace);
+        }
+        for (Appender appender : appenders) {
+            appender.printTrace(classname, level, trace);
+        }
+    }
+
+    private static synchronized void startPrinter() {
+        if (sPrinterThread != null) {
+            return;
+        }
+        Thread printer = new Thread("Logger") {
+            @Override
+            public void run() {
+                long droppedCount = 0;
+                while (true) {
+                    try {
+                        if (sBuffer.drain(sPrinter) == 0) {
+                            sPrinterWaiting = true;
+                            if (sBuffer.isEmpty()) {
+                                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+                            }
+                            sPrinterWaiting = false;
+                        }
+                    } catch (RuntimeException e) {
+                        /*
+                         * Intentionally catch runtime exceptions as else it will abruptly end the
+                         * printer thread and no more trace would be printed.
+                         */
+                        sPrinterWaiting = false;
+                    }
+                    long dropped = sBuffer.getDroppedCount();
+                    if (dropped != droppedCount) {
+                        writeTrace(Logger.class.getSimpleName(), WARN_LEVEL, new StringBuilder()
+                                .append(dropped - droppedCount)
+                                .append(" traces dropped as written faster than printed")
+                                .toString());
+                        droppedCount = dropped;
+                    }
+                }
+            }
+        };
+        printer.setDaemon(true);
+        printer.start();
+        sPrinterThread = printer;
+    }
+
+    /**
+     * Wait for the traces written so far to be printed
+     */
+    public static void flush() {
+        long writtenCount = sBuffer.getWrittenCount();
+        long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT;
+        while (sBuffer.getReadCount() < writtenCount && System.currentTimeMillis() < deadline) {
+            Thread printer = sPrinterThread;
+            if (printer != null) {
+                LockSupport.unpark(printer);
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Returns the number of traces dropped as written faster than printed
+     * 
+     * @return Number of traces
+     */
+    public static long getDroppedCount() {
+        return sBuffer.getDroppedCount();
+    }
+
+    /**
+     * Set the appenders printing the traces
+     * 
+     * @param appenders Appenders or null to print no trace
+     */
+    public static void setAppenders(Appender[] appenders) {
+        sAppenders = appenders;
+    }
+
+    /**
+     * Format a trace, replacing each {} of the pattern by the next argument
+     * 
+     * @param pattern Pattern
+     * @param argCount Number of arguments
+     * @param arg1 First argument if no array of arguments
+     * @param arg2 Second argument if no array of arguments
+     * @param args Array of arguments or null
+     * @return Trace
+     */
+    private static String format(String pattern, int argCount, Object arg1, Object arg2,
+            Object[] args) {
+        StringBuilder trace = new StringBuilder(pattern.length() + 32);
+        int start = 0;
+        for (int i = 0; i < argCount; i++) {
+            int index = pattern.indexOf("{}", start);
+            if (index == -1) {
+                break;
             }
+            Object arg = args != null ? args[i] : (i == 0 ? arg1 : arg2);
+            trace.append(pattern, start, index).append(arg);
+            start = index + 2;
         }
+        return trace.append(pattern, start, pattern.length()).toString();
     }
 
     /**
@@ -210,7 +552,7 @@ public class Logger {
      * @param classname Classname
      * @return Instance
      */
-    public static synchronized Logger getLogger(String classname) {
+    public static Logger getLogger(String classname) {
         return new Logger(classname);
     }
 
@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.utils.logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free buffer of the traces written by any thread and printed by a single thread<br>
+ * The slots are allocated once: a writer claims a slot by advancing the tail, fills it and
+ * publishes it through the sequence of the slot, and the reader frees the slot for the next
+ * round once printed. A trace written while the buffer is full is dropped and counted.
+ */
+public class TraceRingBuffer {
+
+    /**
+     * Consumer of the traces read from the buffer
+     */
+    public interface ITraceConsumer {
+        /**
+         * Print a trace
+         * 
+         * @param classname Classname
+         * @param level Trace level
+         * @param trace Trace
+         */
+        void printTrace(String classname, int level, String trace);
+    }
+
+    private final int mMask;
+
+    private final String[] mClassnames;
+
+    private final int[] mLevels;
+
+    private final String[] mTraces;
+
+    /**
+     * Sequence of each slot: equal to the position of the next write in the slot when it is free,
+     * and to this position plus one once the trace written at this position is published
+     */
+    private final AtomicLongArray mSequences;
+
+    private final AtomicLong mTail = new AtomicLong();
+
+    private final AtomicLong mDroppedCount = new AtomicLong();
+
+    /**
+     * Position of the next read, only written by the reader
+     */
+    private volatile long mHead;
+
+    /**
+     * Constructor
+     * 
+     * @param capacity Capacity, rounded up to a power of two
+     */
+    public TraceRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mMask = size - 1;
+        mClassnames = new String[size];
+        mLevels = new int[size];
+        mTraces = new String[size];
+        mSequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            mSequences.set(i, i);
+        }
+    }
+
+    /**
+     * Write a trace
+     * 
+     * @param classname Classname
+     * @param level Trace level
+     * @param trace Trace
+     * @return False if the trace is dropped as the buffer is full
+     */
+    public boolean offer(String classname, int level, String trace) {
+        long position = mTail.get();
+        while (true) {
+            int index = (int) position & mMask;
+            long difference = mSequences.get(index) - position;
+            if (difference == 0) {
+                if (mTail.compareAndSet(position, position + 1)) {
+                    mClassnames[index] = classname;
+                    mLevels[index] = level;
+                    mTraces[index] = trace;
+                    mSequences.set(index, position + 1);
+                    return true;
+                }
+                position = mTail.get();
+
+            } else if (difference < 0) {
+                mDroppedCount.incrementAndGet();
+                return false;
+
+            } else {
+                /* Slot claimed by another writer */
+                position = mTail.get();
+            }
+        }
+    }
+
+    /**
+     * Read and print the published traces, to be called by a single reader thread
+     * 
+     * @param consumer Consumer printing the traces
+     * @return Number of printed traces
+     */
+    public int drain(ITraceConsumer consumer) {
+        int count = 0;
+        long position = mHead;
+        while (true) {
+            int index = (int) position & mMask;
+            if (mSequences.get(index) != position + 1) {
+                break;
+            }
+            String classname = mClassnames[index];
+            int level = mLevels[index];
+            String trace = mTraces[index];
+            mClassnames[index] = null;
+            mTraces[index] = null;
+            mSequences.set(index, position + mMask + 1);
+            position++;
+            try {
+                consumer.printTrace(classname, level, trace);
+            } finally {
+                /* Counted as read once printed so that flushing waits for the last trace */
+                mHead = position;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Is there no published trace to read
+     * 
+     * @return True if empty
+     */
+    public boolean isEmpty() {
+        long position = mHead;
+        return mSequences.get((int) position & mMask) != position + 1;
+    }
+
+    /**
+     * Returns the number of traces written since the creation of the buffer
+     * 
+     * @return Number of traces
+     */
+    public long getWrittenCount() {
+        return mTail.get();
+    }
+
+    /**
+     * Returns the number of traces read since the creation of the buffer
+     * 
+     * @return Number of traces
+     */
+    public long getReadCount() {
+        return mHead;
+    }
+
+    /**
+     * Returns the number of traces dropped as the buffer was full
+     * 
+     * @return Number of traces
+     */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.capability;
+
+import com.gsma.rcs.core.ims.service.capability.CapabilityRequestPipeline;
+import com.gsma.rcs.core.ims.service.capability.CapabilityRequestPipeline.IRequestListener;
+import com.gsma.rcs.core.ims.service.capability.CapabilityRequestPipeline.IRequestSender;
+import com.gsma.rcs.utils.ContactUtil;
+import com.gsma.services.rcs.contact.ContactId;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class CapabilityRequestPipelineTest extends AndroidTestCase {
+
+    private static final int CONTACTS = 500;
+
+    private CapabilityRequestPipeline mPipeline;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mPipeline != null) {
+            mPipeline.stop();
+        }
+        super.tearDown();
+    }
+
+    private static ContactId getContact(int index) {
+        return ContactUtil.createContactIdFromTrustedData("+3361000" + (1000 + index));
+    }
+
+    /**
+     * Sender answering the capability requests locally, as a network would after a delay
+     */
+    private static class FakeNetwork implements IRequestSender {
+
+        private final ExecutorService mExecutor = Executors.newFixedThreadPool(4);
+
+        private final List<ContactId> mRequests = Collections
+                .synchronizedList(new ArrayList<ContactId>());
+
+        private final Map<ContactId, Integer> mInProgress = new HashMap<>();
+
+        private final long mResponseDelay;
+
+        private final CountDownLatch mAnswered;
+
+        private int mOverlaps;
+
+        private FakeNetwork(long responseDelay, int expectedRequests) {
+            mResponseDelay = responseDelay;
+            mAnswered = new CountDownLatch(expectedRequests);
+        }
+
+        @Override
+        public void sendRequest(final ContactId contact, final IRequestListener listener) {
+            mRequests.add(contact);
+            synchronized (mInProgress) {
+                if (mInProgress.put(contact, 1) != null) {
+                    mOverlaps++;
+                }
+            }
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(mResponseDelay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    synchronized (mInProgress) {
+                        mInProgress.remove(contact);
+                    }
+                    listener.onRequestCompleted(contact);
+                    mAnswered.countDown();
+                }
+            });
+        }
+
+        private void shutdown() {
+            mExecutor.shutdownNow();
+        }
+    }
+
+    public void testStalestFirst() throws InterruptedException {
+        mPipeline = new CapabilityRequestPipeline("Test", 1000, 1);
+        FakeNetwork network = new FakeNetwork(0, 4);
+        assertTrue(mPipeline.submit(getContact(0), 3000, network));
+        assertTrue(mPipeline.submit(getContact(1), -1, network));
+        assertTrue(mPipeline.submit(getContact(2), 1000, network));
+        assertTrue(mPipeline.submit(getContact(3), 1000, network));
+        assertEquals(4, mPipeline.getQueueLength());
+        mPipeline.start();
+        assertTrue(network.mAnswered.await(5, TimeUnit.SECONDS));
+        assertEquals(getContact(1), network.mRequests.get(0));
+        assertEquals(getContact(2), network.mRequests.get(1));
+        assertEquals(getContact(3), network.mRequests.get(2));
+        assertEquals(getContact(0), network.mRequests.get(3));
+        network.shutdown();
+    }
+
+    public void testCoalescing() throws InterruptedException {
+        mPipeline = new CapabilityRequestPipeline("Test", 1000, 10);
+        FakeNetwork network = new FakeNetwork(200, 2);
+        mPipeline.start();
+        ContactId contact = getContact(0);
+        assertTrue(mPipeline.submit(contact, 0, network));
+        /* Queued or in progress */
+        assertFalse(mPipeline.submit(contact, 0, network));
+        Thread.sleep(50);
+        assertFalse(mPipeline.submit(contact, 0, network));
+        Thread.sleep(300);
+        assertTrue(mPipeline.submit(contact, 0, network));
+        assertTrue(network.mAnswered.await(5, TimeUnit.SECONDS));
+        assertEquals(2, network.mRequests.size());
+        assertEquals(0.5, mPipeline.getDedupRatio(), 0.001);
+        network.shutdown();
+    }
+
+    public void testRateLimit() throws InterruptedException {
+        mPipeline = new CapabilityRequestPipeline("Test", 50, 5);
+        FakeNetwork network = new FakeNetwork(0, 30);
+        mPipeline.start();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 30; i++) {
+            mPipeline.submit(getContact(i), i, network);
+        }
+        assertTrue(network.mAnswered.await(10, TimeUnit.SECONDS));
+        long duration = System.currentTimeMillis() - start;
+        /* 5 requests sent at once, then 25 requests at 50 requests per second */
+        assertTrue("Sent in " + duration + " ms", duration >= 450);
+        assertEquals(30, mPipeline.getSentCount());
+        assertEquals(0, mPipeline.getQueueLength());
+        network.shutdown();
+    }
+
+    public void testUnthrottledRequestsSentFirst() throws InterruptedException {
+        mPipeline = new CapabilityRequestPipeline("Test", 2, 1);
+        FakeNetwork network = new FakeNetwork(0, 3);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(mPipeline.submit(getContact(i), i, network));
+        }
+        /* Requested by an application */
+        assertTrue(mPipeline.submit(getContact(10), -1, network, false));
+        assertFalse(mPipeline.submit(getContact(5), 5, network, false));
+        mPipeline.start();
+        /* A throttled request would only be sent after 500 ms */
+        assertTrue(network.mAnswered.await(400, TimeUnit.MILLISECONDS));
+        assertEquals(getContact(10), network.mRequests.get(0));
+        assertEquals(getContact(5), network.mRequests.get(1));
+        assertEquals(getContact(0), network.mRequests.get(2));
+        assertEquals(8, mPipeline.getQueueLength());
+        network.shutdown();
+    }
+
+    public void testPollingDuringRequestsFromApplications() throws InterruptedException {
+        mPipeline = new CapabilityRequestPipeline("Test", 1000, 100);
+        final FakeNetwork network = new FakeNetwork(5, CONTACTS);
+        mPipeline.start();
+        Thread application = new Thread() {
+            @Override
+            public void run() {
+                /* An application refreshing the capabilities of the first contacts repeatedly */
+                for (int n = 0; n < 5; n++) {
+                    for (int i = 0; i < CONTACTS / 10; i++) {
+                        mPipeline.submit(getContact(i), Long.MAX_VALUE, network);
+                    }
+                }
+            }
+        };
+        application.start();
+        for (int i = 0; i < CONTACTS; i++) {
+            mPipeline.submit(getContact(i), i, network);
+        }
+        application.join();
+        assertTrue(network.mAnswered.await(30, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(0, network.mOverlaps);
+        assertEquals(network.mRequests.size(), mPipeline.getSentCount());
+        assertTrue(mPipeline.getDedupRatio() > 0);
+        assertEquals(0, mPipeline.getQueueLength());
+        network.shutdown();
+    }
+}
@@ -21,6 +21,10 @@ package com.gsma.rcs.chat;
 import com.gsma.rcs.core.ParseFailureException;
 import com.gsma.rcs.core.ims.service.im.chat.event.ConferenceInfoDocument;
 import com.gsma.rcs.core.ims.service.im.chat.event.ConferenceInfoParser;
+import com.gsma.rcs.core.ims.service.im.chat.event.ConferenceInfoParser.IConferenceInfoListener;
+import com.gsma.rcs.core.ims.service.im.chat.event.ConferenceInfoSequence;
+import com.gsma.rcs.core.ims.service.im.chat.event.ConferenceInfoSequence.Order;
+import com.gsma.rcs.core.ims.service.im.chat.event.User;
 import com.gsma.rcs.utils.logger.Logger;
 
 import android.test.AndroidTestCase;
@@ -30,12 +34,20 @@ import org.xml.sax.SAXException;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.xml.parsers.ParserConfigurationException;
 
 public class ConferenceInfoParserTest extends AndroidTestCase {
     private static Logger sLogger = Logger.getLogger(ConferenceInfoParserTest.class.getName());
 
+    private static final int PARTICIPANTS = 100;
+
+    private static final int NOTIFICATIONS = 500;
+
     private static final String sXmlContentToParse1 = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
             + "<conference-info entity=\"sips:conf233@example.com\" state=\"full\" version=\"1\" xmlns=\"urn:ietf:params:xml:ns:conference-info\">\n"
             + "\t<!-- CONFERENCE INFO -->\n"
@@ -123,4 +135,161 @@ public class ConferenceInfoParserTest extends AndroidTestCase {
         assertEquals(confInfoDoc.getUserCount(), 33);
 
     }
+
+    public void testUserStatus() throws ParserConfigurationException, SAXException,
+            ParseFailureException {
+        ConferenceInfoParser parser = new ConferenceInfoParser(new InputSource(
+                new ByteArrayInputStream(sXmlContentToParse1.getBytes()))).parse();
+        ConferenceInfoDocument confInfoDoc = parser.getConferenceInfo();
+        assertEquals(1, confInfoDoc.getVersion());
+        assertFalse(confInfoDoc.isPartial());
+        assertEquals(2, confInfoDoc.getUsers().size());
+        /* The status and display text of the media streams are not the ones of the user */
+        User bob = confInfoDoc.getUsers().get(0);
+        assertEquals("Bob Hoskins", bob.getDisplayName());
+        assertEquals(User.STATE_DISCONNECTED, bob.getState());
+        assertEquals(User.STATE_DEPARTED, bob.getDisconnectionMethod());
+        User alice = confInfoDoc.getUsers().get(1);
+        assertEquals(User.STATE_CONNECTED, alice.getState());
+        assertFalse(alice.isDeleted());
+    }
+
+    public void testStreamedUsers() throws ParserConfigurationException, SAXException,
+            ParseFailureException {
+        final List<User> users = new ArrayList<>();
+        IConferenceInfoListener listener = new IConferenceInfoListener() {
+            @Override
+            public boolean onConferenceInfoStarted(ConferenceInfoDocument conference) {
+                assertEquals(7, conference.getVersion());
+                assertTrue(conference.isPartial());
+                return true;
+            }
+
+            @Override
+            public void onUserParsed(User user) {
+                users.add(user);
+            }
+        };
+        ConferenceInfoDocument confInfoDoc = new ConferenceInfoParser(new InputSource(
+                new ByteArrayInputStream(getPartialNotification(7, 1, true).getBytes())),
+                listener).parse().getConferenceInfo();
+        assertEquals(0, confInfoDoc.getUsers().size());
+        assertEquals(1, users.size());
+        assertEquals("tel:+33612000001", users.get(0).getEntity());
+        assertTrue(users.get(0).isDeleted());
+        assertNull(users.get(0).getState());
+    }
+
+    public void testSequence() {
+        ConferenceInfoSequence sequence = new ConferenceInfoSequence();
+        assertEquals(Order.IN_SEQUENCE, sequence.apply(getDocument("full", 3)));
+        assertEquals(Order.IN_SEQUENCE, sequence.apply(getDocument("partial", 4)));
+        assertEquals(Order.OUTDATED, sequence.apply(getDocument("partial", 4)));
+        assertEquals(Order.OUTDATED, sequence.apply(getDocument("full", 2)));
+        assertEquals(Order.MISSED_NOTIFICATIONS, sequence.apply(getDocument("partial", 6)));
+        assertEquals(6, sequence.getVersion());
+        assertEquals(Order.IN_SEQUENCE, sequence.apply(getDocument("full", 9)));
+        assertEquals(Order.IN_SEQUENCE, sequence.apply(getDocument("partial", -1)));
+        assertEquals(9, sequence.getVersion());
+        sequence.reset();
+        assertEquals(Order.MISSED_NOTIFICATIONS, sequence.apply(getDocument("partial", 1)));
+    }
+
+    /**
+     * Replay a full notification of a large group chat followed by partial notifications, each
+     * changing one participant, as a chatty group chat does
+     */
+    public void testReplayNotifications() throws ParserConfigurationException, SAXException,
+            ParseFailureException {
+        List<String> notifications = new ArrayList<>();
+        Map<String, String> expectedStates = new HashMap<>();
+        notifications.add(getFullNotification(1, expectedStates));
+        for (int version = 2; version <= NOTIFICATIONS; version++) {
+            int participant = (version * 37) % PARTICIPANTS;
+            boolean deleted = version % 5 == 0;
+            notifications.add(getPartialNotification(version, participant, deleted));
+            expectedStates.put(getEntity(participant), deleted ? null : User.STATE_CONNECTED);
+        }
+        /* Replay an outdated notification, which must be ignored */
+        notifications.add(getPartialNotification(NOTIFICATIONS - 1, 0, false));
+        long start = System.nanoTime();
+        final ConferenceInfoSequence sequence = new ConferenceInfoSequence();
+        final Map<String, String> states = new HashMap<>();
+        IConferenceInfoListener listener = new IConferenceInfoListener() {
+            @Override
+            public boolean onConferenceInfoStarted(ConferenceInfoDocument conference) {
+                return sequence.apply(conference) == Order.IN_SEQUENCE;
+            }
+
+            @Override
+            public void onUserParsed(User user) {
+                states.put(user.getEntity(), user.isDeleted() ? null : user.getState());
+            }
+        };
+        for (String notification : notifications) {
+            new ConferenceInfoParser(new InputSource(new ByteArrayInputStream(
+                    notification.getBytes())), listener).parse();
+        }
+        long duration = System.nanoTime() - start;
+        assertEquals(expectedStates, states);
+        assertEquals(NOTIFICATIONS, sequence.getVersion());
+
+        /* Compare with full notifications of the same conference state */
+        String fullNotification = notifications.get(0);
+        start = System.nanoTime();
+        for (int i = 0; i < notifications.size(); i++) {
+            new ConferenceInfoParser(new InputSource(new ByteArrayInputStream(
+                    fullNotification.getBytes()))).parse();
+        }
+        long fullDuration = System.nanoTime() - start;
+        if (sLogger.isActivated()) {
+            sLogger.info(new StringBuilder("Replayed ").append(notifications.size())
+                    .append(" notifications in ").append(duration / 1000000)
+                    .append(" ms, full notifications in ").append(fullDuration / 1000000)
+                    .append(" ms").toString());
+        }
+    }
+
+    private static ConferenceInfoDocument getDocument(String state, long version) {
+        return new ConferenceInfoDocument("sips:conf233@example.com", state, version);
+    }
+
+    private static String getEntity(int participant) {
+        return "tel:+33612" + String.valueOf(1000000 + participant).substring(1);
+    }
+
+    private static String getUser(int participant, String state, String status) {
+        StringBuilder user = new StringBuilder("<user entity=\"").append(getEntity(participant))
+                .append("\" state=\"").append(state).append("\">");
+        if (status != null) {
+            user.append("<display-text>User ").append(participant)
+                    .append("</display-text><endpoint entity=\"").append(getEntity(participant))
+                    .append("\"><status>").append(status).append("</status>")
+                    .append("<media id=\"1\"><status>sendrecv</status></media></endpoint>");
+        }
+        return user.append("</user>").toString();
+    }
+
+    private static String getNotification(String state, int version, String users) {
+        return new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<conference-info xmlns=\"urn:ietf:params:xml:ns:conference-info\"")
+                .append(" entity=\"sips:conf233@example.com\" state=\"").append(state)
+                .append("\" version=\"").append(version).append("\"><users>").append(users)
+                .append("</users></conference-info>").toString();
+    }
+
+    private static String getFullNotification(int version, Map<String, String> states) {
+        StringBuilder users = new StringBuilder();
+        for (int participant = 0; participant < PARTICIPANTS; participant++) {
+            users.append(getUser(participant, "full", User.STATE_CONNECTED));
+            states.put(getEntity(participant), User.STATE_CONNECTED);
+        }
+        return getNotification("full", version, users.toString());
+    }
+
+    private static String getPartialNotification(int version, int participant, boolean deleted) {
+        String user = deleted ? getUser(participant, "deleted", null) : getUser(participant,
+                "partial", User.STATE_CONNECTED);
+        return getNotification("partial", version, user);
+    }
 }
@@ -0,0 +1,398 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.dns;
+
+import com.gsma.rcs.core.ims.network.dns.DnsCache;
+import com.gsma.rcs.core.ims.network.dns.ImsProxyResolver;
+
+import android.test.AndroidTestCase;
+
+import org.xbill.DNS.ARecord;
+import org.xbill.DNS.DClass;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.NAPTRRecord;
+import org.xbill.DNS.Name;
+import org.xbill.DNS.Rcode;
+import org.xbill.DNS.Record;
+import org.xbill.DNS.SRVRecord;
+import org.xbill.DNS.Section;
+import org.xbill.DNS.SimpleResolver;
+import org.xbill.DNS.TextParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class ImsProxyResolverTest extends AndroidTestCase {
+
+    private static final String DOMAIN = "ims.example.com";
+
+    private static final String SRV_QUERY = "_sip._tcp.ims.example.com";
+
+    private static final String SIP_TCP_SERVICE = "SIP+D2T";
+
+    private static final long QUERY_DELAY = 300;
+
+    private File mFile;
+
+    private StandInDnsServer mServer;
+
+    private ImsProxyResolver mResolver;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mFile = new File(System.getProperty("java.io.tmpdir"), "dns_cache_test");
+        mFile.delete();
+        mServer = new StandInDnsServer();
+        mServer.start();
+        mResolver = createResolver();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mResolver.close();
+        mServer.stop();
+        mFile.delete();
+        super.tearDown();
+    }
+
+    private ImsProxyResolver createResolver() throws UnknownHostException {
+        SimpleResolver resolver = new SimpleResolver("127.0.0.1");
+        resolver.setPort(mServer.getPort());
+        resolver.setTimeout(2);
+        return new ImsProxyResolver(new DnsCache(mFile, 60000), resolver, 100);
+    }
+
+    private InetSocketAddress resolve(boolean connectionOriented) throws Exception {
+        return mResolver.resolve(DOMAIN, SIP_TCP_SERVICE, SRV_QUERY, 5060, connectionOriented);
+    }
+
+    private static Name name(String name) throws TextParseException {
+        return Name.fromString(name + ".");
+    }
+
+    private static Record naptr(String replacement, long ttl) throws TextParseException {
+        return new NAPTRRecord(name(DOMAIN), DClass.IN, ttl, 10, 50, "s", SIP_TCP_SERVICE, "",
+                name(replacement));
+    }
+
+    private static Record srv(String name, int priority, int port, String target, long ttl)
+            throws TextParseException {
+        return new SRVRecord(name(name), DClass.IN, ttl, priority, 0, port, name(target));
+    }
+
+    private static Record a(String name, String address, long ttl) throws Exception {
+        return new ARecord(name(name), DClass.IN, ttl, InetAddress.getByName(address));
+    }
+
+    public void testNaptrResolved() throws Exception {
+        mServer.addRecord(naptr("_sip._tcp.pcscf.example.com", 3600));
+        mServer.addRecord(srv("_sip._tcp.pcscf.example.com", 20, 5070, "pcscf2.example.com",
+                3600));
+        mServer.addRecord(srv("_sip._tcp.pcscf.example.com", 10, 5060, "pcscf1.example.com",
+                3600));
+        mServer.addRecord(a("pcscf1.example.com", "127.0.0.11", 3600));
+        mServer.addRecord(a("pcscf2.example.com", "127.0.0.12", 3600));
+        mServer.addRecord(a(DOMAIN, "127.0.0.10", 3600));
+        InetSocketAddress proxy = resolve(false);
+        assertEquals("127.0.0.11", proxy.getAddress().getHostAddress());
+        assertEquals(5060, proxy.getPort());
+    }
+
+    public void testQueriesSentConcurrently() throws Exception {
+        mServer.addRecord(srv(SRV_QUERY, 10, 5062, "pcscf1.example.com", 3600));
+        mServer.addRecord(a("pcscf1.example.com", "127.0.0.11", 3600));
+        mServer.setQueryDelay(QUERY_DELAY);
+        long start = System.currentTimeMillis();
+        InetSocketAddress proxy = resolve(false);
+        long timeToFirstProxy = System.currentTimeMillis() - start;
+        assertEquals(new InetSocketAddress("127.0.0.11", 5062), proxy);
+        /*
+         * The NAPTR, SRV and A/AAAA queries of the proxy domain are sent at once, then those of the
+         * SRV target: three round trips at least when sent in sequence.
+         */
+        assertTrue("Time to first proxy " + timeToFirstProxy, timeToFirstProxy < 3 * QUERY_DELAY);
+    }
+
+    public void testAddressFallback() throws Exception {
+        mServer.addRecord(a(DOMAIN, "127.0.0.10", 3600));
+        assertEquals(new InetSocketAddress("127.0.0.10", 5060), resolve(true));
+    }
+
+    public void testNotResolved() throws Exception {
+        try {
+            mResolver.resolve("unknown.invalid", SIP_TCP_SERVICE, "_sip._tcp.unknown.invalid",
+                    5060, false);
+            fail("UnknownHostException expected");
+        } catch (UnknownHostException e) {
+            // Expected
+        }
+    }
+
+    public void testCachePersisted() throws Exception {
+        mServer.addRecord(naptr(SRV_QUERY, 3600));
+        mServer.addRecord(srv(SRV_QUERY, 10, 5060, "pcscf1.example.com", 3600));
+        mServer.addRecord(a("pcscf1.example.com", "127.0.0.11", 3600));
+        InetSocketAddress proxy = resolve(false);
+
+        mResolver.close();
+        mServer.stop();
+        mResolver = createResolver();
+        long start = System.currentTimeMillis();
+        assertEquals(proxy, resolve(false));
+        assertTrue(System.currentTimeMillis() - start < QUERY_DELAY);
+    }
+
+    public void testStaleAnswerRevalidated() throws Exception {
+        /* Answers expire at once */
+        mServer.addRecord(naptr(SRV_QUERY, 0));
+        mServer.addRecord(srv(SRV_QUERY, 10, 5060, "pcscf1.example.com", 0));
+        mServer.addRecord(a("pcscf1.example.com", "127.0.0.11", 0));
+        assertEquals(new InetSocketAddress("127.0.0.11", 5060), resolve(false));
+
+        mServer.clearRecords();
+        mServer.addRecord(naptr(SRV_QUERY, 0));
+        mServer.addRecord(srv(SRV_QUERY, 10, 5060, "pcscf1.example.com", 0));
+        mServer.addRecord(a("pcscf1.example.com", "127.0.0.21", 0));
+        mServer.setQueryDelay(QUERY_DELAY);
+        long start = System.currentTimeMillis();
+        /* The stale answer is used without waiting for the server */
+        assertEquals(new InetSocketAddress("127.0.0.11", 5060), resolve(false));
+        assertTrue(System.currentTimeMillis() - start < QUERY_DELAY);
+
+        long deadline = System.currentTimeMillis() + 10 * QUERY_DELAY;
+        InetSocketAddress proxy;
+        do {
+            Thread.sleep(50);
+            proxy = resolve(false);
+        } while (!"127.0.0.21".equals(proxy.getAddress().getHostAddress())
+                && System.currentTimeMillis() < deadline);
+        assertEquals("127.0.0.21", proxy.getAddress().getHostAddress());
+    }
+
+    public void testAnswersCachedPerNetwork() throws Exception {
+        mResolver.setNetwork("WIFI/home");
+        mServer.addRecord(a(DOMAIN, "127.0.0.10", 3600));
+        assertEquals(new InetSocketAddress("127.0.0.10", 5060), resolve(false));
+
+        mServer.clearRecords();
+        mServer.addRecord(a(DOMAIN, "127.0.0.20", 3600));
+        mResolver.setNetwork("MOBILE/ims");
+        assertEquals(new InetSocketAddress("127.0.0.20", 5060), resolve(false));
+        mResolver.setNetwork("WIFI/home");
+        assertEquals(new InetSocketAddress("127.0.0.10", 5060), resolve(false));
+    }
+
+    public void testStaleAnswerDroppedOnNetworkChange() throws Exception {
+        mResolver.setNetwork("WIFI/home");
+        /* Answers expire at once */
+        mServer.addRecord(srv(SRV_QUERY, 10, 5060, "pcscf1.example.com", 0));
+        mServer.addRecord(a("pcscf1.example.com", "127.0.0.11", 0));
+        assertEquals(new InetSocketAddress("127.0.0.11", 5060), resolve(false));
+
+        mServer.clearRecords();
+        mServer.addRecord(srv(SRV_QUERY, 10, 5060, "pcscf1.example.com", 0));
+        mServer.addRecord(a("pcscf1.example.com", "127.0.0.21", 0));
+        mResolver.setNetwork("MOBILE/ims");
+        mResolver.setNetwork("WIFI/home");
+        assertEquals(new InetSocketAddress("127.0.0.21", 5060), resolve(false));
+    }
+
+    public void testFailedProxyAvoided() throws Exception {
+        mServer.addRecord(srv(SRV_QUERY, 10, 5060, "pcscf1.example.com", 3600));
+        mServer.addRecord(srv(SRV_QUERY, 20, 5060, "pcscf2.example.com", 3600));
+        mServer.addRecord(a("pcscf1.example.com", "127.0.0.11", 3600));
+        mServer.addRecord(a("pcscf2.example.com", "127.0.0.12", 3600));
+        assertEquals(new InetSocketAddress("127.0.0.11", 5060), resolve(false));
+        /* The registration failed with the preferred proxy */
+        mResolver.invalidate();
+        assertEquals(new InetSocketAddress("127.0.0.12", 5060), resolve(false));
+        /* Then with the other one as well */
+        mResolver.invalidate();
+        assertEquals(new InetSocketAddress("127.0.0.11", 5060), resolve(false));
+    }
+
+    public void testReachableProxySelected() throws Exception {
+        ServerSocket reachableProxy = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        ServerSocket deadProxy = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        int deadPort = deadProxy.getLocalPort();
+        deadProxy.close();
+        try {
+            mServer.addRecord(srv(SRV_QUERY, 10, deadPort, "pcscf1.example.com", 3600));
+            mServer.addRecord(srv(SRV_QUERY, 20, reachableProxy.getLocalPort(),
+                    "pcscf2.example.com", 3600));
+            mServer.addRecord(a("pcscf1.example.com", "127.0.0.1", 3600));
+            mServer.addRecord(a("pcscf2.example.com", "127.0.0.1", 3600));
+            assertEquals(reachableProxy.getLocalPort(), resolve(true).getPort());
+            /* No connection attempt for a connectionless transport */
+            assertEquals(deadPort, resolve(false).getPort());
+
+        } finally {
+            reachableProxy.close();
+        }
+    }
+
+    public void testProxiesRacedOncePerNetwork() throws Exception {
+        final List<Socket> connections = new CopyOnWriteArrayList<>();
+        final ServerSocket proxy1 = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        ServerSocket proxy2 = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        connections.add(proxy1.accept());
+                    }
+                } catch (IOException e) {
+                    /* Server socket closed */
+                }
+            }
+        }.start();
+        try {
+            mResolver.setNetwork("WIFI/home");
+            mServer.addRecord(srv(SRV_QUERY, 10, proxy1.getLocalPort(), "pcscf1.example.com",
+                    3600));
+            mServer.addRecord(srv(SRV_QUERY, 20, proxy2.getLocalPort(), "pcscf2.example.com",
+                    3600));
+            mServer.addRecord(a("pcscf1.example.com", "127.0.0.1", 3600));
+            mServer.addRecord(a("pcscf2.example.com", "127.0.0.1", 3600));
+            assertEquals(proxy1.getLocalPort(), resolve(true).getPort());
+            assertEquals(proxy1.getLocalPort(), resolve(true).getPort());
+            Thread.sleep(100);
+            assertEquals(1, connections.size());
+
+            /* Raced again once the registration failed */
+            mResolver.invalidate();
+            assertEquals(proxy2.getLocalPort(), resolve(true).getPort());
+            mResolver.setNetwork("MOBILE/ims");
+            assertEquals(proxy1.getLocalPort(), resolve(true).getPort());
+            Thread.sleep(100);
+            assertEquals(2, connections.size());
+
+        } finally {
+            proxy1.close();
+            proxy2.close();
+            for (Socket connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Stand-in DNS server answering each UDP query from its records after a delay
+     */
+    private static class StandInDnsServer {
+
+        private final DatagramSocket mSocket;
+
+        private final int mPort;
+
+        private final List<Record> mRecords = new CopyOnWriteArrayList<>();
+
+        private volatile long mQueryDelay;
+
+        private StandInDnsServer() throws IOException {
+            mSocket = new DatagramSocket(0, InetAddress.getByName("127.0.0.1"));
+            mPort = mSocket.getLocalPort();
+        }
+
+        private int getPort() {
+            return mPort;
+        }
+
+        private void setQueryDelay(long delay) {
+            mQueryDelay = delay;
+        }
+
+        private void addRecord(Record record) {
+            mRecords.add(record);
+        }
+
+        private void clearRecords() {
+            mRecords.clear();
+        }
+
+        private void start() {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            byte[] buffer = new byte[512];
+                            final DatagramPacket packet = new DatagramPacket(buffer,
+                                    buffer.length);
+                            mSocket.receive(packet);
+                            new Thread() {
+                                @Override
+                                public void run() {
+                                    answer(packet);
+                                }
+                            }.start();
+                        }
+                    } catch (IOException e) {
+                        /* Socket closed */
+                    }
+                }
+            }.start();
+        }
+
+        private void stop() {
+            mSocket.close();
+        }
+
+        private void answer(DatagramPacket packet) {
+            try {
+                Thread.sleep(mQueryDelay);
+                Message query = new Message(packet.getData());
+                Record question = query.getQuestion();
+                Message response = new Message(query.getHeader().getID());
+                response.getHeader().setFlag(Flags.QR);
+                response.addRecord(question, Section.QUESTION);
+                boolean nameFound = false;
+                for (Record record : mRecords) {
+                    if (!record.getName().equals(question.getName())) {
+                        continue;
+                    }
+                    nameFound = true;
+                    if (record.getType() == question.getType()) {
+                        response.addRecord(record, Section.ANSWER);
+                    }
+                }
+                if (!nameFound) {
+                    response.getHeader().setRcode(Rcode.NXDOMAIN);
+                }
+                byte[] data = response.toWire();
+                mSocket.send(new DatagramPacket(data, data.length, packet.getSocketAddress()));
+
+            } catch (IOException | InterruptedException e) {
+                /* Query dropped */
+            }
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.http;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+import com.gsma.rcs.core.ims.network.NetworkException;
+import com.gsma.rcs.core.ims.protocol.http.HttpAuthenticationAgent;
+import com.gsma.rcs.core.ims.protocol.http.HttpResponse;
+import com.gsma.rcs.core.ims.protocol.http.PersistentHttpClient;
+import com.gsma.rcs.platform.network.SocketConnection;
+
+import android.test.AndroidTestCase;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PersistentHttpClientTest extends AndroidTestCase {
+
+    private static final String HOST = "127.0.0.1";
+
+    private static final String NONCE = "dcd98b7102dd2f0e8b11d0f600bfb0c093";
+
+    private static final int REQUESTS = 20;
+
+    private StandInXcapServer mServer;
+
+    private PersistentHttpClient mClient;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mServer = new StandInXcapServer();
+        mServer.start();
+        mClient = new PersistentHttpClient(HOST, mServer.getPort(),
+                new PersistentHttpClient.IConnectionFactory() {
+                    @Override
+                    public SocketConnection createConnection() {
+                        return new PlainSocketConnection();
+                    }
+                }, 2, 30000);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mClient.close();
+        mServer.stop();
+        super.tearDown();
+    }
+
+    private static PersistentHttpClient.Request get(String uri) {
+        return new PersistentHttpClient.Request("GET", uri, null, null);
+    }
+
+    public void testConnectionReused() throws Exception {
+        for (int i = 0; i < REQUESTS; i++) {
+            HttpResponse response = mClient.execute(get("/resource-lists/" + i));
+            assertTrue(response.isSuccessfullResponse());
+            assertEquals("/resource-lists/" + i, new String(response.getContent(), UTF8));
+        }
+        assertEquals(1, mServer.getConnectionCount());
+        assertEquals(1, mClient.getOpenedConnectionCount());
+    }
+
+    public void testPipelining() throws Exception {
+        List<PersistentHttpClient.Request> requests = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            requests.add(new PersistentHttpClient.Request("PUT", "/rls-services/" + i,
+                    "Content-type: application/rls-services+xml\r\n", ("<rls-services index=\""
+                            + i + "\"/>").getBytes(UTF8)));
+        }
+        List<HttpResponse> responses = mClient.execute(requests);
+        assertEquals(REQUESTS, responses.size());
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals("/rls-services/" + i + " <rls-services index=\"" + i + "\"/>",
+                    new String(responses.get(i).getContent(), UTF8));
+        }
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    public void testChunkedResponse() throws Exception {
+        HttpResponse response = mClient.execute(get("/chunked/directory.xml"));
+        assertEquals(200, response.getResponseCode());
+        assertEquals("/chunked/directory.xml", new String(response.getContent(), UTF8));
+        /* The connection is reused once the last chunk is read */
+        response = mClient.execute(get("/pres-rules"));
+        assertEquals("/pres-rules", new String(response.getContent(), UTF8));
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    public void testConnectionClose() throws Exception {
+        List<PersistentHttpClient.Request> requests = new ArrayList<>();
+        requests.add(get("/first"));
+        requests.add(get("/close"));
+        requests.add(get("/third"));
+        List<HttpResponse> responses = mClient.execute(requests);
+        assertEquals("/first", new String(responses.get(0).getContent(), UTF8));
+        assertEquals("/close", new String(responses.get(1).getContent(), UTF8));
+        /* The request following the closing response is sent again on a new connection */
+        assertEquals("/third", new String(responses.get(2).getContent(), UTF8));
+        assertEquals(2, mServer.getConnectionCount());
+    }
+
+    public void testIdleConnectionClosedByServer() throws Exception {
+        assertEquals("/first", new String(mClient.execute(get("/first")).getContent(), UTF8));
+        mServer.closeConnections();
+        assertEquals("/second", new String(mClient.execute(get("/second")).getContent(), UTF8));
+        assertEquals(2, mServer.getConnectionCount());
+        assertEquals(2, mClient.getOpenedConnectionCount());
+    }
+
+    public void testServerNotReachable() throws Exception {
+        mServer.stop();
+        try {
+            mClient.execute(get("/index"));
+            fail("NetworkException expected");
+        } catch (NetworkException e) {
+            // Expected
+        }
+    }
+
+    public void testDigestNonceReused() throws Exception {
+        HttpAuthenticationAgent agent = new HttpAuthenticationAgent("user", "password");
+        HttpResponse response = mClient.execute(authenticatedGet(agent, "/auth/directory.xml"));
+        assertEquals(401, response.getResponseCode());
+        agent.readWwwAuthenticateHeader(response.getHeader("www-authenticate"));
+        for (int i = 0; i < 3; i++) {
+            response = mClient.execute(authenticatedGet(agent, "/auth/directory.xml"));
+            assertEquals(200, response.getResponseCode());
+            agent.readAuthenticationInfoHeader(response.getHeader("authentication-info"));
+        }
+        List<String> authorizations = mServer.getAuthorizations();
+        assertEquals(3, authorizations.size());
+        for (int i = 0; i < 3; i++) {
+            String authorization = authorizations.get(i);
+            assertTrue(authorization, authorization.contains("nonce=\"" + NONCE + "\""));
+            assertTrue(authorization, authorization.contains("nc=0000000" + (i + 1)));
+        }
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    private static PersistentHttpClient.Request authenticatedGet(HttpAuthenticationAgent agent,
+            String uri) {
+        return new PersistentHttpClient.Request("GET", uri, agent.generateAuthorizationHeader(
+                "GET", uri, null) + "\r\n", null);
+    }
+
+    /**
+     * Stand-in XCAP server counting its connections: the content of a response is the request URI
+     * followed by the request content if any
+     */
+    private static class StandInXcapServer {
+
+        private final ServerSocket mServerSocket;
+
+        private final AtomicInteger mConnectionCount = new AtomicInteger();
+
+        private final List<Socket> mSockets = Collections.synchronizedList(new ArrayList<Socket>());
+
+        private final List<String> mAuthorizations = Collections
+                .synchronizedList(new ArrayList<String>());
+
+        private StandInXcapServer() throws IOException {
+            mServerSocket = new ServerSocket(0, 50, InetAddress.getByName(HOST));
+        }
+
+        private int getPort() {
+            return mServerSocket.getLocalPort();
+        }
+
+        private int getConnectionCount() {
+            return mConnectionCount.get();
+        }
+
+        private List<String> getAuthorizations() {
+            return mAuthorizations;
+        }
+
+        private void start() {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            final Socket socket = mServerSocket.accept();
+                            mConnectionCount.incrementAndGet();
+                            mSockets.add(socket);
+                            new Thread() {
+                                @Override
+                                public void run() {
+                                    serve(socket);
+                                }
+                            }.start();
+                        }
+                    } catch (IOException e) {
+                        /* Server socket closed */
+                    }
+                }
+            }.start();
+        }
+
+        private void closeConnections() throws IOException {
+            synchronized (mSockets) {
+                for (Socket socket : mSockets) {
+                    socket.close();
+                }
+                mSockets.clear();
+            }
+        }
+
+        private void stop() throws IOException {
+            mServerSocket.close();
+            closeConnections();
+        }
+
+        private void serve(Socket socket) {
+            try {
+                InputStream input = new BufferedInputStream(socket.getInputStream());
+                OutputStream output = socket.getOutputStream();
+                String requestLine;
+                while ((requestLine = readLine(input)) != null) {
+                    String uri = requestLine.split(" ")[1];
+                    int contentLength = 0;
+                    String authorization = null;
+                    String line;
+                    while ((line = readLine(input)) != null && !line.isEmpty()) {
+                        String name = line.substring(0, line.indexOf(':')).toLowerCase();
+                        String value = line.substring(line.indexOf(':') + 1).trim();
+                        if ("content-length".equals(name)) {
+                            contentLength = Integer.parseInt(value);
+                        } else if ("authorization".equals(name)) {
+                            authorization = value;
+                        }
+                    }
+                    byte[] content = new byte[contentLength];
+                    int read = 0;
+                    while (read < contentLength) {
+                        read += input.read(content, read, contentLength - read);
+                    }
+                    String body = contentLength > 0 ? uri + " " + new String(content, UTF8) : uri;
+                    byte[] bodyBytes = body.getBytes(UTF8);
+                    if (uri.startsWith("/chunked")) {
+                        StringBuilder response = new StringBuilder(
+                                "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n");
+                        for (int i = 0; i < body.length(); i += 5) {
+                            String chunk = body.substring(i, Math.min(body.length(), i + 5));
+                            response.append(Integer.toHexString(chunk.length())).append("\r\n")
+                                    .append(chunk).append("\r\n");
+                        }
+                        response.append("0\r\n\r\n");
+                        output.write(response.toString().getBytes(UTF8));
+
+                    } else if (uri.startsWith("/auth")
+                            && (authorization == null || !authorization.startsWith("Digest"))) {
+                        output.write(("HTTP/1.1 401 Unauthorized\r\nWWW-Authenticate: Digest "
+                                + "realm=\"xcap\",nonce=\"" + NONCE + "\",qop=\"auth\"\r\n"
+                                + "Content-Length: 0\r\n\r\n").getBytes(UTF8));
+
+                    } else {
+                        if (authorization != null) {
+                            mAuthorizations.add(authorization);
+                        }
+                        boolean close = uri.startsWith("/close");
+                        output.write(("HTTP/1.1 200 OK\r\nContent-Length: " + bodyBytes.length
+                                + (close ? "\r\nConnection: close" : "") + "\r\n\r\n")
+                                .getBytes(UTF8));
+                        output.write(bodyBytes);
+                        if (close) {
+                            output.flush();
+                            socket.close();
+                            return;
+                        }
+                    }
+                    output.flush();
+                }
+            } catch (IOException e) {
+                /* Connection closed */
+            }
+        }
+
+        private static String readLine(InputStream input) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int ch;
+            while ((ch = input.read()) != -1) {
+                if (ch == '\n') {
+                    return line.toString().trim();
+                }
+                line.append((char) ch);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.http;
+
+import com.gsma.rcs.core.ims.network.NetworkException;
+import com.gsma.rcs.platform.network.SocketConnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * Socket connection over a plain java socket
+ */
+public class PlainSocketConnection implements SocketConnection {
+
+    private Socket mSocket;
+
+    @Override
+    public void open(String remoteAddr, int remotePort) throws NetworkException {
+        try {
+            mSocket = new Socket(remoteAddr, remotePort);
+        } catch (IOException e) {
+            throw new NetworkException("Failed to open connection!", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mSocket != null) {
+            mSocket.close();
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() throws NetworkException {
+        try {
+            return mSocket.getInputStream();
+        } catch (IOException e) {
+            throw new NetworkException("Failed to get input stream!", e);
+        }
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws NetworkException {
+        try {
+            return mSocket.getOutputStream();
+        } catch (IOException e) {
+            throw new NetworkException("Failed to get output stream!", e);
+        }
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return mSocket.getInetAddress().getHostAddress();
+    }
+
+    @Override
+    public int getRemotePort() {
+        return mSocket.getPort();
+    }
+
+    @Override
+    public String getLocalAddress() {
+        return mSocket.getLocalAddress().getHostAddress();
+    }
+
+    @Override
+    public int getLocalPort() {
+        return mSocket.getLocalPort();
+    }
+
+    @Override
+    public int getSoTimeout() throws NetworkException {
+        try {
+            return mSocket.getSoTimeout();
+        } catch (IOException e) {
+            throw new NetworkException("Failed to get timeout!", e);
+        }
+    }
+
+    @Override
+    public void setSoTimeout(long timeout) throws NetworkException {
+        try {
+            mSocket.setSoTimeout((int) timeout);
+        } catch (IOException e) {
+            throw new NetworkException("Failed to set timeout!", e);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.im;
+
+import com.gsma.rcs.core.ims.service.SessionRegistry;
+import com.gsma.rcs.core.ims.service.SessionRegistry.Index;
+
+import android.test.AndroidTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SessionRegistryTest extends AndroidTestCase {
+
+    private static final int SESSIONS = 1000;
+
+    private static final int READERS = 4;
+
+    private static final int WRITERS = 2;
+
+    private static final long DURATION = 500;
+
+    public void testLookupsDuringUpdate() throws InterruptedException {
+        SessionRegistry registry = new SessionRegistry();
+        final Index<String, String> index = registry.createIndex("CallId");
+        index.put("call", "session");
+        final CountDownLatch looked = new CountDownLatch(1);
+        synchronized (registry) {
+            /* Lookups must not wait for the end of an update of several indexes */
+            new Thread() {
+                @Override
+                public void run() {
+                    if ("session".equals(index.get("call"))) {
+                        looked.countDown();
+                    }
+                }
+            }.start();
+            assertTrue(looked.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    public void testIndexes() {
+        SessionRegistry registry = new SessionRegistry();
+        Index<String, String> byCallId = registry.createIndex("CallId");
+        Index<Integer, String> byContact = registry.createIndex("Contact");
+        assertNull(byCallId.getAny());
+        byCallId.put("call1", "session1");
+        byContact.put(1, "session1");
+        byContact.put(2, "session2");
+        assertEquals("session1", byCallId.get("call1"));
+        assertEquals("session2", byContact.get(2));
+        assertNull(byCallId.get("call2"));
+        assertEquals("session1", byCallId.getAny());
+        assertEquals(3, registry.getSize());
+        assertEquals("CallId=1, Contact=2", registry.toString());
+        assertEquals("session2", byContact.remove(2));
+        assertEquals(1, byContact.size());
+        assertEquals(1, byContact.values().size());
+    }
+
+    public void testNullKey() {
+        Index<String, String> index = new SessionRegistry().createIndex("CallId");
+        index.put(null, "session");
+        assertEquals("session", index.get(null));
+        assertEquals("session", index.remove(null));
+        assertNull(index.get(null));
+    }
+
+    public void testValuesWhileRegistering() {
+        Index<String, String> index = new SessionRegistry().createIndex("CallId");
+        for (int i = 0; i < 10; i++) {
+            index.put("call" + i, "session" + i);
+        }
+        int count = 0;
+        for (String session : index.values()) {
+            index.remove(session.replace("session", "call"));
+            count++;
+        }
+        assertEquals(10, count);
+        assertEquals(0, index.size());
+    }
+
+    public void testLookupThroughputUnderChurn() throws InterruptedException {
+        final Index<String, String> index = new SessionRegistry().createIndex("CallId");
+        for (int i = 0; i < SESSIONS; i++) {
+            index.put("call" + i, "session" + i);
+        }
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicLong lookups = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(READERS + WRITERS);
+        for (int i = 0; i < READERS; i++) {
+            final int seed = i;
+            new Thread() {
+                @Override
+                public void run() {
+                    long count = 0;
+                    int key = seed;
+                    while (!stop.get()) {
+                        key = (key * 31 + 7) % SESSIONS;
+                        String session = index.get("call" + key);
+                        if (session != null && !session.equals("session" + key)) {
+                            errors.incrementAndGet();
+                        }
+                        count++;
+                    }
+                    lookups.addAndGet(count);
+                    done.countDown();
+                }
+            }.start();
+        }
+        for (int i = 0; i < WRITERS; i++) {
+            final int seed = i;
+            new Thread() {
+                @Override
+                public void run() {
+                    int key = seed;
+                    while (!stop.get()) {
+                        key = (key * 17 + 3) % SESSIONS;
+                        index.remove("call" + key);
+                        index.put("call" + key, "session" + key);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        Thread.sleep(DURATION);
+        stop.set(true);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, errors.get());
+        assertTrue(lookups.get() > 0);
+        assertEquals(SESSIONS, index.size());
+    }
+}
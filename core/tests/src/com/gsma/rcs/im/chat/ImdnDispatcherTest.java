@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.im.chat;
+
+import com.gsma.rcs.core.ims.service.im.chat.imdn.ImdnDispatcher;
+import com.gsma.rcs.core.ims.service.im.chat.imdn.ImdnDispatcher.IDeliveryStatusSender;
+import com.gsma.rcs.core.ims.service.im.chat.imdn.ImdnDocument;
+import com.gsma.rcs.core.ims.service.im.chat.imdn.ImdnManager.DeliveryStatus;
+import com.gsma.rcs.utils.ContactUtil;
+import com.gsma.rcs.utils.logger.Logger;
+import com.gsma.services.rcs.contact.ContactId;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ImdnDispatcherTest extends AndroidTestCase {
+
+    private static final Logger sLogger = Logger.getLogger(ImdnDispatcherTest.class.getName());
+
+    private static final int CONTACTS = 8;
+
+    private static final int MESSAGES_PER_CONTACT = 10;
+
+    private static final long TRANSACTION_DURATION = 20;
+
+    private ImdnDispatcher mDispatcher;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mDispatcher != null) {
+            mDispatcher.stop();
+        }
+        super.tearDown();
+    }
+
+    private static ContactId getContact(int index) {
+        return ContactUtil.createContactIdFromTrustedData("+3361000" + (1000 + index));
+    }
+
+    private static DeliveryStatus getDisplayed(int contact, int message) {
+        return new DeliveryStatus(null, getContact(contact), "msg" + contact + "-" + message,
+                ImdnDocument.DeliveryStatus.DISPLAYED, message);
+    }
+
+    private static DeliveryStatus getDelivered(int contact, int message) {
+        return new DeliveryStatus(null, getContact(contact), "msg" + contact + "-" + message,
+                ImdnDocument.DeliveryStatus.DELIVERED, message);
+    }
+
+    /**
+     * Sender standing in for the SIP stack: each report is a MESSAGE transaction lasting a
+     * fixed duration
+     */
+    private static class FakeSipStack implements IDeliveryStatusSender {
+
+        private final CountDownLatch mSent;
+
+        private final Map<ContactId, List<DeliveryStatus>> mTransactions = new HashMap<>();
+
+        private final Set<String> mMsgIdsInProgress = new HashSet<>();
+
+        private int mInProgress;
+
+        private int mOverlaps;
+
+        private int mMaxConcurrentTransactions;
+
+        private FakeSipStack(int expectedTransactions) {
+            mSent = new CountDownLatch(expectedTransactions);
+        }
+
+        @Override
+        public void sendDeliveryStatus(DeliveryStatus delivery) {
+            ContactId remote = delivery.getRemote();
+            synchronized (this) {
+                if (!mMsgIdsInProgress.add(delivery.getMsgId())) {
+                    mOverlaps++;
+                }
+                mInProgress++;
+                mMaxConcurrentTransactions = Math.max(mMaxConcurrentTransactions, mInProgress);
+                List<DeliveryStatus> transactions = mTransactions.get(remote);
+                if (transactions == null) {
+                    transactions = new ArrayList<>();
+                    mTransactions.put(remote, transactions);
+                }
+                transactions.add(delivery);
+            }
+            try {
+                Thread.sleep(TRANSACTION_DURATION);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                mMsgIdsInProgress.remove(delivery.getMsgId());
+                mInProgress--;
+            }
+            mSent.countDown();
+        }
+
+        private synchronized int getTransactionCount() {
+            int count = 0;
+            for (List<DeliveryStatus> transactions : mTransactions.values()) {
+                count += transactions.size();
+            }
+            return count;
+        }
+    }
+
+    public void testOrderPerMessage() throws InterruptedException {
+        FakeSipStack sipStack = new FakeSipStack(2 * CONTACTS * MESSAGES_PER_CONTACT);
+        mDispatcher = new ImdnDispatcher("Test", sipStack, 4, 0);
+        for (int message = 0; message < MESSAGES_PER_CONTACT; message++) {
+            for (int contact = 0; contact < CONTACTS; contact++) {
+                assertTrue(mDispatcher.add(getDelivered(contact, message)));
+                assertTrue(mDispatcher.add(getDisplayed(contact, message)));
+            }
+        }
+        assertTrue(sipStack.mSent.await(10, TimeUnit.SECONDS));
+        /* The reports of a message are never sent concurrently */
+        assertEquals(0, sipStack.mOverlaps);
+        assertTrue(sipStack.mMaxConcurrentTransactions <= 4);
+        for (int contact = 0; contact < CONTACTS; contact++) {
+            List<DeliveryStatus> transactions = sipStack.mTransactions.get(getContact(contact));
+            assertEquals(2 * MESSAGES_PER_CONTACT, transactions.size());
+            Set<String> delivered = new HashSet<>();
+            for (DeliveryStatus transaction : transactions) {
+                if (ImdnDocument.DeliveryStatus.DELIVERED == transaction.getStatus()) {
+                    delivered.add(transaction.getMsgId());
+                } else {
+                    assertTrue(delivered.contains(transaction.getMsgId()));
+                }
+            }
+        }
+        assertEquals(2 * CONTACTS * MESSAGES_PER_CONTACT, mDispatcher.getSentCount());
+    }
+
+    public void testDuplicatedReportsSentOnce() throws InterruptedException {
+        FakeSipStack sipStack = new FakeSipStack(2);
+        mDispatcher = new ImdnDispatcher("Test", sipStack, 1, 100);
+        assertTrue(mDispatcher.add(getDisplayed(0, 0)));
+        assertFalse(mDispatcher.add(getDisplayed(0, 0)));
+        assertTrue(mDispatcher.add(new DeliveryStatus(null, getContact(0), "msg0-0",
+                ImdnDocument.DeliveryStatus.DELIVERED, 0)));
+        assertEquals(2, mDispatcher.getQueuedCount());
+        assertTrue(sipStack.mSent.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(2, sipStack.getTransactionCount());
+        assertEquals(1, mDispatcher.getCoalescedCount());
+        assertEquals(0, mDispatcher.getQueuedCount());
+    }
+
+    /**
+     * Opening the chats of several contacts with unread messages: compare the end-to-end
+     * latency with the reports sent one after the other
+     */
+    public void testLatencyOfUnreadMessages() throws InterruptedException {
+        int reports = CONTACTS * MESSAGES_PER_CONTACT;
+        FakeSipStack sipStack = new FakeSipStack(reports);
+        mDispatcher = new ImdnDispatcher("Test", sipStack, 4, 0);
+        long start = System.currentTimeMillis();
+        for (int contact = 0; contact < CONTACTS; contact++) {
+            for (int message = 0; message < MESSAGES_PER_CONTACT; message++) {
+                mDispatcher.add(getDisplayed(contact, message));
+            }
+        }
+        assertTrue(sipStack.mSent.await(10, TimeUnit.SECONDS));
+        long duration = System.currentTimeMillis() - start;
+        long serialDuration = reports * TRANSACTION_DURATION;
+        if (sLogger.isActivated()) {
+            sLogger.info(new StringBuilder("Sent ").append(sipStack.getTransactionCount())
+                    .append(" reports in ").append(duration).append(" ms, ")
+                    .append(serialDuration).append(" ms one after the other").toString());
+        }
+        assertEquals(reports, sipStack.getTransactionCount());
+        assertTrue("Sent in " + duration + " ms", duration < serialDuration / 2);
+    }
+
+    /**
+     * Opening a chat with many unread messages: the reports to the same contact do not wait for
+     * the end of the previous transaction
+     */
+    public void testLatencyOfSingleContactBacklog() throws InterruptedException {
+        int reports = CONTACTS * MESSAGES_PER_CONTACT;
+        FakeSipStack sipStack = new FakeSipStack(reports);
+        mDispatcher = new ImdnDispatcher("Test", sipStack, 4, 0);
+        long start = System.currentTimeMillis();
+        for (int message = 0; message < reports; message++) {
+            mDispatcher.add(getDisplayed(0, message));
+        }
+        assertTrue(sipStack.mSent.await(10, TimeUnit.SECONDS));
+        long duration = System.currentTimeMillis() - start;
+        long serialDuration = reports * TRANSACTION_DURATION;
+        if (sLogger.isActivated()) {
+            sLogger.info(new StringBuilder("Sent ").append(sipStack.getTransactionCount())
+                    .append(" reports to a single contact in ").append(duration)
+                    .append(" ms, ").append(serialDuration).append(" ms one after the other")
+                    .toString());
+        }
+        assertEquals(reports, sipStack.getTransactionCount());
+        assertEquals(4, sipStack.mMaxConcurrentTransactions);
+        assertTrue("Sent in " + duration + " ms", duration < serialDuration / 2);
+    }
+}
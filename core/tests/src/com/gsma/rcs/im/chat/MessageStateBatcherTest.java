@@ -0,0 +1,375 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.im.chat;
+
+import com.gsma.rcs.RcsSettingsMock;
+import com.gsma.rcs.core.ims.service.im.chat.ChatMessage;
+import com.gsma.rcs.provider.LocalContentResolver;
+import com.gsma.rcs.provider.messaging.ChatMessagePersistedStorageAccessor;
+import com.gsma.rcs.provider.messaging.MessageStateBatcher;
+import com.gsma.rcs.provider.messaging.MessageStateBatcher.IMessageStateListener;
+import com.gsma.rcs.provider.messaging.MessagingLog;
+import com.gsma.rcs.utils.ContactUtilMockContext;
+import com.gsma.rcs.utils.logger.Logger;
+import com.gsma.services.rcs.chat.ChatLog.Message.Content.ReasonCode;
+import com.gsma.services.rcs.chat.ChatLog.Message.Content.Status;
+import com.gsma.services.rcs.chat.ChatLog.Message.MimeType;
+import com.gsma.services.rcs.contact.ContactId;
+import com.gsma.services.rcs.contact.ContactUtil;
+import com.gsma.services.rcs.groupdelivery.GroupDeliveryInfo;
+
+import android.content.Context;
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class MessageStateBatcherTest extends AndroidTestCase {
+
+    private static final int GROUP_SIZE = 50;
+
+    private static final int BURST_SIZE = 20;
+
+    private static final String CHAT_ID = "batcher-chat";
+
+    /**
+     * Long enough for the reports to be applied by an explicit flush only
+     */
+    private static final long BATCH_WINDOW = 60000;
+
+    private static Logger sLogger = Logger.getLogger(MessageStateBatcherTest.class.getName());
+
+    private MessagingLog mMessagingLog;
+
+    private ContactId mContact;
+
+    private Set<ContactId> mRecipients;
+
+    private long mTimestamp;
+
+    private MessageStateBatcher mBatcher;
+
+    private final Map<String, Status> mOneToOneStates = new HashMap<>();
+
+    private final Map<String, Status> mGroupChatStates = new HashMap<>();
+
+    private final Map<String, Integer> mGroupChatDeliveryInfoCounts = new HashMap<>();
+
+    private int mCallbackCount;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Context context = getContext();
+        mMessagingLog = MessagingLog.getInstance(
+                new LocalContentResolver(context.getContentResolver()),
+                RcsSettingsMock.getMockSettings(context));
+        ContactUtil contactUtils = ContactUtil.getInstance(new ContactUtilMockContext(context));
+        mContact = contactUtils.formatContact("+339000000");
+        mRecipients = new LinkedHashSet<>();
+        for (int i = 0; i < GROUP_SIZE; i++) {
+            mRecipients.add(contactUtils.formatContact(String.format("+3360000%04d", i)));
+        }
+        mTimestamp = System.currentTimeMillis();
+        mBatcher = new MessageStateBatcher(mMessagingLog, new IMessageStateListener() {
+
+            @Override
+            public void onOneToOneMessageStatusChanged(ContactId contact, String msgId,
+                    Status status) {
+                mCallbackCount++;
+                mOneToOneStates.put(msgId, status);
+            }
+
+            @Override
+            public void onGroupChatMessageStatusChanged(String chatId, String msgId,
+                    Map<ContactId, GroupDeliveryInfo.Status> deliveryInfos, Status status) {
+                mCallbackCount++;
+                mGroupChatStates.put(msgId, status);
+                mGroupChatDeliveryInfoCounts.put(msgId, deliveryInfos.size());
+            }
+        }, BATCH_WINDOW);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        mBatcher.stop();
+        mMessagingLog.deleteAllEntries();
+        RcsSettingsMock.restoreSettings();
+    }
+
+    private String addOneToOneMessage(String prefix, int index) {
+        String msgId = prefix + "-one-to-one-" + index + "-" + mTimestamp;
+        ChatMessage msg = new ChatMessage(msgId, mContact, "text " + index,
+                MimeType.TEXT_MESSAGE, mTimestamp + index, mTimestamp + index, null);
+        mMessagingLog.addOutgoingOneToOneChatMessage(msg, Status.SENT, ReasonCode.UNSPECIFIED, 0);
+        return msgId;
+    }
+
+    private String addGroupChatMessage(String prefix, int index) {
+        String msgId = prefix + "-group-" + index + "-" + mTimestamp;
+        ChatMessage msg = new ChatMessage(msgId, null, "text " + index, MimeType.TEXT_MESSAGE,
+                mTimestamp + index, mTimestamp + index, null);
+        mMessagingLog.addOutgoingGroupChatMessage(CHAT_ID, msg, mRecipients, Status.SENT,
+                ReasonCode.UNSPECIFIED);
+        return msgId;
+    }
+
+    public void testOneToOneReportsCoalesced() {
+        String msgId = addOneToOneMessage("coalesced", 0);
+        mBatcher.setOneToOneMessageDelivered(mContact, msgId, mTimestamp + 1);
+        mBatcher.setOneToOneMessageDisplayed(mContact, msgId, mTimestamp + 2);
+        mBatcher.flush();
+        assertEquals(2, mBatcher.getReportCount());
+        assertEquals(1, mBatcher.getCoalescedCount());
+        assertEquals(1, mBatcher.getTransactionCount());
+        assertEquals(1, mCallbackCount);
+        assertEquals(Status.DISPLAYED, mOneToOneStates.get(msgId));
+
+        ChatMessagePersistedStorageAccessor accessor = new ChatMessagePersistedStorageAccessor(
+                mMessagingLog, msgId);
+        assertEquals(Status.DISPLAYED, accessor.getStatus());
+        assertEquals(mTimestamp + 1, accessor.getTimestampDelivered());
+        assertEquals(mTimestamp + 2, accessor.getTimestampDisplayed());
+    }
+
+    public void testDeliveryAfterDisplayIgnored() {
+        String msgId = addOneToOneMessage("late", 0);
+        mBatcher.setOneToOneMessageDisplayed(mContact, msgId, mTimestamp + 2);
+        mBatcher.flush();
+        mBatcher.setOneToOneMessageDelivered(mContact, msgId, mTimestamp + 1);
+        mBatcher.flush();
+        assertEquals(1, mCallbackCount);
+        assertEquals(Status.DISPLAYED, mMessagingLog.getMessageStatus(msgId));
+    }
+
+    public void testDeliveredThenFailed() {
+        final String msgId = addOneToOneMessage("failed", 0);
+        mBatcher.setOneToOneMessageDelivered(mContact, msgId, mTimestamp + 1);
+        mBatcher.applyInOrder(new Runnable() {
+            @Override
+            public void run() {
+                /* The delivery report received first is already applied and notified */
+                assertEquals(Status.DELIVERED, mOneToOneStates.get(msgId));
+                assertFalse(mMessagingLog.setChatMessageStatusAndReasonCode(msgId, Status.FAILED,
+                        ReasonCode.FAILED_DELIVERY));
+            }
+        });
+        mBatcher.flush();
+        assertEquals(1, mCallbackCount);
+        assertEquals(Status.DELIVERED, mMessagingLog.getMessageStatus(msgId));
+    }
+
+    public void testGroupChatDeliveredThenFailed() {
+        final String msgId = addGroupChatMessage("failed", 0);
+        final ContactId failedRecipient = mRecipients.iterator().next();
+        for (ContactId recipient : mRecipients) {
+            mBatcher.setGroupChatMessageDelivered(CHAT_ID, recipient, msgId, mTimestamp + 1);
+        }
+        mBatcher.applyInOrder(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(Status.DELIVERED, mGroupChatStates.get(msgId));
+                assertTrue(mMessagingLog.setGroupChatDeliveryInfoStatusAndReasonCode(CHAT_ID,
+                        failedRecipient, msgId, GroupDeliveryInfo.Status.FAILED,
+                        GroupDeliveryInfo.ReasonCode.FAILED_DELIVERY));
+            }
+        });
+        mBatcher.flush();
+        /* The failure is not overwritten by the delivery report received before */
+        assertFalse(mMessagingLog.isDeliveredToAllRecipients(msgId));
+        assertEquals(1, mCallbackCount);
+    }
+
+    public void testReportAppliedAtOnceWithoutWindow() {
+        mBatcher.stop();
+        mBatcher = new MessageStateBatcher(mMessagingLog, new IMessageStateListener() {
+
+            @Override
+            public void onOneToOneMessageStatusChanged(ContactId contact, String msgId,
+                    Status status) {
+                mCallbackCount++;
+            }
+
+            @Override
+            public void onGroupChatMessageStatusChanged(String chatId, String msgId,
+                    Map<ContactId, GroupDeliveryInfo.Status> deliveryInfos, Status status) {
+                mCallbackCount++;
+            }
+        }, 0);
+        String msgId = addOneToOneMessage("unbatched", 0);
+        mBatcher.setOneToOneMessageDelivered(mContact, msgId, mTimestamp + 1);
+        assertEquals(1, mCallbackCount);
+        assertEquals(Status.DELIVERED, mMessagingLog.getMessageStatus(msgId));
+        mBatcher.setOneToOneMessageDisplayed(mContact, msgId, mTimestamp + 2);
+        assertEquals(2, mCallbackCount);
+        assertEquals(Status.DISPLAYED, mMessagingLog.getMessageStatus(msgId));
+    }
+
+    public void testBatchingResumedAfterRestart() {
+        mBatcher.stop();
+        String msgId = addOneToOneMessage("restart", 0);
+        /* Applied at once while stopped */
+        mBatcher.setOneToOneMessageDelivered(mContact, msgId, mTimestamp + 1);
+        assertEquals(1, mCallbackCount);
+        assertEquals(Status.DELIVERED, mMessagingLog.getMessageStatus(msgId));
+        mBatcher.start();
+        mBatcher.setOneToOneMessageDisplayed(mContact, msgId, mTimestamp + 2);
+        assertEquals(1, mCallbackCount);
+        assertEquals(Status.DELIVERED, mMessagingLog.getMessageStatus(msgId));
+        mBatcher.flush();
+        assertEquals(2, mCallbackCount);
+        assertEquals(Status.DISPLAYED, mMessagingLog.getMessageStatus(msgId));
+    }
+
+    public void testGroupChatPartiallyDelivered() {
+        String msgId = addGroupChatMessage("partial", 0);
+        int delivered = 0;
+        for (ContactId recipient : mRecipients) {
+            if (delivered++ == GROUP_SIZE / 2) {
+                break;
+            }
+            mBatcher.setGroupChatMessageDelivered(CHAT_ID, recipient, msgId, mTimestamp + 1);
+        }
+        mBatcher.flush();
+        assertEquals(1, mCallbackCount);
+        assertEquals(GROUP_SIZE / 2, mGroupChatDeliveryInfoCounts.get(msgId).intValue());
+        /* Not delivered to all the recipients: message status unchanged */
+        assertTrue(mGroupChatStates.containsKey(msgId));
+        assertNull(mGroupChatStates.get(msgId));
+        assertEquals(Status.SENT, mMessagingLog.getMessageStatus(msgId));
+        assertEquals(1, mBatcher.getTransactionCount());
+    }
+
+    public void testReportBurst() {
+        List<String> oneToOneMsgIds = new ArrayList<>();
+        List<String> groupChatMsgIds = new ArrayList<>();
+        for (int i = 0; i < BURST_SIZE; i++) {
+            oneToOneMsgIds.add(addOneToOneMessage("batched", i));
+            groupChatMsgIds.add(addGroupChatMessage("batched", i));
+        }
+        long start = System.nanoTime();
+        replayBatched(oneToOneMsgIds, groupChatMsgIds);
+        long batchedDuration = System.nanoTime() - start;
+        long batchedCommits = mBatcher.getTransactionCount();
+
+        int reportCount = 2 * BURST_SIZE * (GROUP_SIZE + 1);
+        assertEquals(reportCount, mBatcher.getReportCount());
+        assertEquals(reportCount / 2, mBatcher.getCoalescedCount());
+        assertEquals(2, batchedCommits);
+        assertEquals(2 * BURST_SIZE, mCallbackCount);
+        for (int i = 0; i < BURST_SIZE; i++) {
+            assertEquals(Status.DISPLAYED, mOneToOneStates.get(oneToOneMsgIds.get(i)));
+            assertEquals(Status.DISPLAYED, mGroupChatStates.get(groupChatMsgIds.get(i)));
+            assertEquals(GROUP_SIZE, mGroupChatDeliveryInfoCounts.get(groupChatMsgIds.get(i))
+                    .intValue());
+            assertEquals(Status.DISPLAYED, mMessagingLog.getMessageStatus(oneToOneMsgIds.get(i)));
+            assertEquals(Status.DISPLAYED, mMessagingLog.getMessageStatus(groupChatMsgIds.get(i)));
+            assertTrue(mMessagingLog.isDisplayedByAllRecipients(groupChatMsgIds.get(i)));
+        }
+
+        oneToOneMsgIds.clear();
+        groupChatMsgIds.clear();
+        for (int i = 0; i < BURST_SIZE; i++) {
+            oneToOneMsgIds.add(addOneToOneMessage("direct", i));
+            groupChatMsgIds.add(addGroupChatMessage("direct", i));
+        }
+        start = System.nanoTime();
+        long directCommits = replayDirect(oneToOneMsgIds, groupChatMsgIds);
+        long directDuration = System.nanoTime() - start;
+        for (int i = 0; i < BURST_SIZE; i++) {
+            assertEquals(Status.DISPLAYED, mMessagingLog.getMessageStatus(oneToOneMsgIds.get(i)));
+            assertEquals(Status.DISPLAYED, mMessagingLog.getMessageStatus(groupChatMsgIds.get(i)));
+        }
+        if (sLogger.isActivated()) {
+            sLogger.info(new StringBuilder("Applied ").append(reportCount)
+                    .append(" reports in ").append(batchedDuration / 1000000).append(" ms with ")
+                    .append(batchedCommits).append(" commits (")
+                    .append(getCommitRate(batchedCommits, batchedDuration))
+                    .append(" commits/s) when batched, in ")
+                    .append(directDuration / 1000000).append(" ms with ").append(directCommits)
+                    .append(" commits (").append(getCommitRate(directCommits, directDuration))
+                    .append(" commits/s) one report at a time").toString());
+        }
+    }
+
+    private void replayBatched(List<String> oneToOneMsgIds, List<String> groupChatMsgIds) {
+        for (int i = 0; i < BURST_SIZE; i++) {
+            String msgId = groupChatMsgIds.get(i);
+            mBatcher.setOneToOneMessageDelivered(mContact, oneToOneMsgIds.get(i), mTimestamp + 1);
+            for (ContactId recipient : mRecipients) {
+                mBatcher.setGroupChatMessageDelivered(CHAT_ID, recipient, msgId, mTimestamp + 1);
+            }
+        }
+        for (int i = 0; i < BURST_SIZE; i++) {
+            String msgId = groupChatMsgIds.get(i);
+            mBatcher.setOneToOneMessageDisplayed(mContact, oneToOneMsgIds.get(i), mTimestamp + 2);
+            for (ContactId recipient : mRecipients) {
+                mBatcher.setGroupChatMessageDisplayed(CHAT_ID, recipient, msgId, mTimestamp + 2);
+            }
+        }
+        mBatcher.flush();
+    }
+
+    /**
+     * Apply the reports one at a time, as done without batching
+     *
+     * @return Number of commits
+     */
+    private long replayDirect(List<String> oneToOneMsgIds, List<String> groupChatMsgIds) {
+        long commits = 0;
+        for (int i = 0; i < BURST_SIZE; i++) {
+            String msgId = groupChatMsgIds.get(i);
+            mMessagingLog.setChatMessageStatusDelivered(oneToOneMsgIds.get(i), mTimestamp + 1);
+            commits++;
+            for (ContactId recipient : mRecipients) {
+                mMessagingLog.setGroupChatDeliveryInfoDelivered(CHAT_ID, recipient, msgId,
+                        mTimestamp + 1);
+                commits++;
+                if (mMessagingLog.isDeliveredToAllRecipients(msgId)) {
+                    mMessagingLog.setChatMessageStatusDelivered(msgId, mTimestamp + 1);
+                    commits++;
+                }
+            }
+        }
+        for (int i = 0; i < BURST_SIZE; i++) {
+            String msgId = groupChatMsgIds.get(i);
+            mMessagingLog.setChatMessageStatusDisplayed(oneToOneMsgIds.get(i), mTimestamp + 2);
+            commits++;
+            for (ContactId recipient : mRecipients) {
+                mMessagingLog.setGroupChatDeliveryInfoDisplayed(CHAT_ID, recipient, msgId,
+                        mTimestamp + 2);
+                commits++;
+                if (mMessagingLog.isDisplayedByAllRecipients(msgId)) {
+                    mMessagingLog.setChatMessageStatusDisplayed(msgId, mTimestamp + 2);
+                    commits++;
+                }
+            }
+        }
+        return commits;
+    }
+
+    private static long getCommitRate(long commits, long duration) {
+        return duration == 0 ? 0 : commits * 1000000000L / duration;
+    }
+}
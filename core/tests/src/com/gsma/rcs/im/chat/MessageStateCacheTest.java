@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.im.chat;
+
+import com.gsma.rcs.RcsSettingsMock;
+import com.gsma.rcs.core.ims.service.im.chat.ChatMessage;
+import com.gsma.rcs.provider.LocalContentResolver;
+import com.gsma.rcs.provider.messaging.ChatMessagePersistedStorageAccessor;
+import com.gsma.rcs.provider.messaging.MessageData;
+import com.gsma.rcs.provider.messaging.MessageStateCache;
+import com.gsma.rcs.provider.messaging.MessagingLog;
+import com.gsma.rcs.utils.ContactUtilMockContext;
+import com.gsma.rcs.utils.logger.Logger;
+import com.gsma.services.rcs.chat.ChatLog.Message.Content.ReasonCode;
+import com.gsma.services.rcs.chat.ChatLog.Message.Content.Status;
+import com.gsma.services.rcs.chat.ChatLog.Message.MimeType;
+import com.gsma.services.rcs.contact.ContactId;
+import com.gsma.services.rcs.contact.ContactUtil;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class MessageStateCacheTest extends AndroidTestCase {
+
+    private static final int CONVERSATION_SIZE = 1000;
+
+    private static Logger sLogger = Logger.getLogger(MessageStateCacheTest.class.getName());
+
+    private LocalContentResolver mLocalContentResolver;
+
+    private MessagingLog mMessagingLog;
+
+    private ContactId mContact;
+
+    private long mTimestamp;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Context context = getContext();
+        mLocalContentResolver = new LocalContentResolver(context.getContentResolver());
+        mMessagingLog = MessagingLog.getInstance(mLocalContentResolver,
+                RcsSettingsMock.getMockSettings(context));
+        ContactUtil contactUtils = ContactUtil.getInstance(new ContactUtilMockContext(context));
+        mContact = contactUtils.formatContact("+339000000");
+        mTimestamp = System.currentTimeMillis();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        mMessagingLog.deleteAllEntries();
+        RcsSettingsMock.restoreSettings();
+    }
+
+    private String addOutgoingMessage(int index) {
+        String msgId = "msg-state-" + index + "-" + mTimestamp;
+        ChatMessage msg = new ChatMessage(msgId, mContact, "text " + index,
+                MimeType.TEXT_MESSAGE, mTimestamp + index, mTimestamp + index, null);
+        mMessagingLog.addOutgoingOneToOneChatMessage(msg, Status.SENT, ReasonCode.UNSPECIFIED, 0);
+        return msgId;
+    }
+
+    public void testStateWrittenThrough() {
+        String msgId = addOutgoingMessage(0);
+        ChatMessagePersistedStorageAccessor accessor = new ChatMessagePersistedStorageAccessor(
+                mMessagingLog, msgId);
+        assertEquals(Status.SENT, accessor.getStatus());
+        assertFalse(accessor.isExpiredDelivery());
+
+        assertTrue(mMessagingLog.setChatMessageDeliveryExpired(msgId));
+        assertTrue(accessor.isExpiredDelivery());
+        assertTrue(mMessagingLog.setChatMessageStatusDelivered(msgId, mTimestamp));
+        assertEquals(Status.DELIVERED, accessor.getStatus());
+        assertEquals(ReasonCode.UNSPECIFIED, accessor.getReasonCode());
+        assertFalse(accessor.isExpiredDelivery());
+        assertTrue(mMessagingLog.setChatMessageStatusDisplayed(msgId, mTimestamp));
+        assertEquals(Status.DISPLAYED, accessor.getStatus());
+
+        /* A status update filtered out by the provider leaves the cached status unchanged */
+        assertFalse(mMessagingLog.setChatMessageStatusAndReasonCode(msgId, Status.FAILED,
+                ReasonCode.FAILED_SEND));
+        assertEquals(Status.DISPLAYED, accessor.getStatus());
+        assertFalse(mMessagingLog.setChatMessageStatusDelivered(msgId, mTimestamp));
+        assertEquals(Status.DISPLAYED, accessor.getStatus());
+    }
+
+    public void testDeletedStateRemoved() {
+        String msgId = addOutgoingMessage(0);
+        assertEquals(Status.SENT, mMessagingLog.getMessageStatus(msgId));
+        mMessagingLog.deleteChatMessages(Uri.withAppendedPath(MessageData.CONTENT_URI, msgId),
+                null, null, Collections.singleton(msgId));
+        assertNull(mMessagingLog.getMessageStatus(msgId));
+        assertNull(mMessagingLog.getMessageReasonCode(msgId));
+        assertNull(mMessagingLog.isChatMessageExpiredDelivery(msgId));
+    }
+
+    public void testStateLoadedFromProvider() {
+        String msgId = addOutgoingMessage(0);
+        /* Row updated behind the log, as done by a previous process */
+        ContentValues values = new ContentValues();
+        values.put(MessageData.KEY_STATUS, Status.FAILED.toInt());
+        values.put(MessageData.KEY_REASON_CODE, ReasonCode.FAILED_SEND.toInt());
+        mLocalContentResolver.update(Uri.withAppendedPath(MessageData.CONTENT_URI, msgId), values,
+                null, null);
+        mMessagingLog.clearCachedStates();
+        assertEquals(Status.FAILED, mMessagingLog.getMessageStatus(msgId));
+        assertEquals(ReasonCode.FAILED_SEND, mMessagingLog.getMessageReasonCode(msgId));
+    }
+
+    public void testConversationListing() {
+        List<String> msgIds = new ArrayList<>();
+        for (int i = 0; i < CONVERSATION_SIZE; i++) {
+            msgIds.add(addOutgoingMessage(i));
+        }
+        for (int i = 0; i < CONVERSATION_SIZE; i += 2) {
+            mMessagingLog.setChatMessageStatusDelivered(msgIds.get(i), mTimestamp);
+        }
+        /* First listing reads the states from the provider */
+        mMessagingLog.clearCachedStates();
+        long start = System.nanoTime();
+        listConversation(msgIds);
+        long providerDuration = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        listConversation(msgIds);
+        long cacheDuration = System.nanoTime() - start;
+        if (sLogger.isActivated()) {
+            sLogger.info(new StringBuilder("Listed ").append(CONVERSATION_SIZE)
+                    .append(" messages in ").append(providerDuration / 1000000)
+                    .append(" ms from the provider, in ").append(cacheDuration / 1000000)
+                    .append(" ms from the cache").toString());
+        }
+    }
+
+    private void listConversation(List<String> msgIds) {
+        for (int i = 0; i < msgIds.size(); i++) {
+            ChatMessagePersistedStorageAccessor accessor = new ChatMessagePersistedStorageAccessor(
+                    mMessagingLog, msgIds.get(i));
+            assertEquals(i % 2 == 0 ? Status.DELIVERED : Status.SENT, accessor.getStatus());
+            assertEquals(ReasonCode.UNSPECIFIED, accessor.getReasonCode());
+            assertFalse(accessor.isExpiredDelivery());
+        }
+    }
+
+    public void testConcurrentLoadNotCached() {
+        MessageStateCache cache = new MessageStateCache(10);
+        long version = cache.getVersion();
+        /* The row is updated while its previous state is read from the provider */
+        cache.setStateAndReasonCode("1", Status.DELIVERED.toInt(), ReasonCode.UNSPECIFIED.toInt());
+        MessageStateCache.Entry entry = cache.load("1", version, Status.SENT.toInt(),
+                ReasonCode.UNSPECIFIED.toInt(), false);
+        assertEquals(Status.SENT.toInt(), entry.getState());
+        assertNull(cache.get("1"));
+
+        cache.load("1", cache.getVersion(), Status.DELIVERED.toInt(),
+                ReasonCode.UNSPECIFIED.toInt(), false);
+        assertEquals(Status.DELIVERED.toInt(), cache.get("1").getState());
+    }
+
+    public void testLeastRecentlyUsedEvicted() {
+        MessageStateCache cache = new MessageStateCache(2);
+        cache.put("1", Status.SENT.toInt(), ReasonCode.UNSPECIFIED.toInt(), false);
+        cache.put("2", Status.SENT.toInt(), ReasonCode.UNSPECIFIED.toInt(), false);
+        assertNotNull(cache.get("1"));
+        cache.put("3", Status.SENT.toInt(), ReasonCode.UNSPECIFIED.toInt(), false);
+        assertNotNull(cache.get("1"));
+        assertNull(cache.get("2"));
+
+        cache.setExpiredDelivery(Arrays.asList("1", "2"), true);
+        assertTrue(cache.get("1").isExpiredDelivery());
+        assertNull(cache.get("2"));
+        Set<String> ids = new HashSet<>(Arrays.asList("1", "3"));
+        cache.remove(ids);
+        assertNull(cache.get("1"));
+        assertNull(cache.get("3"));
+    }
+}
@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.msrp;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+import com.gsma.rcs.core.ims.network.NetworkException;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpConstants;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpFrameDecoder;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpFrameDecoder.DecodeResult;
+
+import android.test.AndroidTestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.Arrays;
+
+public class MsrpFrameDecoderTest extends AndroidTestCase {
+    // @formatter:off
+    private static final String sSendChunk =
+            "MSRP a786hjs2 SEND\r\n" +
+            "To-Path: msrp://bob.example.com:8888/9di4eae923wzd;tcp\r\n" +
+            "From-Path: msrp://alicepc.example.com:7777/iau39soe2843z;tcp\r\n" +
+            "Message-ID: 87652491\r\n" +
+            "Byte-Range: 1-5/12\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "\r\n" +
+            "Hello\r\n" +
+            "-------a786hjs2+\r\n";
+
+    private static final String sSendChunkWithoutSize =
+            "MSRP a786hjs3 SEND\r\n" +
+            "To-Path: msrp://bob.example.com:8888/9di4eae923wzd;tcp\r\n" +
+            "From-Path: msrp://alicepc.example.com:7777/iau39soe2843z;tcp\r\n" +
+            "Message-ID: 87652491\r\n" +
+            "Byte-Range: 6-*/12\r\n" +
+            "Failure-Report: no\r\n" +
+            "\r\n" +
+            " wo\r\nrld\r\n" +
+            "-------a786hjs3$\r\n";
+
+    private static final String sResponse =
+            "MSRP a786hjs2 200 OK\r\n" +
+            "To-Path: msrp://alicepc.example.com:7777/iau39soe2843z;tcp\r\n" +
+            "From-Path: msrp://bob.example.com:8888/9di4eae923wzd;tcp\r\n" +
+            "-------a786hjs2$\r\n";
+    // @formatter:on
+
+    private static MsrpFrameDecoder createDecoder(String frames, final int readSize) {
+        InputStream source = new ByteArrayInputStream(frames.getBytes(UTF8));
+        InputStream stream = new FilterInputStream(source) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, readSize));
+            }
+        };
+        return new MsrpFrameDecoder(stream);
+    }
+
+    private static String toString(ByteBuffer data) {
+        return new String(data.array(), data.arrayOffset() + data.position(), data.remaining(),
+                UTF8);
+    }
+
+    public void testSendChunkWithByteRange() throws NetworkException {
+        MsrpFrameDecoder decoder = createDecoder(sSendChunk, 4096);
+        assertEquals(DecodeResult.FRAME, decoder.readFrame());
+        assertEquals("a786hjs2", decoder.getTransactionId());
+        assertEquals(MsrpConstants.METHOD_SEND, decoder.getMethod());
+        assertEquals(-1, decoder.getResponseCode());
+        assertEquals(5, decoder.getHeaders().size());
+        assertEquals("87652491", decoder.getHeaders().get(MsrpConstants.HEADER_MESSAGE_ID));
+        assertEquals("text/plain", decoder.getHeaders().get("content-type"));
+        assertEquals(12, decoder.getTotalSize());
+        assertEquals(1, decoder.getFirstByte());
+        assertEquals(MsrpConstants.FLAG_MORE_CHUNK, decoder.getContinuationFlag());
+        assertEquals("Hello", toString(decoder.getData()));
+        assertEquals(sSendChunk, decoder.getFrameAsString());
+        assertEquals(DecodeResult.END_OF_STREAM, decoder.readFrame());
+    }
+
+    public void testSendChunkWithoutSize() throws NetworkException {
+        MsrpFrameDecoder decoder = createDecoder(sSendChunkWithoutSize, 3);
+        assertEquals(DecodeResult.FRAME, decoder.readFrame());
+        assertEquals(" wo\r\nrld", toString(decoder.getData()));
+        assertEquals(12, decoder.getTotalSize());
+        assertEquals(6, decoder.getFirstByte());
+        assertEquals(MsrpConstants.FLAG_LAST_CHUNK, decoder.getContinuationFlag());
+        assertTrue(decoder.getHeaders().isValueEqualsIgnoreCase(
+                MsrpConstants.HEADER_FAILURE_REPORT, "NO"));
+    }
+
+    public void testSuccessiveFrames() throws NetworkException {
+        MsrpFrameDecoder decoder = createDecoder(sSendChunk + sResponse + sSendChunkWithoutSize,
+                7);
+        assertEquals(DecodeResult.FRAME, decoder.readFrame());
+        assertEquals("Hello", toString(decoder.getData()));
+        assertEquals(DecodeResult.FRAME, decoder.readFrame());
+        assertEquals(200, decoder.getResponseCode());
+        assertNull(decoder.getMethod());
+        assertNull(decoder.getData());
+        assertEquals(MsrpConstants.FLAG_LAST_CHUNK, decoder.getContinuationFlag());
+        assertEquals(DecodeResult.FRAME, decoder.readFrame());
+        assertEquals("a786hjs3", decoder.getTransactionId());
+        assertEquals(DecodeResult.END_OF_STREAM, decoder.readFrame());
+    }
+
+    public void testLargeChunk() throws NetworkException {
+        byte[] content = new byte[MsrpConstants.CHUNK_MAX_SIZE];
+        Arrays.fill(content, (byte) 'x');
+        String frame = "MSRP tx1 SEND\r\nByte-Range: 1-" + content.length + "/" + content.length
+                + "\r\n\r\n" + new String(content, UTF8) + "\r\n-------tx1$\r\n";
+        MsrpFrameDecoder decoder = createDecoder(frame, 4096);
+        assertEquals(DecodeResult.FRAME, decoder.readFrame());
+        assertEquals(content.length, decoder.getData().remaining());
+        assertEquals(MsrpConstants.FLAG_LAST_CHUNK, decoder.getContinuationFlag());
+    }
+
+    public void testAnnouncedChunkTooLarge() {
+        byte[] content = new byte[2 * MsrpConstants.CHUNK_MAX_SIZE];
+        Arrays.fill(content, (byte) 'x');
+        String frame = "MSRP tx1 SEND\r\nByte-Range: 1-" + content.length + "/" + content.length
+                + "\r\n\r\n" + new String(content, UTF8) + "\r\n-------tx1$\r\n";
+        MsrpFrameDecoder decoder = createDecoder(frame, 4096);
+        try {
+            decoder.readFrame();
+            fail("The frame exceeds the maximum frame size");
+        } catch (NetworkException e) {
+            /* The connection is failed */
+        }
+    }
+
+    public void testEndLineNeverReceived() {
+        byte[] content = new byte[4 * MsrpConstants.CHUNK_MAX_SIZE];
+        Arrays.fill(content, (byte) 'x');
+        String frame = "MSRP tx1 SEND\r\nByte-Range: 1-*/*\r\n\r\n" + new String(content, UTF8);
+        MsrpFrameDecoder decoder = createDecoder(frame, 4096);
+        try {
+            decoder.readFrame();
+            fail("The frame exceeds the maximum frame size");
+        } catch (NetworkException e) {
+            /* The connection is failed */
+        }
+    }
+
+    public void testEndLineNeverReceivedOnNonBlockingChannel() throws IOException {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        MsrpFrameDecoder decoder = new MsrpFrameDecoder();
+        byte[] content = new byte[4096];
+        Arrays.fill(content, (byte) 'x');
+        try {
+            pipe.sink().write(ByteBuffer.wrap("MSRP tx1 SEND\r\n\r\n".getBytes(UTF8)));
+            for (int sent = 0; sent < 4 * MsrpConstants.CHUNK_MAX_SIZE; sent += content.length) {
+                pipe.sink().write(ByteBuffer.wrap(content));
+                while (decoder.readFrom(pipe.source()) > 0) {
+                    assertEquals(DecodeResult.INCOMPLETE, decoder.readFrame());
+                }
+            }
+            fail("The frame exceeds the maximum frame size");
+        } catch (NetworkException e) {
+            /* The connection is failed */
+        }
+    }
+
+    public void testNonBlockingChannel() throws NetworkException, IOException {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        byte[] frames = (sSendChunk + sSendChunkWithoutSize).getBytes(UTF8);
+        MsrpFrameDecoder decoder = new MsrpFrameDecoder();
+        assertEquals(0, decoder.readFrom(pipe.source()));
+        assertEquals(DecodeResult.INCOMPLETE, decoder.readFrame());
+        int sent = 0;
+        int decoded = 0;
+        while (sent < frames.length) {
+            int length = Math.min(11, frames.length - sent);
+            pipe.sink().write(ByteBuffer.wrap(frames, sent, length));
+            sent += length;
+            decoder.readFrom(pipe.source());
+            DecodeResult result;
+            while ((result = decoder.readFrame()) == DecodeResult.FRAME) {
+                decoded++;
+                if (decoded == 1) {
+                    assertEquals("Hello", toString(decoder.getData()));
+                } else {
+                    assertEquals(" wo\r\nrld", toString(decoder.getData()));
+                }
+            }
+            assertEquals(DecodeResult.INCOMPLETE, result);
+        }
+        assertEquals(2, decoded);
+        pipe.sink().close();
+        assertEquals(-1, decoder.readFrom(pipe.source()));
+    }
+
+    public void testNonBlockingChannelByteSlices() throws NetworkException, IOException {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        byte[] frames = (sSendChunk + sResponse + sSendChunkWithoutSize).getBytes(UTF8);
+        MsrpFrameDecoder decoder = new MsrpFrameDecoder();
+        int decoded = 0;
+        for (int sent = 0; sent < frames.length; sent++) {
+            pipe.sink().write(ByteBuffer.wrap(frames, sent, 1));
+            assertEquals(1, decoder.readFrom(pipe.source()));
+            DecodeResult result = decoder.readFrame();
+            if (DecodeResult.INCOMPLETE == result) {
+                continue;
+            }
+            assertEquals(DecodeResult.FRAME, result);
+            decoded++;
+            if (decoded == 1) {
+                assertEquals(sSendChunk, decoder.getFrameAsString());
+                assertEquals(5, decoder.getHeaders().size());
+                assertEquals("Hello", toString(decoder.getData()));
+            } else if (decoded == 2) {
+                assertEquals(sResponse, decoder.getFrameAsString());
+                assertEquals(200, decoder.getResponseCode());
+            } else {
+                assertEquals(sSendChunkWithoutSize, decoder.getFrameAsString());
+                assertEquals(" wo\r\nrld", toString(decoder.getData()));
+            }
+        }
+        assertEquals(3, decoded);
+        assertEquals(DecodeResult.INCOMPLETE, decoder.readFrame());
+    }
+
+    public void testInterruptedChunkOnNonBlockingChannel() throws NetworkException, IOException {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        /* The chunk is interrupted before the end of the announced Byte-Range */
+        String frame = "MSRP tx2 SEND\r\nByte-Range: 1-10/20\r\n\r\nHello\r\n-------tx2+\r\n";
+        pipe.sink().write(ByteBuffer.wrap(frame.getBytes(UTF8)));
+        MsrpFrameDecoder decoder = new MsrpFrameDecoder();
+        decoder.readFrom(pipe.source());
+        assertEquals(DecodeResult.FRAME, decoder.readFrame());
+        assertEquals("Hello", toString(decoder.getData()));
+        assertEquals(MsrpConstants.FLAG_MORE_CHUNK, decoder.getContinuationFlag());
+    }
+
+    public void testNotMsrp() throws NetworkException {
+        MsrpFrameDecoder decoder = createDecoder("HTTP/1.1 200 OK\r\n\r\n", 4096);
+        assertEquals(DecodeResult.NOT_MSRP, decoder.readFrame());
+    }
+}
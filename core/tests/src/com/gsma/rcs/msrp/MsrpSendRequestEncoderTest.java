@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.msrp;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+import com.gsma.rcs.core.ims.network.NetworkException;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpChunkSizeController;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpConstants;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpFrameDecoder;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpFrameDecoder.DecodeResult;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpSendBuffer;
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpSendRequestEncoder;
+
+import android.test.AndroidTestCase;
+
+import java.io.ByteArrayInputStream;
+
+public class MsrpSendRequestEncoderTest extends AndroidTestCase {
+    // @formatter:off
+    private static final String sSendChunk =
+            "MSRP a786hjs2 SEND\r\n" +
+            "To-Path: msrp://bob.example.com:8888/9di4eae923wzd;tcp\r\n" +
+            "From-Path: msrp://alicepc.example.com:7777/iau39soe2843z;tcp\r\n" +
+            "Message-ID: 87652491\r\n" +
+            "Byte-Range: 1-5/12\r\n" +
+            "Failure-Report: yes\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "\r\n" +
+            "Hello\r\n" +
+            "-------a786hjs2+\r\n";
+    // @formatter:on
+
+    private static MsrpSendRequestEncoder createEncoder() {
+        return new MsrpSendRequestEncoder("msrp://bob.example.com:8888/9di4eae923wzd;tcp",
+                "msrp://alicepc.example.com:7777/iau39soe2843z;tcp", "87652491", "text/plain",
+                true, false);
+    }
+
+    private static MsrpSendBuffer encode(MsrpSendRequestEncoder encoder,
+            MsrpSendBuffer.Pool pool, String txId, String data, long firstByte, long totalSize) {
+        byte[] bytes = data.getBytes(UTF8);
+        MsrpSendBuffer buffer = pool.acquire(encoder.getBufferCapacity(bytes.length));
+        System.arraycopy(bytes, 0, buffer.getData(), encoder.getHeaderReserve(), bytes.length);
+        encoder.encode(buffer, txId, bytes.length, firstByte, firstByte + bytes.length - 1,
+                totalSize);
+        return buffer;
+    }
+
+    public void testEncodeChunk() {
+        MsrpSendBuffer buffer = encode(createEncoder(), new MsrpSendBuffer.Pool(), "a786hjs2",
+                "Hello", 1, 12);
+        assertEquals(sSendChunk, buffer.toString());
+        assertEquals(sSendChunk.length(), buffer.getByteBuffer().remaining());
+    }
+
+    public void testEncodedChunksDecoded() throws NetworkException {
+        MsrpSendRequestEncoder encoder = createEncoder();
+        MsrpSendBuffer.Pool pool = new MsrpSendBuffer.Pool();
+        StringBuilder frames = new StringBuilder();
+        MsrpSendBuffer buffer = encode(encoder, pool, "tx1", "Hello", 1, 10000000000L);
+        frames.append(buffer);
+        buffer.release();
+        buffer = encode(encoder, pool, "tx2", " world", 9999999995L, 10000000000L);
+        frames.append(buffer);
+        MsrpFrameDecoder decoder = new MsrpFrameDecoder(new ByteArrayInputStream(frames
+                .toString().getBytes(UTF8)));
+        assertEquals(DecodeResult.FRAME, decoder.readFrame());
+        assertEquals("tx1", decoder.getTransactionId());
+        assertEquals(MsrpConstants.FLAG_MORE_CHUNK, decoder.getContinuationFlag());
+        assertEquals(DecodeResult.FRAME, decoder.readFrame());
+        assertEquals("tx2", decoder.getTransactionId());
+        assertEquals(9999999995L, decoder.getFirstByte());
+        assertEquals(10000000000L, decoder.getTotalSize());
+        assertEquals(MsrpConstants.FLAG_LAST_CHUNK, decoder.getContinuationFlag());
+        assertEquals(DecodeResult.END_OF_STREAM, decoder.readFrame());
+    }
+
+    public void testBufferReused() {
+        MsrpSendRequestEncoder encoder = createEncoder();
+        MsrpSendBuffer.Pool pool = new MsrpSendBuffer.Pool();
+        MsrpSendBuffer buffer = encode(encoder, pool, "tx1", "Hello", 1, 12);
+        buffer.release();
+        assertSame(buffer, pool.acquire(encoder.getBufferCapacity(5)));
+        buffer.release();
+        assertNotSame(buffer, pool.acquire(encoder.getBufferCapacity(1024)));
+    }
+
+    public void testChunkSizeAdaptation() {
+        MsrpChunkSizeController controller = new MsrpChunkSizeController(10240, 65536);
+        controller.onChunkAcknowledged(50, 0);
+        assertEquals(12800, controller.getChunkSize());
+        for (int i = 0; i < 20; i++) {
+            controller.onChunkAcknowledged(50, 0);
+        }
+        assertEquals(65536, controller.getChunkSize());
+        controller.onChunkAcknowledged(50, 3 * 65536);
+        assertEquals(32768, controller.getChunkSize());
+        for (int i = 0; i < 20; i++) {
+            controller.onChunkAcknowledged(1000, 0);
+        }
+        assertEquals(MsrpChunkSizeController.MIN_CHUNK_SIZE, controller.getChunkSize());
+    }
+}
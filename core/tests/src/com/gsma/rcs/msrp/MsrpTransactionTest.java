@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.msrp;
+
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpTransaction;
+
+import android.test.AndroidTestCase;
+
+public class MsrpTransactionTest extends AndroidTestCase {
+
+    public void testSendWindow() throws InterruptedException {
+        final MsrpTransaction transaction = new MsrpTransaction(2);
+        assertTrue(transaction.handleRequest("tx1", 10));
+        assertTrue(transaction.handleRequest("tx2", 20));
+        Thread sender = new Thread() {
+            @Override
+            public void run() {
+                transaction.handleRequest("tx3", 30);
+            }
+        };
+        sender.start();
+        sender.join(200);
+        /* Window is full: the sender is blocked until a response is received */
+        assertTrue(sender.isAlive());
+        assertFalse(transaction.handleResponse("unknown", 200));
+        assertTrue(transaction.handleResponse("tx2", 200));
+        sender.join(1000);
+        assertFalse(sender.isAlive());
+        assertEquals(20, transaction.getAcknowledgedSize());
+        assertFalse(transaction.isAllResponsesReceived());
+        assertTrue(transaction.handleResponse("tx1", 200));
+        assertTrue(transaction.handleResponse("tx3", 200));
+        transaction.waitAllResponses();
+        assertTrue(transaction.isAllResponsesReceived());
+        assertEquals(60, transaction.getAcknowledgedSize());
+        assertFalse(transaction.isTimedOut());
+    }
+
+    public void testErrorResponse() {
+        MsrpTransaction transaction = new MsrpTransaction(4);
+        assertTrue(transaction.handleRequest("tx1", 10));
+        assertTrue(transaction.handleRequest("tx2", 10));
+        assertTrue(transaction.handleResponse("tx1", 413));
+        assertFalse(transaction.handleRequest("tx3", 10));
+        transaction.waitAllResponses();
+        assertFalse(transaction.isAllResponsesReceived());
+        assertEquals(0, transaction.getAcknowledgedSize());
+    }
+
+    public void testTerminate() {
+        MsrpTransaction transaction = new MsrpTransaction(1);
+        assertTrue(transaction.handleRequest("tx1", 10));
+        transaction.terminate();
+        assertFalse(transaction.handleRequest("tx2", 10));
+        assertTrue(transaction.isTerminated());
+    }
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.msrp;
+
+import com.gsma.rcs.core.ims.protocol.msrp.MsrpUtils;
+
+import android.test.AndroidTestCase;
+
+public class MsrpUtilsTest extends AndroidTestCase {
+
+    public void testGetSessionId() {
+        assertEquals("9di4eae923wzd",
+                MsrpUtils.getSessionId("msrp://bob.example.com:8888/9di4eae923wzd;tcp"));
+        assertEquals("1428946395123",
+                MsrpUtils.getSessionId("msrp://[2001:db8::1]:20000/1428946395123"));
+        assertEquals("kjhd37s2s20w2a", MsrpUtils.getSessionId("msrps://relay.example.com:2855/"
+                + "hjdhfha;tcp msrp://alice.example.com:7777/kjhd37s2s20w2a;tcp "));
+        assertNull(MsrpUtils.getSessionId(null));
+        assertNull(MsrpUtils.getSessionId("invalid"));
+    }
+}
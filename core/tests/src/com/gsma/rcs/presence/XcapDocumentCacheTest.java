@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.presence;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+import com.gsma.rcs.core.ims.protocol.http.HttpResponse;
+import com.gsma.rcs.core.ims.protocol.http.PersistentHttpClient;
+import com.gsma.rcs.core.ims.service.presence.xdm.XcapDocumentCache;
+import com.gsma.rcs.http.PlainSocketConnection;
+import com.gsma.rcs.platform.network.SocketConnection;
+
+import android.test.AndroidTestCase;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class XcapDocumentCacheTest extends AndroidTestCase {
+
+    private static final String DOCUMENT = "http://xdms.com/resource-lists/users/"
+            + "sip:me@domain.com/index";
+
+    private static final String GRANTED_LIST = DOCUMENT
+            + "/~~/resource-lists/list%5B@name=%22rcs%22%5D";
+
+    private static final String BLOCKED_LIST = DOCUMENT
+            + "/~~/resource-lists/list%5B@name=%22rcs_blockedcontacts%22%5D";
+
+    private static final String PRES_RULES = "http://xdms.com/org.openmobilealliance.pres-rules/"
+            + "users/sip:me@domain.com/pres-rules";
+
+    private File mFile;
+
+    private XcapDocumentCache mCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mFile = new File(System.getProperty("java.io.tmpdir"), "xcap_cache_test");
+        mFile.delete();
+        mCache = new XcapDocumentCache(mFile);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mFile.delete();
+        super.tearDown();
+    }
+
+    public void testPersisted() {
+        mCache.put(GRANTED_LIST, "etag1", Arrays.asList("tel:+33612345678", "tel:+33687654321"));
+        XcapDocumentCache.Entry entry = new XcapDocumentCache(mFile).get(GRANTED_LIST);
+        assertEquals("etag1", entry.getEtag());
+        assertEquals(Arrays.asList("tel:+33612345678", "tel:+33687654321"), entry.getUris());
+        assertNull(new XcapDocumentCache(mFile).get(BLOCKED_LIST));
+    }
+
+    public void testChangeApplied() {
+        mCache.put(GRANTED_LIST, "etag1", Arrays.asList("tel:+33612345678"));
+        mCache.put(BLOCKED_LIST, "etag1", Arrays.asList("tel:+33600000000"));
+        mCache.put(PRES_RULES, "rules1", Collections.<String> emptyList());
+        mCache.applyChange(GRANTED_LIST, "etag1", "etag2", "+33687654321", null);
+        XcapDocumentCache cache = new XcapDocumentCache(mFile);
+        assertEquals("etag2", cache.get(GRANTED_LIST).getEtag());
+        assertEquals(Arrays.asList("tel:+33612345678", "+33687654321"), cache.get(GRANTED_LIST)
+                .getUris());
+        /* The other lists of the document are unchanged at the new ETag */
+        assertEquals("etag2", cache.get(BLOCKED_LIST).getEtag());
+        assertEquals(Arrays.asList("tel:+33600000000"), cache.get(BLOCKED_LIST).getUris());
+        assertEquals("rules1", cache.get(PRES_RULES).getEtag());
+
+        mCache.applyChange(BLOCKED_LIST, "etag2", "etag3", null,
+                Collections.singleton("tel:+33600000000"));
+        assertTrue(mCache.get(BLOCKED_LIST).getUris().isEmpty());
+        assertEquals("etag3", mCache.get(GRANTED_LIST).getEtag());
+    }
+
+    public void testChangeOnStaleDocument() {
+        mCache.put(GRANTED_LIST, "etag1", Arrays.asList("tel:+33612345678"));
+        mCache.put(PRES_RULES, "rules1", Collections.<String> emptyList());
+        /* The document was changed by another client since it was read */
+        mCache.applyChange(GRANTED_LIST, "etag5", "etag6", "+33687654321", null);
+        assertNull(mCache.get(GRANTED_LIST));
+        assertNotNull(mCache.get(PRES_RULES));
+    }
+
+    public void testInvalidate() {
+        mCache.put(GRANTED_LIST, "etag1", Arrays.asList("tel:+33612345678"));
+        mCache.put(BLOCKED_LIST, "etag1", Collections.<String> emptyList());
+        mCache.put(PRES_RULES, "rules1", Collections.<String> emptyList());
+        mCache.invalidate(DOCUMENT);
+        assertNull(mCache.get(GRANTED_LIST));
+        assertNull(mCache.get(BLOCKED_LIST));
+        assertNotNull(new XcapDocumentCache(mFile).get(PRES_RULES));
+    }
+
+    public void testNotModifiedListReused() throws Exception {
+        StandInXcapServer server = new StandInXcapServer();
+        server.start();
+        PersistentHttpClient client = new PersistentHttpClient("127.0.0.1", server.getPort(),
+                new PersistentHttpClient.IConnectionFactory() {
+                    @Override
+                    public SocketConnection createConnection() {
+                        return new PlainSocketConnection();
+                    }
+                }, 1, 30000);
+        try {
+            assertEquals("<list>1</list>", getList(client));
+            assertEquals("<list>1</list>", getList(client));
+            assertEquals("<list>1</list>", getList(client));
+            assertEquals(1, server.getFullResponseCount());
+            assertEquals(2, server.getNotModifiedResponseCount());
+
+            server.setList("<list>2</list>");
+            assertEquals("<list>2</list>", getList(client));
+            assertEquals("<list>2</list>", getList(client));
+            assertEquals(2, server.getFullResponseCount());
+            assertEquals(3, server.getNotModifiedResponseCount());
+
+        } finally {
+            client.close();
+            server.stop();
+        }
+    }
+
+    /**
+     * Conditional GET of the granted list, the list content being cached as a single URI
+     */
+    private String getList(PersistentHttpClient client) throws Exception {
+        XcapDocumentCache.Entry entry = mCache.get(GRANTED_LIST);
+        String headers = entry == null ? null : "If-None-Match: \"" + entry.getEtag() + "\"\r\n";
+        HttpResponse response = client.execute(new PersistentHttpClient.Request("GET",
+                GRANTED_LIST, headers, null));
+        if (response.getResponseCode() == 304) {
+            return entry.getUris().get(0);
+        }
+        assertEquals(200, response.getResponseCode());
+        String etag = response.getHeader("etag");
+        String list = new String(response.getContent(), UTF8);
+        mCache.put(GRANTED_LIST, etag.substring(1, etag.length() - 1),
+                Collections.singletonList(list));
+        return list;
+    }
+
+    /**
+     * Stand-in XCAP server serving a single list with its ETag
+     */
+    private static class StandInXcapServer {
+
+        private final ServerSocket mServerSocket;
+
+        private final AtomicInteger mFullResponseCount = new AtomicInteger();
+
+        private final AtomicInteger mNotModifiedResponseCount = new AtomicInteger();
+
+        private volatile String mList = "<list>1</list>";
+
+        private volatile int mEtag = 1;
+
+        private StandInXcapServer() throws IOException {
+            mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        }
+
+        private int getPort() {
+            return mServerSocket.getLocalPort();
+        }
+
+        private int getFullResponseCount() {
+            return mFullResponseCount.get();
+        }
+
+        private int getNotModifiedResponseCount() {
+            return mNotModifiedResponseCount.get();
+        }
+
+        private void setList(String list) {
+            mList = list;
+            mEtag++;
+        }
+
+        private void start() {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            serve(mServerSocket.accept());
+                        }
+                    } catch (IOException e) {
+                        /* Server socket closed */
+                    }
+                }
+            }.start();
+        }
+
+        private void stop() throws IOException {
+            mServerSocket.close();
+        }
+
+        private void serve(Socket socket) {
+            try {
+                InputStream input = new BufferedInputStream(socket.getInputStream());
+                OutputStream output = socket.getOutputStream();
+                while (readLine(input) != null) {
+                    String ifNoneMatch = null;
+                    String line;
+                    while ((line = readLine(input)) != null && !line.isEmpty()) {
+                        if (line.toLowerCase().startsWith("if-none-match:")) {
+                            ifNoneMatch = line.substring(line.indexOf(':') + 1).trim();
+                        }
+                    }
+                    String etag = "\"xcap-" + mEtag + "\"";
+                    if (etag.equals(ifNoneMatch)) {
+                        mNotModifiedResponseCount.incrementAndGet();
+                        output.write(("HTTP/1.1 304 Not Modified\r\nETag: " + etag + "\r\n\r\n")
+                                .getBytes(UTF8));
+                    } else {
+                        mFullResponseCount.incrementAndGet();
+                        byte[] content = mList.getBytes(UTF8);
+                        output.write(("HTTP/1.1 200 OK\r\nETag: " + etag
+                                + "\r\nContent-Type: application/xcap-el+xml\r\nContent-Length: "
+                                + content.length + "\r\n\r\n").getBytes(UTF8));
+                        output.write(content);
+                    }
+                    output.flush();
+                }
+            } catch (IOException e) {
+                /* Connection closed */
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    /* Nothing to do */
+                }
+            }
+        }
+
+        private static String readLine(InputStream input) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int ch;
+            while ((ch = input.read()) != -1) {
+                if (ch == '\n') {
+                    return line.toString().trim();
+                }
+                line.append((char) ch);
+            }
+            return null;
+        }
+    }
+}
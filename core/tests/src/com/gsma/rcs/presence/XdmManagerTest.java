@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.presence;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+import com.gsma.rcs.RcsSettingsMock;
+import com.gsma.rcs.core.ims.ImsModule;
+import com.gsma.rcs.core.ims.service.presence.xdm.XdmManager;
+import com.gsma.rcs.core.ims.userprofile.UserProfile;
+import com.gsma.rcs.platform.AndroidFactory;
+import com.gsma.rcs.platform.network.NetworkFactory;
+import com.gsma.rcs.provider.settings.RcsSettings;
+import com.gsma.rcs.utils.ContactUtilMockContext;
+import com.gsma.rcs.utils.PhoneUtils;
+import com.gsma.services.rcs.contact.ContactId;
+import com.gsma.services.rcs.contact.ContactUtil;
+
+import android.content.Context;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class XdmManagerTest extends AndroidTestCase {
+
+    private StandInXdmServer mServer;
+
+    private XdmManager mXdmManager;
+
+    private ContactId mContact;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Context context = getContext();
+        RcsSettings rcsSettings = RcsSettingsMock.getMockSettings(context);
+        AndroidFactory.setApplicationContext(context, rcsSettings);
+        PhoneUtils.initialize(rcsSettings);
+        NetworkFactory.loadFactory("com.gsma.rcs.platform.network.AndroidNetworkFactory",
+                rcsSettings);
+        ContactUtil contactUtil = ContactUtil.getInstance(new ContactUtilMockContext(context));
+        mContact = contactUtil.formatContact("+33612345678");
+        mServer = new StandInXdmServer();
+        mServer.start();
+        ImsModule.setImsUserProfile(new UserProfile(contactUtil.formatContact("+339000000"),
+                "homeDomain", "privateID", "password", "realm", Uri.parse("http://127.0.0.1:"
+                        + mServer.getPort()), "xdmServerLogin", "xdmServerPassword",
+                Uri.parse("sip:imConferenceUri"), rcsSettings));
+        new File(context.getFilesDir(), "xcap_cache").delete();
+        mXdmManager = new XdmManager(context);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mXdmManager.terminate();
+        mServer.stop();
+        new File(getContext().getFilesDir(), "xcap_cache").delete();
+        RcsSettingsMock.restoreSettings();
+        super.tearDown();
+    }
+
+    public void testContactAddedThenRemoved() throws Exception {
+        mXdmManager.initialize();
+        assertTrue(mXdmManager.getGrantedContacts().isEmpty());
+        assertEquals(1, mServer.getFullResponseCount());
+
+        assertTrue(mXdmManager.addContactToGrantedList(mContact).isSuccessfullResponse());
+        assertEquals(Collections.singleton(mContact), mXdmManager.getGrantedContacts());
+
+        /* The entry is removed by a URI form other than the one it was added with */
+        assertTrue(mXdmManager.removeContactFromGrantedList(mContact).isSuccessfullResponse());
+        assertTrue(mXdmManager.getGrantedContacts().isEmpty());
+
+        /* The lists were kept up to date from the changes of this client */
+        assertEquals(1, mServer.getFullResponseCount());
+        assertEquals(2, mServer.getNotModifiedResponseCount());
+    }
+
+    /**
+     * Stand-in XDM server serving the directory and the granted list of a resource-lists document
+     */
+    private static class StandInXdmServer {
+
+        private static final String ENTRY_SELECTOR = "/entry[@uri=\"";
+
+        private final ServerSocket mServerSocket;
+
+        private final AtomicInteger mFullResponseCount = new AtomicInteger();
+
+        private final AtomicInteger mNotModifiedResponseCount = new AtomicInteger();
+
+        private final List<String> mEntries = new ArrayList<>();
+
+        private int mEtag = 1;
+
+        private StandInXdmServer() throws IOException {
+            mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        }
+
+        private int getPort() {
+            return mServerSocket.getLocalPort();
+        }
+
+        private int getFullResponseCount() {
+            return mFullResponseCount.get();
+        }
+
+        private int getNotModifiedResponseCount() {
+            return mNotModifiedResponseCount.get();
+        }
+
+        private void start() {
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            serve(mServerSocket.accept());
+                        }
+                    } catch (IOException e) {
+                        /* Server socket closed */
+                    }
+                }
+            }.start();
+        }
+
+        private void stop() throws IOException {
+            mServerSocket.close();
+        }
+
+        private void serve(Socket socket) {
+            try {
+                InputStream input = new BufferedInputStream(socket.getInputStream());
+                OutputStream output = socket.getOutputStream();
+                String requestLine;
+                while ((requestLine = readLine(input)) != null) {
+                    String[] parts = requestLine.split(" ");
+                    String ifNoneMatch = null;
+                    String ifMatch = null;
+                    int contentLength = 0;
+                    String line;
+                    while ((line = readLine(input)) != null && !line.isEmpty()) {
+                        String name = line.substring(0, line.indexOf(':')).toLowerCase();
+                        String value = line.substring(line.indexOf(':') + 1).trim();
+                        if ("if-none-match".equals(name)) {
+                            ifNoneMatch = value;
+                        } else if ("if-match".equals(name)) {
+                            ifMatch = value;
+                        } else if ("content-length".equals(name)) {
+                            contentLength = Integer.parseInt(value);
+                        }
+                    }
+                    byte[] body = new byte[contentLength];
+                    for (int read = 0; read < contentLength;) {
+                        read += input.read(body, read, contentLength - read);
+                    }
+                    String response = handle(parts[0], URLDecoder.decode(parts[1], "UTF-8"),
+                            ifNoneMatch, ifMatch, new String(body, UTF8));
+                    output.write(response.getBytes(UTF8));
+                    output.flush();
+                }
+            } catch (IOException e) {
+                /* Connection closed */
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    /* Nothing to do */
+                }
+            }
+        }
+
+        private synchronized String handle(String method, String path, String ifNoneMatch,
+                String ifMatch, String body) {
+            String etag = "\"xcap-" + mEtag + "\"";
+            if (path.contains("xcap-directory")) {
+                return createResponse("200 OK", null, "<?xml version=\"1.0\"?>"
+                        + "<xcap-directory xmlns=\"urn:oma:xml:xdm:xcap-directory\">"
+                        + createFolder("rls-services") + createFolder("resource-lists")
+                        + createFolder("org.openmobilealliance.pres-rules")
+                        + "</xcap-directory>");
+            }
+            if (ifMatch != null && !etag.equals(ifMatch)) {
+                return createResponse("412 Precondition Failed", null, "");
+            }
+            if ("GET".equals(method)) {
+                if (etag.equals(ifNoneMatch)) {
+                    mNotModifiedResponseCount.incrementAndGet();
+                    return createResponse("304 Not Modified", etag, null);
+                }
+                mFullResponseCount.incrementAndGet();
+                StringBuilder list = new StringBuilder("<?xml version=\"1.0\"?><list name=\"rcs\""
+                        + " xmlns=\"urn:ietf:params:xml:ns:resource-lists\">");
+                for (String entry : mEntries) {
+                    list.append("<entry uri=\"").append(entry).append("\"/>");
+                }
+                return createResponse("200 OK", etag, list.append("</list>").toString());
+            }
+            /* The entry added with its own URI form, removed by the URI of the entry selector */
+            if ("PUT".equals(method)) {
+                int start = body.indexOf("uri='") + 5;
+                mEntries.add(body.substring(start, body.indexOf('\'', start)));
+            } else {
+                int start = path.indexOf(ENTRY_SELECTOR) + ENTRY_SELECTOR.length();
+                String number = getNumber(path.substring(start, path.indexOf('"', start)));
+                Iterator<String> iterator = mEntries.iterator();
+                while (iterator.hasNext()) {
+                    if (number.equals(getNumber(iterator.next()))) {
+                        iterator.remove();
+                    }
+                }
+            }
+            mEtag++;
+            return createResponse("200 OK", "\"xcap-" + mEtag + "\"", "");
+        }
+
+        private String createFolder(String auid) {
+            return "<folder auid=\"" + auid + "\"><entry uri=\"http://127.0.0.1/" + auid
+                    + "/index\" etag=\"xcap-" + mEtag + "\"/></folder>";
+        }
+
+        private static String getNumber(String uri) {
+            return uri.replaceFirst("^(tel|sip):", "").replaceFirst("[@;].*$", "");
+        }
+
+        private static String createResponse(String status, String etag, String content) {
+            StringBuilder response = new StringBuilder("HTTP/1.1 ").append(status).append("\r\n");
+            if (etag != null) {
+                response.append("ETag: ").append(etag).append("\r\n");
+            }
+            byte[] bytes = content == null ? new byte[0] : content.getBytes(UTF8);
+            return response.append("Content-Length: ").append(bytes.length).append("\r\n\r\n")
+                    .append(content == null ? "" : content).toString();
+        }
+
+        private static String readLine(InputStream input) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int ch;
+            while ((ch = input.read()) != -1) {
+                if (ch == '\n') {
+                    return line.toString().trim();
+                }
+                line.append((char) ch);
+            }
+            return null;
+        }
+    }
+}
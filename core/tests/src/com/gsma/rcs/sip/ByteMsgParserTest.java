@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.sip;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+import gov2.nist.javax2.sip.message.SIPMessage;
+import gov2.nist.javax2.sip.parser.ByteMsgParser;
+import gov2.nist.javax2.sip.parser.StringMsgParser;
+
+import android.test.AndroidTestCase;
+
+import java.text.ParseException;
+
+public class ByteMsgParserTest extends AndroidTestCase {
+    // @formatter:off
+    private static final String sRegister =
+            "REGISTER sip:ims.mnc001.mcc208.3gppnetwork.org SIP/2.0\r\n" +
+            "Via: SIP/2.0/UDP 10.0.2.15:5062;branch=z9hG4bK1a2b3c;rport\r\n" +
+            "Max-Forwards: 70\r\n" +
+            "From: <sip:+33601020304@ims.mnc001.mcc208.3gppnetwork.org>;tag=1234\r\n" +
+            "To: <sip:+33601020304@ims.mnc001.mcc208.3gppnetwork.org>\r\n" +
+            "Call-ID: a84b4c76e66710@10.0.2.15\r\n" +
+            "CSeq: 1 REGISTER\r\n" +
+            "Contact: <sip:10.0.2.15:5062;transport=udp>;+g.oma.sip-im;expires=600000;\r\n" +
+            " +sip.instance=\"<urn:gsma:imei:35824005-944763-1>\"\r\n" +
+            "Supported: path, gruu\r\n" +
+            "Authorization: Digest username=\"208011234567890@ims.mnc001.mcc208.3gppnetwork.org\"," +
+            "uri=\"sip:ims.mnc001.mcc208.3gppnetwork.org\",nonce=\"\",response=\"\"," +
+            "realm=\"ims.mnc001.mcc208.3gppnetwork.org\"\r\n" +
+            "User-Agent: IM-client/OMA1.0 Orange-RCS/1.6\r\n" +
+            "Content-Length: 0\r\n" +
+            "\r\n";
+
+    private static final String sRegisterOk =
+            "SIP/2.0 200 OK\r\n" +
+            "Via: SIP/2.0/UDP 10.0.2.15:5062;branch=z9hG4bK1a2b3c;rport=5062;received=10.0.2.15\r\n" +
+            "From: <sip:+33601020304@ims.mnc001.mcc208.3gppnetwork.org>;tag=1234\r\n" +
+            "To: <sip:+33601020304@ims.mnc001.mcc208.3gppnetwork.org>;tag=9fxced76sl\r\n" +
+            "Call-ID: a84b4c76e66710@10.0.2.15\r\n" +
+            "CSeq: 1 REGISTER\r\n" +
+            "Service-Route: <sip:orig@scscf.ims.mnc001.mcc208.3gppnetwork.org;lr>\r\n" +
+            "P-Associated-URI: <sip:+33601020304@ims.mnc001.mcc208.3gppnetwork.org>," +
+            "<tel:+33601020304>\r\n" +
+            "Contact: <sip:10.0.2.15:5062;transport=udp>;expires=600000\r\n" +
+            "l: 0\r\n" +
+            "\r\n";
+
+    private static final String sMessage =
+            "MESSAGE sip:+33601020305@ims.mnc001.mcc208.3gppnetwork.org SIP/2.0\r\n" +
+            "v: SIP/2.0/UDP 10.0.2.15:5062;branch=z9hG4bK776asdhds\r\n" +
+            "Max-Forwards: 70\r\n" +
+            "f: \"André\" <sip:+33601020304@ims.mnc001.mcc208.3gppnetwork.org>;tag=49583\r\n" +
+            "t: <sip:+33601020305@ims.mnc001.mcc208.3gppnetwork.org>\r\n" +
+            "i: asd88asd77a@10.0.2.15\r\n" +
+            "CSeq: 1 MESSAGE\r\n" +
+            "P-Preferred-Identity: <tel:+33601020304>\r\n" +
+            "c: text/plain\r\n" +
+            "l: 16\r\n" +
+            "\r\n" +
+            "Hello, résumé!";
+
+    private static final String sNotify =
+            "NOTIFY sip:10.0.2.15:5062 SIP/2.0\r\n" +
+            "Via: SIP/2.0/UDP 192.168.1.1:5060;branch=z9hG4bKnashds7\r\n" +
+            "From: <sip:+33601020304@ims.mnc001.mcc208.3gppnetwork.org>;tag=ffd2\r\n" +
+            "To: <sip:+33601020304@ims.mnc001.mcc208.3gppnetwork.org>;tag=31415\r\n" +
+            "Call-ID: 7a9f2f0d@10.0.2.15\r\n" +
+            "CSeq: 2 NOTIFY\r\n" +
+            "Event: presence\r\n" +
+            "Subscription-State: active;expires=3600\r\n" +
+            "X-Unknown-Header:   folded   \r\n" +
+            "\t value\r\n" +
+            "Content-Type: application/pidf+xml\r\n" +
+            "Content-Length: 5\r\n" +
+            "\r\n" +
+            "<xml>";
+    // @formatter:on
+
+    private static void assertSameParsing(String message) throws ParseException {
+        byte[] bytes = message.getBytes(UTF8);
+        SIPMessage expected = new StringMsgParser().parseSIPMessage(bytes);
+        SIPMessage actual = new ByteMsgParser().parseSIPMessage(bytes);
+        assertEquals(expected.encode(), actual.encode());
+        assertEquals(expected.getSize(), actual.getSize());
+    }
+
+    public void testRegister() throws ParseException {
+        assertSameParsing(sRegister);
+        assertSameParsing(sRegisterOk);
+    }
+
+    public void testMessageWithUtf8Content() throws ParseException {
+        assertSameParsing(sMessage);
+        SIPMessage message = new ByteMsgParser().parseSIPMessage(sMessage.getBytes(UTF8));
+        assertEquals("Hello, résumé!", new String(message.getRawContent(), UTF8));
+    }
+
+    public void testFoldedHeader() throws ParseException {
+        assertSameParsing(sNotify);
+        SIPMessage message = new ByteMsgParser().parseSIPMessage(sNotify.getBytes(UTF8));
+        assertEquals("X-Unknown-Header: folded value", message.getHeader("X-Unknown-Header")
+                .toString().trim());
+    }
+
+    public void testMessageInBuffer() throws ParseException {
+        byte[] message = sRegisterOk.getBytes(UTF8);
+        byte[] buffer = new byte[message.length + 10];
+        System.arraycopy(message, 0, buffer, 5, message.length);
+        SIPMessage parsed = new ByteMsgParser().parseSIPMessage(buffer, 5, message.length);
+        assertEquals(new StringMsgParser().parseSIPMessage(message).encode(), parsed.encode());
+    }
+
+    public void testControlCharactersOnly() throws ParseException {
+        assertNull(new ByteMsgParser().parseSIPMessage("\r\n\r\n".getBytes(UTF8)));
+    }
+}
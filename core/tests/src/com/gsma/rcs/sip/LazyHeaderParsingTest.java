@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.sip;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+import gov2.nist.javax2.sip.header.SIPHeader;
+import gov2.nist.javax2.sip.message.SIPMessage;
+import gov2.nist.javax2.sip.message.SIPRequest;
+import gov2.nist.javax2.sip.parser.ByteMsgParser;
+import gov2.nist.javax2.sip.parser.StringMsgParser;
+
+import android.test.AndroidTestCase;
+
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.ListIterator;
+
+public class LazyHeaderParsingTest extends AndroidTestCase {
+    // @formatter:off
+    private static final String sInvite =
+            "INVITE sip:+33601020305@10.0.2.15:5062;transport=udp SIP/2.0\r\n" +
+            "Via: SIP/2.0/UDP 192.168.1.1:5060;branch=z9hG4bK74bf9\r\n" +
+            "Record-Route: <sip:pcscf.ims.mnc001.mcc208.3gppnetwork.org;lr>\r\n" +
+            "Record-Route: <sip:scscf.ims.mnc001.mcc208.3gppnetwork.org;lr>\r\n" +
+            "Max-Forwards: 68\r\n" +
+            "From: <sip:+33601020304@ims.mnc001.mcc208.3gppnetwork.org>;tag=9fxced76sl\r\n" +
+            "To: <sip:+33601020305@ims.mnc001.mcc208.3gppnetwork.org>\r\n" +
+            "Call-ID: 3848276298220188511@192.168.1.1\r\n" +
+            "CSeq: 1 INVITE\r\n" +
+            "P-Asserted-Identity: <sip:+33601020304@ims.mnc001.mcc208.3gppnetwork.org>\r\n" +
+            "P-Asserted-Identity: <tel:+33601020304>\r\n" +
+            "Contact: <sip:192.168.1.1:5060>;+g.oma.sip-im\r\n" +
+            "Accept-Contact: *;+g.oma.sip-im;explicit\r\n" +
+            "Supported: timer\r\n" +
+            "Expires: never\r\n" +
+            "Content-Type: application/sdp\r\n" +
+            "Content-Length: 5\r\n" +
+            "\r\n" +
+            "v=0\r\n";
+    // @formatter:on
+
+    private static SIPMessage parse(String message, boolean lazy) throws ParseException {
+        StringMsgParser parser = new StringMsgParser();
+        parser.setLazyHeaderParsing(lazy);
+        return parser.parseSIPMessage(message.getBytes(UTF8));
+    }
+
+    public void testUnparsedHeadersEncodedAsReceived() throws ParseException {
+        SIPMessage message = parse(sInvite, true);
+        String encoded = message.encode();
+        assertTrue(encoded.contains("Accept-Contact: *;+g.oma.sip-im;explicit\r\n"));
+        assertTrue(encoded.contains("Expires: never\r\n"));
+        assertEquals("3848276298220188511@192.168.1.1", message.getCallId().getCallId());
+        assertEquals(68, message.getMaxForwards().getMaxForwards());
+        assertEquals(5, message.getContentLength().getContentLength());
+    }
+
+    public void testHeadersParsedOnAccess() throws ParseException {
+        SIPMessage expected = parse(sInvite, false);
+        SIPMessage message = parse(sInvite, true);
+        assertEquals(expected.getHeader("Contact").toString(), message.getHeader("Contact")
+                .toString());
+        ListIterator<SIPHeader> identities = message.getHeaders("P-Asserted-Identity");
+        assertEquals("<sip:+33601020304@ims.mnc001.mcc208.3gppnetwork.org>", identities.next()
+                .getValue());
+        assertEquals("<tel:+33601020304>", identities.next().getValue());
+        assertFalse(identities.hasNext());
+    }
+
+    public void testHeaderOrderKept() throws ParseException {
+        SIPMessage expected = parse(sInvite, false);
+        SIPMessage message = parse(sInvite, true);
+        message.getHeader("Supported");
+        Iterator<SIPHeader> headers = message.getHeaders();
+        Iterator<SIPHeader> expectedHeaders = expected.getHeaders();
+        while (expectedHeaders.hasNext()) {
+            assertEquals(expectedHeaders.next().getClass(), headers.next().getClass());
+        }
+        assertFalse(headers.hasNext());
+    }
+
+    public void testBadHeader() throws ParseException {
+        SIPMessage message = parse(sInvite, true);
+        assertNull(message.getHeader("Expires"));
+        assertEquals("Expires: never", message.getUnrecognizedHeaders().next());
+    }
+
+    public void testResponse() throws ParseException {
+        SIPRequest expected = (SIPRequest) parse(sInvite, false);
+        SIPRequest request = (SIPRequest) parse(sInvite, true);
+        assertEquals(expected.createResponse(180).encode(), request.createResponse(180).encode());
+    }
+
+    public void testByteMsgParser() throws ParseException {
+        ByteMsgParser parser = new ByteMsgParser();
+        parser.setLazyHeaderParsing(true);
+        SIPMessage message = parser.parseSIPMessage(sInvite.getBytes(UTF8));
+        assertEquals(parse(sInvite, true).encode(), message.encode());
+        assertEquals(parse(sInvite, false).getHeader("Accept-Contact").toString(), message
+                .getHeader("Accept-Contact").toString());
+    }
+}
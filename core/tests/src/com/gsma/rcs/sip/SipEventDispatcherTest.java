@@ -0,0 +1,291 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.sip;
+
+import com.gsma.rcs.core.ims.protocol.sip.SipEventDispatcher;
+
+import android.test.AndroidTestCase;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax2.sip.RequestEvent;
+import javax2.sip.ServerTransaction;
+import javax2.sip.SipProvider;
+import javax2.sip.TransactionAlreadyExistsException;
+import javax2.sip.message.Request;
+
+public class SipEventDispatcherTest extends AndroidTestCase {
+
+    private static final int DIALOGS = 16;
+
+    private static final int EVENTS_PER_DIALOG = 10;
+
+    /**
+     * Dispatch slow events of several dialogs and wait for their processing
+     */
+    private static void dispatchSlowEvents(SipEventDispatcher dispatcher,
+            final List<String> processed) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(DIALOGS * EVENTS_PER_DIALOG);
+        for (int i = 0; i < EVENTS_PER_DIALOG; i++) {
+            for (int dialog = 0; dialog < DIALOGS; dialog++) {
+                final String event = "call" + dialog + "@10.0.0.1:" + i;
+                dispatcher.dispatch("call" + dialog + "@10.0.0.1", new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(2);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        processed.add(event);
+                        done.countDown();
+                    }
+                });
+            }
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+    }
+
+    public void testSingleLaneProcessesInline() {
+        SipEventDispatcher dispatcher = new SipEventDispatcher(1);
+        final Thread caller = Thread.currentThread();
+        final boolean[] inline = new boolean[1];
+        dispatcher.dispatch("call", new Runnable() {
+            @Override
+            public void run() {
+                inline[0] = Thread.currentThread() == caller;
+            }
+        });
+        assertTrue(inline[0]);
+        assertEquals(0, dispatcher.getLaneCount());
+    }
+
+    public void testOrderPerCallId() throws InterruptedException {
+        SipEventDispatcher dispatcher = new SipEventDispatcher(4);
+        List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+        dispatchSlowEvents(dispatcher, processed);
+        for (int dialog = 0; dialog < DIALOGS; dialog++) {
+            int expected = 0;
+            String prefix = "call" + dialog + "@10.0.0.1:";
+            for (String event : processed) {
+                if (event.startsWith(prefix)) {
+                    assertEquals(prefix + expected++, event);
+                }
+            }
+            assertEquals(EVENTS_PER_DIALOG, expected);
+        }
+        long count = 0;
+        for (int lane = 0; lane < dispatcher.getLaneCount(); lane++) {
+            count += dispatcher.getProcessedCount(lane);
+            assertTrue(dispatcher.getMaxLatency(lane) >= dispatcher.getAverageLatency(lane));
+        }
+        assertEquals(DIALOGS * EVENTS_PER_DIALOG, count);
+        assertEquals(0, dispatcher.getQueueDepth());
+        dispatcher.terminate();
+    }
+
+    public void testLanesProcessDialogsConcurrently() throws InterruptedException {
+        final int lanes = 4;
+        SipEventDispatcher dispatcher = new SipEventDispatcher(lanes);
+        /* Each lane runs an event which only completes once an event of every lane runs */
+        final CyclicBarrier barrier = new CyclicBarrier(lanes);
+        final CountDownLatch done = new CountDownLatch(lanes);
+        final AtomicInteger concurrent = new AtomicInteger();
+        Set<Integer> usedLanes = new HashSet<>();
+        for (int dialog = 0; usedLanes.size() < lanes; dialog++) {
+            String callId = "call" + dialog + "@10.0.0.1";
+            if (!usedLanes.add(dispatcher.getLane(callId))) {
+                continue;
+            }
+            dispatcher.dispatch(callId, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await(10, TimeUnit.SECONDS);
+                        concurrent.incrementAndGet();
+                    } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                        /* The event is not counted */
+                    }
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        dispatcher.terminate();
+        assertEquals(lanes, concurrent.get());
+    }
+
+    public void testEventsOfDialogSerialized() throws InterruptedException {
+        SipEventDispatcher dispatcher = new SipEventDispatcher(4);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(EVENTS_PER_DIALOG);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        for (int i = 0; i < EVENTS_PER_DIALOG; i++) {
+            dispatcher.dispatch("call@10.0.0.1", new Runnable() {
+                @Override
+                public void run() {
+                    if (running.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    try {
+                        /* The first event blocks the dialog until all the events are dispatched */
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        /* The event completes */
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+        release.countDown();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        dispatcher.terminate();
+        assertEquals(0, overlaps.get());
+    }
+
+    public void testRequestDroppedWhenLaneFull() throws InterruptedException {
+        SipEventDispatcher dispatcher = new SipEventDispatcher(2, 1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    /* The event completes */
+                }
+            }
+        };
+        dispatcher.dispatch("call@10.0.0.1", blocking);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        /* The lane is busy and its queue is full */
+        dispatcher.dispatch("call@10.0.0.1", blocking);
+        List<Thread> callers = Collections.synchronizedList(new ArrayList<Thread>());
+        final AtomicInteger handledCount = new AtomicInteger();
+        dispatcher.dispatchRequest("call@10.0.0.1", new RequestEvent(createSipProvider(callers),
+                null, null, createStub(Request.class)), new SipEventDispatcher.RequestHandler() {
+            @Override
+            public void handleRequest(Request request, ServerTransaction transaction) {
+                handledCount.incrementAndGet();
+            }
+        });
+        release.countDown();
+        dispatcher.terminate();
+        assertEquals(0, callers.size());
+        assertEquals(0, handledCount.get());
+    }
+
+    /**
+     * Returns a proxy of an interface whose methods all return null, apart from the identity ones
+     */
+    private static <T> T createStub(Class<T> clazz) {
+        return clazz.cast(Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[] {
+            clazz
+        }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ("hashCode".equals(method.getName())) {
+                    return System.identityHashCode(proxy);
+                }
+                if ("equals".equals(method.getName())) {
+                    return proxy == args[0];
+                }
+                return null;
+            }
+        }));
+    }
+
+    /**
+     * Returns a SIP provider creating a single server transaction per request, as the SIP stack
+     * does for the retransmissions of a request
+     */
+    private static SipProvider createSipProvider(final List<Thread> callers) {
+        final Set<Object> requests = new HashSet<>();
+        return (SipProvider) Proxy.newProxyInstance(SipProvider.class.getClassLoader(),
+                new Class<?>[] {
+                    SipProvider.class
+                }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                            throws TransactionAlreadyExistsException {
+                        if (!"getNewServerTransaction".equals(method.getName())) {
+                            return null;
+                        }
+                        callers.add(Thread.currentThread());
+                        if (!requests.add(args[0])) {
+                            throw new TransactionAlreadyExistsException("Transaction exists");
+                        }
+                        return createStub(ServerTransaction.class);
+                    }
+                });
+    }
+
+    public void testRetransmittedInviteHandledOnce() throws InterruptedException {
+        SipEventDispatcher dispatcher = new SipEventDispatcher(4);
+        List<Thread> callers = Collections.synchronizedList(new ArrayList<Thread>());
+        SipProvider provider = createSipProvider(callers);
+        Request invite = createStub(Request.class);
+        final CountDownLatch retransmitted = new CountDownLatch(1);
+        final CountDownLatch handled = new CountDownLatch(1);
+        final AtomicInteger handledCount = new AtomicInteger();
+        SipEventDispatcher.RequestHandler handler = new SipEventDispatcher.RequestHandler() {
+            @Override
+            public void handleRequest(Request request, ServerTransaction transaction) {
+                try {
+                    /* The listener is still busy with the INVITE when it is retransmitted */
+                    retransmitted.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                handledCount.incrementAndGet();
+                handled.countDown();
+            }
+        };
+        dispatcher.dispatchRequest("call@10.0.0.1", new RequestEvent(provider, null, null, invite),
+                handler);
+        dispatcher.dispatchRequest("call@10.0.0.1", new RequestEvent(provider, null, null, invite),
+                handler);
+        retransmitted.countDown();
+        assertTrue(handled.await(10, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        dispatcher.terminate();
+        assertEquals(1, handledCount.get());
+        assertEquals(2, callers.size());
+        for (Thread caller : callers) {
+            assertEquals(Thread.currentThread(), caller);
+        }
+    }
+}
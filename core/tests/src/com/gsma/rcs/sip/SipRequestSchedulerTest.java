@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.sip;
+
+import com.gsma.rcs.core.ims.service.SipRequestScheduler;
+import com.gsma.rcs.core.ims.service.SipRequestScheduler.Priority;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax2.sip.message.Request;
+
+public class SipRequestSchedulerTest extends AndroidTestCase {
+
+    private static final int OPTIONS_STORM = 10000;
+
+    private static final int INVITES = 20;
+
+    private SipRequestScheduler mScheduler;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mScheduler != null) {
+            mScheduler.terminate();
+        }
+        super.tearDown();
+    }
+
+    private static Runnable record(final List<String> processed, final String request,
+            final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                processed.add(request);
+                done.countDown();
+            }
+        };
+    }
+
+    private static Runnable block(final CountDownLatch started, final CountDownLatch gate) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    private static void spin(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            /* Simulate the processing of a request */
+        }
+    }
+
+    public void testPriority() {
+        assertEquals(Priority.HIGH, SipRequestScheduler.getPriority(Request.INVITE));
+        assertEquals(Priority.HIGH, SipRequestScheduler.getPriority(Request.BYE));
+        assertEquals(Priority.HIGH, SipRequestScheduler.getPriority(Request.CANCEL));
+        assertEquals(Priority.NORMAL, SipRequestScheduler.getPriority(Request.MESSAGE));
+        assertEquals(Priority.LOW, SipRequestScheduler.getPriority(Request.OPTIONS));
+        assertEquals(Priority.LOW, SipRequestScheduler.getPriority(Request.NOTIFY));
+    }
+
+    public void testHighPriorityFirst() throws InterruptedException {
+        mScheduler = new SipRequestScheduler("Test", 1, 0);
+        mScheduler.start();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        assertTrue(mScheduler.schedule(Priority.LOW, "block", block(started, gate)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch done = new CountDownLatch(4);
+        mScheduler.schedule(Priority.LOW, "options", record(processed, "OPTIONS", done));
+        mScheduler.schedule(Priority.NORMAL, "message", record(processed, "MESSAGE", done));
+        mScheduler.schedule(Priority.LOW, "notify", record(processed, "NOTIFY", done));
+        mScheduler.schedule(Priority.HIGH, "invite", record(processed, "INVITE", done));
+        assertEquals(2, mScheduler.getQueueDepth(Priority.LOW));
+        gate.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("INVITE", processed.get(0));
+        assertEquals("MESSAGE", processed.get(1));
+        assertTrue(processed.indexOf("OPTIONS") < processed.indexOf("NOTIFY"));
+    }
+
+    public void testOrderPerCallId() throws InterruptedException {
+        mScheduler = new SipRequestScheduler("Test", 4, 0);
+        mScheduler.start();
+        List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch done = new CountDownLatch(200);
+        for (int i = 0; i < 20; i++) {
+            for (int dialog = 0; dialog < 10; dialog++) {
+                final String request = "call" + dialog + ":" + i;
+                mScheduler.schedule(Priority.HIGH, "call" + dialog,
+                        record(processed, request, done));
+            }
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int dialog = 0; dialog < 10; dialog++) {
+            int expected = 0;
+            String prefix = "call" + dialog + ":";
+            for (String request : processed) {
+                if (request.startsWith(prefix)) {
+                    assertEquals(prefix + expected++, request);
+                }
+            }
+            assertEquals(20, expected);
+        }
+    }
+
+    public void testBackpressure() throws InterruptedException {
+        mScheduler = new SipRequestScheduler("Test", 1, 2);
+        mScheduler.start();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        assertTrue(mScheduler.schedule(Priority.HIGH, "block", block(started, gate)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Runnable nop = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        assertTrue(mScheduler.schedule(Priority.LOW, "a", nop));
+        assertTrue(mScheduler.schedule(Priority.LOW, "a", nop));
+        assertFalse(mScheduler.schedule(Priority.LOW, "a", nop));
+        /* Other lanes are not affected */
+        assertTrue(mScheduler.schedule(Priority.LOW, "b", nop));
+        assertTrue(mScheduler.schedule(Priority.HIGH, "a", nop));
+        assertEquals(1, mScheduler.getRejectedCount());
+        gate.countDown();
+    }
+
+    public void testInviteLatencyDuringOptionsStorm() throws InterruptedException {
+        mScheduler = new SipRequestScheduler("Test", 2, 0);
+        mScheduler.start();
+        final CountDownLatch optionsDone = new CountDownLatch(OPTIONS_STORM);
+        final CountDownLatch invitesDone = new CountDownLatch(INVITES);
+        final long[] inviteLatencies = new long[INVITES];
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < OPTIONS_STORM; i++) {
+            mScheduler.schedule(Priority.LOW, "options" + i + "@10.0.0.1", new Runnable() {
+                @Override
+                public void run() {
+                    spin(100000);
+                    optionsDone.countDown();
+                }
+            });
+        }
+        for (int i = 0; i < INVITES; i++) {
+            final int invite = i;
+            final long posted = System.nanoTime();
+            mScheduler.schedule(Priority.HIGH, "invite" + i + "@10.0.0.2", new Runnable() {
+                @Override
+                public void run() {
+                    spin(100000);
+                    inviteLatencies[invite] = System.nanoTime() - posted;
+                    invitesDone.countDown();
+                }
+            });
+            Thread.sleep(10);
+        }
+        assertTrue(invitesDone.await(10, TimeUnit.SECONDS));
+        assertTrue(optionsDone.await(60, TimeUnit.SECONDS));
+        long stormDuration = System.currentTimeMillis() - start;
+        long maxInviteLatency = 0;
+        for (long latency : inviteLatencies) {
+            maxInviteLatency = Math.max(maxInviteLatency, TimeUnit.NANOSECONDS.toMillis(latency));
+        }
+        assertTrue("Max INVITE latency " + maxInviteLatency + " ms, storm " + stormDuration
+                + " ms", maxInviteLatency < 50 && maxInviteLatency * 10 < stormDuration);
+        long count = 0;
+        for (long bucket : mScheduler.getQueueWaitHistogram(Priority.HIGH)) {
+            count += bucket;
+        }
+        assertEquals(INVITES, count);
+        count = 0;
+        for (long bucket : mScheduler.getQueueWaitHistogram(Priority.LOW)) {
+            count += bucket;
+        }
+        assertEquals(OPTIONS_STORM, count);
+    }
+}
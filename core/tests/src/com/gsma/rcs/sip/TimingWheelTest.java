@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.sip;
+
+import gov2.nist.core.TimingWheel;
+import gov2.nist.core.TimingWheelTask;
+
+import android.test.AndroidTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TimingWheelTest extends AndroidTestCase {
+
+    /**
+     * Upper bound only, to end a failing test: no assertion depends on the scheduling latency
+     */
+    private static final long AWAIT_TIMEOUT = 10;
+
+    private static final int TASK_COUNT = 500;
+
+    private TimingWheel mWheel;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mWheel = new TimingWheel("TimingWheelTest", true, 5, 16);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mWheel.cancel();
+        super.tearDown();
+    }
+
+    private static class LatchTask extends TimingWheelTask {
+        private final CountDownLatch mLatch;
+
+        private long mRunTime;
+
+        LatchTask(CountDownLatch latch) {
+            mLatch = latch;
+        }
+
+        @Override
+        public void run() {
+            mRunTime = System.nanoTime();
+            mLatch.countDown();
+        }
+    }
+
+    public void testTaskNotRunBeforeDelay() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(2);
+        LatchTask shortTask = new LatchTask(latch);
+        /* Longer than a turn of the wheel */
+        LatchTask longTask = new LatchTask(latch);
+        long start = System.nanoTime();
+        mWheel.schedule(longTask, 200);
+        mWheel.schedule(shortTask, 20);
+        assertEquals(2, mWheel.getPendingCount());
+        assertTrue(latch.await(AWAIT_TIMEOUT, TimeUnit.SECONDS));
+        assertTrue(shortTask.mRunTime - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(longTask.mRunTime - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(0, mWheel.getPendingCount());
+    }
+
+    public void testTaskScheduledAfterIdlePeriod() throws InterruptedException {
+        CountDownLatch first = new CountDownLatch(1);
+        mWheel.schedule(new LatchTask(first), 10);
+        assertTrue(first.await(AWAIT_TIMEOUT, TimeUnit.SECONDS));
+        /* The wheel is idle for several turns */
+        Thread.sleep(300);
+        CountDownLatch latch = new CountDownLatch(2);
+        LatchTask shortTask = new LatchTask(latch);
+        LatchTask longTask = new LatchTask(latch);
+        long start = System.nanoTime();
+        mWheel.schedule(longTask, 200);
+        mWheel.schedule(shortTask, 7);
+        assertTrue(latch.await(AWAIT_TIMEOUT, TimeUnit.SECONDS));
+        assertTrue(shortTask.mRunTime - start >= TimeUnit.MILLISECONDS.toNanos(7));
+        assertTrue(longTask.mRunTime - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    public void testCancelledTaskNotRun() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        LatchTask cancelled = new LatchTask(new CountDownLatch(1));
+        mWheel.schedule(cancelled, 20);
+        mWheel.schedule(new LatchTask(latch), 50);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(1, mWheel.getPendingCount());
+        assertTrue(latch.await(AWAIT_TIMEOUT, TimeUnit.SECONDS));
+        assertEquals(0, cancelled.mRunTime);
+    }
+
+    public void testTasksNeverRunEarly() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(TASK_COUNT);
+        LatchTask[] tasks = new LatchTask[TASK_COUNT];
+        long[] scheduleTimes = new long[TASK_COUNT];
+        /* Delays not multiple of the tick, expiring at any time within a tick */
+        for (int i = 0; i < TASK_COUNT; i++) {
+            tasks[i] = new LatchTask(latch);
+            scheduleTimes[i] = System.nanoTime();
+            mWheel.schedule(tasks[i], 1 + i % 23);
+        }
+        assertTrue(latch.await(AWAIT_TIMEOUT, TimeUnit.SECONDS));
+        for (int i = 0; i < TASK_COUNT; i++) {
+            assertTrue("Task " + i + " run early", tasks[i].mRunTime - scheduleTimes[i]
+                    >= TimeUnit.MILLISECONDS.toNanos(1 + i % 23));
+        }
+    }
+
+    public void testPeriodicTask() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(3);
+        final AtomicInteger runs = new AtomicInteger();
+        TimingWheelTask task = new TimingWheelTask() {
+            @Override
+            public void run() {
+                /* Cancelled by its last run, so that no run is concurrent to the check */
+                if (runs.incrementAndGet() == 3) {
+                    cancel();
+                }
+                latch.countDown();
+            }
+        };
+        mWheel.schedule(task, 0, 30);
+        assertTrue(latch.await(AWAIT_TIMEOUT, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(3, runs.get());
+        assertEquals(0, mWheel.getPendingCount());
+    }
+
+    public void testFailingTaskDoesNotStopWheel() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        mWheel.schedule(new TimingWheelTask() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("Failure");
+            }
+        }, 0);
+        mWheel.schedule(new LatchTask(latch), 20);
+        assertTrue(latch.await(AWAIT_TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    public void testScheduleTwice() {
+        TimingWheelTask task = new LatchTask(new CountDownLatch(1));
+        mWheel.schedule(task, 1000);
+        try {
+            mWheel.schedule(task, 1000);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    public void testScheduleAndCancelManyTasks() {
+        TimingWheelTask[] tasks = new TimingWheelTask[100000];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new LatchTask(new CountDownLatch(1));
+            mWheel.schedule(tasks[i], 60000 + i);
+        }
+        assertEquals(tasks.length, mWheel.getPendingCount());
+        for (TimingWheelTask task : tasks) {
+            assertTrue(task.cancel());
+        }
+        assertEquals(0, mWheel.getPendingCount());
+    }
+}
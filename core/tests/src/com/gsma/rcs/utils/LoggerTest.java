@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.utils;
+
+import com.gsma.rcs.utils.logger.Appender;
+import com.gsma.rcs.utils.logger.Logger;
+import com.gsma.rcs.utils.logger.TraceRingBuffer;
+import com.gsma.rcs.utils.logger.TraceRingBuffer.ITraceConsumer;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LoggerTest extends AndroidTestCase {
+
+    private static final int WRITERS = 4;
+
+    private static final int TRACES_PER_WRITER = 100000;
+
+    private static final int CALLS = 1000000;
+
+    private final List<String> mTraces = Collections.synchronizedList(new ArrayList<String>());
+
+    private final Logger mLogger = Logger.getLogger(LoggerTest.class.getSimpleName());
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Logger.setAppenders(new Appender[] {
+            new Appender() {
+                @Override
+                public void printTrace(String classname, int level, String trace) {
+                    mTraces.add(trace);
+                }
+            }
+        });
+        Logger.setTraceProperties(true, Logger.DEBUG_LEVEL);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Logger.flush();
+        Logger.setAppenders(null);
+        super.tearDown();
+    }
+
+    public void testRingBufferDropsWhenFull() {
+        TraceRingBuffer buffer = new TraceRingBuffer(6);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i < 8, buffer.offer("Test", Logger.INFO_LEVEL, "trace" + i));
+        }
+        assertEquals(8, buffer.getWrittenCount());
+        assertEquals(2, buffer.getDroppedCount());
+        final List<String> traces = new ArrayList<>();
+        ITraceConsumer consumer = new ITraceConsumer() {
+            @Override
+            public void printTrace(String classname, int level, String trace) {
+                traces.add(trace);
+            }
+        };
+        assertEquals(8, buffer.drain(consumer));
+        assertTrue(buffer.isEmpty());
+        assertTrue(buffer.offer("Test", Logger.INFO_LEVEL, "trace10"));
+        assertEquals(1, buffer.drain(consumer));
+        assertEquals("trace0", traces.get(0));
+        assertEquals("trace7", traces.get(7));
+        assertEquals("trace10", traces.get(8));
+        assertEquals(9, buffer.getReadCount());
+    }
+
+    public void testConcurrentWriters() throws InterruptedException {
+        final TraceRingBuffer buffer = new TraceRingBuffer(1024);
+        final long[] lastTraces = new long[WRITERS];
+        final AtomicLong errors = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(WRITERS);
+        for (int i = 0; i < WRITERS; i++) {
+            final String writer = String.valueOf(i);
+            lastTraces[i] = -1;
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int n = 0; n < TRACES_PER_WRITER; n++) {
+                        buffer.offer(writer, n, "trace");
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        ITraceConsumer consumer = new ITraceConsumer() {
+            @Override
+            public void printTrace(String classname, int level, String trace) {
+                /* Traces of a same writer are read in the order they were written */
+                int writer = Integer.parseInt(classname);
+                if (level <= lastTraces[writer] || !"trace".equals(trace)) {
+                    errors.incrementAndGet();
+                }
+                lastTraces[writer] = level;
+            }
+        };
+        long read = 0;
+        while (done.getCount() > 0) {
+            read += buffer.drain(consumer);
+        }
+        read += buffer.drain(consumer);
+        assertEquals(0, errors.get());
+        assertEquals(buffer.getWrittenCount(), read);
+        assertEquals((long) WRITERS * TRACES_PER_WRITER, read + buffer.getDroppedCount());
+    }
+
+    public void testParameterizedTraces() {
+        mLogger.info("Response received (code={}, transaction={})", 200, "tx1");
+        mLogger.debug("No argument {}", (Object) null);
+        mLogger.warn("{}{} and {}", 'a', 1, 2.5);
+        mLogger.error("Missing argument {} and {}", "x");
+        mLogger.error("Extra argument {}", "x", "y");
+        Logger.flush();
+        assertEquals(5, mTraces.size());
+        assertEquals("Response received (code=200, transaction=tx1)", mTraces.get(0));
+        assertEquals("No argument null", mTraces.get(1));
+        assertEquals("a1 and 2.5", mTraces.get(2));
+        assertEquals("Missing argument x and {}", mTraces.get(3));
+        assertEquals("Extra argument x", mTraces.get(4));
+    }
+
+    public void testTraceLevel() {
+        Logger.setTraceProperties(true, Logger.WARN_LEVEL);
+        assertFalse(mLogger.isActivated(Logger.INFO_LEVEL));
+        assertTrue(mLogger.isActivated(Logger.WARN_LEVEL));
+        mLogger.info("Not printed {}", 1);
+        mLogger.warn("Printed {}", 2);
+        /* Deactivated traces are gated by the callers, as for the traces without argument */
+        Logger.setTraceProperties(false, Logger.DEBUG_LEVEL);
+        assertFalse(mLogger.isActivated());
+        assertFalse(mLogger.isActivated(Logger.FATAL_LEVEL));
+        mLogger.error("Printed {}", 3);
+        mLogger.error("Printed 4");
+        Logger.flush();
+        assertEquals(3, mTraces.size());
+        assertEquals("Printed 2", mTraces.get(0));
+        assertEquals("Printed 3", mTraces.get(1));
+        assertEquals("Printed 4", mTraces.get(2));
+    }
+
+    public void testErrorPrintedOnWritingThreadInOrder() {
+        final Thread writer = Thread.currentThread();
+        final List<Boolean> errorsOnWriter = new ArrayList<>();
+        Logger.setAppenders(new Appender[] {
+            new Appender() {
+                @Override
+                public void printTrace(String classname, int level, String trace) {
+                    if (level == Logger.ERROR_LEVEL) {
+                        errorsOnWriter.add(Thread.currentThread() == writer);
+                    }
+                    mTraces.add(trace);
+                }
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            mLogger.debug("Debug {}", i);
+        }
+        mLogger.error("Error {}", 10);
+        /* Printed before the call returns, after the buffered traces */
+        List<String> traces = new ArrayList<>();
+        synchronized (mTraces) {
+            for (String trace : mTraces) {
+                if (trace.startsWith("Debug ") || trace.startsWith("Error ")) {
+                    traces.add(trace);
+                }
+            }
+        }
+        assertEquals(11, traces.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Debug " + i, traces.get(i));
+        }
+        assertEquals("Error 10", traces.get(10));
+        assertEquals(1, errorsOnWriter.size());
+        assertTrue(errorsOnWriter.get(0));
+    }
+
+    public void testTracesFromSeveralThreads() throws InterruptedException {
+        long droppedCount = Logger.getDroppedCount();
+        final AtomicLong written = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(WRITERS);
+        for (int i = 0; i < WRITERS; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int n = 0; n < TRACES_PER_WRITER / 10; n++) {
+                        mLogger.debug("Trace {} of {}", n, getName());
+                    }
+                    written.addAndGet(TRACES_PER_WRITER / 10);
+                    done.countDown();
+                }
+            }.start();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        Logger.flush();
+        int printed = 0;
+        synchronized (mTraces) {
+            for (String trace : mTraces) {
+                if (trace.startsWith("Trace ")) {
+                    printed++;
+                }
+            }
+        }
+        /* Debug traces written while the buffer is full are dropped and counted */
+        assertEquals(written.get(), printed + Logger.getDroppedCount() - droppedCount);
+    }
+
+    public void testDisabledTraceCost() {
+        mLogger.debug("Warm up {}", 0);
+        Logger.flush();
+        Logger.setTraceProperties(true, Logger.INFO_LEVEL);
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            mLogger.debug("Trace {} of {}", "a", "b");
+        }
+        long disabledDuration = System.nanoTime() - start;
+        final AtomicLong printed = new AtomicLong();
+        Logger.setAppenders(new Appender[] {
+            new Appender() {
+                @Override
+                public void printTrace(String classname, int level, String trace) {
+                    printed.incrementAndGet();
+                }
+            }
+        });
+        start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            mLogger.info("Trace {} of {}", "a", "b");
+        }
+        long enabledDuration = System.nanoTime() - start;
+        assertTrue("Disabled " + disabledDuration / CALLS + " ns per trace, enabled "
+                + enabledDuration / CALLS + " ns per trace", disabledDuration < enabledDuration);
+        assertEquals(1, mTraces.size());
+    }
+}
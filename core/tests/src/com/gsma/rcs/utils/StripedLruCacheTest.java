@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.utils;
+
+import android.test.AndroidTestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StripedLruCacheTest extends AndroidTestCase {
+
+    private static final int CONTACTS = 50000;
+
+    private static final int THREADS = 8;
+
+    private static final int CACHE_SIZE = 2048;
+
+    private static final int LOOKUPS_PER_THREAD = 200000;
+
+    public void testLeastRecentlyUsedEviction() {
+        StripedLruCache<Integer, String> cache = new StripedLruCache<>(3, 1);
+        cache.put(1, "1");
+        cache.put(2, "2");
+        cache.put(3, "3");
+        assertEquals("1", cache.get(1));
+        cache.put(4, "4");
+        assertNull(cache.get(2));
+        assertEquals("1", cache.get(1));
+        assertEquals("3", cache.get(3));
+        assertEquals("4", cache.get(4));
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(4, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    public void testBoundedSize() {
+        StripedLruCache<Integer, Integer> cache = new StripedLruCache<>(CACHE_SIZE, 16);
+        for (int i = 0; i < CONTACTS; i++) {
+            cache.put(i, i);
+        }
+        assertTrue(cache.size() <= CACHE_SIZE);
+        assertEquals(CONTACTS - cache.size(), cache.getEvictionCount());
+        assertEquals(Integer.valueOf(CONTACTS - 1), cache.get(CONTACTS - 1));
+    }
+
+    public void testNoPutOfValueLoadedBeforeClear() {
+        StripedLruCache<Integer, String> cache = new StripedLruCache<>(16, 4);
+        long generation = cache.getGeneration();
+        assertTrue(cache.put(1, "1", generation));
+        generation = cache.getGeneration();
+        cache.clear();
+        assertNull(cache.get(1));
+        assertFalse(cache.put(2, "2", generation));
+        assertNull(cache.get(2));
+        assertTrue(cache.put(2, "2", cache.getGeneration()));
+        assertEquals("2", cache.get(2));
+    }
+
+    public void testSameLockForSameKey() {
+        StripedLruCache<String, String> cache = new StripedLruCache<>(64, 16);
+        assertSame(cache.getLock("+33612345678"), cache.getLock(new String("+33612345678")));
+    }
+
+    public void testConcurrentReadModifyWrite() throws InterruptedException {
+        final StripedLruCache<Integer, long[]> cache = new StripedLruCache<>(CACHE_SIZE, 16);
+        final long[] provider = new long[CONTACTS];
+        final AtomicLong errors = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        long start = System.nanoTime();
+        for (int i = 0; i < THREADS; i++) {
+            final int seed = i;
+            new Thread() {
+                @Override
+                public void run() {
+                    /* Skewed access: most lookups on a small set of contacts, as for a chat list */
+                    int key = seed;
+                    for (int n = 0; n < LOOKUPS_PER_THREAD; n++) {
+                        key = (key * 1103515245 + 12345) & Integer.MAX_VALUE;
+                        int contact = (n % 10 != 0) ? key % (CACHE_SIZE / 2) : key % CONTACTS;
+                        synchronized (cache.getLock(contact)) {
+                            long[] info = cache.get(contact);
+                            if (info == null) {
+                                long generation = cache.getGeneration();
+                                info = new long[] {
+                                    provider[contact]
+                                };
+                                cache.put(contact, info, generation);
+                            } else if (info[0] != provider[contact]) {
+                                errors.incrementAndGet();
+                            }
+                            /* Write through to the provider as the contact manager does */
+                            long[] newInfo = new long[] {
+                                info[0] + 1
+                            };
+                            cache.put(contact, newInfo);
+                            provider[contact] = newInfo[0];
+                        }
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(0, errors.get());
+        long updates = 0;
+        for (long count : provider) {
+            updates += count;
+        }
+        assertEquals((long) THREADS * LOOKUPS_PER_THREAD, updates);
+        assertTrue(cache.size() <= CACHE_SIZE);
+        assertEquals((long) THREADS * LOOKUPS_PER_THREAD,
+                cache.getHitCount() + cache.getMissCount());
+        assertTrue("Cache " + cache + " in " + duration + " ms",
+                cache.getHitCount() > cache.getMissCount());
+    }
+}
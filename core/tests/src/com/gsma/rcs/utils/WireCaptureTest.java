@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.utils;
+
+import static com.gsma.rcs.utils.StringUtils.UTF8;
+
+import com.gsma.rcs.utils.capture.WireCapture;
+import com.gsma.rcs.utils.capture.WireCaptureReader;
+import com.gsma.rcs.utils.capture.WireCaptureReader.Record;
+
+import android.test.AndroidTestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class WireCaptureTest extends AndroidTestCase {
+
+    private static final String INVITE = "INVITE sip:+33612345678@domain.com SIP/2.0\r\n"
+            + "Call-ID: 1234\r\nContent-Length: 0\r\n\r\n";
+
+    private static final int WRITERS = 4;
+
+    private static final int MESSAGES_PER_WRITER = 2000;
+
+    private static final int CALLS = 1000000;
+
+    private File mDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDirectory = new File(System.getProperty("java.io.tmpdir"), "wire-capture-test");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        WireCapture.stop();
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+        super.tearDown();
+    }
+
+    public void testCaptureAndDecode() throws Exception {
+        WireCapture.start(mDirectory, 64 * 1024, 2);
+        int connectionId = WireCapture.newConnectionId();
+        byte[] chunk = "MSRP a786hjs2 SEND\r\nhello\r\n-------a786hjs2$\r\n".getBytes(UTF8);
+        WireCapture.capture(WireCapture.PROTOCOL_SIP, WireCapture.DIRECTION_OUT, connectionId,
+                INVITE);
+        WireCapture.capture(WireCapture.PROTOCOL_MSRP, WireCapture.DIRECTION_IN, connectionId,
+                chunk, 5, chunk.length - 5);
+        WireCapture.stop();
+        /* Messages captured once stopped are ignored */
+        WireCapture.capture(WireCapture.PROTOCOL_HTTP, WireCapture.DIRECTION_OUT, connectionId,
+                "GET http://ftcontentserver.com");
+        List<Record> records = WireCaptureReader.read(mDirectory);
+        assertEquals(2, records.size());
+        Record record = records.get(0);
+        assertEquals(WireCapture.PROTOCOL_SIP, record.getProtocol());
+        assertEquals(WireCapture.DIRECTION_OUT, record.getDirection());
+        assertEquals(connectionId, record.getConnectionId());
+        assertEquals(INVITE, new String(record.getData(), UTF8));
+        assertTrue(record.getTimestamp() > 0);
+        record = records.get(1);
+        assertEquals(WireCapture.PROTOCOL_MSRP, record.getProtocol());
+        assertEquals(WireCapture.DIRECTION_IN, record.getDirection());
+        assertEquals(chunk.length - 5, record.getOriginalLength());
+        assertEquals("a786hjs2 SEND\r\nhello\r\n-------a786hjs2$\r\n",
+                new String(record.getData(), UTF8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WireCaptureReader.print(mDirectory, new PrintStream(out, true, "UTF-8"));
+        String decoded = out.toString("UTF-8");
+        assertTrue(decoded, decoded.contains(" >>> SIP connection " + connectionId));
+        assertTrue(decoded, decoded.contains(INVITE));
+    }
+
+    public void testRotation() throws Exception {
+        WireCapture.start(mDirectory, 4096, 3);
+        for (int i = 0; i < 1000; i++) {
+            WireCapture.capture(WireCapture.PROTOCOL_SIP, WireCapture.DIRECTION_IN, 1, "Message "
+                    + i);
+        }
+        assertEquals(3, mDirectory.listFiles().length);
+        List<Record> records = WireCaptureReader.read(mDirectory);
+        /* The oldest messages are overwritten, the most recent ones are kept in order */
+        assertTrue(records.size() > 100);
+        assertTrue(records.size() < 1000);
+        int first = 1000 - records.size();
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals("Message " + (first + i), new String(records.get(i).getData(), UTF8));
+        }
+    }
+
+    public void testTruncation() throws Exception {
+        WireCapture.start(mDirectory, 4096, 2);
+        byte[] data = new byte[10000];
+        WireCapture.capture(WireCapture.PROTOCOL_MSRP, WireCapture.DIRECTION_OUT, 1, data, 0,
+                data.length);
+        WireCapture.capture(WireCapture.PROTOCOL_SIP, WireCapture.DIRECTION_OUT, 1, INVITE);
+        List<Record> records = WireCaptureReader.read(mDirectory);
+        assertEquals(2, records.size());
+        assertEquals(10000, records.get(0).getOriginalLength());
+        assertTrue(records.get(0).getData().length < 4096);
+        assertEquals(INVITE, new String(records.get(1).getData(), UTF8));
+    }
+
+    public void testConcurrentCapture() throws Exception {
+        WireCapture.start(mDirectory, 1024 * 1024, 2);
+        final byte[] data = INVITE.getBytes(UTF8);
+        final CountDownLatch done = new CountDownLatch(WRITERS);
+        for (int i = 0; i < WRITERS; i++) {
+            final int connectionId = WireCapture.newConnectionId();
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int n = 0; n < MESSAGES_PER_WRITER; n++) {
+                        WireCapture.capture(WireCapture.PROTOCOL_SIP, WireCapture.DIRECTION_IN,
+                                connectionId, data, 0, data.length);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        List<Record> records = WireCaptureReader.read(mDirectory);
+        assertEquals(WRITERS * MESSAGES_PER_WRITER, records.size());
+        for (Record record : records) {
+            assertEquals(INVITE, new String(record.getData(), UTF8));
+        }
+    }
+
+    public void testCaptureCost() throws Exception {
+        byte[] data = INVITE.getBytes(UTF8);
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            WireCapture.capture(WireCapture.PROTOCOL_SIP, WireCapture.DIRECTION_IN, 1, data, 0,
+                    data.length);
+        }
+        long stoppedDuration = System.nanoTime() - start;
+        WireCapture.start(mDirectory, 1024 * 1024, 4);
+        start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            WireCapture.capture(WireCapture.PROTOCOL_SIP, WireCapture.DIRECTION_IN, 1, data, 0,
+                    data.length);
+        }
+        long startedDuration = System.nanoTime() - start;
+        assertTrue("Stopped " + stoppedDuration / CALLS + " ns per message, started "
+                + startedDuration / CALLS + " ns per message", stoppedDuration < startedDuration);
+    }
+}
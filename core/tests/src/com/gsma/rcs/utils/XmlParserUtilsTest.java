@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Software Name : RCS IMS Stack
+ *
+ * Copyright (C) 2010-2016 Orange.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package com.gsma.rcs.utils;
+
+import com.gsma.rcs.utils.logger.Logger;
+
+import android.test.AndroidTestCase;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+public class XmlParserUtilsTest extends AndroidTestCase {
+
+    private static final Logger sLogger = Logger.getLogger(XmlParserUtilsTest.class.getName());
+
+    private static final int DOCUMENTS = 2000;
+
+    private static final String IMDN = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<imdn xmlns=\"urn:ietf:params:xml:ns:imdn\"><message-id>34jk324j</message-id>"
+            + "<datetime>2008-04-04T12:16:49-05:00</datetime><display-notification><status>"
+            + "<displayed/></status></display-notification></imdn>";
+
+    private static final String IS_COMPOSING = "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+            + "<isComposing xmlns=\"urn:ietf:params:xml:ns:im-iscomposing\"><state>active</state>"
+            + "<contenttype>text/plain</contenttype><refresh>60</refresh></isComposing>";
+
+    private static final String CONFERENCE_INFO = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<conference-info xmlns=\"urn:ietf:params:xml:ns:conference-info\""
+            + " entity=\"sips:conf233@example.com\" state=\"partial\" version=\"2\"><users>"
+            + "<user entity=\"tel:+33612345678\" state=\"partial\"><endpoint"
+            + " entity=\"tel:+33612345678\"><status>connected</status></endpoint></user>"
+            + "</users></conference-info>";
+
+    private static final String PIDF = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<presence xmlns=\"urn:ietf:params:xml:ns:pidf\" entity=\"tel:+33612345678\">"
+            + "<tuple id=\"t1\"><status><basic>open</basic></status>"
+            + "<contact>tel:+33612345678</contact></tuple></presence>";
+
+    /**
+     * Handler collecting the names of the elements of a document
+     */
+    private static class ElementHandler extends DefaultHandler {
+
+        private final List<String> mElements = new ArrayList<>();
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attr) {
+            mElements.add(qName);
+        }
+    }
+
+    private static InputSource getInputSource(String document) {
+        return new InputSource(new ByteArrayInputStream(document.getBytes()));
+    }
+
+    public void testParseSeveralDocuments() throws ParserConfigurationException, SAXException,
+            IOException {
+        for (int i = 0; i < 3; i++) {
+            ElementHandler handler = new ElementHandler();
+            XmlParserUtils.parse(getInputSource(IS_COMPOSING), handler);
+            assertEquals(4, handler.mElements.size());
+            assertEquals("isComposing", handler.mElements.get(0));
+            assertEquals("refresh", handler.mElements.get(3));
+        }
+    }
+
+    public void testParseFromHandler() throws ParserConfigurationException, SAXException,
+            IOException {
+        final ElementHandler innerHandler = new ElementHandler();
+        ElementHandler outerHandler = new ElementHandler() {
+            @Override
+            public void endDocument() throws SAXException {
+                try {
+                    XmlParserUtils.parse(getInputSource(IMDN), innerHandler);
+
+                } catch (ParserConfigurationException | IOException e) {
+                    throw new SAXException(e);
+                }
+            }
+        };
+        XmlParserUtils.parse(getInputSource(IS_COMPOSING), outerHandler);
+        assertEquals(4, outerHandler.mElements.size());
+        assertEquals("imdn", innerHandler.mElements.get(0));
+    }
+
+    public void testParseAfterInvalidDocument() throws ParserConfigurationException,
+            SAXException, IOException {
+        try {
+            XmlParserUtils.parse(getInputSource("<imdn><message-id></imdn>"),
+                    new ElementHandler());
+            fail("SAXException expected");
+
+        } catch (SAXException e) {
+            /* Expected */
+        }
+        ElementHandler handler = new ElementHandler();
+        XmlParserUtils.parse(getInputSource(IMDN), handler);
+        assertEquals("displayed", handler.mElements.get(handler.mElements.size() - 1));
+    }
+
+    /**
+     * Measure the cost per document of parsing with the parser of the thread, compared with
+     * looking up a factory and building a parser for each document
+     */
+    public void testCostPerDocument() throws ParserConfigurationException, SAXException,
+            IOException {
+        String[] names = new String[] {
+                "imdn", "is-composing", "conference-info", "pidf"
+        };
+        String[] documents = new String[] {
+                IMDN, IS_COMPOSING, CONFERENCE_INFO, PIDF
+        };
+        for (int i = 0; i < documents.length; i++) {
+            long start = System.nanoTime();
+            for (int n = 0; n < DOCUMENTS; n++) {
+                XmlParserUtils.parse(getInputSource(documents[i]), new ElementHandler());
+            }
+            long reused = (System.nanoTime() - start) / DOCUMENTS;
+            start = System.nanoTime();
+            for (int n = 0; n < DOCUMENTS; n++) {
+                SAXParserFactory.newInstance().newSAXParser()
+                        .parse(getInputSource(documents[i]), new ElementHandler());
+            }
+            long created = (System.nanoTime() - start) / DOCUMENTS;
+            if (sLogger.isActivated()) {
+                sLogger.info(new StringBuilder(names[i]).append(": ").append(reused)
+                        .append(" ns per document with a reused parser, ").append(created)
+                        .append(" ns with a new parser").toString());
+            }
+        }
+    }
+}
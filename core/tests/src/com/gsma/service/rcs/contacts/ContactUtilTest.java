@@ -22,6 +22,7 @@ import com.gsma.rcs.RcsSettingsMock;
 import com.gsma.rcs.platform.AndroidFactory;
 import com.gsma.rcs.provider.settings.RcsSettings;
 import com.gsma.rcs.utils.ContactUtil;
+import com.gsma.services.rcs.contact.ContactId;
 
 import android.content.Context;
 import android.test.AndroidTestCase;
@@ -48,4 +49,34 @@ public class ContactUtilTest extends AndroidTestCase {
         assertEquals("+33640519308", number.getNumber());
     }
 
+    public void testGetValidPhoneNumberFromSipUri() {
+        String sipUri = "\"Bob\" <sip:+33640519308@domain.com;user=phone?Subject=x>";
+        ContactUtil.PhoneNumber number = ContactUtil.getValidPhoneNumberFromUri(sipUri);
+        assertNotNull(number);
+        assertEquals("+33640519308", number.getNumber());
+        assertSame(number, ContactUtil.getValidPhoneNumberFromUri(sipUri));
+    }
+
+    public void testGetValidPhoneNumberFromTelUriWithParameters() {
+        ContactUtil.PhoneNumber number = ContactUtil
+                .getValidPhoneNumberFromUri("tel:+33640519308;phone-context=domain.com");
+        assertNotNull(number);
+        assertEquals("+33640519308", number.getNumber());
+    }
+
+    public void testGetInvalidPhoneNumberFromUri() {
+        assertNull(ContactUtil.getValidPhoneNumberFromUri("sip:alice@domain.com"));
+        assertNull(ContactUtil.getValidPhoneNumberFromUri("<sip:+336405193080123456@domain.com>"));
+        assertNull(ContactUtil.getValidPhoneNumberFromUri(null));
+    }
+
+    public void testCreateContactIdFromValidatedData() {
+        ContactUtil.PhoneNumber number = ContactUtil
+                .getValidPhoneNumberFromUri("<tel:0033640519308>");
+        assertNotNull(number);
+        ContactId contact = ContactUtil.createContactIdFromValidatedData(number);
+        assertEquals("+33640519308", contact.toString());
+        assertSame(contact, ContactUtil.createContactIdFromValidatedData(number));
+    }
+
 }
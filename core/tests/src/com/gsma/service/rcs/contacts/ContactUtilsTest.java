@@ -69,6 +69,18 @@ public class ContactUtilsTest extends AndroidTestCase {
         assertFalse(mContactUtils.isValidContact("012345a"));
     }
 
+    public void testIsValidContactMisplacedPlus() throws RcsPermissionDeniedException {
+        assertFalse(mContactUtils.isValidContact("33+612345678"));
+        assertFalse(mContactUtils.isValidContact("++33612345678"));
+    }
+
+    public void testIsValidContactInternationalPrefixMaxLength()
+            throws RcsPermissionDeniedException {
+        assertTrue(mContactUtils.isValidContact("00123456789012345"));
+        assertFalse(mContactUtils.isValidContact("001234567890123456"));
+        assertFalse(mContactUtils.isValidContact("+0123456789012345"));
+    }
+
     public void testIsValidContactWrongAreaCode() throws RcsPermissionDeniedException {
         assertFalse(mContactUtils.isValidContact(mNextCountryAreaCode.concat("123456789")));
     }
@@ -40,8 +40,6 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Utility class for validation and unique formatting of phone numbers
@@ -71,14 +69,9 @@ public class ContactUtil {
     private final Context mCtx;
 
     /**
-     * Regular expression to validate phone numbers
+     * Maximum number of digits of a phone number, not counting the international prefix
      */
-    private final static String REGEXP_CONTACT = "^00\\d{1,15}$|^[+]?\\d{1,15}$|^\\d{1,15}$";
-
-    /**
-     * Pattern to check contact
-     */
-    private final static Pattern PATTERN_CONTACT = Pattern.compile(REGEXP_CONTACT);
+    private final static int MAX_DIGITS = 15;
 
     private final static String MSISDN_PREFIX_INTERNATIONAL = "00";
 
@@ -376,18 +369,49 @@ public class ContactUtil {
     }
 
     /**
-     * Removes blank and minus characters from contact
+     * Removes blank and minus characters from contact and checks that the remaining characters
+     * are 1 to 15 digits, optionally preceded by a '+' or by the "00" international prefix. The
+     * contact is scanned once and a new string is only allocated if it contains separators.
      * 
      * @param contact the phone number
-     * @return phone string stripped of separators.
+     * @return phone string stripped of separators or null if not valid.
      */
     private String stripSeparators(String contact) {
-        contact = contact.replaceAll("[ -]", "");
-        Matcher matcher = PATTERN_CONTACT.matcher(contact);
-        if (matcher.find()) {
-            return matcher.group();
+        int length = contact.length();
+        StringBuilder stripped = null;
+        int strippedLength = 0;
+        char first = 0;
+        int digits = 0;
+        boolean internationalPrefix = false;
+        for (int i = 0; i < length; i++) {
+            char c = contact.charAt(i);
+            if (c == ' ' || c == '-') {
+                if (stripped == null) {
+                    stripped = new StringBuilder(length).append(contact, 0, i);
+                }
+                continue;
+            }
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (digits == 2 && first == '0' && c == '0') {
+                    internationalPrefix = true;
+                }
+            } else if (c != '+' || strippedLength != 0) {
+                return null;
+            }
+            if (strippedLength++ == 0) {
+                first = c;
+            }
+            if (stripped != null) {
+                stripped.append(c);
+            }
+        }
+        int maxDigits = internationalPrefix ? MAX_DIGITS + MSISDN_PREFIX_INTERNATIONAL.length()
+                : MAX_DIGITS;
+        if (digits == 0 || digits > maxDigits) {
+            return null;
         }
-        return null;
+        return stripped == null ? contact : stripped.toString();
     }
 
     /**
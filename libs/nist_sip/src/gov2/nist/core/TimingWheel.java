@@ -0,0 +1,285 @@
+package gov2.nist.core;
+
+import java.util.ArrayList;
+
+/**
+ * Hashed timing wheel: a replacement of java.util.Timer for the large number
+ * of short timers of the SIP and MSRP transactions.
+ *
+ * The time is cut in ticks and the tasks are hashed by expiration tick in a
+ * circular array of buckets. A task expiring after more than one turn of the
+ * wheel keeps the number of remaining turns. Scheduling and cancelling a task
+ * are constant time operations, whatever the number of pending tasks, and a
+ * cancelled task is unlinked at once instead of staying in a queue until its
+ * expiration. A task is run up to one tick after its expiration, never
+ * before it.
+ *
+ * The thread of the wheel only wakes up for the ticks of the non-empty
+ * buckets and sleeps until a task is scheduled when none is pending.
+ *
+ * The tasks are run sequentially by the thread of the wheel: a failing task
+ * does not stop the wheel.
+ *
+ * This code is in the public domain.
+ *
+ * @see TimingWheelTask
+ */
+public class TimingWheel {
+
+    /// Default duration of a tick in milliseconds
+    public static final long DEFAULT_TICK_DURATION = 10;
+
+    /// Default number of buckets (one turn of the wheel every 5 seconds)
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static TimingWheel sharedWheel;
+
+    /// Duration of a tick in nanoseconds
+    private final long tickDuration;
+
+    private final int mask;
+
+    private final TimingWheelTask[] buckets;
+
+    private final long startTime = System.nanoTime();
+
+    /// Next tick to process
+    private long tick;
+
+    /// Tick the thread of the wheel waits for, Long.MAX_VALUE if none
+    private long wakeUpTick = Long.MAX_VALUE;
+
+    private int pendingCount;
+
+    private boolean cancelled;
+
+    /**
+     * Returns the wheel shared by the tasks which do not depend on the life
+     * cycle of a SIP stack. Its thread is a daemon thread.
+     *
+     * @return the shared wheel
+     */
+    public static synchronized TimingWheel getSharedWheel() {
+        if (sharedWheel == null)
+            sharedWheel = new TimingWheel("SharedTimingWheel", true);
+        return sharedWheel;
+    }
+
+    /**
+     * Create a wheel with the default tick duration and size and start its
+     * thread.
+     *
+     * @param name name of the thread of the wheel.
+     * @param isDaemon true if the thread of the wheel is a daemon thread.
+     */
+    public TimingWheel(String name, boolean isDaemon) {
+        this(name, isDaemon, DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * Create a wheel and start its thread.
+     *
+     * @param name name of the thread of the wheel.
+     * @param isDaemon true if the thread of the wheel is a daemon thread.
+     * @param tickDuration duration of a tick in milliseconds.
+     * @param wheelSize number of buckets, a power of two.
+     */
+    public TimingWheel(String name, boolean isDaemon, long tickDuration, int wheelSize) {
+        if (tickDuration <= 0)
+            throw new IllegalArgumentException("Non-positive tick duration.");
+        if (wheelSize <= 0 || (wheelSize & (wheelSize - 1)) != 0)
+            throw new IllegalArgumentException("Wheel size is not a power of two.");
+        this.tickDuration = tickDuration * 1000000;
+        this.mask = wheelSize - 1;
+        this.buckets = new TimingWheelTask[wheelSize];
+        Thread thread = new Thread(new Worker(), name);
+        thread.setDaemon(isDaemon);
+        thread.start();
+    }
+
+    /**
+     * Schedule a task to be run once after a delay.
+     *
+     * @param task task to schedule.
+     * @param delay delay in milliseconds.
+     * @throws IllegalArgumentException if the delay is negative.
+     * @throws IllegalStateException if the task is already scheduled or
+     *         cancelled, or if the wheel is cancelled.
+     */
+    public void schedule(TimingWheelTask task, long delay) {
+        schedule(task, delay, 0);
+    }
+
+    /**
+     * Schedule a task to be run repeatedly after a delay, with a fixed delay
+     * between the executions.
+     *
+     * @param task task to schedule.
+     * @param delay delay before the first execution in milliseconds.
+     * @param period delay between the executions in milliseconds or 0 to run
+     *        the task once.
+     * @throws IllegalArgumentException if the delay or the period is negative.
+     * @throws IllegalStateException if the task is already scheduled or
+     *         cancelled, or if the wheel is cancelled.
+     */
+    public void schedule(TimingWheelTask task, long delay, long period) {
+        if (delay < 0)
+            throw new IllegalArgumentException("Negative delay.");
+        if (period < 0)
+            throw new IllegalArgumentException("Negative period.");
+        synchronized (this) {
+            if (cancelled)
+                throw new IllegalStateException("Timing wheel already cancelled.");
+            if (task.state != TimingWheelTask.VIRGIN)
+                throw new IllegalStateException("Task already scheduled or cancelled.");
+            task.wheel = this;
+            task.period = period;
+            task.state = TimingWheelTask.SCHEDULED;
+            add(task, delay);
+        }
+    }
+
+    /**
+     * Cancel the wheel: the pending tasks are discarded and its thread ends.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = null;
+        }
+        pendingCount = 0;
+        notifyAll();
+    }
+
+    /**
+     * Returns the number of scheduled tasks.
+     *
+     * @return the number of tasks waiting for their expiration.
+     */
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    // Elapsed time in nanoseconds: not truncated to the millisecond so that
+    // a task never expires before its delay.
+    private long getElapsedTime() {
+        return System.nanoTime() - startTime;
+    }
+
+    // Called with the lock of the wheel held.
+    private void add(TimingWheelTask task, long delay) {
+        if (pendingCount == 0) {
+            // The ticks elapsed while the wheel was idle are skipped
+            long currentTick = getElapsedTime() / tickDuration;
+            if (currentTick > tick)
+                tick = currentTick;
+        }
+        long expiration = (getElapsedTime() + delay * 1000000 + tickDuration - 1)
+                / tickDuration;
+        if (expiration < tick)
+            expiration = tick;
+        int bucket = (int) (expiration & mask);
+        task.bucket = bucket;
+        task.remainingRounds = (expiration - tick) / buckets.length;
+        task.previous = null;
+        task.next = buckets[bucket];
+        if (task.next != null)
+            task.next.previous = task;
+        buckets[bucket] = task;
+        pendingCount++;
+        // Wake up the thread if the bucket is reached before the tick it waits for
+        if (expiration - task.remainingRounds * buckets.length < wakeUpTick)
+            notifyAll();
+    }
+
+    // Called with the lock of the wheel held.
+    void remove(TimingWheelTask task) {
+        if (task.previous != null)
+            task.previous.next = task.next;
+        else if (buckets[task.bucket] == task)
+            buckets[task.bucket] = task.next;
+        else
+            return;
+        if (task.next != null)
+            task.next.previous = task.previous;
+        task.previous = null;
+        task.next = null;
+        pendingCount--;
+    }
+
+    // Called with the lock of the wheel held: returns the tick of the next
+    // non-empty bucket or Long.MAX_VALUE if no task is pending.
+    private long getNextTick() {
+        if (pendingCount == 0)
+            return Long.MAX_VALUE;
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[(int) ((tick + i) & mask)] != null)
+                return tick + i;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    // Called with the lock of the wheel held: unlink the expired tasks of the
+    // bucket of the current tick, then move to the next tick and reschedule
+    // the periodic tasks.
+    private void expireTasks(ArrayList<TimingWheelTask> expired) {
+        TimingWheelTask task = buckets[(int) (tick & mask)];
+        while (task != null) {
+            TimingWheelTask next = task.next;
+            if (task.remainingRounds <= 0) {
+                remove(task);
+                expired.add(task);
+            } else {
+                task.remainingRounds--;
+            }
+            task = next;
+        }
+        tick++;
+        for (int i = 0; i < expired.size(); i++) {
+            task = expired.get(i);
+            if (task.period > 0)
+                add(task, task.period);
+            else
+                task.state = TimingWheelTask.EXECUTED;
+        }
+    }
+
+    private class Worker implements Runnable {
+        public void run() {
+            ArrayList<TimingWheelTask> expired = new ArrayList<TimingWheelTask>();
+            while (true) {
+                synchronized (TimingWheel.this) {
+                    while (!cancelled) {
+                        wakeUpTick = getNextTick();
+                        long wait = 0;
+                        if (wakeUpTick != Long.MAX_VALUE) {
+                            wait = wakeUpTick * tickDuration - getElapsedTime();
+                            if (wait <= 0)
+                                break;
+                        }
+                        try {
+                            // Rounded up to the millisecond, 0 meaning forever
+                            TimingWheel.this.wait((wait + 999999) / 1000000);
+                        } catch (InterruptedException ex) {
+                        }
+                    }
+                    if (cancelled)
+                        return;
+                    // The buckets between the current tick and the next
+                    // non-empty one are empty: they are skipped
+                    tick = wakeUpTick;
+                    wakeUpTick = Long.MAX_VALUE;
+                    expireTasks(expired);
+                }
+                for (int i = 0; i < expired.size(); i++) {
+                    try {
+                        expired.get(i).run();
+                    } catch (RuntimeException ex) {
+                        Debug.logError("Timing wheel task failed", ex);
+                    }
+                }
+                expired.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package gov2.nist.core;
+
+/**
+ * A task scheduled once or periodically on a TimingWheel. This is the
+ * counterpart of java.util.TimerTask: the task is linked in a bucket of the
+ * wheel so that it is cancelled in constant time.
+ *
+ * This code is in the public domain.
+ *
+ * @see TimingWheel
+ */
+public abstract class TimingWheelTask implements Runnable {
+
+    static final int VIRGIN = 0;
+
+    static final int SCHEDULED = 1;
+
+    static final int EXECUTED = 2;
+
+    static final int CANCELLED = 3;
+
+    /// State of the task, guarded by the wheel
+    int state = VIRGIN;
+
+    /// Wheel the task is scheduled on
+    TimingWheel wheel;
+
+    /// Period in milliseconds or 0 for a one-shot task
+    long period;
+
+    /// Remaining turns of the wheel before the expiration
+    long remainingRounds;
+
+    /// Index of the bucket the task is linked in
+    int bucket;
+
+    /// Links of the bucket list
+    TimingWheelTask previous;
+
+    TimingWheelTask next;
+
+    protected TimingWheelTask() {
+    }
+
+    /**
+     * Cancel the task: a one-shot task is not run if it is not already
+     * running and a periodic task is not run anymore.
+     *
+     * @return true if this prevented one or more executions of the task.
+     */
+    public boolean cancel() {
+        TimingWheel scheduler = wheel;
+        if (scheduler == null) {
+            state = CANCELLED;
+            return false;
+        }
+        synchronized (scheduler) {
+            boolean result = state == SCHEDULED;
+            if (result)
+                scheduler.remove(this);
+            state = CANCELLED;
+            return result;
+        }
+    }
+}
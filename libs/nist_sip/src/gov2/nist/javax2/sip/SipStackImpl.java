@@ -239,6 +239,16 @@ import javax2.sip.message.Request;
  * multithreaded machine write your listener to be re-entrant and set this
  * property to be true </b></li>
  * 
+ * <li><b>gov2.nist.javax2.sip.BYTE_MESSAGE_PARSER = true|false </b> <br/>
+ * Default is false. Set to true to parse the received datagrams directly from
+ * their bytes with the ByteMsgParser, which does not create a String per line
+ * and reuses the lexer of the parsing thread.</li>
+ * 
+ * <li><b>gov2.nist.javax2.sip.LAZY_HEADER_PARSING = true|false </b> <br/>
+ * Default is false. Set to true to only parse the Via, CSeq, Call-ID, From,
+ * To, Content-Length and Max-Forwards headers of the received messages. The
+ * other headers are kept as received and parsed on first access.</li>
+ * 
  * <li><b>gov2.nist.javax2.sip.MAX_CONNECTIONS = integer </b> <br/>
  * Max number of simultaneous TCP connections handled by stack.</li>
  * 
@@ -812,6 +822,12 @@ public class SipStackImpl extends SIPTransactionStack implements
 			}
 		}
 
+		this.byteMessageParser = "true".equalsIgnoreCase(configurationProperties
+				.getProperty("gov2.nist.javax2.sip.BYTE_MESSAGE_PARSER"));
+
+		this.lazyHeaderParsing = "true".equalsIgnoreCase(configurationProperties
+				.getProperty("gov2.nist.javax2.sip.LAZY_HEADER_PARSING"));
+
 		String serverTransactionTableSize = configurationProperties
 				.getProperty("gov2.nist.javax2.sip.MAX_SERVER_TRANSACTIONS");
 		if (serverTransactionTableSize != null) {
@@ -17,6 +17,7 @@ package gov2.nist.javax2.sip.clientauthutils;
  * proposed a way to fix them (his proposition was taken into account).
  */
 
+import gov2.nist.core.TimingWheel;
 import gov2.nist.javax2.sip.SipStackImpl;
 import gov2.nist.javax2.sip.address.SipUri;
 import gov2.nist.javax2.sip.message.SIPRequest;
@@ -27,7 +28,6 @@ import java.text.ParseException;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.ListIterator;
-import java.util.Timer;
 
 import javax2.sip.ClientTransaction;
 import javax2.sip.DialogState;
@@ -79,7 +79,7 @@ public class AuthenticationHelperImpl implements AuthenticationHelper {
 
     private SipStackImpl sipStack;
 
-    Timer timer;
+    TimingWheel timer;
 
     /**
      * Default constructor for the security manager. There is one Account manager. There is one
@@ -1,5 +1,8 @@
 package gov2.nist.javax2.sip.clientauthutils;
 
+import gov2.nist.core.TimingWheel;
+import gov2.nist.core.TimingWheelTask;
+
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -24,9 +27,9 @@ class CredentialsCache {
      */
     private ConcurrentHashMap<String, List<AuthorizationHeader>> authorizationHeaders =
             new ConcurrentHashMap<String, List<AuthorizationHeader>>();
-    private Timer timer;
+    private TimingWheel timer;
 
-    class TimeoutTask extends TimerTask {
+    class TimeoutTask extends TimingWheelTask {
         String callId;
         String userName;
 
@@ -45,7 +48,7 @@ class CredentialsCache {
 
 
 
-    CredentialsCache (Timer timer) {
+    CredentialsCache (TimingWheel timer) {
         this.timer = timer;
     }
 
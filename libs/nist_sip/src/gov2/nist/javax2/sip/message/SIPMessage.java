@@ -172,6 +172,9 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
     // Table of headers indexed by name.
     private Hashtable<String, SIPHeader> nameTable;
 
+    // True if headers have been attached without being parsed.
+    private volatile boolean hasUnparsedHeaders;
+
     /**
      * The application data pointer. This is un-interpreted by the stack. This is provided as a
      * convenient way of keeping book-keeping data for applications.
@@ -214,6 +217,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
      *         canonical form.
      */
     public LinkedList<String> getMessageAsEncodedStrings() {
+        parseUnparsedHeaders();
         LinkedList<String> retval = new LinkedList<String>();
         Iterator<SIPHeader> li = headers.iterator();
         while (li.hasNext()) {
@@ -331,6 +335,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
         if (!template.getClass().equals(this.getClass()))
             throw new IllegalArgumentException("Bad class " + template.getClass());
         SIPMessage templateMessage = (SIPMessage) template;
+        templateMessage.parseUnparsedHeaders();
         Object[] templateHeaders = templateMessage.headers.toArray();
         for (int i = 0; i < templateHeaders.length; i++) {
             SIPHeader hdr = (SIPHeader) templateHeaders[i];
@@ -470,6 +475,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
      * @return A cloned copy of this object.
      */
     public Object clone() {
+        parseUnparsedHeaders();
         SIPMessage retval = (SIPMessage) super.clone();
         retval.nameTable = new Hashtable<String, SIPHeader>();
         retval.fromHeader = null;
@@ -653,6 +659,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
         }
 
         String headerNameLowerCase = SIPHeaderNamesCache.toLowerCase(h.getName());
+        parseUnparsedHeader(headerNameLowerCase);
         if (replaceFlag) {
             nameTable.remove(headerNameLowerCase);
         } else if (nameTable.containsKey(headerNameLowerCase) && !(h instanceof SIPHeaderList)) {
@@ -723,6 +730,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
     public void removeHeader(String headerName, boolean top) {
 
         String headerNameLowerCase = SIPHeaderNamesCache.toLowerCase(headerName);
+        parseUnparsedHeader(headerNameLowerCase);
         SIPHeader toRemove = (SIPHeader) nameTable.get(headerNameLowerCase);
         // nothing to do then we are done.
         if (toRemove == null)
@@ -901,6 +909,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
      * @return an Iterator for the headers of this message.
      */
     public Iterator<SIPHeader> getHeaders() {
+        parseUnparsedHeaders();
         return headers.iterator();
     }
 
@@ -916,6 +925,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
     private Header getHeaderLowerCase(String lowerCaseHeaderName) {
         if (lowerCaseHeaderName == null)
             throw new NullPointerException("bad name");
+        parseUnparsedHeader(lowerCaseHeaderName);
         SIPHeader sipHeader = (SIPHeader) nameTable.get(lowerCaseHeaderName);
         if (sipHeader instanceof SIPHeaderList)
             return (Header) ((SIPHeaderList) sipHeader).getFirst();
@@ -1386,8 +1396,9 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
     public ListIterator<SIPHeader> getHeaders(String headerName) {
         if (headerName == null)
             throw new NullPointerException("null headerName");
-        SIPHeader sipHeader = (SIPHeader) nameTable.get(SIPHeaderNamesCache
-                .toLowerCase(headerName));
+        String lowerCaseHeaderName = SIPHeaderNamesCache.toLowerCase(headerName);
+        parseUnparsedHeader(lowerCaseHeaderName);
+        SIPHeader sipHeader = (SIPHeader) nameTable.get(lowerCaseHeaderName);
         // empty iterator
         if (sipHeader == null)
             return new LinkedList<SIPHeader>().listIterator();
@@ -1407,6 +1418,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
      */
     public String getHeaderAsFormattedString(String name) {
         String lowerCaseName = name.toLowerCase();
+        parseUnparsedHeader(lowerCaseName);
         if (this.nameTable.containsKey(lowerCaseName)) {
             return this.nameTable.get(lowerCaseName).toString();
         } else {
@@ -1415,6 +1427,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
     }
 
     private SIPHeader getSIPHeaderListLowerCase(String lowerCaseHeaderName) {
+        parseUnparsedHeader(lowerCaseHeaderName);
         return nameTable.get(lowerCaseHeaderName);
     }
 
@@ -1426,8 +1439,9 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
      */
     @SuppressWarnings("unchecked")
     private List<SIPHeader> getHeaderList(String headerName) {
-        SIPHeader sipHeader = (SIPHeader) nameTable.get(SIPHeaderNamesCache
-                .toLowerCase(headerName));
+        String lowerCaseHeaderName = SIPHeaderNamesCache.toLowerCase(headerName);
+        parseUnparsedHeader(lowerCaseHeaderName);
+        SIPHeader sipHeader = (SIPHeader) nameTable.get(lowerCaseHeaderName);
         if (sipHeader == null)
             return null;
         else if (sipHeader instanceof SIPHeaderList)
@@ -1564,6 +1578,96 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
         }
     }
 
+    /**
+     * Attach a received header without parsing it: the header is parsed on the
+     * first access to a header of the same name and is encoded as received
+     * until then. The headers used by the transaction layer (Via, CSeq,
+     * Call-ID, From, To, Content-Length, Max-Forwards) must be attached parsed.
+     *
+     * @param name -- name of the header.
+     * @param header -- header (name and value) without the end of line.
+     */
+    public void attachUnparsedHeader(String name, String header) {
+        String headerNameLowerCase = SIPHeaderNamesCache.toLowerCase(name);
+        synchronized (nameTable) {
+            SIPHeader sipHeader = nameTable.get(headerNameLowerCase);
+            if (sipHeader instanceof UnparsedHeader) {
+                ((UnparsedHeader) sipHeader).add(header);
+            } else if (sipHeader != null) {
+                parseAndAttachHeader(header);
+            } else {
+                UnparsedHeader unparsed = new UnparsedHeader(name);
+                unparsed.add(header);
+                nameTable.put(headerNameLowerCase, unparsed);
+                headers.add(unparsed);
+                hasUnparsedHeaders = true;
+            }
+        }
+    }
+
+    /**
+     * Parse the unparsed headers of the given name. The parsed headers keep
+     * the position of the received ones in the list of headers and a header
+     * which fails to be parsed is moved to the unrecognized headers.
+     *
+     * @param lowerCaseHeaderName -- lower case name of the headers to parse.
+     */
+    protected final void parseUnparsedHeader(String lowerCaseHeaderName) {
+        if (!hasUnparsedHeaders)
+            return;
+        synchronized (nameTable) {
+            SIPHeader sipHeader = nameTable.get(lowerCaseHeaderName);
+            if (!(sipHeader instanceof UnparsedHeader))
+                return;
+            UnparsedHeader unparsed = (UnparsedHeader) sipHeader;
+            nameTable.remove(lowerCaseHeaderName);
+            for (String rawHeader : unparsed.getRawHeaders()) {
+                parseAndAttachHeader(rawHeader);
+            }
+            // The parsed headers are appended: move the headers following the unparsed
+            // ones after them, in place as other threads may be iterating the list.
+            SIPHeader parsed = nameTable.get(lowerCaseHeaderName);
+            List<SIPHeader> following = new LinkedList<SIPHeader>();
+            boolean found = false;
+            Iterator<SIPHeader> iterator = headers.iterator();
+            while (iterator.hasNext()) {
+                SIPHeader next = iterator.next();
+                if (next == unparsed) {
+                    iterator.remove();
+                    found = true;
+                } else if (found && next != parsed) {
+                    iterator.remove();
+                    following.add(next);
+                }
+            }
+            headers.addAll(following);
+        }
+    }
+
+    /**
+     * Parse all the unparsed headers.
+     */
+    protected final void parseUnparsedHeaders() {
+        if (!hasUnparsedHeaders)
+            return;
+        synchronized (nameTable) {
+            for (SIPHeader sipHeader : headers) {
+                if (sipHeader instanceof UnparsedHeader)
+                    parseUnparsedHeader(SIPHeaderNamesCache.toLowerCase(sipHeader.getName()));
+            }
+            hasUnparsedHeaders = false;
+        }
+    }
+
+    private void parseAndAttachHeader(String header) {
+        try {
+            HeaderParser parser = ParserFactory.createParser(header + "\n");
+            attachHeader(parser.parse());
+        } catch (ParseException ex) {
+            this.unrecognizedHeaders.add(header);
+        }
+    }
+
     /**
      * Get a list containing the unrecognized headers.
      * 
@@ -1580,6 +1684,7 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
      *         are present in the message.
      */
     public ListIterator<String> getHeaderNames() {
+        parseUnparsedHeaders();
         Iterator<SIPHeader> li = this.headers.iterator();
         LinkedList<String> retval = new LinkedList<String>();
         while (li.hasNext()) {
@@ -1600,6 +1705,8 @@ public abstract class SIPMessage extends MessageObject implements javax2.sip.mes
             return false;
         }
         SIPMessage otherMessage = (SIPMessage) other;
+        parseUnparsedHeaders();
+        otherMessage.parseUnparsedHeaders();
         Collection<SIPHeader> values = this.nameTable.values();
         Iterator<SIPHeader> it = values.iterator();
         if (nameTable.size() != otherMessage.nameTable.size()) {
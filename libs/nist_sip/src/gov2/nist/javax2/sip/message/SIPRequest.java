@@ -693,7 +693,11 @@ public final class SIPRequest extends SIPMessage implements javax2.sip.message.R
             newResponse.setReasonPhrase(reasonPhrase);
         else
             newResponse.setReasonPhrase(SIPResponse.getReasonPhrase(statusCode));
-        headerIterator = getHeaders();
+        // Only parse the received headers which may be copied to the response.
+        if (mustCopyRR(statusCode))
+            parseUnparsedHeader(RECORD_ROUTE_LOWERCASE);
+        parseUnparsedHeader(TIMESTAMP_LOWERCASE);
+        headerIterator = headers.iterator();
         while (headerIterator.hasNext()) {
             nextHeader = (SIPHeader) headerIterator.next();
             if (nextHeader instanceof From
@@ -729,6 +733,12 @@ public final class SIPRequest extends SIPMessage implements javax2.sip.message.R
         return newResponse;
     }
 
+    private static final String RECORD_ROUTE_LOWERCASE = SIPHeaderNamesCache
+            .toLowerCase(RecordRouteHeader.NAME);
+
+    private static final String TIMESTAMP_LOWERCASE = SIPHeaderNamesCache
+            .toLowerCase(TimeStampHeader.NAME);
+
     // Helper method for createResponse, to avoid copying Record-Route unless needed
     private final boolean mustCopyRR( int code ) {
     	// Only for 1xx-2xx, not for 100 or errors
@@ -0,0 +1,72 @@
+/*
+* Conditions Of Use
+*
+* This software was developed by employees of the National Institute of
+* Standards and Technology (NIST), an agency of the Federal Government.
+* Pursuant to title 15 Untied States Code Section 105, works of NIST
+* employees are not subject to copyright protection in the United States
+* and are considered to be in the public domain.  As a result, a formal
+* license is not needed to use the software.
+*
+* This software is provided by NIST as a service and is expressly
+* provided "AS IS."  NIST MAKES NO WARRANTY OF ANY KIND, EXPRESS, IMPLIED
+* OR STATUTORY, INCLUDING, WITHOUT LIMITATION, THE IMPLIED WARRANTY OF
+* MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, NON-INFRINGEMENT
+* AND DATA ACCURACY.  NIST does not warrant or make any representations
+* regarding the use of the software or the results thereof, including but
+* not limited to the correctness, accuracy, reliability or usefulness of
+* the software.
+*
+* Permission to use this software is contingent upon your acceptance
+* of the terms of this agreement
+*
+* .
+*
+*/
+package gov2.nist.javax2.sip.message;
+
+import gov2.nist.javax2.sip.header.SIPHeader;
+
+import java.util.LinkedList;
+
+/**
+ * Headers of a given name received in a message and not parsed yet. The
+ * parsers attach it in place of the parsed headers when the lazy header
+ * parsing is enabled: the raw text is encoded as received until the SIPMessage
+ * parses it on the first access to a header of that name.
+ *
+ * @see SIPMessage#attachUnparsedHeader(String, String)
+ */
+final class UnparsedHeader extends SIPHeader {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The received headers (name and value) in the order of the message.
+     */
+    private final LinkedList<String> rawHeaders = new LinkedList<String>();
+
+    UnparsedHeader(String hname) {
+        super(hname);
+    }
+
+    void add(String rawHeader) {
+        rawHeaders.add(rawHeader);
+    }
+
+    LinkedList<String> getRawHeaders() {
+        return rawHeaders;
+    }
+
+    public StringBuffer encode(StringBuffer buffer) {
+        for (String rawHeader : rawHeaders) {
+            buffer.append(rawHeader).append(NEWLINE);
+        }
+        return buffer;
+    }
+
+    protected String encodeBody() {
+        String rawHeader = rawHeaders.getFirst();
+        return rawHeader.substring(rawHeader.indexOf(':') + 1).trim();
+    }
+}
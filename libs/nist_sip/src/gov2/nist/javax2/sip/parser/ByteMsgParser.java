@@ -0,0 +1,372 @@
+/*
+ * Conditions Of Use
+ *
+ * This software was developed by employees of the National Institute of
+ * Standards and Technology (NIST), an agency of the Federal Government.
+ * Pursuant to title 15 Untied States Code Section 105, works of NIST
+ * employees are not subject to copyright protection in the United States
+ * and are considered to be in the public domain.  As a result, a formal
+ * license is not needed to use the software.
+ *
+ * This software is provided by NIST as a service and is expressly
+ * provided "AS IS."  NIST MAKES NO WARRANTY OF ANY KIND, EXPRESS, IMPLIED
+ * OR STATUTORY, INCLUDING, WITHOUT LIMITATION, THE IMPLIED WARRANTY OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE, NON-INFRINGEMENT
+ * AND DATA ACCURACY.  NIST does not warrant or make any representations
+ * regarding the use of the software or the results thereof, including but
+ * not limited to the correctness, accuracy, reliability or usefulness of
+ * the software.
+ *
+ * Permission to use this software is contingent upon your acceptance
+ * of the terms of this agreement
+ *
+ * .
+ *
+ */
+
+/*******************************************************************************
+ * Product of NIST/ITL Advanced Networking Technologies Division (ANTD)        *
+ ******************************************************************************/
+
+package gov2.nist.javax2.sip.parser;
+
+import gov2.nist.javax2.sip.SIPConstants;
+import gov2.nist.javax2.sip.header.ExtensionHeaderImpl;
+import gov2.nist.javax2.sip.header.NameMap;
+import gov2.nist.javax2.sip.header.RequestLine;
+import gov2.nist.javax2.sip.header.SIPHeader;
+import gov2.nist.javax2.sip.header.StatusLine;
+import gov2.nist.javax2.sip.message.SIPMessage;
+import gov2.nist.javax2.sip.message.SIPRequest;
+import gov2.nist.javax2.sip.message.SIPResponse;
+
+import java.nio.charset.Charset;
+import java.text.ParseException;
+
+/**
+ * Parse a SIP message directly from the received bytes. This is the byte
+ * level counterpart of StringMsgParser.parseSIPMessage(byte[]): the line and
+ * header boundaries are located in the byte array, a folded header is
+ * unfolded while it is copied, so that a single String is created per header,
+ * and the lexer used to parse the headers is reused by the parsing thread
+ * instead of being created per header.
+ *
+ * @see StringMsgParser
+ */
+public class ByteMsgParser {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String SIP_VERSION_PREFIX = SIPConstants.SIP_VERSION_STRING;
+
+    /**
+     * Per thread parsing context: lexer and buffer in which a header is
+     * unfolded.
+     */
+    private static class Context {
+        private final Lexer lexer = new Lexer("command_keywordLexer", "");
+        private char[] chars = new char[256];
+    }
+
+    private static final ThreadLocal<Context> contexts = new ThreadLocal<Context>() {
+        @Override
+        protected Context initialValue() {
+            return new Context();
+        }
+    };
+
+    protected boolean readBody = true;
+
+    private ParseExceptionListener parseExceptionListener;
+
+    private boolean lazyHeaderParsing;
+
+    public ByteMsgParser() {
+    }
+
+    /**
+     * Constructor (given a parse exception handler).
+     *
+     * @param exhandler
+     *            is the parse exception listener for the message parser.
+     */
+    public ByteMsgParser(ParseExceptionListener exhandler) {
+        parseExceptionListener = exhandler;
+    }
+
+    /**
+     * Add a handler for header parsing errors.
+     *
+     * @param pexhandler
+     *            is a class that implements the ParseExceptionListener
+     *            interface.
+     */
+    public void setParseExceptionListener(ParseExceptionListener pexhandler) {
+        parseExceptionListener = pexhandler;
+    }
+
+    /**
+     * Enable the lazy header parsing: the headers which are not used by the
+     * transaction layer are attached unparsed to the message.
+     *
+     * @param lazyHeaderParsing
+     *            true to enable the lazy header parsing.
+     * @see StringMsgParser#setLazyHeaderParsing(boolean)
+     */
+    public void setLazyHeaderParsing(boolean lazyHeaderParsing) {
+        this.lazyHeaderParsing = lazyHeaderParsing;
+    }
+
+    /**
+     * Parse a buffer containing a single SIP Message where the body is an
+     * array of un-interpreted bytes.
+     *
+     * @param msgBuffer
+     *            a byte buffer containing the message to be parsed.
+     * @return a SIPMessage structure (request or response) containing the
+     *         parsed SIP message.
+     * @exception ParseException
+     *                is thrown when an illegal message has been encountered.
+     */
+    public SIPMessage parseSIPMessage(byte[] msgBuffer) throws ParseException {
+        if (msgBuffer == null)
+            return null;
+        return parseSIPMessage(msgBuffer, 0, msgBuffer.length);
+    }
+
+    /**
+     * Parse a SIP Message held by a part of a byte buffer.
+     *
+     * @param msgBuffer
+     *            a byte buffer containing the message to be parsed.
+     * @param offset
+     *            offset of the message in the buffer.
+     * @param length
+     *            length of the message.
+     * @return a SIPMessage structure (request or response) containing the
+     *         parsed SIP message or null if the buffer only holds control
+     *         characters.
+     * @exception ParseException
+     *                is thrown when an illegal message has been encountered.
+     */
+    public SIPMessage parseSIPMessage(byte[] msgBuffer, int offset, int length)
+            throws ParseException {
+        int end = offset + length;
+        int i = offset;
+
+        // Squeeze out any leading control character.
+        while (i < end && msgBuffer[i] < 0x20)
+            i++;
+        if (i == end)
+            return null;
+
+        Context context = contexts.get();
+        SIPMessage message = null;
+        // Boundaries of the header being accumulated (first line excluded)
+        int headerStart = -1;
+        int headerEnd = -1;
+        boolean folded = false;
+        while (true) {
+            int lineStart = i;
+            while (i < end && msgBuffer[i] != '\r' && msgBuffer[i] != '\n')
+                i++;
+            if (i == end) {
+                // End of the message without empty line.
+                break;
+            }
+            int lineEnd = trimEndOfLine(msgBuffer, lineStart, i);
+
+            // Skip the end of line.
+            if (msgBuffer[i] == '\r' && i + 1 < end && msgBuffer[i + 1] == '\n')
+                i++;
+            i++;
+
+            if (lineEnd == lineStart) {
+                // Empty line: process the previous buffered header.
+                if (headerStart >= 0 && message != null)
+                    processHeader(context, msgBuffer, headerStart, headerEnd,
+                            folded, message);
+                break;
+            }
+            if (message == null) {
+                message = processFirstLine(context, toHeaderString(context,
+                        msgBuffer, lineStart, lineEnd, false));
+                continue;
+            }
+            byte firstByte = msgBuffer[lineStart];
+            if (firstByte == '\t' || firstByte == ' ') {
+                if (headerStart < 0)
+                    throw new ParseException("Bad header continuation.", 0);
+                // This is a continuation, unfolded when the header is copied.
+                headerEnd = lineEnd;
+                folded = true;
+            } else {
+                if (headerStart >= 0)
+                    processHeader(context, msgBuffer, headerStart, headerEnd,
+                            folded, message);
+                headerStart = lineStart;
+                headerEnd = lineEnd;
+                folded = false;
+            }
+        }
+
+        if (message == null)
+            throw new ParseException("Bad message", 0);
+        message.setSize(i - offset);
+
+        if (readBody && message.getContentLength() != null
+                && message.getContentLength().getContentLength() != 0) {
+            int bodyLength = end - i;
+            byte[] body = new byte[bodyLength];
+            System.arraycopy(msgBuffer, i, body, 0, bodyLength);
+            message.setMessageContent(body,
+                    StringMsgParser.isComputeContentLengthFromMessage(),
+                    message.getContentLength().getContentLength());
+        }
+        return message;
+    }
+
+    /**
+     * Returns the end of a line without its trailing white spaces.
+     */
+    private static int trimEndOfLine(byte[] buffer, int start, int end) {
+        while (end > start && buffer[end - 1] >= 0 && buffer[end - 1] <= 0x20)
+            end--;
+        return end;
+    }
+
+    /**
+     * Create the String to be parsed from a header, followed by the new line
+     * expected by the parsers. The end of line and the first white space of
+     * each continuation line are removed.
+     */
+    private static String toHeaderString(Context context, byte[] buffer,
+            int start, int end, boolean folded) {
+        char[] chars = context.chars;
+        if (chars.length < end - start + 1) {
+            chars = new char[Math.max(end - start + 1, 2 * chars.length)];
+            context.chars = chars;
+        }
+        int length = 0;
+        int i = start;
+        while (i < end) {
+            byte b = buffer[i];
+            if (b < 0) {
+                // Not ASCII: let the UTF-8 decoder handle the header.
+                return toUtf8HeaderString(buffer, start, end, folded);
+            }
+            if (folded && (b == '\r' || b == '\n')) {
+                // Remove the trailing white spaces of the line, the end of
+                // line and the first white space of the continuation line.
+                while (length > 0 && chars[length - 1] <= 0x20)
+                    length--;
+                while (i < end && (buffer[i] == '\r' || buffer[i] == '\n'))
+                    i++;
+                i++;
+                continue;
+            }
+            chars[length++] = (char) b;
+            i++;
+        }
+        chars[length++] = '\n';
+        return new String(chars, 0, length);
+    }
+
+    private static String toUtf8HeaderString(byte[] buffer, int start, int end,
+            boolean folded) {
+        String header = new String(buffer, start, end - start, UTF8);
+        if (folded) {
+            StringBuilder unfolded = new StringBuilder(header.length());
+            int i = 0;
+            while (i < header.length()) {
+                char c = header.charAt(i);
+                if (c == '\r' || c == '\n') {
+                    while (unfolded.length() > 0
+                            && unfolded.charAt(unfolded.length() - 1) <= 0x20)
+                        unfolded.setLength(unfolded.length() - 1);
+                    while (i < header.length()
+                            && (header.charAt(i) == '\r' || header.charAt(i) == '\n'))
+                        i++;
+                    i++;
+                    continue;
+                }
+                unfolded.append(c);
+                i++;
+            }
+            header = unfolded.toString();
+        }
+        return header + "\n";
+    }
+
+    private SIPMessage processFirstLine(Context context, String firstLine)
+            throws ParseException {
+        SIPMessage message;
+        Lexer lexer = context.lexer;
+        lexer.setBuffer(firstLine);
+        if (!firstLine.startsWith(SIP_VERSION_PREFIX)) {
+            message = new SIPRequest();
+            try {
+                RequestLine requestLine = new RequestLineParser(lexer).parse();
+                ((SIPRequest) message).setRequestLine(requestLine);
+            } catch (ParseException ex) {
+                if (this.parseExceptionListener != null)
+                    this.parseExceptionListener.handleException(ex, message,
+                            RequestLine.class, firstLine, null);
+                else
+                    throw ex;
+            }
+        } else {
+            message = new SIPResponse();
+            try {
+                StatusLine sl = new StatusLineParser(lexer).parse();
+                ((SIPResponse) message).setStatusLine(sl);
+            } catch (ParseException ex) {
+                if (this.parseExceptionListener != null)
+                    this.parseExceptionListener.handleException(ex, message,
+                            StatusLine.class, firstLine, null);
+                else
+                    throw ex;
+            }
+        }
+        return message;
+    }
+
+    private void processHeader(Context context, byte[] buffer, int start,
+            int end, boolean folded, SIPMessage message) throws ParseException {
+        String header = toHeaderString(context, buffer, start, end, folded);
+        if (lazyHeaderParsing) {
+            String headerName = Lexer.getHeaderName(header);
+            if (StringMsgParser.isLazyHeader(headerName)) {
+                message.attachUnparsedHeader(headerName,
+                        header.substring(0, header.length() - 1));
+                return;
+            }
+        }
+        Lexer lexer = context.lexer;
+        HeaderParser headerParser;
+        try {
+            lexer.setBuffer(header);
+            headerParser = ParserFactory.createParser(header, lexer);
+        } catch (ParseException ex) {
+            if (this.parseExceptionListener != null)
+                this.parseExceptionListener.handleException(ex, message, null,
+                        header, null);
+            return;
+        }
+
+        try {
+            SIPHeader sipHeader = headerParser.parse();
+            message.attachHeader(sipHeader, false);
+        } catch (ParseException ex) {
+            if (this.parseExceptionListener != null) {
+                String headerName = Lexer.getHeaderName(header);
+                Class headerClass = NameMap.getClassFromName(headerName);
+                if (headerClass == null) {
+                    headerClass = ExtensionHeaderImpl.class;
+                }
+                this.parseExceptionListener.handleException(ex, message,
+                        headerClass, header, null);
+            }
+        }
+    }
+}
@@ -71,6 +71,19 @@ public class Lexer extends LexerCore {
         this.selectLexer(lexerName);
     }
 
+    /**
+     * Reuse the lexer to scan a new buffer
+     *
+     * @param buffer the buffer to scan
+     */
+    public void setBuffer(String buffer) {
+        this.buffer = buffer;
+        this.bufferLen = buffer.length();
+        this.ptr = 0;
+        this.savedPtr = 0;
+        this.currentMatch = null;
+    }
+
     /**
      * get the header value of the line
      *
@@ -54,10 +54,13 @@ public class ParserFactory {
     private static Hashtable<String,Class<? extends HeaderParser>> parserTable;
     private static Class[] constructorArgs;
     private static Hashtable parserConstructorCache;
+    private static Hashtable<Class, Object> lexerConstructorCache;
+    private static final Object NO_LEXER_CONSTRUCTOR = new Object();
 
     static {
         parserTable = new Hashtable<String,Class<? extends HeaderParser>>();
         parserConstructorCache = new Hashtable();
+        lexerConstructorCache = new Hashtable<Class, Object>();
         constructorArgs = new Class[1];
         constructorArgs[0] = String.class;
         parserTable.put(ReplyToHeader.NAME.toLowerCase(), ReplyToParser.class);
@@ -315,6 +318,42 @@ public class ParserFactory {
             return new HeaderParser(line);
         }
     }
+
+    /**
+     * create a parser for a header reading from a lexer already set with the
+     * header line, so that the lexer can be reused from one header to the
+     * other. Parsers without lexer constructor get their own lexer.
+     */
+    public static HeaderParser createParser(String line, Lexer lexer)
+        throws ParseException {
+        String headerName = Lexer.getHeaderName(line);
+        if (headerName == null)
+            throw new ParseException("The header name or value is null", 0);
+
+        Class parserClass = (Class) parserTable.get(SIPHeaderNamesCache.toLowerCase(headerName));
+        if (parserClass == null)
+            return new HeaderParser(lexer);
+
+        Object cons = lexerConstructorCache.get(parserClass);
+        if (cons == null) {
+            try {
+                Constructor lexerCons = parserClass.getDeclaredConstructor(Lexer.class);
+                lexerCons.setAccessible(true);
+                cons = lexerCons;
+            } catch (NoSuchMethodException ex) {
+                cons = NO_LEXER_CONSTRUCTOR;
+            }
+            lexerConstructorCache.put(parserClass, cons);
+        }
+        if (cons == NO_LEXER_CONSTRUCTOR)
+            return createParser(line);
+        try {
+            return (HeaderParser) ((Constructor) cons).newInstance(lexer);
+        } catch (Exception ex) {
+            InternalErrorHandler.handleException(ex);
+            return null; // to placate the compiler.
+        }
+    }
 }
 /*
  * $Log: ParserFactory.java,v $
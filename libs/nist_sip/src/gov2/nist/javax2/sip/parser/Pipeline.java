@@ -26,6 +26,8 @@
 package gov2.nist.javax2.sip.parser;
 
 import gov2.nist.core.InternalErrorHandler;
+import gov2.nist.core.TimingWheel;
+import gov2.nist.core.TimingWheelTask;
 import gov2.nist.javax2.sip.stack.SIPStackTimerTask;
 
 import java.io.*;
@@ -47,13 +49,13 @@ public class Pipeline extends InputStream {
 
     private boolean isClosed;
 
-    private Timer timer;
+    private TimingWheel timer;
 
     private InputStream pipe;
 
     private int readTimeout;
 
-    private TimerTask myTimerTask;
+    private TimingWheelTask myTimerTask;
 
     class MyTimer extends SIPStackTimerTask {
         Pipeline pipeline;
@@ -119,7 +121,7 @@ public class Pipeline extends InputStream {
             this.myTimerTask.cancel();
     }
 
-    public Pipeline(InputStream pipe, int readTimeout, Timer timer) {
+    public Pipeline(InputStream pipe, int readTimeout, TimingWheel timer) {
         // pipe is the Socket stream
         // this is recorded here to implement a timeout.
         this.timer = timer;
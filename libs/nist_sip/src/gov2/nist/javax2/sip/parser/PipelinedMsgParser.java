@@ -75,6 +75,7 @@ public final class PipelinedMsgParser implements Runnable {
     private Pipeline rawInputStream;
     private int maxMessageSize;
     private int sizeCounter;
+    private boolean lazyHeaderParsing;
     //private int messageSize;
 
     /**
@@ -157,6 +158,7 @@ public final class PipelinedMsgParser implements Runnable {
 
         p.rawInputStream = this.rawInputStream;
         p.sipMessageListener = this.sipMessageListener;
+        p.lazyHeaderParsing = this.lazyHeaderParsing;
         Thread mythread = new Thread(p);
         mythread.setName("PipelineThread");
         return p;
@@ -175,6 +177,18 @@ public final class PipelinedMsgParser implements Runnable {
         sipMessageListener = mlistener;
     }
 
+    /**
+     * Enable the lazy header parsing of the messages read from the pipeline
+     * (to be called before processInput).
+     *
+     * @param lazyHeaderParsing
+     *            true to enable the lazy header parsing.
+     * @see StringMsgParser#setLazyHeaderParsing(boolean)
+     */
+    public void setLazyHeaderParsing(boolean lazyHeaderParsing) {
+        this.lazyHeaderParsing = lazyHeaderParsing;
+    }
+
     /**
      * read a line of input (I cannot use buffered reader because we may need to
      * switch encodings mid-stream!
@@ -270,6 +284,7 @@ public final class PipelinedMsgParser implements Runnable {
                 inputBuffer.append(line2);
                 StringMsgParser smp = new StringMsgParser(sipMessageListener);
                 smp.readBody = false;
+                smp.setLazyHeaderParsing(lazyHeaderParsing);
                 SIPMessage sipMessage = null;
 
                 try {
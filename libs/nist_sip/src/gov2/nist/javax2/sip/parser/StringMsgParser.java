@@ -44,6 +44,9 @@ import gov2.nist.javax2.sip.message.SIPResponse;
 
 import java.io.UnsupportedEncodingException;
 import java.text.ParseException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 /*
  * Acknowledgement: 1/12/2007: Yanick Belanger rewrote the parsing loops to make them
  * simpler and quicker.
@@ -59,9 +62,10 @@ import java.text.ParseException;
  * accessible from the parsed message using the getContent and getContentBytes
  * methods provided by the SIPMessage class. If SDP parsing is enabled using the
  * parseContent method, then the SDP body is also parsed and can be accessed
- * from the message using the getSDPAnnounce method. Currently only eager
- * parsing of the message is supported (i.e. the entire message is parsed in one
- * feld swoop).
+ * from the message using the getSDPAnnounce method. The entire message is
+ * parsed in one feld swoop unless the lazy header parsing is enabled: only the
+ * headers used by the transaction layer are then parsed and the other ones are
+ * parsed by the message on first access.
  *
  *
  * @version 1.2 $Revision: 1.26 $ $Date: 2009/10/22 10:27:38 $
@@ -79,6 +83,20 @@ public class StringMsgParser {
 
     private static boolean computeContentLengthFromMessage = false;
 
+    /**
+     * Headers parsed on reception in lazy header parsing mode.
+     */
+    private static final Set<String> eagerHeaders = new HashSet<String>(Arrays.asList(
+            SIPHeaderNamesCache.toLowerCase(SIPHeaderNames.VIA),
+            SIPHeaderNamesCache.toLowerCase(SIPHeaderNames.CSEQ),
+            SIPHeaderNamesCache.toLowerCase(SIPHeaderNames.CALL_ID),
+            SIPHeaderNamesCache.toLowerCase(SIPHeaderNames.FROM),
+            SIPHeaderNamesCache.toLowerCase(SIPHeaderNames.TO),
+            SIPHeaderNamesCache.toLowerCase(SIPHeaderNames.CONTENT_LENGTH),
+            SIPHeaderNamesCache.toLowerCase(SIPHeaderNames.MAX_FORWARDS)));
+
+    private boolean lazyHeaderParsing;
+
     /**
      * @since v0.9
      */
@@ -110,6 +128,31 @@ public class StringMsgParser {
         parseExceptionListener = pexhandler;
     }
 
+    /**
+     * Enable the lazy header parsing: the headers which are not used by the
+     * transaction layer are attached unparsed to the message.
+     *
+     * @param lazyHeaderParsing
+     *            true to enable the lazy header parsing.
+     * @see SIPMessage#attachUnparsedHeader(String, String)
+     */
+    public void setLazyHeaderParsing(boolean lazyHeaderParsing) {
+        this.lazyHeaderParsing = lazyHeaderParsing;
+    }
+
+    /**
+     * Checks if a header may be attached unparsed to a message. The compact
+     * forms of the header names are always parsed.
+     *
+     * @param headerName
+     *            name of the header.
+     * @return true if the header is not required by the transaction layer.
+     */
+    static boolean isLazyHeader(String headerName) {
+        return headerName != null && headerName.length() > 1
+                && !eagerHeaders.contains(SIPHeaderNamesCache.toLowerCase(headerName));
+    }
+
     /**
      * Parse a buffer containing a single SIP Message where the body is an array
      * of un-interpreted bytes. This is intended for parsing the message from a
@@ -391,6 +434,14 @@ public class StringMsgParser {
         if (header == null || header.length() == 0)
             return;
 
+        if (lazyHeaderParsing) {
+            String headerName = Lexer.getHeaderName(header);
+            if (isLazyHeader(headerName)) {
+                message.attachUnparsedHeader(headerName, header);
+                return;
+            }
+        }
+
         HeaderParser headerParser = null;
         try {
             headerParser = ParserFactory.createParser(header + "\n");
@@ -616,6 +667,15 @@ public class StringMsgParser {
         StringMsgParser.computeContentLengthFromMessage = computeContentLengthFromMessage;
     }
 
+    /**
+     * Checks if the content length is computed from the message body.
+     *
+     * @return true if the content length is computed from the message body
+     */
+    public static boolean isComputeContentLengthFromMessage() {
+        return computeContentLengthFromMessage;
+    }
+
 
 
     /**
@@ -8,9 +8,9 @@
 
 package gov2.nist.javax2.sip.stack;
 
-import android.os.SystemClock;
+import gov2.nist.core.TimingWheelTask;
 
-import java.util.TimerTask;
+import android.os.SystemClock;
 
 /**
  * A subclass of TimerTask which runs TimerTask code within a try/catch block to
@@ -20,7 +20,7 @@ import java.util.TimerTask;
  * @author Brett Buckingham
  *
  */
-public abstract class SIPStackTimerTask extends TimerTask {
+public abstract class SIPStackTimerTask extends TimingWheelTask {
     long taskOutdatedTime;
 
     // / Implements code to be run when the SIPStackTimerTask is executed.
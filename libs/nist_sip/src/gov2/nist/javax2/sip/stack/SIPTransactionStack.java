@@ -30,6 +30,7 @@ import gov2.nist.core.HostPort;
 import gov2.nist.core.ServerLogger;
 import gov2.nist.core.StackLogger;
 import gov2.nist.core.ThreadAuditor;
+import gov2.nist.core.TimingWheel;
 import gov2.nist.core.net.AddressResolver;
 import gov2.nist.core.net.DefaultNetworkLayer;
 import gov2.nist.core.net.NetworkLayer;
@@ -59,7 +60,6 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Set;
-import java.util.Timer;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -124,9 +124,12 @@ public abstract class SIPTransactionStack implements SIPTransactionEventListener
     // A set of methods that result in dialog creations.
     protected static final Set<String> dialogCreatingMethods = new HashSet<String>();
 
-    // Global timer. Use this for all timer tasks.
+    // Global timer. Use this for all timer tasks. A timing wheel is used so that scheduling and
+    // cancelling the transaction timers does not depend on the number of pending timers.
 
-    private Timer timer;
+    private TimingWheel timer;
+
+    private static final String TIMER_NAME = "SipStackTimer";
 
     // List of pending server transactions
     private ConcurrentHashMap<String, SIPServerTransaction> pendingTransactions;
@@ -257,6 +260,17 @@ public abstract class SIPTransactionStack implements SIPTransactionEventListener
      */
     protected int threadPoolSize;
 
+    /*
+     * Parse the received datagrams directly from their bytes with the ByteMsgParser.
+     */
+    protected boolean byteMessageParser;
+
+    /*
+     * Only parse the headers used by the transaction layer when a message is received, the
+     * other headers being parsed on first access.
+     */
+    protected boolean lazyHeaderParsing;
+
     /*
      * max number of simultaneous connections.
      */
@@ -476,7 +490,7 @@ public abstract class SIPTransactionStack implements SIPTransactionEventListener
 
         // Start the timer event thread.
 
-        this.timer = new Timer();
+        this.timer = new TimingWheel(TIMER_NAME, false);
         this.pendingTransactions = new ConcurrentHashMap<String, SIPServerTransaction>();
         
         
@@ -512,7 +526,7 @@ public abstract class SIPTransactionStack implements SIPTransactionEventListener
         this.terminatedServerTransactionsPendingAck = new ConcurrentHashMap<String,SIPServerTransaction>();
         this.forkedClientTransactionTable = new ConcurrentHashMap<String,SIPClientTransaction>();
 
-        this.timer = new Timer();
+        this.timer = new TimingWheel(TIMER_NAME, false);
 
         this.activeClientTransactionCount = new AtomicInteger(0);
 
@@ -2446,14 +2460,14 @@ public abstract class SIPTransactionStack implements SIPTransactionEventListener
     /**
      * @param timer the timer to set
      */
-    public void setTimer(Timer timer) {
+    public void setTimer(TimingWheel timer) {
         this.timer = timer;
     }
 
     /**
      * @return the timer
      */
-    public Timer getTimer() {
+    public TimingWheel getTimer() {
         return timer;
     }
 
@@ -36,7 +36,6 @@ import gov2.nist.javax2.sip.parser.*;
 import java.net.*;
 import java.io.*;
 import java.text.ParseException;
-import java.util.TimerTask;
 
 import javax2.sip.address.Hop;
 
@@ -314,7 +313,7 @@ public class TCPMessageChannel extends MessageChannel implements SIPMessageListe
                 /*
                  * Delay the close of the socket for some time in case it is being used.
                  */
-                sipStack.getTimer().schedule(new TimerTask() {
+                sipStack.getTimer().schedule(new TimingWheelTask() {
                     @Override
                     public boolean cancel() {
                         try {
@@ -600,6 +599,7 @@ public class TCPMessageChannel extends MessageChannel implements SIPMessageListe
         // Create a pipelined message parser to read and parse
         // messages that we write out to him.
         myParser = new PipelinedMsgParser(this, hispipe, this.sipStack.getMaxMessageSize());
+        myParser.setLazyHeaderParsing(sipStack.lazyHeaderParsing);
         // Start running the parser thread.
         myParser.processInput();
         // bug fix by Emmanuel Proulx
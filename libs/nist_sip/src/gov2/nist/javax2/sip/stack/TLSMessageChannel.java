@@ -577,6 +577,7 @@ public final class TLSMessageChannel extends MessageChannel implements SIPMessag
         // Create a pipelined message parser to read and parse
         // messages that we write out to him.
         myParser = new PipelinedMsgParser(this, hispipe, this.sipStack.getMaxMessageSize());
+        myParser.setLazyHeaderParsing(sipStack.lazyHeaderParsing);
         // Start running the parser thread.
         myParser.processInput();
         // bug fix by Emmanuel Proulx
@@ -33,6 +33,7 @@ import gov2.nist.core.InternalErrorHandler;
 import gov2.nist.core.ServerLogger;
 import gov2.nist.core.StackLogger;
 import gov2.nist.core.ThreadAuditor;
+import gov2.nist.core.TimingWheelTask;
 import gov2.nist.javax2.sip.SIPConstants;
 import gov2.nist.javax2.sip.header.CSeq;
 import gov2.nist.javax2.sip.header.CallID;
@@ -46,6 +47,7 @@ import gov2.nist.javax2.sip.message.SIPMessage;
 import gov2.nist.javax2.sip.message.SIPRequest;
 import gov2.nist.javax2.sip.message.SIPResponse;
 import gov2.nist.javax2.sip.parser.ParseExceptionListener;
+import gov2.nist.javax2.sip.parser.ByteMsgParser;
 import gov2.nist.javax2.sip.parser.StringMsgParser;
 
 import java.io.IOException;
@@ -54,7 +56,6 @@ import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.text.ParseException;
 import java.util.Hashtable;
-import java.util.TimerTask;
 
 import javax2.sip.address.Hop;
 
@@ -103,6 +104,11 @@ public class UDPMessageChannel extends MessageChannel implements
      */
     protected StringMsgParser myParser;
 
+    /**
+     * The byte level parser used instead when enabled on the stack.
+     */
+    protected ByteMsgParser myByteParser;
+
     /**
      * Where we got the stuff from
      */
@@ -137,7 +143,7 @@ public class UDPMessageChannel extends MessageChannel implements
      */
     private Hashtable<String,PingBackTimerTask> pingBackRecord = new Hashtable<String,PingBackTimerTask>();
     
-    class PingBackTimerTask extends TimerTask {
+    class PingBackTimerTask extends TimingWheelTask {
         String ipAddress;
         int port;
         
@@ -247,6 +253,7 @@ public class UDPMessageChannel extends MessageChannel implements
             if (myParser == null) {
                 myParser = new StringMsgParser();
                 myParser.setParseExceptionListener(this);
+                myParser.setLazyHeaderParsing(sipStack.lazyHeaderParsing);
             }
             // messages that we write out to him.
             DatagramPacket packet;
@@ -332,7 +339,15 @@ public class UDPMessageChannel extends MessageChannel implements
         SIPMessage sipMessage = null;
         try {
             this.receptionTime = System.currentTimeMillis();
-            sipMessage = myParser.parseSIPMessage(msgBytes);
+            if (sipStack.byteMessageParser) {
+                if (myByteParser == null) {
+                    myByteParser = new ByteMsgParser(this);
+                    myByteParser.setLazyHeaderParsing(sipStack.lazyHeaderParsing);
+                }
+                sipMessage = myByteParser.parseSIPMessage(msgBytes);
+            } else {
+                sipMessage = myParser.parseSIPMessage(msgBytes);
+            }
             myParser = null;
         } catch (ParseException ex) {
             myParser = null; // let go of the parser reference.